@@ -1750,4 +1750,13 @@ public final class AccountExceptionMessage {
 
   public static final String BATCH_BLOCK_CUSTOMER_WITH_LATE_PAYMENT = /*$$(*/
       "Block customer with late payment issues batch's reporting :" /*)*/;
+
+  public static final String BATCH_ACCOUNT_PERIOD_BALANCE = /*$$(*/
+      "Account period balances batch's reporting :" /*)*/;
+
+  public static final String BATCH_ACCOUNT_PERIOD_BALANCE_DONE = /*$$(*/
+      "Company(ies) verified : %s" /*)*/;
+
+  public static final String BATCH_ACCOUNT_PERIOD_BALANCE_FIXED = /*$$(*/
+      "Account period balance(s) fixed : %s" /*)*/;
 }
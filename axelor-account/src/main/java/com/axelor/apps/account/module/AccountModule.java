@@ -370,6 +370,8 @@ import com.axelor.apps.account.service.payment.paymentvoucher.PayVoucherDueEleme
 import com.axelor.apps.account.service.payment.paymentvoucher.PayVoucherDueElementServiceImpl;
 import com.axelor.apps.account.service.payment.paymentvoucher.PaymentVoucherCancelService;
 import com.axelor.apps.account.service.payment.paymentvoucher.PaymentVoucherCancelServiceImpl;
+import com.axelor.apps.account.service.period.AccountPeriodBalanceService;
+import com.axelor.apps.account.service.period.AccountPeriodBalanceServiceImpl;
 import com.axelor.apps.account.service.period.PeriodCheckService;
 import com.axelor.apps.account.service.period.PeriodCheckServiceImpl;
 import com.axelor.apps.account.service.period.PeriodControlService;
@@ -413,6 +415,7 @@ import com.axelor.apps.base.db.repo.PartnerBaseRepository;
 import com.axelor.apps.base.db.repo.PeriodRepository;
 import com.axelor.apps.base.service.BankDetailsServiceImpl;
 import com.axelor.apps.base.service.PeriodServiceImpl;
+import com.axelor.apps.base.service.administration.SequenceService;
 import com.axelor.apps.base.service.tax.AccountManagementServiceImpl;
 import com.axelor.apps.base.service.tax.FiscalPositionServiceImpl;
 import com.axelor.message.service.TemplateMessageService;
@@ -884,6 +887,8 @@ public class AccountModule extends AxelorModule {
 
     bind(PeriodCheckService.class).to(PeriodCheckServiceImpl.class);
 
+    bind(AccountPeriodBalanceService.class).to(AccountPeriodBalanceServiceImpl.class);
+
     bind(InvoicePaymentComputeService.class).to(InvoicePaymentComputeServiceImpl.class);
 
     bind(InvoiceTermToolService.class).to(InvoiceTermToolServiceImpl.class);
@@ -918,5 +923,7 @@ public class AccountModule extends AxelorModule {
 
     bind(AdvancePaymentMoveLineCreateService.class)
         .to(AdvancePaymentMoveLineCreateServiceImpl.class);
+
+    bind(SequenceService.class).to(SequenceAccountService.class);
   }
 }
@@ -20,10 +20,8 @@ package com.axelor.apps.account.service;
 
 import com.axelor.apps.account.db.AccountingReport;
 import com.axelor.apps.account.db.AccountingReportType;
-import com.axelor.apps.account.db.Journal;
 import com.axelor.apps.account.db.Move;
 import com.axelor.apps.account.db.MoveLine;
-import com.axelor.apps.account.db.ReconcileGroup;
 import com.axelor.apps.account.db.repo.AccountRepository;
 import com.axelor.apps.account.db.repo.AccountingReportRepository;
 import com.axelor.apps.account.db.repo.JournalRepository;
@@ -48,26 +46,37 @@ import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.meta.MetaFiles;
 import com.axelor.meta.db.MetaFile;
-import com.axelor.utils.helpers.file.CsvHelper;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Writer;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -92,6 +101,21 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
 
   protected static final String DATE_FORMAT_YYYYMMDD = "yyyyMMdd";
   protected static final String DATE_FORMAT_YYYYMMDDHHMMSS = "yyyyMMddHHmmss";
+  protected static final DateTimeFormatter DATE_FORMATTER_YYYYMMDD =
+      DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD);
+
+  protected static final int EXPORT_PAGE_SIZE = 10000;
+  protected static final Pattern EXPORT_ITEM_REPLACE_PATTERN =
+      Pattern.compile("(\r\n|\n\r|\r|\n|\\|)");
+  protected static final String EXPORT_LINE_END = "\r\n";
+  /** Order of the exported move lines, the last key must be unique and not null. */
+  protected static final String[] EXPORT_ORDER_KEYS = {
+    "move.accountingDate", "self.date", "self.name", "self.id"
+  };
+  /** Index in the export rows of each order key. */
+  protected static final int[] EXPORT_ORDER_KEY_COLUMNS = {17, 3, 21, 22};
+
+  protected static final int EXPORT_ROW_MOVE_ID = 20;
 
   @Inject
   public MoveLineExportServiceImpl(
@@ -127,14 +151,27 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
       LocalDate localDate,
       String exportNumber) {
 
+    this.updateMoveIdList(
+        moveList.stream().map(Move::getId).collect(Collectors.toList()),
+        accountingReport,
+        localDate,
+        exportNumber);
+  }
+
+  protected void updateMoveIdList(
+      Collection<Long> moveIdList,
+      AccountingReport accountingReport,
+      LocalDate localDate,
+      String exportNumber) {
+
     int i = 0;
 
-    int moveListSize = moveList.size();
+    int moveListSize = moveIdList.size();
 
-    for (Move move : moveList) {
+    for (Long moveId : moveIdList) {
 
       this.updateMove(
-          moveRepo.find(move.getId()),
+          moveRepo.find(moveId),
           accountingReportRepo.find(accountingReport.getId()),
           localDate,
           exportNumber);
@@ -346,7 +383,6 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
       throws AxelorException, IOException {
 
     log.info("In Export type 1000 service : ");
-    List<String[]> allMoveLineData = new ArrayList<>();
     Company company = accountingReport.getCompany();
 
     LocalDate interfaceDate = accountingReport.getDate();
@@ -406,133 +442,182 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
 
     String moveLineQueryStr = StringUtils.join(moveLineQueryList, " AND ");
 
-    com.axelor.db.Query<MoveLine> moveLineQuery =
-        moveLineRepo
-            .all()
-            .filter(moveLineQueryStr)
-            .order("move.accountingDate")
-            .order("date")
-            .order("name");
-
-    int offset = 0;
-    List<Long> moveLineIdList;
-    List<Move> moveList = new ArrayList<>();
-    String exportNumber = null;
-
-    while (!(moveLineIdList =
-            moveLineQuery
-                .fetchStream(10000, offset)
-                .map(MoveLine::getId)
-                .collect(Collectors.toList()))
-        .isEmpty()) {
-
-      for (Long id : moveLineIdList) {
-        MoveLine moveLine = moveLineRepo.find(id);
-        offset++;
-        allMoveLineData.add(createItemForExportMoveLine(moveLine, moveList));
-      }
+    String fileName = this.setFileName(accountingReport);
+    Path path = this.getExportFilePath(company, fileName);
+    log.debug("Full path to export : {}", path);
+
+    Set<Long> moveIdSet = new LinkedHashSet<>();
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      this.writeExportLine(writer, this.createHeaderForJournalEntry());
+
+      Object[] lastRow = null;
+      List<Object[]> rowList;
+      do {
+        rowList = this.fetchMoveLineExportRowList(moveLineQueryStr, lastRow);
+        for (Object[] row : rowList) {
+          moveIdSet.add((Long) row[EXPORT_ROW_MOVE_ID]);
+          this.writeExportLine(writer, this.createItemForExportMoveLine(row));
+        }
+        if (!rowList.isEmpty()) {
+          lastRow = rowList.get(rowList.size() - 1);
+        }
+      } while (rowList.size() == EXPORT_PAGE_SIZE);
+    }
 
+    // Moves are updated once all their lines are exported, as updated moves are excluded from the
+    // export query.
+    if (!administration && !moveIdSet.isEmpty()) {
       JPA.clear();
       company = companyRepository.find(company.getId());
-      if (!administration) {
-        exportNumber = exportNumber != null ? exportNumber : this.getSaleExportNumber(company);
-        this.updateMoveList(moveList, accountingReport, interfaceDate, exportNumber);
-      }
-
-      moveList.clear();
+      String exportNumber = this.getSaleExportNumber(company);
+      this.updateMoveIdList(moveIdSet, accountingReport, interfaceDate, exportNumber);
     }
 
     accountingReport = accountingReportRepo.find(accountingReport.getId());
-
-    String fileName = this.setFileName(accountingReport);
     accountingReportRepo.save(accountingReport);
-    return writeMoveLineToCsvFile(
-        company, fileName, this.createHeaderForJournalEntry(), allMoveLineData, accountingReport);
+
+    try (InputStream is = new FileInputStream(path.toFile())) {
+      return Beans.get(MetaFiles.class).attach(is, fileName, accountingReport).getMetaFile();
+    }
   }
 
-  protected String[] createItemForExportMoveLine(MoveLine moveLine, List<Move> moveList) {
-    String[] items = new String[18];
-    Move move = moveLine.getMove();
-    if (!moveList.contains(move)) {
-      moveList.add(move);
+  /**
+   * Fetch the next page of exported move lines, with only the exported columns. Pages are read with
+   * a keyset on the export order instead of an offset, so each page costs the same.
+   *
+   * @param filter the filter on move lines
+   * @param lastRow the last row of the previous page, null for the first page
+   */
+  protected List<Object[]> fetchMoveLineExportRowList(String filter, Object[] lastRow) {
+    StringBuilder queryStr =
+        new StringBuilder(
+            "SELECT journal.code, journal.name, move.reference, self.date, account.code,"
+                + " account.name, accountType.isManageSubsidiaryAccount, partner.partnerSeq,"
+                + " partner.name, self.origin, self.originDate, self.description, self.debit,"
+                + " self.credit, reconcileGroup.statusSelect, reconcileGroup.code,"
+                + " reconcileGroup.letteringDateTime, move.accountingDate, self.currencyAmount,"
+                + " currency.codeISO, move.id, self.name, self.id, partner.id"
+                + " FROM MoveLine self"
+                + " JOIN self.move move"
+                + " JOIN move.journal journal"
+                + " JOIN self.account account"
+                + " LEFT JOIN account.accountType accountType"
+                + " LEFT JOIN self.partner partner"
+                + " LEFT JOIN self.reconcileGroup reconcileGroup"
+                + " LEFT JOIN move.currency currency"
+                + " WHERE (");
+    queryStr.append(filter).append(")");
+
+    Map<String, Object> parameterMap = new HashMap<>();
+    if (lastRow != null) {
+      queryStr.append(" AND ");
+      appendKeysetCondition(queryStr, parameterMap, lastRow, 0);
     }
-    Journal journal = move.getJournal();
-    items[0] = journal.getCode();
-    items[1] = journal.getName();
-    items[2] = moveLine.getMove().getReference();
-    items[3] = moveLine.getDate().format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
-    items[4] = moveLine.getAccount().getCode();
-    items[5] = moveLine.getAccount().getName();
+    queryStr.append(" ORDER BY move.accountingDate, self.date, self.name, self.id");
+
+    TypedQuery<Object[]> query =
+        JPA.em().createQuery(queryStr.toString(), Object[].class).setMaxResults(EXPORT_PAGE_SIZE);
+    parameterMap.forEach(query::setParameter);
+    return query.getResultList();
+  }
+
+  /**
+   * Append the condition selecting the rows after the given row in the export order. Null values
+   * are sorted last, as the database does for an ascending order.
+   */
+  protected void appendKeysetCondition(
+      StringBuilder queryStr, Map<String, Object> parameterMap, Object[] lastRow, int keyIndex) {
+    String key = EXPORT_ORDER_KEYS[keyIndex];
+    Object lastValue = lastRow[EXPORT_ORDER_KEY_COLUMNS[keyIndex]];
+    String parameter = "lastKey" + keyIndex;
+
+    if (keyIndex == EXPORT_ORDER_KEYS.length - 1) {
+      queryStr.append(String.format("%s > :%s", key, parameter));
+      parameterMap.put(parameter, lastValue);
+      return;
+    }
+
+    if (lastValue == null) {
+      queryStr.append(String.format("(%s IS NULL AND ", key));
+    } else {
+      queryStr.append(
+          String.format("(%1$s > :%2$s OR %1$s IS NULL OR (%1$s = :%2$s AND ", key, parameter));
+      parameterMap.put(parameter, lastValue);
+    }
+    appendKeysetCondition(queryStr, parameterMap, lastRow, keyIndex + 1);
+    queryStr.append(lastValue == null ? ")" : "))");
+  }
+
+  protected String[] createItemForExportMoveLine(Object[] row) {
+    String[] items = new String[18];
+    items[0] = (String) row[0];
+    items[1] = (String) row[1];
+    items[2] = (String) row[2];
+    items[3] = ((LocalDate) row[3]).format(DATE_FORMATTER_YYYYMMDD);
+    items[4] = (String) row[4];
+    items[5] = (String) row[5];
     items[6] = "";
     items[7] = "";
-    Partner partner = moveLine.getPartner();
-    if (partner != null && moveLine.getAccount().getAccountType().getIsManageSubsidiaryAccount()) {
-      items[6] = partner.getPartnerSeq();
-      items[7] = partner.getName();
+    if (row[23] != null && Boolean.TRUE.equals(row[6])) {
+      items[6] = (String) row[7];
+      items[7] = (String) row[8];
     }
-    String origin = moveLine.getOrigin();
+    String origin = (String) row[9];
     items[8] = Strings.isNullOrEmpty(origin) ? "NA" : origin;
-    if (moveLine.getOriginDate() != null) {
-      items[9] = moveLine.getOriginDate().format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
+    if (row[10] != null) {
+      items[9] = ((LocalDate) row[10]).format(DATE_FORMATTER_YYYYMMDD);
     }
-    items[10] = moveLine.getDescription();
-    items[11] = moveLine.getDebit().toString().replace('.', ',');
-    items[12] = moveLine.getCredit().toString().replace('.', ',');
-
-    ReconcileGroup reconcileGroup = moveLine.getReconcileGroup();
-    if (reconcileGroup != null
-        && reconcileGroup.getStatusSelect() == ReconcileGroupRepository.STATUS_BALANCED) {
-      items[13] = reconcileGroup.getCode();
-      items[14] =
-          reconcileGroup
-              .getLetteringDateTime()
-              .format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
+    items[10] = (String) row[11];
+    items[11] = getDecimalValue(row[12]).toString().replace('.', ',');
+    items[12] = getDecimalValue(row[13]).toString().replace('.', ',');
+
+    if (row[14] != null && (Integer) row[14] == ReconcileGroupRepository.STATUS_BALANCED) {
+      items[13] = (String) row[15];
+      items[14] = ((LocalDateTime) row[16]).format(DATE_FORMATTER_YYYYMMDD);
     } else {
       items[13] = "";
       items[14] = "";
     }
 
-    if (move.getAccountingDate() != null) {
-      items[15] =
-          move.getAccountingDate().format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
+    if (row[17] != null) {
+      items[15] = ((LocalDate) row[17]).format(DATE_FORMATTER_YYYYMMDD);
     }
 
-    items[16] = moveLine.getCurrencyAmount().toString().replace('.', ',');
+    items[16] = getDecimalValue(row[18]).toString().replace('.', ',');
 
-    if (move.getCurrency() != null) {
-      items[17] = move.getCurrency().getCodeISO();
-    }
+    items[17] = (String) row[19];
     return items;
   }
 
-  protected MetaFile writeMoveLineToCsvFile(
-      Company company,
-      String fileName,
-      String[] columnHeader,
-      List<String[]> allMoveData,
-      AccountingReport accountingReport)
-      throws AxelorException, IOException {
+  protected BigDecimal getDecimalValue(Object value) {
+    return value != null ? (BigDecimal) value : BigDecimal.ZERO;
+  }
 
+  protected Path getExportFilePath(Company company, String fileName) throws AxelorException {
     String filePath = accountConfigService.getAccountConfig(company).getExportPath();
     String dataExportDir = appAccountService.getDataExportDir();
 
-    for (String[] items : allMoveData) {
-      for (int i = 0; i < items.length; i++) {
-        if (items[i] != null) {
-          items[i] = items[i].replaceAll("(\r\n|\n\r|\r|\n|\\|)", " ");
-        }
-      }
-    }
-
     filePath = filePath == null ? dataExportDir : dataExportDir + filePath;
     new File(filePath).mkdirs();
+    return Paths.get(filePath, fileName);
+  }
 
-    log.debug("Full path to export : {}{}", filePath, fileName);
-    CsvHelper.csvWriter(filePath, fileName, '|', columnHeader, allMoveData);
-    Path path = Paths.get(filePath, fileName);
-    try (InputStream is = new FileInputStream(path.toFile())) {
-      return Beans.get(MetaFiles.class).attach(is, fileName, accountingReport).getMetaFile();
+  /**
+   * Write the items separated by '|', as the CSV helper does: items are not quoted, double quotes
+   * are escaped by doubling them and lines end with CRLF. Line breaks and separators in items are
+   * replaced.
+   */
+  protected void writeExportLine(Writer writer, String[] items) throws IOException {
+    for (int i = 0; i < items.length; i++) {
+      if (i > 0) {
+        writer.write('|');
+      }
+      if (items[i] != null) {
+        writer.write(
+            EXPORT_ITEM_REPLACE_PATTERN.matcher(items[i]).replaceAll(" ").replace("\"", "\"\""));
+      }
     }
+    writer.write(EXPORT_LINE_END);
   }
 
   public String[] createHeaderForJournalEntry() {
@@ -665,20 +750,11 @@ public class MoveLineExportServiceImpl implements MoveLineExportService {
     String fileName = partnerService.getSIRENNumber(partner) + "FEC";
     // On récupère la date de clôture de l'exercice/période
     if (accountingReport.getDateTo() != null) {
-      fileName +=
-          accountingReport.getDateTo().format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
+      fileName += accountingReport.getDateTo().format(DATE_FORMATTER_YYYYMMDD);
     } else if (accountingReport.getPeriod() != null) {
-      fileName +=
-          accountingReport
-              .getPeriod()
-              .getToDate()
-              .format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
+      fileName += accountingReport.getPeriod().getToDate().format(DATE_FORMATTER_YYYYMMDD);
     } else if (accountingReport.getYear() != null) {
-      fileName +=
-          accountingReport
-              .getYear()
-              .getToDate()
-              .format(DateTimeFormatter.ofPattern(DATE_FORMAT_YYYYMMDD));
+      fileName += accountingReport.getYear().getToDate().format(DATE_FORMATTER_YYYYMMDD);
     } else {
       throw new AxelorException(
           TraceBackRepository.CATEGORY_NO_VALUE,
@@ -0,0 +1,92 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.batch;
+
+import com.axelor.apps.account.exception.AccountExceptionMessage;
+import com.axelor.apps.account.service.period.AccountPeriodBalanceService;
+import com.axelor.apps.base.db.Company;
+import com.axelor.apps.base.db.repo.CompanyRepository;
+import com.axelor.apps.base.exceptions.BaseExceptionMessage;
+import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.db.JPA;
+import com.axelor.i18n.I18n;
+import com.google.inject.Inject;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class BatchAccountPeriodBalance extends BatchStrategy {
+
+  protected AccountPeriodBalanceService accountPeriodBalanceService;
+  protected CompanyRepository companyRepository;
+
+  protected int fixedBalanceCount;
+
+  @Inject
+  public BatchAccountPeriodBalance(
+      AccountPeriodBalanceService accountPeriodBalanceService,
+      CompanyRepository companyRepository) {
+    this.accountPeriodBalanceService = accountPeriodBalanceService;
+    this.companyRepository = companyRepository;
+  }
+
+  @Override
+  protected void process() {
+    for (Long companyId : this.getCompanyIdList()) {
+      try {
+        fixedBalanceCount += accountPeriodBalanceService.verify(companyRepository.find(companyId));
+        incrementDone();
+      } catch (Exception e) {
+        TraceBackService.trace(e, null, batch.getId());
+        incrementAnomaly();
+      } finally {
+        JPA.clear();
+      }
+    }
+  }
+
+  protected List<Long> getCompanyIdList() {
+    Company company = batch.getAccountingBatch().getCompany();
+    if (company != null) {
+      return Collections.singletonList(company.getId());
+    }
+    return companyRepository.all().select("id").fetch(0, 0).stream()
+        .map(map -> (Long) map.get("id"))
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  protected void stop() {
+    StringBuilder comment =
+        new StringBuilder(I18n.get(AccountExceptionMessage.BATCH_ACCOUNT_PERIOD_BALANCE));
+    comment.append(
+        String.format(
+            "\n\t* " + I18n.get(AccountExceptionMessage.BATCH_ACCOUNT_PERIOD_BALANCE_DONE),
+            batch.getDone()));
+    comment.append(
+        String.format(
+            "\n\t* " + I18n.get(AccountExceptionMessage.BATCH_ACCOUNT_PERIOD_BALANCE_FIXED),
+            fixedBalanceCount));
+    comment.append(
+        String.format("\n\t" + I18n.get(BaseExceptionMessage.BASE_BATCH_3), batch.getAnomaly()));
+
+    super.stop();
+    addComment(comment.toString());
+  }
+}
@@ -37,11 +37,13 @@ import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.db.JPA;
 import com.axelor.db.Query;
 import com.axelor.i18n.I18n;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -49,6 +51,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.commons.collections.CollectionUtils;
@@ -70,7 +73,7 @@ public class BatchAutoMoveLettering extends BatchStrategy {
   protected ReconcileGroupProposalService reconcileGroupProposalService;
 
   protected AccountingBatch accountingBatch;
-  protected Set<MoveLine> moveLineReconciledSet;
+  protected Set<Long> moveLineReconciledIdSet;
 
   @Inject
   public BatchAutoMoveLettering(
@@ -94,7 +97,7 @@ public class BatchAutoMoveLettering extends BatchStrategy {
   @Override
   protected void process() {
     accountingBatch = batch.getAccountingBatch();
-    moveLineReconciledSet = new HashSet<>();
+    moveLineReconciledIdSet = new HashSet<>();
 
     Map<List<Object>, Pair<List<MoveLine>, List<MoveLine>>> moveLineMap = getMoveLinesMap();
 
@@ -132,7 +135,7 @@ public class BatchAutoMoveLettering extends BatchStrategy {
             reconcileMethodSelect);
       }
     }
-    for (MoveLine moveLine : moveLineReconciledSet) {
+    for (int i = 0; i < moveLineReconciledIdSet.size(); i++) {
       incrementDone();
     }
   }
@@ -193,7 +196,34 @@ public class BatchAutoMoveLettering extends BatchStrategy {
             .reduce(BigDecimal::add)
             .orElse(BigDecimal.ZERO);
 
+    List<Pair<MoveLine, MoveLine>> moveLinePairList;
+    if (reconcileMethodSelect
+        == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE) {
+      moveLinePairList =
+          findBalancedMovePairList(
+              debitMoveLines, creditMoveLines, debitTotalRemaining, creditTotalRemaining);
+    } else {
+      moveLinePairList =
+          findIndexedPairList(debitMoveLines, creditMoveLines, reconcileMethodSelect);
+    }
+
+    reconcilePairList(moveLinePairList, debitTotalRemaining, creditTotalRemaining);
+  }
+
+  /**
+   * Pair every debit move line with every credit move line, as long as the remaining amounts stay
+   * positive when the move lines are not balanced.
+   *
+   * @return the pairs of debit and credit move lines to reconcile, in reconcile order
+   */
+  protected List<Pair<MoveLine, MoveLine>> findBalancedMovePairList(
+      List<MoveLine> debitMoveLines,
+      List<MoveLine> creditMoveLines,
+      BigDecimal debitTotalRemaining,
+      BigDecimal creditTotalRemaining) {
+
     boolean isBalanced = debitTotalRemaining.compareTo(creditTotalRemaining) == 0;
+    List<Pair<MoveLine, MoveLine>> moveLinePairList = new ArrayList<>();
 
     Map<MoveLine, BigDecimal> debitRemaining = new HashMap<>();
     for (MoveLine debitMoveLine : debitMoveLines) {
@@ -202,86 +232,213 @@ public class BatchAutoMoveLettering extends BatchStrategy {
     for (MoveLine creditMoveLine : creditMoveLines) {
       BigDecimal creditRemaining = creditMoveLine.getAmountRemaining().abs();
       for (MoveLine debitMoveLine : debitMoveLines) {
-        BigDecimal debit = debitMoveLine.getDebit();
-        BigDecimal credit = creditMoveLine.getCredit();
-        BigDecimal nextCreditRemaining = creditRemaining.subtract(debit);
-        BigDecimal nextDebitRemaining = debitRemaining.get(debitMoveLine).subtract(credit);
-        if (reconcileMethodSelect
-                == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE
-            && !isBalanced
-            && (nextCreditRemaining.signum() < 0 || nextDebitRemaining.signum() < 0)) {
+        BigDecimal nextCreditRemaining = creditRemaining.subtract(debitMoveLine.getDebit());
+        BigDecimal nextDebitRemaining =
+            debitRemaining.get(debitMoveLine).subtract(creditMoveLine.getCredit());
+        if (!isBalanced && (nextCreditRemaining.signum() < 0 || nextDebitRemaining.signum() < 0)) {
+          continue;
+        }
+        moveLinePairList.add(Pair.of(debitMoveLine, creditMoveLine));
+        creditRemaining = nextCreditRemaining;
+        debitRemaining.replace(debitMoveLine, nextDebitRemaining);
+      }
+    }
+    return moveLinePairList;
+  }
+
+  /**
+   * Pair debit and credit move lines having the same matching key. Debit move lines are indexed by
+   * key so that each credit move line only goes through the debit move lines it can be reconciled
+   * with. Remaining amounts are followed in memory, so that move lines already fully reconciled by
+   * a previous pair are not paired again. In proposal mode, every matching pair is proposed.
+   *
+   * @return the pairs of debit and credit move lines to reconcile, in reconcile order
+   */
+  protected List<Pair<MoveLine, MoveLine>> findIndexedPairList(
+      List<MoveLine> debitMoveLines, List<MoveLine> creditMoveLines, int reconcileMethodSelect) {
+
+    Map<Object, List<MoveLine>> debitMoveLineMap = new HashMap<>();
+    // Keyed by id as move lines share the same hash code
+    Map<Long, BigDecimal> remainingMap = new HashMap<>();
+    Map<Long, BigDecimal> maxAmountToReconcileMap = new HashMap<>();
+    for (MoveLine debitMoveLine : debitMoveLines) {
+      Object key = getMatchingKey(reconcileMethodSelect, debitMoveLine, debitMoveLine.getDebit());
+      if (key != null) {
+        debitMoveLineMap.computeIfAbsent(key, k -> new ArrayList<>()).add(debitMoveLine);
+        remainingMap.put(debitMoveLine.getId(), debitMoveLine.getAmountRemaining());
+        maxAmountToReconcileMap.put(debitMoveLine.getId(), debitMoveLine.getMaxAmountToReconcile());
+      }
+    }
+
+    List<Pair<MoveLine, MoveLine>> moveLinePairList = new ArrayList<>();
+    for (MoveLine creditMoveLine : creditMoveLines) {
+      List<MoveLine> matchingDebitMoveLineList =
+          debitMoveLineMap.get(
+              getMatchingKey(reconcileMethodSelect, creditMoveLine, creditMoveLine.getCredit()));
+      if (matchingDebitMoveLineList == null) {
+        continue;
+      }
+      if (accountingBatch.getIsProposal()) {
+        for (MoveLine debitMoveLine : matchingDebitMoveLineList) {
+          moveLinePairList.add(Pair.of(debitMoveLine, creditMoveLine));
+        }
+        continue;
+      }
+
+      BigDecimal creditRemaining = creditMoveLine.getAmountRemaining().abs();
+      for (MoveLine debitMoveLine : matchingDebitMoveLineList) {
+        if (creditRemaining.signum() <= 0) {
+          break;
+        }
+        BigDecimal debitRemaining = remainingMap.get(debitMoveLine.getId());
+        if (debitRemaining.signum() <= 0) {
           continue;
         }
+        moveLinePairList.add(Pair.of(debitMoveLine, creditMoveLine));
 
-        if (canBeReconciled(reconcileMethodSelect, debitMoveLine, creditMoveLine)) {
-          try {
-            debitMoveLine = moveLineRepository.find(debitMoveLine.getId());
-            creditMoveLine = moveLineRepository.find(creditMoveLine.getId());
-
-            reconcile(debitMoveLine, creditMoveLine, debitTotalRemaining, creditTotalRemaining);
-            creditRemaining = nextCreditRemaining;
-            debitRemaining.replace(debitMoveLine, nextDebitRemaining);
-            moveLineReconciledSet.add(debitMoveLine);
-            moveLineReconciledSet.add(creditMoveLine);
-          } catch (Exception e) {
-            TraceBackService.trace(
-                new Exception(
-                    String.format(
-                        I18n.get("Debit move line %s and Credit move line %s"),
-                        debitMoveLine.getName(),
-                        creditMoveLine.getName()),
-                    e),
-                ExceptionOriginRepository.MOVE_LINE_RECONCILE,
-                batch.getId());
-            incrementAnomaly();
-            LOG.error(
-                "Anomaly generated while lettering debit move line {} and credit move line {}",
-                debitMoveLine.getName(),
-                creditMoveLine.getName());
-          } finally {
-            JPA.clear();
-          }
+        BigDecimal maxAmountToReconcile = maxAmountToReconcileMap.get(debitMoveLine.getId());
+        BigDecimal amount;
+        if (maxAmountToReconcile != null && maxAmountToReconcile.signum() > 0) {
+          amount = maxAmountToReconcile.min(creditRemaining);
+          maxAmountToReconcileMap.put(debitMoveLine.getId(), null);
+        } else {
+          amount = creditRemaining.min(debitRemaining);
         }
+        remainingMap.put(debitMoveLine.getId(), debitRemaining.subtract(amount));
+        creditRemaining = creditRemaining.subtract(amount);
       }
     }
+    return moveLinePairList;
   }
 
-  private boolean canBeReconciled(
-      int reconcileMethodSelect, MoveLine debitMoveLine, MoveLine creditMoveLine) {
-    if (reconcileMethodSelect
-        == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_MOVE) {
-      return true;
+  /**
+   * Key that must be shared by a debit and a credit move line to reconcile them with the given
+   * method.
+   *
+   * @param amount the debit or the credit of the move line
+   * @return the key, or null if the move line cannot be reconciled
+   */
+  protected Object getMatchingKey(int reconcileMethodSelect, MoveLine moveLine, BigDecimal amount) {
+    BigDecimal amountKey = amount.stripTrailingZeros();
+    switch (reconcileMethodSelect) {
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT:
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_ACCOUNT:
+        return amountKey;
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_ORIGIN:
+        return getMatchingKey(moveLine.getOrigin(), amountKey);
+      case AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_EXTERNAL_IDENTIFIER:
+        return getMatchingKey(moveLine.getExternalOrigin(), amountKey);
+      default:
+        return null;
+    }
+  }
+
+  protected Object getMatchingKey(String identifier, BigDecimal amountKey) {
+    if (identifier == null) {
+      return null;
+    }
+    if (accountingBatch.getIsPartialReconcile()) {
+      return identifier;
+    }
+    return Arrays.asList(identifier, amountKey);
+  }
+
+  /**
+   * Reconcile the pairs by groups, each group in one transaction. If a group fails, its pairs are
+   * reconciled again one by one to find the ones generating an anomaly.
+   */
+  protected void reconcilePairList(
+      List<Pair<MoveLine, MoveLine>> moveLinePairList,
+      BigDecimal debitTotalRemaining,
+      BigDecimal creditTotalRemaining) {
+
+    for (List<Pair<MoveLine, MoveLine>> moveLinePairGroup :
+        Lists.partition(moveLinePairList, getChunkSize())) {
+      boolean reconciled = false;
+      try {
+        reconcileGroup(moveLinePairGroup, debitTotalRemaining, creditTotalRemaining);
+        reconciled = true;
+      } catch (Exception e) {
+        LOG.debug("Lettering group failed, lettering its move lines one by one", e);
+      } finally {
+        JPA.clear();
+      }
+
+      for (Pair<MoveLine, MoveLine> moveLinePair : moveLinePairGroup) {
+        if (reconciled) {
+          moveLineReconciledIdSet.add(moveLinePair.getLeft().getId());
+          moveLineReconciledIdSet.add(moveLinePair.getRight().getId());
+        } else {
+          reconcilePair(
+              moveLinePair.getLeft(),
+              moveLinePair.getRight(),
+              debitTotalRemaining,
+              creditTotalRemaining);
+        }
+      }
+    }
+  }
+
+  @Transactional(rollbackOn = {Exception.class})
+  protected void reconcileGroup(
+      List<Pair<MoveLine, MoveLine>> moveLinePairGroup,
+      BigDecimal debitTotalRemaining,
+      BigDecimal creditTotalRemaining)
+      throws AxelorException {
+
+    Set<Long> moveLineIdSet = new HashSet<>();
+    for (Pair<MoveLine, MoveLine> moveLinePair : moveLinePairGroup) {
+      moveLineIdSet.add(moveLinePair.getLeft().getId());
+      moveLineIdSet.add(moveLinePair.getRight().getId());
+    }
+    Map<Long, MoveLine> moveLineMap =
+        moveLineRepository
+            .all()
+            .filter("self.id IN :moveLineIdSet")
+            .bind("moveLineIdSet", moveLineIdSet)
+            .fetch()
+            .stream()
+            .collect(Collectors.toMap(MoveLine::getId, Function.identity()));
+
+    for (Pair<MoveLine, MoveLine> moveLinePair : moveLinePairGroup) {
+      reconcile(
+          moveLineMap.get(moveLinePair.getLeft().getId()),
+          moveLineMap.get(moveLinePair.getRight().getId()),
+          debitTotalRemaining,
+          creditTotalRemaining);
+    }
+  }
+
+  protected void reconcilePair(
+      MoveLine debitMoveLine,
+      MoveLine creditMoveLine,
+      BigDecimal debitTotalRemaining,
+      BigDecimal creditTotalRemaining) {
+    try {
+      debitMoveLine = moveLineRepository.find(debitMoveLine.getId());
+      creditMoveLine = moveLineRepository.find(creditMoveLine.getId());
+
+      reconcile(debitMoveLine, creditMoveLine, debitTotalRemaining, creditTotalRemaining);
+      moveLineReconciledIdSet.add(debitMoveLine.getId());
+      moveLineReconciledIdSet.add(creditMoveLine.getId());
+    } catch (Exception e) {
+      TraceBackService.trace(
+          new Exception(
+              String.format(
+                  I18n.get("Debit move line %s and Credit move line %s"),
+                  debitMoveLine.getName(),
+                  creditMoveLine.getName()),
+              e),
+          ExceptionOriginRepository.MOVE_LINE_RECONCILE,
+          batch.getId());
+      incrementAnomaly();
+      LOG.error(
+          "Anomaly generated while lettering debit move line {} and credit move line {}",
+          debitMoveLine.getName(),
+          creditMoveLine.getName());
+    } finally {
+      JPA.clear();
     }
-    BigDecimal debit = debitMoveLine.getDebit();
-    BigDecimal credit = creditMoveLine.getCredit();
-
-    boolean isBalanced = debit.compareTo(credit) == 0;
-
-    boolean reconcileByAmount =
-        reconcileMethodSelect == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_AMOUNT
-            && isBalanced;
-    boolean reconcileByOrigin =
-        reconcileMethodSelect == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_ORIGIN
-            && debitMoveLine.getOrigin() != null
-            && creditMoveLine.getOrigin() != null
-            && debitMoveLine.getOrigin().equals(creditMoveLine.getOrigin())
-            && (accountingBatch.getIsPartialReconcile() || isBalanced);
-    boolean reconcileByBalancedAccount =
-        reconcileMethodSelect
-                == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_BALANCED_ACCOUNT
-            && isBalanced;
-    boolean reconcileByExternalIdentifier =
-        reconcileMethodSelect
-                == AccountingBatchRepository.AUTO_MOVE_LETTERING_RECONCILE_BY_EXTERNAL_IDENTIFIER
-            && debitMoveLine.getExternalOrigin() != null
-            && creditMoveLine.getExternalOrigin() != null
-            && debitMoveLine.getExternalOrigin().equals(creditMoveLine.getExternalOrigin())
-            && (accountingBatch.getIsPartialReconcile() || isBalanced);
-
-    return reconcileByAmount
-        || reconcileByOrigin
-        || reconcileByBalancedAccount
-        || reconcileByExternalIdentifier;
   }
 
   @Transactional
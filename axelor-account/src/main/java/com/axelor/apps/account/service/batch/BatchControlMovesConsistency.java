@@ -20,20 +20,23 @@ package com.axelor.apps.account.service.batch;
 
 import com.axelor.apps.account.db.AccountingBatch;
 import com.axelor.apps.account.db.Move;
+import com.axelor.apps.account.db.repo.MoveRepository;
 import com.axelor.apps.account.service.move.MoveToolService;
 import com.axelor.apps.account.service.move.MoveValidateService;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.TraceBack;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.administration.ChunkedBatch;
 import com.axelor.apps.base.service.exception.TraceBackService;
-import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
 import com.google.inject.Inject;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 import org.apache.commons.collections.CollectionUtils;
 
-public class BatchControlMovesConsistency extends BatchStrategy {
+public class BatchControlMovesConsistency extends BatchStrategy implements ChunkedBatch {
 
   protected MoveToolService moveToolService;
   protected MoveValidateService moveValidateService;
@@ -50,33 +53,42 @@ public class BatchControlMovesConsistency extends BatchStrategy {
   }
 
   protected void process() {
+    try {
+      processByChunk(this);
+    } catch (AxelorException e) {
+      TraceBackService.trace(e, null, batch.getId());
+    }
+  }
+
+  @Override
+  public Stream<Long> getIdStream() {
     AccountingBatch accountingBatch = batch.getAccountingBatch();
-    if (!CollectionUtils.isEmpty(accountingBatch.getYearSet())) {
-      List<Move> moveList =
-          moveToolService.findDaybookAndAccountingByYear(accountingBatch.getYearSet());
-      if (!CollectionUtils.isEmpty(moveList)) {
-        for (Move move : moveList) {
-          try {
-            move = moveRepo.find(move.getId());
-            moveValidateService.checkConsistencyPreconditions(move);
-            incrementDone();
-          } catch (AxelorException e) {
-            TraceBackService.trace(
-                new AxelorException(move, e.getCategory(), I18n.get(e.getMessage())),
-                null,
-                batch.getId());
-            incrementAnomaly();
-          } catch (Exception e) {
-            TraceBackService.trace(
-                new AxelorException(e, move, TraceBackRepository.CATEGORY_INCONSISTENCY),
-                null,
-                batch.getId());
-            incrementAnomaly();
-          } finally {
-            JPA.clear();
-          }
-        }
-      }
+    if (CollectionUtils.isEmpty(accountingBatch.getYearSet())) {
+      return Stream.empty();
+    }
+    return moveRepo
+        .all()
+        .filter("self.period.year IN :yearSet AND self.statusSelect IN :statusSelectList")
+        .bind("yearSet", accountingBatch.getYearSet())
+        .bind(
+            "statusSelectList",
+            Arrays.asList(MoveRepository.STATUS_ACCOUNTED, MoveRepository.STATUS_DAYBOOK))
+        .order("id")
+        .select("id")
+        .fetch(0, 0)
+        .stream()
+        .map(moveMap -> (Long) moveMap.get("id"));
+  }
+
+  @Override
+  public void processId(Long id) throws AxelorException {
+    Move move = moveRepo.find(id);
+    try {
+      moveValidateService.checkConsistencyPreconditions(move);
+    } catch (AxelorException e) {
+      throw new AxelorException(move, e.getCategory(), I18n.get(e.getMessage()));
+    } catch (Exception e) {
+      throw new AxelorException(e, move, TraceBackRepository.CATEGORY_INCONSISTENCY);
     }
   }
 
@@ -0,0 +1,204 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.custom;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Debit, credit and number of move lines aggregated by account and date, used to compute the values
+ * of a custom accounting report without fetching move lines for every cell. Amounts over a date
+ * range are computed from cumulated sums.
+ *
+ * <p>When an opening date is set, the totals before this date are account period balances added at
+ * the end date of their period, so only ranges which do not start or end inside these periods can
+ * be computed. A range starting at or before the start of the first balance period includes all
+ * these periods.
+ */
+public class AccountingReportMoveLineCube {
+
+  protected final Map<Long, TreeMap<LocalDate, Total>> totalMapByAccount = new HashMap<>();
+  protected final Map<Long, Total> noDateTotalMap = new HashMap<>();
+  protected final Map<Long, AccountTotals> accountTotalsMap = new HashMap<>();
+  protected LocalDate openingDate;
+  protected LocalDate balanceFromDate;
+
+  public void setOpeningDate(LocalDate openingDate) {
+    this.openingDate = openingDate;
+  }
+
+  /**
+   * @param balanceFromDate the start date of the first account period balance, null if unknown
+   */
+  public void setBalanceFromDate(LocalDate balanceFromDate) {
+    this.balanceFromDate = balanceFromDate;
+  }
+
+  /**
+   * @param fromDate lowest date of the move lines, unbounded if null
+   * @param toDate highest date of the move lines, unbounded if null
+   * @return true if the total between the dates can be computed from the cube.
+   */
+  public boolean isTotalAvailable(LocalDate fromDate, LocalDate toDate) {
+    return openingDate == null
+        || ((fromDate == null
+                || !fromDate.isBefore(openingDate)
+                || (balanceFromDate != null && !fromDate.isAfter(balanceFromDate)))
+            && (toDate == null || !toDate.isBefore(openingDate.minusDays(1))));
+  }
+
+  /**
+   * Add aggregated move lines to the cube, all data must be added before reading totals.
+   *
+   * @param accountId the account of the move lines
+   * @param date the date of the move lines, may be null
+   */
+  public void add(
+      Long accountId, LocalDate date, BigDecimal debit, BigDecimal credit, long moveLineCount) {
+    Total total =
+        date == null
+            ? noDateTotalMap.computeIfAbsent(accountId, k -> new Total())
+            : totalMapByAccount
+                .computeIfAbsent(accountId, k -> new TreeMap<>())
+                .computeIfAbsent(date, k -> new Total());
+    total.add(debit, credit, moveLineCount);
+  }
+
+  /**
+   * @param accountIdCollection the accounts to sum
+   * @param fromDate lowest date of the move lines, unbounded if null
+   * @param toDate highest date of the move lines, unbounded if null
+   * @return the total of the move lines of the accounts between the dates, move lines without date
+   *     are always included.
+   */
+  public Total getTotal(
+      Collection<Long> accountIdCollection, LocalDate fromDate, LocalDate toDate) {
+    Total result = new Total();
+    if (accountIdCollection == null) {
+      return result;
+    }
+    for (Long accountId : accountIdCollection) {
+      Total noDateTotal = noDateTotalMap.get(accountId);
+      if (noDateTotal != null) {
+        result.add(noDateTotal);
+      }
+      AccountTotals accountTotals = getAccountTotals(accountId);
+      if (accountTotals != null) {
+        accountTotals.addTotal(result, fromDate, toDate);
+      }
+    }
+    return result;
+  }
+
+  protected AccountTotals getAccountTotals(Long accountId) {
+    AccountTotals accountTotals = accountTotalsMap.get(accountId);
+    if (accountTotals == null) {
+      TreeMap<LocalDate, Total> totalMap = totalMapByAccount.get(accountId);
+      if (totalMap == null) {
+        return null;
+      }
+      accountTotals = new AccountTotals(totalMap);
+      accountTotalsMap.put(accountId, accountTotals);
+    }
+    return accountTotals;
+  }
+
+  /** Sorted dates of one account, with the totals cumulated up to each date. */
+  protected static class AccountTotals {
+
+    protected final LocalDate[] dates;
+    protected final List<Total> cumulatedTotalList = new ArrayList<>();
+
+    protected AccountTotals(TreeMap<LocalDate, Total> totalMap) {
+      dates = totalMap.keySet().toArray(new LocalDate[0]);
+      Total cumulatedTotal = new Total();
+      cumulatedTotalList.add(cumulatedTotal.copy());
+      for (Total total : totalMap.values()) {
+        cumulatedTotal.add(total);
+        cumulatedTotalList.add(cumulatedTotal.copy());
+      }
+    }
+
+    protected void addTotal(Total result, LocalDate fromDate, LocalDate toDate) {
+      int fromIndex = fromDate == null ? 0 : getFirstIndexFrom(fromDate, false);
+      int toIndex = toDate == null ? dates.length : getFirstIndexFrom(toDate, true);
+      if (toIndex > fromIndex) {
+        result.add(cumulatedTotalList.get(toIndex));
+        result.subtract(cumulatedTotalList.get(fromIndex));
+      }
+    }
+
+    /**
+     * @return the index of the first date after the given date, or equal to it if not exclusive.
+     */
+    protected int getFirstIndexFrom(LocalDate date, boolean exclusive) {
+      int index = Arrays.binarySearch(dates, date);
+      if (index < 0) {
+        return -index - 1;
+      }
+      return exclusive ? index + 1 : index;
+    }
+  }
+
+  public static class Total {
+
+    protected BigDecimal debit = BigDecimal.ZERO;
+    protected BigDecimal credit = BigDecimal.ZERO;
+    protected long moveLineCount;
+
+    protected void add(BigDecimal debit, BigDecimal credit, long moveLineCount) {
+      this.debit = this.debit.add(debit != null ? debit : BigDecimal.ZERO);
+      this.credit = this.credit.add(credit != null ? credit : BigDecimal.ZERO);
+      this.moveLineCount += moveLineCount;
+    }
+
+    protected void add(Total total) {
+      add(total.debit, total.credit, total.moveLineCount);
+    }
+
+    protected void subtract(Total total) {
+      add(total.debit.negate(), total.credit.negate(), -total.moveLineCount);
+    }
+
+    protected Total copy() {
+      Total total = new Total();
+      total.add(this);
+      return total;
+    }
+
+    public BigDecimal getDebit() {
+      return debit;
+    }
+
+    public BigDecimal getCredit() {
+      return credit;
+    }
+
+    public long getMoveLineCount() {
+      return moveLineCount;
+    }
+  }
+}
@@ -30,6 +30,10 @@ import java.util.Map;
 import java.util.Set;
 
 public interface AccountingReportValueMoveLineService {
+
+  /** Clear the data aggregated while computing the values of a report. */
+  void clearCache();
+
   void createValueFromMoveLines(
       AccountingReport accountingReport,
       AccountingReportConfigLine groupColumn,
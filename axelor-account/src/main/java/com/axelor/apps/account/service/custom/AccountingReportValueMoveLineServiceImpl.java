@@ -31,8 +31,10 @@ import com.axelor.apps.account.db.repo.AccountingReportConfigLineRepository;
 import com.axelor.apps.account.db.repo.AccountingReportValueRepository;
 import com.axelor.apps.account.db.repo.AnalyticAccountRepository;
 import com.axelor.apps.account.db.repo.MoveLineRepository;
+import com.axelor.apps.account.db.repo.MoveRepository;
 import com.axelor.apps.account.exception.AccountExceptionMessage;
 import com.axelor.apps.account.service.move.MoveToolService;
+import com.axelor.apps.account.service.period.AccountPeriodBalanceService;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
@@ -61,6 +63,7 @@ import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import javax.persistence.TypedQuery;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
@@ -68,9 +71,12 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
     implements AccountingReportValueMoveLineService {
   protected MoveLineRepository moveLineRepo;
   protected MoveToolService moveToolService;
+  protected AccountPeriodBalanceService accountPeriodBalanceService;
   protected Set<AnalyticAccount> groupColumnAnalyticAccountSet;
   protected Set<AnalyticAccount> columnAnalyticAccountSet;
   protected Set<AnalyticAccount> lineAnalyticAccountSet;
+  protected Map<String, AccountingReportMoveLineCube> moveLineCubeMap = new HashMap<>();
+  protected Map<String, Set<AnalyticAccount>> analyticAccountSetByCodeMap = new HashMap<>();
 
   @Inject
   public AccountingReportValueMoveLineServiceImpl(
@@ -79,10 +85,18 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
       AnalyticAccountRepository analyticAccountRepo,
       MoveLineRepository moveLineRepo,
       DateService dateService,
-      MoveToolService moveToolService) {
+      MoveToolService moveToolService,
+      AccountPeriodBalanceService accountPeriodBalanceService) {
     super(accountRepository, accountingReportValueRepo, analyticAccountRepo, dateService);
     this.moveLineRepo = moveLineRepo;
     this.moveToolService = moveToolService;
+    this.accountPeriodBalanceService = accountPeriodBalanceService;
+  }
+
+  @Override
+  public void clearCache() {
+    moveLineCubeMap.clear();
+    analyticAccountSetByCodeMap.clear();
   }
 
   @Override
@@ -520,34 +534,61 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
                 ? null
                 : new HashSet<>(Collections.singletonList(configAnalyticAccount)));
 
-    List<MoveLine> moveLineList =
-        this.getMoveLineQuery(
-                accountingReport,
-                groupColumn,
-                column,
-                line,
-                accountIdSet,
-                resultAnalyticAccountSet,
-                companySet,
-                startDate,
-                endDate)
-            .fetch();
-
-    if (line.getHideDetailedLinesWithoutMoves() && moveLineList.isEmpty()) {
-      return;
+    BigDecimal result;
+    AccountingReportMoveLineCube moveLineCube = null;
+    LocalDate fromDate = null;
+    LocalDate toDate = null;
+
+    if (this.isComputedFromMoveLineCube(
+        accountingReport, groupColumn, column, line, resultAnalyticAccountSet)) {
+      Pair<LocalDate, LocalDate> dates =
+          this.getDates(accountingReport, groupColumn, column, line, startDate, endDate);
+      fromDate = accountingReport.getDateFrom() != null ? dates.getLeft() : null;
+      toDate = accountingReport.getDateTo() != null ? dates.getRight() : null;
+      moveLineCube = this.getMoveLineCube(accountingReport, companySet);
     }
 
-    BigDecimal result =
-        this.getResultFromMoveLine(
-            accountingReport,
-            groupColumn,
-            column,
-            line,
-            moveLineList,
-            resultAnalyticAccountSet,
-            startDate,
-            endDate,
-            this.getResultSelect(column, line, groupColumn));
+    if (moveLineCube != null && moveLineCube.isTotalAvailable(fromDate, toDate)) {
+      AccountingReportMoveLineCube.Total total =
+          moveLineCube.getTotal(accountIdSet, fromDate, toDate);
+
+      if (line.getHideDetailedLinesWithoutMoves() && total.getMoveLineCount() == 0) {
+        return;
+      }
+
+      result =
+          this.getResultFromTotal(
+              total, groupColumn, column, line, this.getResultSelect(column, line, groupColumn));
+    } else {
+      List<MoveLine> moveLineList =
+          this.getMoveLineQuery(
+                  accountingReport,
+                  groupColumn,
+                  column,
+                  line,
+                  accountIdSet,
+                  resultAnalyticAccountSet,
+                  companySet,
+                  startDate,
+                  endDate)
+              .fetch();
+
+      if (line.getHideDetailedLinesWithoutMoves() && moveLineList.isEmpty()) {
+        return;
+      }
+
+      result =
+          this.getResultFromMoveLine(
+              accountingReport,
+              groupColumn,
+              column,
+              line,
+              moveLineList,
+              resultAnalyticAccountSet,
+              startDate,
+              endDate,
+              this.getResultSelect(column, line, groupColumn));
+    }
 
     this.createReportValue(
         accountingReport,
@@ -567,6 +608,204 @@ public class AccountingReportValueMoveLineServiceImpl extends AccountingReportVa
         analyticCounter);
   }
 
+  /**
+   * Values without analytic filter only depend on the debit and credit of the move lines of each
+   * account and date, so they are computed from the move line cube.
+   */
+  protected boolean isComputedFromMoveLineCube(
+      AccountingReport accountingReport,
+      AccountingReportConfigLine groupColumn,
+      AccountingReportConfigLine column,
+      AccountingReportConfigLine line,
+      Set<AnalyticAccount> analyticAccountSet) {
+    return CollectionUtils.isEmpty(analyticAccountSet)
+        && this.areAllAnalyticAccountSetsEmpty(accountingReport, groupColumn, column, line)
+        && (groupColumn == null || StringUtils.isEmpty(groupColumn.getAnalyticAccountCode()))
+        && StringUtils.isEmpty(column.getAnalyticAccountCode())
+        && StringUtils.isEmpty(line.getAnalyticAccountCode());
+  }
+
+  protected AccountingReportMoveLineCube getMoveLineCube(
+      AccountingReport accountingReport, Set<Company> companySet) throws AxelorException {
+    List<Integer> statusList =
+        moveToolService.getMoveStatusSelect(accountingReport.getMoveStatusSelect(), companySet);
+    String key =
+        String.format(
+            "%d-%s-%s",
+            accountingReport.getId(),
+            CollectionUtils.isEmpty(companySet)
+                ? ""
+                : companySet.stream()
+                    .map(Company::getId)
+                    .sorted()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(",")),
+            statusList);
+
+    AccountingReportMoveLineCube moveLineCube = moveLineCubeMap.get(key);
+    if (moveLineCube == null) {
+      moveLineCube = this.buildMoveLineCube(accountingReport, companySet, statusList);
+      moveLineCubeMap.put(key, moveLineCube);
+    }
+    return moveLineCube;
+  }
+
+  /**
+   * Aggregate in one query the move lines of the report, by account and date. The move lines of the
+   * periods ending before the start of the report are read from the account period balances when
+   * they are computed.
+   */
+  protected AccountingReportMoveLineCube buildMoveLineCube(
+      AccountingReport accountingReport, Set<Company> companySet, List<Integer> statusList)
+      throws AxelorException {
+    List<String> queryList =
+        new ArrayList<>(Collections.singletonList("self.move.statusSelect IN :statusList"));
+    Map<String, Object> parameterMap = new HashMap<>();
+    parameterMap.put("statusList", statusList);
+
+    if (accountingReport.getJournal() != null) {
+      queryList.add("(self.move.journal IS NULL OR self.move.journal = :journal)");
+      parameterMap.put("journal", accountingReport.getJournal());
+    }
+
+    if (accountingReport.getPaymentMode() != null) {
+      queryList.add("(self.move.paymentMode IS NULL OR self.move.paymentMode = :paymentMode)");
+      parameterMap.put("paymentMode", accountingReport.getPaymentMode());
+    }
+
+    if (accountingReport.getCurrency() != null) {
+      queryList.add("(self.move.currency IS NULL OR self.move.currency = :currency)");
+      parameterMap.put("currency", accountingReport.getCurrency());
+    }
+
+    if (CollectionUtils.isNotEmpty(companySet)) {
+      queryList.add("(self.move.company IS NULL OR self.move.company IN :companySet)");
+      parameterMap.put("companySet", companySet);
+    }
+
+    AccountingReportMoveLineCube moveLineCube = new AccountingReportMoveLineCube();
+
+    if (this.isComputedFromAccountPeriodBalance(accountingReport, companySet, statusList)) {
+      LocalDate openingDate = accountingReport.getDateFrom();
+      this.addAccountPeriodBalances(moveLineCube, companySet, openingDate);
+      queryList.add("(self.move.company IS NULL OR self.move.period.toDate >= :openingDate)");
+      parameterMap.put("openingDate", openingDate);
+    }
+
+    TypedQuery<Object[]> query =
+        JPA.em()
+            .createQuery(
+                "SELECT self.account.id, self.date, SUM(self.debit), SUM(self.credit), COUNT(self)"
+                    + " FROM MoveLine self WHERE "
+                    + String.join(" AND ", queryList)
+                    + " GROUP BY self.account.id, self.date",
+                Object[].class);
+    parameterMap.forEach(query::setParameter);
+
+    for (Object[] row : query.getResultList()) {
+      moveLineCube.add(
+          (Long) row[0],
+          (LocalDate) row[1],
+          (BigDecimal) row[2],
+          (BigDecimal) row[3],
+          (Long) row[4]);
+    }
+    return moveLineCube;
+  }
+
+  /**
+   * Account period balances only contain accounted moves and are not filtered by journal, payment
+   * mode or currency.
+   */
+  protected boolean isComputedFromAccountPeriodBalance(
+      AccountingReport accountingReport, Set<Company> companySet, List<Integer> statusList)
+      throws AxelorException {
+    return accountingReport.getDateFrom() != null
+        && accountingReport.getJournal() == null
+        && accountingReport.getPaymentMode() == null
+        && accountingReport.getCurrency() == null
+        && Collections.singletonList(MoveRepository.STATUS_ACCOUNTED).equals(statusList)
+        && accountPeriodBalanceService.isComputed(companySet);
+  }
+
+  /**
+   * Add to the cube the balances of the periods ending before the opening date, at the end date of
+   * their period. The move line count of these totals is the number of balances, which is only
+   * relevant to know whether there are move lines.
+   */
+  protected void addAccountPeriodBalances(
+      AccountingReportMoveLineCube moveLineCube, Set<Company> companySet, LocalDate openingDate) {
+    TypedQuery<Object[]> query =
+        JPA.em()
+            .createQuery(
+                "SELECT self.account.id, self.period.toDate, SUM(self.debit), SUM(self.credit),"
+                    + " COUNT(self), MIN(self.period.fromDate) FROM AccountPeriodBalance self"
+                    + " WHERE self.company IN :companySet AND self.period.toDate < :openingDate"
+                    + " GROUP BY self.account.id, self.period.toDate",
+                Object[].class);
+    query.setParameter("companySet", companySet);
+    query.setParameter("openingDate", openingDate);
+
+    LocalDate balanceFromDate = null;
+    for (Object[] row : query.getResultList()) {
+      moveLineCube.add(
+          (Long) row[0],
+          (LocalDate) row[1],
+          (BigDecimal) row[2],
+          (BigDecimal) row[3],
+          (Long) row[4]);
+      LocalDate periodFromDate = (LocalDate) row[5];
+      if (balanceFromDate == null || periodFromDate.isBefore(balanceFromDate)) {
+        balanceFromDate = periodFromDate;
+      }
+    }
+    moveLineCube.setOpeningDate(openingDate);
+    moveLineCube.setBalanceFromDate(balanceFromDate);
+  }
+
+  protected BigDecimal getResultFromTotal(
+      AccountingReportMoveLineCube.Total total,
+      AccountingReportConfigLine groupColumn,
+      AccountingReportConfigLine column,
+      AccountingReportConfigLine line,
+      int resultSelect) {
+    if (total.getMoveLineCount() == 0) {
+      return BigDecimal.ZERO;
+    }
+
+    BigDecimal value = BigDecimal.ZERO;
+
+    switch (resultSelect) {
+      case AccountingReportConfigLineRepository.RESULT_DEBIT_MINUS_CREDIT:
+        value = total.getDebit().subtract(total.getCredit());
+        break;
+      case AccountingReportConfigLineRepository.RESULT_DEBIT:
+        value = total.getDebit();
+        break;
+      case AccountingReportConfigLineRepository.RESULT_CREDIT:
+        value = total.getCredit();
+        break;
+    }
+
+    if ((groupColumn != null && groupColumn.getNegateValue())
+        || column.getNegateValue()
+        || line.getNegateValue()) {
+      value = value.negate();
+    }
+
+    return value;
+  }
+
+  @Override
+  protected Set<AnalyticAccount> fetchAnalyticAccountsFromCode(String code) {
+    Set<AnalyticAccount> analyticAccountSet = analyticAccountSetByCodeMap.get(code);
+    if (analyticAccountSet == null) {
+      analyticAccountSet = super.fetchAnalyticAccountsFromCode(code);
+      analyticAccountSetByCodeMap.put(code, analyticAccountSet);
+    }
+    return new HashSet<>(analyticAccountSet);
+  }
+
   protected int getResultSelect(
       AccountingReportConfigLine column,
       AccountingReportConfigLine line,
@@ -121,12 +121,18 @@ public class AccountingReportValueServiceImpl extends AccountingReportValueAbstr
 
   @Override
   public void computeReportValues(AccountingReport accountingReport) throws AxelorException {
-    for (Company company : accountingReport.getCompanySet()) {
-      this.computeReportValues(accountingReport, Sets.newHashSet(company));
-    }
+    accountingReportValueMoveLineService.clearCache();
 
-    if (accountingReport.getCompanySet().size() > 1) {
-      this.computeReportValues(accountingReport, accountingReport.getCompanySet());
+    try {
+      for (Company company : accountingReport.getCompanySet()) {
+        this.computeReportValues(accountingReport, Sets.newHashSet(company));
+      }
+
+      if (accountingReport.getCompanySet().size() > 1) {
+        this.computeReportValues(accountingReport, accountingReport.getCompanySet());
+      }
+    } finally {
+      accountingReportValueMoveLineService.clearCache();
     }
   }
 
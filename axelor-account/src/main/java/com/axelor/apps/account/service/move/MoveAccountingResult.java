@@ -0,0 +1,84 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.move;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/** Result of the accounting of several moves. */
+public class MoveAccountingResult {
+
+  protected int accountedCount;
+  protected final List<MoveAccountingError> errorList = new ArrayList<>();
+
+  public void addAccounted(int count) {
+    accountedCount += count;
+  }
+
+  public void addError(Long moveId, String moveReference, Exception exception) {
+    errorList.add(new MoveAccountingError(moveId, moveReference, exception.getMessage()));
+  }
+
+  /** Number of moves accounted, or skipped because they were already accounted or canceled. */
+  public int getAccountedCount() {
+    return accountedCount;
+  }
+
+  public List<MoveAccountingError> getErrorList() {
+    return Collections.unmodifiableList(errorList);
+  }
+
+  public boolean hasErrors() {
+    return !errorList.isEmpty();
+  }
+
+  /** References of the moves that could not be accounted, separated by commas. */
+  public String getErrorReferences() {
+    return errorList.stream()
+        .map(MoveAccountingError::getMoveReference)
+        .collect(Collectors.joining(", "));
+  }
+
+  public static class MoveAccountingError {
+
+    protected final Long moveId;
+    protected final String moveReference;
+    protected final String message;
+
+    public MoveAccountingError(Long moveId, String moveReference, String message) {
+      this.moveId = moveId;
+      this.moveReference = moveReference;
+      this.message = message;
+    }
+
+    public Long getMoveId() {
+      return moveId;
+    }
+
+    public String getMoveReference() {
+      return moveReference;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+  }
+}
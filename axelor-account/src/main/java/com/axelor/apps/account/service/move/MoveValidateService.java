@@ -70,6 +70,23 @@ public interface MoveValidateService {
 
   String accountingMultiple(List<Integer> moveIds);
 
+  /**
+   * Account the given moves, each failing move being reported in the result instead of stopping
+   * the treatment.
+   *
+   * @param moveIdList the ids of the moves to account
+   * @return the result of the accounting
+   */
+  MoveAccountingResult accountingMultipleMoves(List<Long> moveIdList);
+
+  /**
+   * Account the given moves by chunks, in the given order, and report them in the result.
+   *
+   * @param moveIdList the ids of the moves to account
+   * @param result the result to fill
+   */
+  void accountingMoves(List<Long> moveIdList, MoveAccountingResult result);
+
   void freezeFieldsOnMoveLines(Move move) throws AxelorException;
 
   void accountingMultiple(Query<Move> moveListQuery) throws AxelorException;
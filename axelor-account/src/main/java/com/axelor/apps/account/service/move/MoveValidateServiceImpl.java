@@ -47,6 +47,7 @@ import com.axelor.apps.account.service.moveline.MoveLineCheckService;
 import com.axelor.apps.account.service.moveline.MoveLineFinancialDiscountService;
 import com.axelor.apps.account.service.moveline.MoveLineTaxService;
 import com.axelor.apps.account.service.moveline.MoveLineToolService;
+import com.axelor.apps.account.service.period.AccountPeriodBalanceService;
 import com.axelor.apps.account.service.period.PeriodCheckService;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Company;
@@ -69,6 +70,7 @@ import com.axelor.i18n.I18n;
 import com.axelor.meta.MetaStore;
 import com.axelor.meta.schema.views.Selection.Option;
 import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import com.google.inject.servlet.RequestScoped;
@@ -79,10 +81,14 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -91,6 +97,7 @@ import org.slf4j.LoggerFactory;
 @RequestScoped
 public class MoveValidateServiceImpl implements MoveValidateService {
   private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+  protected static final int MOVE_ID_QUERY_LIMIT = 1000;
   protected int jpaLimit = 20;
   protected MoveLineControlService moveLineControlService;
   protected MoveLineToolService moveLineToolService;
@@ -114,6 +121,7 @@ public class MoveValidateServiceImpl implements MoveValidateService {
   protected CurrencyScaleService currencyScaleService;
   protected MoveLineFinancialDiscountService moveLineFinancialDiscountService;
   protected TaxService taxService;
+  protected AccountPeriodBalanceService accountPeriodBalanceService;
 
   @Inject
   public MoveValidateServiceImpl(
@@ -138,7 +146,8 @@ public class MoveValidateServiceImpl implements MoveValidateService {
       CompanyConfigService companyConfigService,
       CurrencyScaleService currencyScaleService,
       MoveLineFinancialDiscountService moveLineFinancialDiscountService,
-      TaxService taxService) {
+      TaxService taxService,
+      AccountPeriodBalanceService accountPeriodBalanceService) {
     this.moveLineControlService = moveLineControlService;
     this.moveLineToolService = moveLineToolService;
     this.accountConfigService = accountConfigService;
@@ -161,6 +170,7 @@ public class MoveValidateServiceImpl implements MoveValidateService {
     this.currencyScaleService = currencyScaleService;
     this.moveLineFinancialDiscountService = moveLineFinancialDiscountService;
     this.taxService = taxService;
+    this.accountPeriodBalanceService = accountPeriodBalanceService;
   }
 
   /**
@@ -480,6 +490,7 @@ public class MoveValidateServiceImpl implements MoveValidateService {
     }
 
     moveRepository.save(move);
+    accountPeriodBalanceService.addMove(move);
 
     if (updateCustomerAccount) {
       moveCustAccountService.updateCustomerAccount(move);
@@ -670,47 +681,162 @@ public class MoveValidateServiceImpl implements MoveValidateService {
 
   @Override
   public String accountingMultiple(List<Integer> moveIds) {
-    String errors = "";
     if (moveIds == null) {
-      return errors;
+      return "";
     }
+    return accountingMultipleMoves(
+            moveIds.stream().map(Integer::longValue).collect(Collectors.toList()))
+        .getErrorReferences();
+  }
+
+  /**
+   * Moves are accounted in date order so that their sequence numbers follow their dates. They are
+   * accounted by a single worker: moves of different journals update the same customer accounts,
+   * account period balances and budgets.
+   */
+  @Override
+  public MoveAccountingResult accountingMultipleMoves(List<Long> moveIdList) {
+    MoveAccountingResult result = new MoveAccountingResult();
+    if (CollectionUtils.isEmpty(moveIdList)) {
+      return result;
+    }
+
+    accountingMoves(getMoveIdListSortedByDate(moveIdList), result);
+    return result;
+  }
+
+  /** Sort the moves by date, moves without date being last. */
+  protected List<Long> getMoveIdListSortedByDate(List<Long> moveIdList) {
+    List<Object[]> moveRowList = new ArrayList<>();
+    for (List<Long> moveIdPartition : Lists.partition(moveIdList, MOVE_ID_QUERY_LIMIT)) {
+      moveRowList.addAll(
+          JPA.em()
+              .createQuery(
+                  "SELECT self.id, self.date FROM Move self WHERE self.id IN (:moveIdList)",
+                  Object[].class)
+              .setParameter("moveIdList", moveIdPartition)
+              .getResultList());
+    }
+
+    return moveRowList.stream()
+        .sorted(
+            Comparator.comparing(
+                    (Object[] row) -> (LocalDate) row[1],
+                    Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(row -> (Long) row[0]))
+        .map(row -> (Long) row[0])
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Chunks are accounted in their own transaction. If a move of a chunk fails, the chunk is rolled
+   * back and its moves are accounted again one by one, so only the failing moves are reported.
+   */
+  @Override
+  public void accountingMoves(List<Long> moveIdList, MoveAccountingResult result) {
+    for (List<Long> chunk : Lists.partition(moveIdList, jpaLimit)) {
+      if (chunk.size() > 1 && accountingChunk(chunk, result)) {
+        continue;
+      }
+      for (Long moveId : chunk) {
+        accountingChunk(Collections.singletonList(moveId), result);
+      }
+    }
+  }
+
+  protected boolean accountingChunk(List<Long> moveIdList, MoveAccountingResult result) {
+    try {
+      accountingMoveList(moveIdList, true);
+      result.addAccounted(moveIdList.size());
+      return true;
+    } catch (Exception e) {
+      if (moveIdList.size() == 1) {
+        addAccountingError(result, moveIdList.get(0), e);
+      }
+      return false;
+    } finally {
+      clearMoves();
+    }
+  }
+
+  /** Detach the moves of a chunk once its transaction is committed or rolled back. */
+  protected void clearMoves() {
+    JPA.clear();
+  }
+
+  /** Trace the failure of the accounting of a move, whose changes have been rolled back. */
+  protected void addAccountingError(MoveAccountingResult result, Long moveId, Exception e) {
+    clearMoves();
+    TraceBackService.trace(e);
+    Move move = moveRepository.find(moveId);
+    result.addError(
+        moveId,
+        move != null && move.getReference() != null ? move.getReference() : String.valueOf(moveId),
+        e);
+  }
+
+  /**
+   * Account the given moves in one transaction. The moves are fetched with their lines, accounts,
+   * journal and period in a single query.
+   *
+   * @param moveIdList the ids of the moves to account
+   * @param checkPeriod whether the user must be authorized to account on the period of each move
+   */
+  @Transactional(rollbackOn = {Exception.class})
+  protected void accountingMoveList(List<Long> moveIdList, boolean checkPeriod)
+      throws AxelorException {
     User user = AuthUtils.getUser();
-    int i = 0;
-    for (Integer moveId : moveIds) {
-      Move move = moveRepository.find(moveId.longValue());
-      try {
-        if (!periodCheckService.isAuthorizedToAccountOnPeriod(move, user)) {
-          throw new AxelorException(
-              TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
-              String.format(
-                  I18n.get(AccountExceptionMessage.ACCOUNT_PERIOD_TEMPORARILY_CLOSED),
-                  move.getReference()));
-        }
-        if (move.getStatusSelect() != MoveRepository.STATUS_ACCOUNTED
-            && move.getStatusSelect() != MoveRepository.STATUS_CANCELED) {
-          accounting(move);
-        }
-      } catch (Exception e) {
-        TraceBackService.trace(e);
-        if (errors.length() > 0) {
-          errors = errors.concat(", ");
-        }
-        errors = errors.concat(move.getReference());
-      } finally {
-        if (++i % jpaLimit == 0) {
-          JPA.clear();
-        }
+    Map<Long, Move> moveMap = findMoveMap(moveIdList);
+
+    for (Long moveId : moveIdList) {
+      Move move = moveMap.get(moveId);
+      if (move == null) {
+        continue;
+      }
+      if (checkPeriod && !periodCheckService.isAuthorizedToAccountOnPeriod(move, user)) {
+        throw new AxelorException(
+            TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
+            String.format(
+                I18n.get(AccountExceptionMessage.ACCOUNT_PERIOD_TEMPORARILY_CLOSED),
+                move.getReference()));
+      }
+      if (move.getStatusSelect() != MoveRepository.STATUS_ACCOUNTED
+          && move.getStatusSelect() != MoveRepository.STATUS_CANCELED) {
+        accounting(move);
       }
     }
+  }
 
-    return errors;
+  protected Map<Long, Move> findMoveMap(List<Long> moveIdList) {
+    return JPA.em()
+        .createQuery(
+            "SELECT DISTINCT self FROM Move self "
+                + "LEFT JOIN FETCH self.moveLineList moveLine "
+                + "LEFT JOIN FETCH moveLine.account "
+                + "LEFT JOIN FETCH self.journal "
+                + "LEFT JOIN FETCH self.period "
+                + "WHERE self.id IN (:moveIdList)",
+            Move.class)
+        .setParameter("moveIdList", moveIdList)
+        .getResultList()
+        .stream()
+        .collect(Collectors.toMap(Move::getId, Function.identity()));
   }
 
+  /**
+   * The moves are accounted by chunks in the current transaction, so that the whole treatment is
+   * rolled back if one of them fails.
+   */
+  @Override
   public void accountingMultiple(Query<Move> moveListQuery) throws AxelorException {
-    Move move;
-
-    while (!((move = moveListQuery.fetchOne()) == null)) {
-      accounting(move);
+    List<Long> moveIdList =
+        moveListQuery.select("id").fetch(0, 0).stream()
+            .map(moveMap -> (Long) moveMap.get("id"))
+            .collect(Collectors.toList());
+
+    for (List<Long> chunk : Lists.partition(moveIdList, jpaLimit)) {
+      accountingMoveList(chunk, false);
+      JPA.flush();
       JPA.clear();
     }
   }
@@ -0,0 +1,52 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.period;
+
+import com.axelor.apps.account.db.Move;
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Company;
+import java.util.Collection;
+
+/**
+ * Debit and credit of the accounted move lines, persisted by company, account, partner and period
+ * so that reports can read the balance of the previous periods instead of their move lines.
+ */
+public interface AccountPeriodBalanceService {
+
+  /**
+   * Add the move lines of an accounted move to the balances of its period.
+   *
+   * @param move an accounted move, other moves are ignored
+   */
+  void addMove(Move move);
+
+  /**
+   * Compare the balances of the company with its accounted move lines, create, update or remove
+   * the balances which are different and mark the balances of the company as computed. The
+   * accounts of the company are locked until the end of the transaction.
+   *
+   * @return the number of balances fixed
+   */
+  int verify(Company company) throws AxelorException;
+
+  /**
+   * @return true if the balances of all the companies have been computed.
+   */
+  boolean isComputed(Collection<Company> companyCollection) throws AxelorException;
+}
@@ -0,0 +1,281 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.period;
+
+import com.axelor.apps.account.db.Account;
+import com.axelor.apps.account.db.AccountPeriodBalance;
+import com.axelor.apps.account.db.Move;
+import com.axelor.apps.account.db.MoveLine;
+import com.axelor.apps.account.db.repo.AccountPeriodBalanceRepository;
+import com.axelor.apps.account.db.repo.AccountRepository;
+import com.axelor.apps.account.db.repo.MoveRepository;
+import com.axelor.apps.account.service.config.AccountConfigService;
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Company;
+import com.axelor.apps.base.db.Partner;
+import com.axelor.apps.base.db.Period;
+import com.axelor.apps.base.db.repo.PartnerRepository;
+import com.axelor.apps.base.db.repo.PeriodRepository;
+import com.axelor.db.JPA;
+import com.google.inject.Inject;
+import com.google.inject.persist.Transactional;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.persistence.LockModeType;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import org.apache.commons.collections.CollectionUtils;
+
+public class AccountPeriodBalanceServiceImpl implements AccountPeriodBalanceService {
+
+  protected AccountPeriodBalanceRepository accountPeriodBalanceRepo;
+  protected AccountRepository accountRepo;
+  protected PartnerRepository partnerRepo;
+  protected PeriodRepository periodRepo;
+  protected AccountConfigService accountConfigService;
+
+  @Inject
+  public AccountPeriodBalanceServiceImpl(
+      AccountPeriodBalanceRepository accountPeriodBalanceRepo,
+      AccountRepository accountRepo,
+      PartnerRepository partnerRepo,
+      PeriodRepository periodRepo,
+      AccountConfigService accountConfigService) {
+    this.accountPeriodBalanceRepo = accountPeriodBalanceRepo;
+    this.accountRepo = accountRepo;
+    this.partnerRepo = partnerRepo;
+    this.periodRepo = periodRepo;
+    this.accountConfigService = accountConfigService;
+  }
+
+  @Override
+  @Transactional(rollbackOn = {Exception.class})
+  public void addMove(Move move) {
+    if (move.getStatusSelect() != MoveRepository.STATUS_ACCOUNTED
+        || move.getCompany() == null
+        || move.getPeriod() == null
+        || CollectionUtils.isEmpty(move.getMoveLineList())) {
+      return;
+    }
+
+    Map<String, AccountPeriodBalance> balanceMap = new LinkedHashMap<>();
+    for (MoveLine moveLine : move.getMoveLineList()) {
+      if (moveLine.getAccount() == null) {
+        continue;
+      }
+      AccountPeriodBalance balance =
+          balanceMap.computeIfAbsent(
+              this.getKey(
+                  moveLine.getAccount().getId(),
+                  moveLine.getPartner() != null ? moveLine.getPartner().getId() : null,
+                  move.getPeriod().getId()),
+              key ->
+                  this.createAccountPeriodBalance(
+                      move.getCompany(),
+                      moveLine.getAccount(),
+                      moveLine.getPartner(),
+                      move.getPeriod()));
+      balance.setDebit(balance.getDebit().add(moveLine.getDebit()));
+      balance.setCredit(balance.getCredit().add(moveLine.getCredit()));
+    }
+
+    if (balanceMap.isEmpty()) {
+      return;
+    }
+
+    this.lockAccounts(balanceMap.values());
+    for (AccountPeriodBalance balance : balanceMap.values()) {
+      if (this.addToExistingBalance(balance) == 0) {
+        accountPeriodBalanceRepo.save(balance);
+      }
+    }
+  }
+
+  protected AccountPeriodBalance createAccountPeriodBalance(
+      Company company, Account account, Partner partner, Period period) {
+    AccountPeriodBalance balance = new AccountPeriodBalance();
+    balance.setCompany(company);
+    balance.setAccount(account);
+    balance.setPartner(partner);
+    balance.setPeriod(period);
+    balance.setDebit(BigDecimal.ZERO);
+    balance.setCredit(BigDecimal.ZERO);
+    return balance;
+  }
+
+  /**
+   * Lock the accounts of the balances, ordered by id, until the end of the transaction. Two
+   * transactions can then not both create the same balance, which the unique constraint does not
+   * prevent when the partner is empty.
+   */
+  protected void lockAccounts(Collection<AccountPeriodBalance> balanceCollection) {
+    Set<Long> accountIdSet =
+        balanceCollection.stream()
+            .map(balance -> balance.getAccount().getId())
+            .collect(Collectors.toSet());
+    JPA.em()
+        .createQuery(
+            "SELECT self FROM Account self WHERE self.id IN :accountIdSet ORDER BY self.id",
+            Account.class)
+        .setParameter("accountIdSet", accountIdSet)
+        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+        .getResultList();
+  }
+
+  /**
+   * Lock every account of the company, ordered by id as in {@link #lockAccounts(Collection)}, so
+   * that no move is added to the balances while they are recomputed.
+   */
+  protected void lockCompanyAccounts(Company company) {
+    JPA.em()
+        .createQuery(
+            "SELECT self FROM Account self WHERE self.company = :company ORDER BY self.id",
+            Account.class)
+        .setParameter("company", company)
+        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+        .getResultList();
+  }
+
+  /**
+   * Add the amounts in the database so that moves accounted at the same time on the same balance
+   * do not overwrite each other.
+   *
+   * @return the number of updated balances
+   */
+  protected int addToExistingBalance(AccountPeriodBalance balance) {
+    Query query =
+        JPA.em()
+            .createQuery(
+                "UPDATE AccountPeriodBalance self"
+                    + " SET self.debit = self.debit + :debit, self.credit = self.credit + :credit"
+                    + " WHERE self.company = :company AND self.account = :account"
+                    + " AND self.period = :period AND "
+                    + (balance.getPartner() == null
+                        ? "self.partner IS NULL"
+                        : "self.partner = :partner"));
+    query.setParameter("debit", balance.getDebit());
+    query.setParameter("credit", balance.getCredit());
+    query.setParameter("company", balance.getCompany());
+    query.setParameter("account", balance.getAccount());
+    query.setParameter("period", balance.getPeriod());
+    if (balance.getPartner() != null) {
+      query.setParameter("partner", balance.getPartner());
+    }
+    return query.executeUpdate();
+  }
+
+  @Override
+  @Transactional(rollbackOn = {Exception.class})
+  public int verify(Company company) throws AxelorException {
+    this.lockCompanyAccounts(company);
+    Map<String, AccountPeriodBalance> expectedBalanceMap = this.computeBalanceMap(company);
+    int fixedBalanceCount = 0;
+
+    List<AccountPeriodBalance> balanceList =
+        accountPeriodBalanceRepo
+            .all()
+            .filter("self.company = :company")
+            .bind("company", company)
+            .fetch();
+    for (AccountPeriodBalance balance : balanceList) {
+      AccountPeriodBalance expectedBalance = expectedBalanceMap.remove(this.getKey(balance));
+      if (expectedBalance == null) {
+        accountPeriodBalanceRepo.remove(balance);
+        fixedBalanceCount++;
+      } else if (balance.getDebit().compareTo(expectedBalance.getDebit()) != 0
+          || balance.getCredit().compareTo(expectedBalance.getCredit()) != 0) {
+        balance.setDebit(expectedBalance.getDebit());
+        balance.setCredit(expectedBalance.getCredit());
+        accountPeriodBalanceRepo.save(balance);
+        fixedBalanceCount++;
+      }
+    }
+
+    for (AccountPeriodBalance expectedBalance : expectedBalanceMap.values()) {
+      accountPeriodBalanceRepo.save(expectedBalance);
+      fixedBalanceCount++;
+    }
+
+    accountConfigService.getAccountConfig(company).setHasAccountPeriodBalance(true);
+
+    return fixedBalanceCount;
+  }
+
+  /** Aggregate in one query the accounted move lines of the company. */
+  protected Map<String, AccountPeriodBalance> computeBalanceMap(Company company) {
+    TypedQuery<Object[]> query =
+        JPA.em()
+            .createQuery(
+                "SELECT self.account.id, partner.id, self.move.period.id,"
+                    + " SUM(self.debit), SUM(self.credit)"
+                    + " FROM MoveLine self LEFT JOIN self.partner partner"
+                    + " WHERE self.move.company = :company AND self.move.statusSelect = :statusSelect"
+                    + " AND self.account IS NOT NULL"
+                    + " GROUP BY self.account.id, partner.id, self.move.period.id",
+                Object[].class);
+    query.setParameter("company", company);
+    query.setParameter("statusSelect", MoveRepository.STATUS_ACCOUNTED);
+
+    Map<String, AccountPeriodBalance> balanceMap = new LinkedHashMap<>();
+    for (Object[] row : query.getResultList()) {
+      Long accountId = (Long) row[0];
+      Long partnerId = (Long) row[1];
+      Long periodId = (Long) row[2];
+      AccountPeriodBalance balance =
+          this.createAccountPeriodBalance(
+              company,
+              accountRepo.find(accountId),
+              partnerId != null ? partnerRepo.find(partnerId) : null,
+              periodRepo.find(periodId));
+      balance.setDebit((BigDecimal) row[3]);
+      balance.setCredit((BigDecimal) row[4]);
+      balanceMap.put(this.getKey(accountId, partnerId, periodId), balance);
+    }
+    return balanceMap;
+  }
+
+  @Override
+  public boolean isComputed(Collection<Company> companyCollection) throws AxelorException {
+    if (CollectionUtils.isEmpty(companyCollection)) {
+      return false;
+    }
+    for (Company company : companyCollection) {
+      if (!accountConfigService.getAccountConfig(company).getHasAccountPeriodBalance()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected String getKey(AccountPeriodBalance balance) {
+    return this.getKey(
+        balance.getAccount().getId(),
+        balance.getPartner() != null ? balance.getPartner().getId() : null,
+        balance.getPeriod().getId());
+  }
+
+  protected String getKey(Long accountId, Long partnerId, Long periodId) {
+    return String.format("%s-%s-%s", accountId, partnerId, periodId);
+  }
+}
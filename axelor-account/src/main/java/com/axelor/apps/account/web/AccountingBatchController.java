@@ -300,6 +300,10 @@ public class AccountingBatchController {
     runBatch(AccountingBatchRepository.ACTION_ACCOUNTING_CUT_OFF, request, response);
   }
 
+  public void actionAccountPeriodBalance(ActionRequest request, ActionResponse response) {
+    runBatch(AccountingBatchRepository.ACTION_ACCOUNT_PERIOD_BALANCE, request, response);
+  }
+
   public void actionAutoMoveLettering(ActionRequest request, ActionResponse response) {
     AccountingBatch accountingBatch = request.getContext().asType(AccountingBatch.class);
     BatchAutoMoveLettering service = Beans.get(BatchAutoMoveLettering.class);
@@ -0,0 +1,81 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service;
+
+import com.axelor.apps.account.db.repo.ReconcileGroupRepository;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestMoveLineExportService {
+
+  private static MoveLineExportServiceImpl moveLineExportService;
+
+  @BeforeAll
+  static void prepare() {
+    moveLineExportService =
+        new MoveLineExportServiceImpl(
+            null, null, null, null, null, null, null, null, null, null, null, null);
+  }
+
+  @Test
+  void testExportLine() throws IOException {
+    Object[] row =
+        new Object[] {
+          "VEN",
+          "Sales journal",
+          "VEN-0001",
+          LocalDate.of(2024, 3, 15),
+          "411000",
+          "Customers",
+          true,
+          "C0001",
+          "Client \"Best\" | Co",
+          null,
+          LocalDate.of(2024, 3, 10),
+          "Invoice\r\nline",
+          new BigDecimal("120.50"),
+          new BigDecimal("0.00"),
+          ReconcileGroupRepository.STATUS_BALANCED,
+          "AA",
+          LocalDateTime.of(2024, 4, 1, 10, 30),
+          LocalDate.of(2024, 3, 31),
+          new BigDecimal("120.50"),
+          "EUR",
+          1L,
+          "VEN-0001/1",
+          2L,
+          3L
+        };
+
+    StringWriter writer = new StringWriter();
+    moveLineExportService.writeExportLine(
+        writer, moveLineExportService.createItemForExportMoveLine(row));
+
+    Assertions.assertEquals(
+        "VEN|Sales journal|VEN-0001|20240315|411000|Customers|C0001|Client \"\"Best\"\"   Co|NA|"
+            + "20240310|Invoice line|120,50|0,00|AA|20240401|20240331|120,50|EUR\r\n",
+        writer.toString());
+  }
+}
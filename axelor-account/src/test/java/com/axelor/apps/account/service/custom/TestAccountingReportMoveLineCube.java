@@ -0,0 +1,133 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.custom;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestAccountingReportMoveLineCube {
+
+  private static AccountingReportMoveLineCube moveLineCube;
+
+  @BeforeAll
+  static void prepare() {
+    moveLineCube = new AccountingReportMoveLineCube();
+    moveLineCube.add(1L, LocalDate.of(2024, 1, 15), new BigDecimal("100.00"), BigDecimal.ZERO, 2);
+    moveLineCube.add(1L, LocalDate.of(2024, 2, 10), BigDecimal.ZERO, new BigDecimal("30.00"), 1);
+    moveLineCube.add(1L, LocalDate.of(2024, 3, 31), new BigDecimal("5.50"), BigDecimal.ZERO, 1);
+    moveLineCube.add(1L, null, new BigDecimal("1.00"), BigDecimal.ZERO, 1);
+    moveLineCube.add(2L, LocalDate.of(2024, 2, 1), BigDecimal.ZERO, new BigDecimal("40.00"), 3);
+  }
+
+  protected void assertTotal(
+      String debit, String credit, long count, AccountingReportMoveLineCube.Total total) {
+    Assertions.assertEquals(0, new BigDecimal(debit).compareTo(total.getDebit()));
+    Assertions.assertEquals(0, new BigDecimal(credit).compareTo(total.getCredit()));
+    Assertions.assertEquals(count, total.getMoveLineCount());
+  }
+
+  @Test
+  void testTotalWithoutDates() {
+    assertTotal("106.50", "70.00", 8, moveLineCube.getTotal(Arrays.asList(1L, 2L), null, null));
+  }
+
+  @Test
+  void testTotalBetweenDates() {
+    assertTotal(
+        "1.00",
+        "30.00",
+        2,
+        moveLineCube.getTotal(
+            Collections.singletonList(1L), LocalDate.of(2024, 1, 16), LocalDate.of(2024, 3, 30)));
+    assertTotal(
+        "106.50",
+        "30.00",
+        5,
+        moveLineCube.getTotal(
+            Collections.singletonList(1L), LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 31)));
+  }
+
+  @Test
+  void testTotalWithOneBound() {
+    assertTotal(
+        "6.50",
+        "0.00",
+        2,
+        moveLineCube.getTotal(Arrays.asList(1L, 2L), LocalDate.of(2024, 2, 11), null));
+    assertTotal(
+        "101.00",
+        "0.00",
+        3,
+        moveLineCube.getTotal(Arrays.asList(1L, 2L), null, LocalDate.of(2024, 1, 31)));
+  }
+
+  @Test
+  void testTotalAvailableWithOpeningDate() {
+    AccountingReportMoveLineCube openingMoveLineCube = new AccountingReportMoveLineCube();
+    Assertions.assertTrue(
+        openingMoveLineCube.isTotalAvailable(LocalDate.of(2023, 6, 1), LocalDate.of(2023, 6, 30)));
+
+    openingMoveLineCube.setOpeningDate(LocalDate.of(2024, 1, 1));
+    Assertions.assertTrue(openingMoveLineCube.isTotalAvailable(null, null));
+    Assertions.assertTrue(openingMoveLineCube.isTotalAvailable(null, LocalDate.of(2023, 12, 31)));
+    Assertions.assertTrue(
+        openingMoveLineCube.isTotalAvailable(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
+    Assertions.assertFalse(
+        openingMoveLineCube.isTotalAvailable(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31)));
+    Assertions.assertFalse(openingMoveLineCube.isTotalAvailable(null, LocalDate.of(2023, 6, 30)));
+  }
+
+  @Test
+  void testTotalBeforePeriodFromBalances() {
+    AccountingReportMoveLineCube balanceMoveLineCube = new AccountingReportMoveLineCube();
+    balanceMoveLineCube.add(
+        1L, LocalDate.of(2023, 6, 30), new BigDecimal("50.00"), BigDecimal.ZERO, 1);
+    balanceMoveLineCube.add(
+        1L, LocalDate.of(2023, 12, 31), BigDecimal.ZERO, new BigDecimal("20.00"), 1);
+    balanceMoveLineCube.add(
+        1L, LocalDate.of(2024, 1, 15), new BigDecimal("100.00"), BigDecimal.ZERO, 2);
+    balanceMoveLineCube.setOpeningDate(LocalDate.of(2024, 1, 1));
+    balanceMoveLineCube.setBalanceFromDate(LocalDate.of(2023, 1, 1));
+
+    LocalDate beforePeriodFromDate = LocalDate.of(1900, 1, 1);
+    LocalDate beforePeriodToDate = LocalDate.of(2023, 12, 31);
+    Assertions.assertTrue(
+        balanceMoveLineCube.isTotalAvailable(beforePeriodFromDate, beforePeriodToDate));
+    Assertions.assertTrue(
+        balanceMoveLineCube.isTotalAvailable(LocalDate.of(2023, 1, 1), beforePeriodToDate));
+    Assertions.assertFalse(
+        balanceMoveLineCube.isTotalAvailable(LocalDate.of(2023, 1, 2), beforePeriodToDate));
+    assertTotal(
+        "50.00",
+        "20.00",
+        2,
+        balanceMoveLineCube.getTotal(
+            Collections.singletonList(1L), beforePeriodFromDate, beforePeriodToDate));
+  }
+
+  @Test
+  void testUnknownAccount() {
+    assertTotal("0", "0", 0, moveLineCube.getTotal(Collections.singletonList(3L), null, null));
+  }
+}
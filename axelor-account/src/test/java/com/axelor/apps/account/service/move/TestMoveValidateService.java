@@ -0,0 +1,133 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.account.service.move;
+
+import com.axelor.apps.account.db.Move;
+import com.axelor.apps.account.db.repo.MoveRepository;
+import com.axelor.apps.account.service.period.PeriodCheckService;
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.auth.db.User;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class TestMoveValidateService {
+
+  /** Moves read from memory, the accounting of one of them failing. */
+  static class FailingMoveValidateService extends MoveValidateServiceImpl {
+
+    protected final Map<Long, Move> moveMap = new HashMap<>();
+    protected final List<Long> accountingCallList = new ArrayList<>();
+    protected Long failingMoveId;
+
+    FailingMoveValidateService() throws AxelorException {
+      super(
+          null, null, null, null, null, null, null, null, null, null, null, null, null, null, null,
+          null, null, null, null, null, null, null, null);
+      periodCheckService = Mockito.mock(PeriodCheckService.class);
+      Mockito.when(
+              periodCheckService.isAuthorizedToAccountOnPeriod(
+                  Mockito.any(Move.class), Mockito.nullable(User.class)))
+          .thenReturn(true);
+      jpaLimit = 2;
+    }
+
+    void addMove(Long id, int statusSelect) {
+      Move move = new Move();
+      move.setId(id);
+      move.setReference("Move " + id);
+      move.setStatusSelect(statusSelect);
+      moveMap.put(id, move);
+    }
+
+    @Override
+    protected List<Long> getMoveIdListSortedByDate(List<Long> moveIdList) {
+      return moveIdList;
+    }
+
+    @Override
+    protected Map<Long, Move> findMoveMap(List<Long> moveIdList) {
+      Map<Long, Move> chunkMoveMap = new HashMap<>();
+      moveIdList.forEach(moveId -> chunkMoveMap.put(moveId, moveMap.get(moveId)));
+      return chunkMoveMap;
+    }
+
+    @Override
+    protected void clearMoves() {}
+
+    @Override
+    protected void addAccountingError(MoveAccountingResult result, Long moveId, Exception e) {
+      result.addError(moveId, moveMap.get(moveId).getReference(), e);
+    }
+
+    @Override
+    public void accounting(Move move) throws AxelorException {
+      accountingCallList.add(move.getId());
+      if (move.getId().equals(failingMoveId)) {
+        throw new AxelorException(
+            TraceBackRepository.CATEGORY_INCONSISTENCY, "Move %s failed", move.getReference());
+      }
+    }
+  }
+
+  private FailingMoveValidateService moveValidateService;
+
+  @BeforeEach
+  void prepare() throws AxelorException {
+    moveValidateService = new FailingMoveValidateService();
+    moveValidateService.addMove(1L, MoveRepository.STATUS_NEW);
+    moveValidateService.addMove(2L, MoveRepository.STATUS_NEW);
+    moveValidateService.addMove(3L, MoveRepository.STATUS_ACCOUNTED);
+    moveValidateService.addMove(4L, MoveRepository.STATUS_DAYBOOK);
+  }
+
+  @Test
+  void testAccountingWithoutError() {
+    MoveAccountingResult result =
+        moveValidateService.accountingMultipleMoves(Arrays.asList(1L, 2L, 3L, 4L));
+
+    Assertions.assertFalse(result.hasErrors());
+    Assertions.assertEquals(4, result.getAccountedCount());
+    // The accounted move is skipped
+    Assertions.assertEquals(Arrays.asList(1L, 2L, 4L), moveValidateService.accountingCallList);
+  }
+
+  @Test
+  void testFailingMoveIsRetriedAlone() {
+    moveValidateService.failingMoveId = 2L;
+
+    MoveAccountingResult result =
+        moveValidateService.accountingMultipleMoves(Arrays.asList(1L, 2L, 3L, 4L));
+
+    // The first chunk is rolled back and its moves are accounted again one by one
+    Assertions.assertEquals(
+        Arrays.asList(1L, 2L, 1L, 2L, 4L), moveValidateService.accountingCallList);
+    Assertions.assertEquals(3, result.getAccountedCount());
+    Assertions.assertEquals(1, result.getErrorList().size());
+    Assertions.assertEquals(2L, result.getErrorList().get(0).getMoveId());
+    Assertions.assertEquals("Move 2", result.getErrorReferences());
+  }
+}
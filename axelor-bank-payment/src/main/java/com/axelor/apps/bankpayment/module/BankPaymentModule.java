@@ -23,6 +23,7 @@ import com.axelor.apps.account.db.repo.MoveManagementRepository;
 import com.axelor.apps.account.db.repo.PaymentSessionAccountRepository;
 import com.axelor.apps.account.service.AccountingReportPrintServiceImpl;
 import com.axelor.apps.account.service.PaymentScheduleLineServiceImpl;
+import com.axelor.apps.account.service.SequenceAccountService;
 import com.axelor.apps.account.service.batch.AccountingBatchService;
 import com.axelor.apps.account.service.batch.BatchCreditTransferPartnerReimbursement;
 import com.axelor.apps.account.service.batch.BatchCreditTransferSupplierPayment;
@@ -65,6 +66,7 @@ import com.axelor.apps.bankpayment.service.PaymentSessionBankOrderService;
 import com.axelor.apps.bankpayment.service.PaymentSessionBankOrderServiceImpl;
 import com.axelor.apps.bankpayment.service.PaymentSessionBillOfExchangeValidateBankPaymentServiceImpl;
 import com.axelor.apps.bankpayment.service.PaymentSessionValidateBankPaymentServiceImpl;
+import com.axelor.apps.bankpayment.service.SequenceBankPaymentService;
 import com.axelor.apps.bankpayment.service.app.AppBankPaymentService;
 import com.axelor.apps.bankpayment.service.app.AppBankPaymentServiceImpl;
 import com.axelor.apps.bankpayment.service.bankdetails.BankDetailsBankPaymentService;
@@ -286,5 +288,6 @@ public class BankPaymentModule extends AxelorModule {
     bind(BankStatementImportCheckService.class).to(BankStatementImportCheckServiceImpl.class);
     bind(BankStatementBankDetailsService.class).to(BankStatementBankDetailsServiceImpl.class);
     bind(BankStatementDateService.class).to(BankStatementDateServiceImpl.class);
+    bind(SequenceAccountService.class).to(SequenceBankPaymentService.class);
   }
 }
@@ -0,0 +1,125 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.bankpayment.service.bankreconciliation;
+
+import com.axelor.apps.account.db.MoveLine;
+import com.axelor.apps.base.db.Currency;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Move lines available for the auto reconciliation, indexed by move currency and absolute currency
+ * amount. Candidates are always returned in the order of the initial list.
+ */
+public class BankReconciliationMoveLineIndex {
+
+  protected final List<MoveLine> moveLineList;
+  protected final Map<Long, Integer> positionMap = new HashMap<>();
+  protected final Map<Long, NavigableMap<BigDecimal, List<MoveLine>>> amountMapByCurrency =
+      new HashMap<>();
+  protected final Map<Long, Currency> currencyMap = new HashMap<>();
+  protected final Set<Long> reconciledIdSet = new HashSet<>();
+
+  public BankReconciliationMoveLineIndex(List<MoveLine> moveLineList) {
+    this.moveLineList = moveLineList;
+    for (int i = 0; i < moveLineList.size(); i++) {
+      MoveLine moveLine = moveLineList.get(i);
+      Currency currency = moveLine.getMove().getCurrency();
+      Long currencyId = currency != null ? currency.getId() : null;
+      positionMap.put(moveLine.getId(), i);
+      currencyMap.put(currencyId, currency);
+      amountMapByCurrency
+          .computeIfAbsent(currencyId, k -> new TreeMap<>())
+          .computeIfAbsent(moveLine.getCurrencyAmount().abs(), k -> new ArrayList<>())
+          .add(moveLine);
+    }
+  }
+
+  /**
+   * @return the currencies of the moves of the indexed move lines, by id.
+   */
+  public Map<Long, Currency> getCurrencyMap() {
+    return currencyMap;
+  }
+
+  /**
+   * @return all the move lines not reconciled yet.
+   */
+  public List<MoveLine> getMoveLineList() {
+    List<MoveLine> resultList = new ArrayList<>();
+    for (MoveLine moveLine : moveLineList) {
+      if (!reconciledIdSet.contains(moveLine.getId())) {
+        resultList.add(moveLine);
+      }
+    }
+    return resultList;
+  }
+
+  /**
+   * @param currencyId id of the move currency
+   * @param lowBound lowest absolute currency amount, unbounded if null
+   * @param highBound highest absolute currency amount, unbounded if null
+   * @return the move lines not reconciled yet whose absolute currency amount is between the bounds.
+   */
+  public List<MoveLine> getMoveLineList(Long currencyId, BigDecimal lowBound, BigDecimal highBound) {
+    List<MoveLine> resultList = new ArrayList<>();
+    NavigableMap<BigDecimal, List<MoveLine>> amountMap = amountMapByCurrency.get(currencyId);
+    if (amountMap == null
+        || (lowBound != null && highBound != null && lowBound.compareTo(highBound) > 0)) {
+      return resultList;
+    }
+    if (lowBound != null) {
+      amountMap = amountMap.tailMap(lowBound, true);
+    }
+    if (highBound != null) {
+      amountMap = amountMap.headMap(highBound, true);
+    }
+    addNotReconciled(resultList, amountMap.values());
+    sortByPosition(resultList);
+    return resultList;
+  }
+
+  /** Sort the move lines in the order of the initial list. */
+  public void sortByPosition(List<MoveLine> moveLineList) {
+    moveLineList.sort(Comparator.comparing(moveLine -> positionMap.get(moveLine.getId())));
+  }
+
+  public void setReconciled(MoveLine moveLine) {
+    reconciledIdSet.add(moveLine.getId());
+  }
+
+  protected void addNotReconciled(List<MoveLine> resultList, Collection<List<MoveLine>> values) {
+    for (List<MoveLine> amountMoveLineList : values) {
+      for (MoveLine moveLine : amountMoveLineList) {
+        if (!reconciledIdSet.contains(moveLine.getId())) {
+          resultList.add(moveLine);
+        }
+      }
+    }
+  }
+}
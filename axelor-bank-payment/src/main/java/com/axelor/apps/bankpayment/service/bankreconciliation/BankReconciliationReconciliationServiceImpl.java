@@ -30,6 +30,7 @@ import com.axelor.apps.bankpayment.db.repo.BankStatementQueryRepository;
 import com.axelor.apps.bankpayment.db.repo.BankStatementRuleRepository;
 import com.axelor.apps.bankpayment.exception.BankPaymentExceptionMessage;
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Currency;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.CurrencyScaleService;
 import com.axelor.apps.base.service.CurrencyService;
@@ -43,7 +44,10 @@ import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class BankReconciliationReconciliationServiceImpl
@@ -105,23 +109,43 @@ public class BankReconciliationReconciliationServiceImpl
     BigDecimal amountMarginLow = this.getAmountMarginLow(bankReconciliation);
     BigDecimal amountMarginHigh = BigDecimal.ONE;
 
-    Context scriptContext;
+    BankReconciliationMoveLineIndex moveLineIndex = new BankReconciliationMoveLineIndex(moveLines);
+    Map<Long, Map<Long, BigDecimal>> currencyAmountMap = new HashMap<>();
 
     for (BankStatementQuery bankStatementQuery : bankStatementQueries) {
+      BankStatementQueryMatcher queryMatcher =
+          BankStatementQueryMatcher.of(
+              bankStatementQuery.getQuery(), dateMargin, amountMarginLow, amountMarginHigh);
+
       for (BankReconciliationLine bankReconciliationLine : bankReconciliationLines) {
         BankStatementLine bankStatementLine = bankReconciliationLine.getBankStatementLine();
         if (bankReconciliationLine.getMoveLine() != null || bankStatementLine == null) {
           continue;
         }
-        for (MoveLine moveLine : moveLines) {
+        Map<Long, BigDecimal> lineCurrencyAmountMap =
+            currencyAmountMap.computeIfAbsent(bankReconciliationLine.getId(), k -> new HashMap<>());
+
+        for (MoveLine moveLine :
+            this.getCandidateMoveLineList(
+                bankReconciliation,
+                bankReconciliationLine,
+                queryMatcher,
+                moveLineIndex,
+                lineCurrencyAmountMap)) {
           bankStatementLine.setMoveLine(moveLine);
 
-          scriptContext =
+          Context scriptContext =
               this.getScriptContext(
-                  bankReconciliation, bankStatementLine, bankReconciliationLine, moveLine);
-          String query =
-              computeQuery(bankStatementQuery, dateMargin, amountMarginLow, amountMarginHigh);
-          Boolean result = (Boolean) new GroovyScriptHelper(scriptContext).eval(query);
+                  bankReconciliation,
+                  bankStatementLine,
+                  bankReconciliationLine,
+                  getCurrencyAmount(
+                      bankReconciliation,
+                      bankReconciliationLine,
+                      moveLine.getMove().getCurrency(),
+                      lineCurrencyAmountMap));
+          Boolean result =
+              (Boolean) new GroovyScriptHelper(scriptContext).eval(queryMatcher.getQuery());
 
           if (result) {
             bankReconciliationLine =
@@ -137,7 +161,7 @@ public class BankReconciliationReconciliationServiceImpl
             }
 
             moveLine.setPostedNbr(bankReconciliationLine.getPostedNbr());
-            moveLines.remove(moveLine);
+            moveLineIndex.setReconciled(moveLine);
             break;
           }
 
@@ -148,6 +172,73 @@ public class BankReconciliationReconciliationServiceImpl
     return bankReconciliation;
   }
 
+  /**
+   * Get the move lines which can match the bank reconciliation line according to the amount and
+   * date conditions of the query, in the order of the move line list.
+   */
+  protected List<MoveLine> getCandidateMoveLineList(
+      BankReconciliation bankReconciliation,
+      BankReconciliationLine bankReconciliationLine,
+      BankStatementQueryMatcher queryMatcher,
+      BankReconciliationMoveLineIndex moveLineIndex,
+      Map<Long, BigDecimal> currencyAmountMap)
+      throws AxelorException {
+    List<MoveLine> candidateList;
+    if (queryMatcher.hasAmountCondition()) {
+      candidateList = new ArrayList<>();
+      for (Map.Entry<Long, Currency> currencyEntry : moveLineIndex.getCurrencyMap().entrySet()) {
+        BigDecimal currencyAmount =
+            getCurrencyAmount(
+                bankReconciliation,
+                bankReconciliationLine,
+                currencyEntry.getValue(),
+                currencyAmountMap);
+        candidateList.addAll(
+            moveLineIndex.getMoveLineList(
+                currencyEntry.getKey(),
+                queryMatcher.getAmountLowBound(currencyAmount),
+                queryMatcher.getAmountHighBound(currencyAmount)));
+      }
+      moveLineIndex.sortByPosition(candidateList);
+    } else {
+      candidateList = moveLineIndex.getMoveLineList();
+    }
+
+    BankStatementLine bankStatementLine = bankReconciliationLine.getBankStatementLine();
+    candidateList.removeIf(
+        moveLine ->
+            !queryMatcher.isDateCandidate(
+                moveLine.getDate(),
+                moveLine.getDueDate(),
+                bankStatementLine.getValueDate(),
+                bankStatementLine.getOperationDate()));
+    return candidateList;
+  }
+
+  /**
+   * Get the amount of the bank reconciliation line converted in the given move currency, computed
+   * once per currency.
+   */
+  protected BigDecimal getCurrencyAmount(
+      BankReconciliation bankReconciliation,
+      BankReconciliationLine bankReconciliationLine,
+      Currency moveCurrency,
+      Map<Long, BigDecimal> currencyAmountMap)
+      throws AxelorException {
+    Long currencyId = moveCurrency != null ? moveCurrency.getId() : null;
+    BigDecimal currencyAmount = currencyAmountMap.get(currencyId);
+    if (currencyAmount == null) {
+      currencyAmount =
+          currencyService.getAmountCurrencyConvertedAtDate(
+              bankReconciliation.getCurrency(),
+              moveCurrency,
+              getAmount(bankReconciliation, bankReconciliationLine),
+              dateService.date());
+      currencyAmountMap.put(currencyId, currencyAmount);
+    }
+    return currencyAmount;
+  }
+
   @Override
   public void checkReconciliation(List<MoveLine> moveLines, BankReconciliation br)
       throws AxelorException {
@@ -271,29 +362,50 @@ public class BankReconciliationReconciliationServiceImpl
       BankReconciliationLine bankReconciliationLine,
       MoveLine moveLine)
       throws AxelorException {
-    Context scriptContext =
-        new Context(Mapper.toMap(bankStatementLine), BankStatementLineAFB120.class);
-
-    BigDecimal debit =
-        currencyScaleService.getScaledValue(bankReconciliation, bankReconciliationLine.getDebit());
-    BigDecimal credit =
-        currencyScaleService.getScaledValue(bankReconciliation, bankReconciliationLine.getCredit());
-
-    BigDecimal currencyAmount = debit.compareTo(BigDecimal.ZERO) == 0 ? credit : debit;
-    currencyAmount =
+    BigDecimal currencyAmount =
         currencyService.getAmountCurrencyConvertedAtDate(
             bankReconciliation.getCurrency(),
             moveLine.getMove().getCurrency(),
-            currencyAmount,
+            getAmount(bankReconciliation, bankReconciliationLine),
             dateService.date());
 
-    scriptContext.put("debit", debit);
-    scriptContext.put("credit", credit);
+    return getScriptContext(
+        bankReconciliation, bankStatementLine, bankReconciliationLine, currencyAmount);
+  }
+
+  protected Context getScriptContext(
+      BankReconciliation bankReconciliation,
+      BankStatementLine bankStatementLine,
+      BankReconciliationLine bankReconciliationLine,
+      BigDecimal currencyAmount) {
+    Context scriptContext =
+        new Context(Mapper.toMap(bankStatementLine), BankStatementLineAFB120.class);
+
+    scriptContext.put(
+        "debit",
+        currencyScaleService.getScaledValue(bankReconciliation, bankReconciliationLine.getDebit()));
+    scriptContext.put(
+        "credit",
+        currencyScaleService.getScaledValue(
+            bankReconciliation, bankReconciliationLine.getCredit()));
     scriptContext.put("currencyAmount", currencyAmount);
 
     return scriptContext;
   }
 
+  /**
+   * @return the debit of the bank reconciliation line, or its credit if the debit is zero.
+   */
+  protected BigDecimal getAmount(
+      BankReconciliation bankReconciliation, BankReconciliationLine bankReconciliationLine) {
+    BigDecimal debit =
+        currencyScaleService.getScaledValue(bankReconciliation, bankReconciliationLine.getDebit());
+    BigDecimal credit =
+        currencyScaleService.getScaledValue(bankReconciliation, bankReconciliationLine.getCredit());
+
+    return debit.compareTo(BigDecimal.ZERO) == 0 ? credit : debit;
+  }
+
   protected BankReconciliationLine updateBankReconciliationLine(
       BankReconciliationLine bankReconciliationLine,
       MoveLine moveLine,
@@ -304,16 +416,4 @@ public class BankReconciliationReconciliationServiceImpl
     bankReconciliationLine.setPostedNbr(bankReconciliationLine.getId().toString());
     return bankReconciliationLine;
   }
-
-  protected String computeQuery(
-      BankStatementQuery bankStatementQuery,
-      BigInteger dateMargin,
-      BigDecimal amountMarginLow,
-      BigDecimal amountMarginHigh) {
-    String query = bankStatementQuery.getQuery();
-    query = query.replace("%amt+", amountMarginHigh.toString());
-    query = query.replace("%amt-", amountMarginLow.toString());
-    query = query.replace("%date", dateMargin.toString());
-    return query;
-  }
 }
@@ -0,0 +1,271 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.bankpayment.service.bankreconciliation;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Auto reconciliation query prepared once for a bank reconciliation: the margins are replaced in the
+ * query, and the amount and date conditions of the query are recognized so that move lines which
+ * can not match are discarded before evaluating the query.
+ *
+ * <p>Only conditions that are members of the top level conjunction of the query are recognized,
+ * any other part of the query is left to the script evaluation.
+ */
+public class BankStatementQueryMatcher {
+
+  protected static final String AMOUNT_EQUAL = "moveLine?.currencyAmount.abs()==currencyAmount";
+  protected static final String AMOUNT_LOW = "moveLine?.currencyAmount.abs()>=currencyAmount*%amt-";
+  protected static final String AMOUNT_HIGH =
+      "moveLine?.currencyAmount.abs()<=currencyAmount*%amt+";
+
+  protected static final Pattern DATE_EQUAL_PATTERN =
+      Pattern.compile("moveLine\\?\\.(date|dueDate)\\??\\.equals\\((valueDate|operationDate)\\)");
+  protected static final Pattern DATE_RANGE_PATTERN =
+      Pattern.compile(
+          "moveLine\\?\\.(date|dueDate)<=(valueDate|operationDate)\\?\\.plusDays\\(%date\\)"
+              + "&&moveLine\\?\\.(date|dueDate)>=(valueDate|operationDate)\\?\\.minusDays\\(%date\\)");
+
+  protected final String query;
+  protected final BigDecimal amountMarginLow;
+  protected final BigDecimal amountMarginHigh;
+  protected final long dateMargin;
+
+  protected boolean amountLowBound;
+  protected boolean amountHighBound;
+  protected boolean amountEqual;
+  protected final List<List<DateCondition>> dateConditionList = new ArrayList<>();
+
+  protected BankStatementQueryMatcher(
+      String query, BigInteger dateMargin, BigDecimal amountMarginLow, BigDecimal amountMarginHigh) {
+    this.query =
+        query
+            .replace("%amt+", amountMarginHigh.toString())
+            .replace("%amt-", amountMarginLow.toString())
+            .replace("%date", dateMargin.toString());
+    this.amountMarginLow = amountMarginLow;
+    this.amountMarginHigh = amountMarginHigh;
+    this.dateMargin = dateMargin.longValue();
+  }
+
+  public static BankStatementQueryMatcher of(
+      String query, BigInteger dateMargin, BigDecimal amountMarginLow, BigDecimal amountMarginHigh) {
+    BankStatementQueryMatcher matcher =
+        new BankStatementQueryMatcher(query, dateMargin, amountMarginLow, amountMarginHigh);
+    String expression = stripParentheses(query.replaceAll("\\s", ""));
+    if (split(expression, "||").size() != 1) {
+      // The conditions of a top level disjunction do not bound the matching move lines
+      return matcher;
+    }
+    for (String condition : split(expression, "&&")) {
+      matcher.addCondition(stripParentheses(condition));
+    }
+    return matcher;
+  }
+
+  /**
+   * @return the query to evaluate, with the margins replaced.
+   */
+  public String getQuery() {
+    return query;
+  }
+
+  /**
+   * @return true if the query only matches move lines whose absolute currency amount is bounded by
+   *     the currency amount of the bank statement line.
+   */
+  public boolean hasAmountCondition() {
+    return amountEqual || amountLowBound || amountHighBound;
+  }
+
+  /**
+   * @return the lowest absolute currency amount a matching move line can have, null if unbounded.
+   */
+  public BigDecimal getAmountLowBound(BigDecimal currencyAmount) {
+    if (amountEqual) {
+      return currencyAmount;
+    }
+    return amountLowBound ? currencyAmount.multiply(amountMarginLow) : null;
+  }
+
+  /**
+   * @return the highest absolute currency amount a matching move line can have, null if unbounded.
+   */
+  public BigDecimal getAmountHighBound(BigDecimal currencyAmount) {
+    if (amountEqual) {
+      return currencyAmount;
+    }
+    return amountHighBound ? currencyAmount.multiply(amountMarginHigh) : null;
+  }
+
+  /**
+   * Evaluate the recognized date conditions the same way the script does.
+   *
+   * @return false if the move line can not match the bank statement line dates.
+   */
+  public boolean isDateCandidate(
+      LocalDate moveLineDate,
+      LocalDate moveLineDueDate,
+      LocalDate valueDate,
+      LocalDate operationDate) {
+    for (List<DateCondition> alternativeList : dateConditionList) {
+      boolean isCandidate = false;
+      for (DateCondition dateCondition : alternativeList) {
+        LocalDate date = dateCondition.onDueDate ? moveLineDueDate : moveLineDate;
+        LocalDate statementDate = dateCondition.onValueDate ? valueDate : operationDate;
+        if (dateCondition.test(date, statementDate, dateMargin)) {
+          isCandidate = true;
+          break;
+        }
+      }
+      if (!isCandidate) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  protected void addCondition(String condition) {
+    switch (condition) {
+      case AMOUNT_EQUAL:
+        amountEqual = true;
+        return;
+      case AMOUNT_LOW:
+        amountLowBound = true;
+        return;
+      case AMOUNT_HIGH:
+        amountHighBound = true;
+        return;
+      default:
+        break;
+    }
+
+    List<DateCondition> alternativeList = new ArrayList<>();
+    for (String alternative : split(condition, "||")) {
+      DateCondition dateCondition = DateCondition.of(stripParentheses(alternative));
+      if (dateCondition == null) {
+        return;
+      }
+      alternativeList.add(dateCondition);
+    }
+    if (!alternativeList.isEmpty()) {
+      dateConditionList.add(alternativeList);
+    }
+  }
+
+  /** Split the expression on the given operator, ignoring operators between parentheses. */
+  protected static List<String> split(String expression, String operator) {
+    List<String> partList = new ArrayList<>();
+    int depth = 0;
+    int start = 0;
+    char quote = 0;
+    for (int i = 0; i < expression.length(); i++) {
+      char c = expression.charAt(i);
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if (c == '\'' || c == '"') {
+        quote = c;
+      } else if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      } else if (depth == 0 && expression.startsWith(operator, i)) {
+        partList.add(expression.substring(start, i));
+        start = i + operator.length();
+        i = start - 1;
+      }
+    }
+    if (depth != 0 || quote != 0) {
+      // Malformed expression, nothing can be recognized
+      return Collections.emptyList();
+    }
+    partList.add(expression.substring(start));
+    return partList;
+  }
+
+  /** Remove the parentheses enclosing the whole expression. */
+  protected static String stripParentheses(String expression) {
+    while (expression.startsWith("(") && expression.endsWith(")")) {
+      int depth = 0;
+      for (int i = 0; i < expression.length() - 1; i++) {
+        char c = expression.charAt(i);
+        if (c == '(') {
+          depth++;
+        } else if (c == ')') {
+          depth--;
+        }
+        if (depth == 0) {
+          return expression;
+        }
+      }
+      expression = expression.substring(1, expression.length() - 1);
+    }
+    return expression;
+  }
+
+  protected static class DateCondition {
+
+    protected final boolean onDueDate;
+    protected final boolean onValueDate;
+    protected final boolean isRange;
+
+    protected DateCondition(boolean onDueDate, boolean onValueDate, boolean isRange) {
+      this.onDueDate = onDueDate;
+      this.onValueDate = onValueDate;
+      this.isRange = isRange;
+    }
+
+    protected static DateCondition of(String condition) {
+      Matcher matcher = DATE_EQUAL_PATTERN.matcher(condition);
+      if (matcher.matches()) {
+        return new DateCondition(
+            "dueDate".equals(matcher.group(1)), "valueDate".equals(matcher.group(2)), false);
+      }
+      matcher = DATE_RANGE_PATTERN.matcher(condition);
+      if (matcher.matches()
+          && matcher.group(1).equals(matcher.group(3))
+          && matcher.group(2).equals(matcher.group(4))) {
+        return new DateCondition(
+            "dueDate".equals(matcher.group(1)), "valueDate".equals(matcher.group(2)), true);
+      }
+      return null;
+    }
+
+    /** Groovy considers null lower than any date, and equal to null. */
+    protected boolean test(LocalDate date, LocalDate statementDate, long dateMargin) {
+      if (!isRange) {
+        return date != null && date.equals(statementDate);
+      }
+      if (date == null || statementDate == null) {
+        return date == null && statementDate == null;
+      }
+      return !date.isAfter(statementDate.plusDays(dateMargin))
+          && !date.isBefore(statementDate.minusDays(dateMargin));
+    }
+  }
+}
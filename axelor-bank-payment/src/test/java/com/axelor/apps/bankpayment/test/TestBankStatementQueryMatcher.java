@@ -0,0 +1,113 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.bankpayment.test;
+
+import com.axelor.apps.bankpayment.service.bankreconciliation.BankStatementQueryMatcher;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestBankStatementQueryMatcher {
+
+  protected static final String AMOUNT_AND_DATE_RANGE_QUERY =
+      "moveLine?.currencyAmount.abs()>= currencyAmount * %amt- && moveLine?.currencyAmount.abs()<= currencyAmount * %amt+ && ((moveLine?.dueDate <= valueDate?.plusDays(%date) && moveLine?.dueDate >=valueDate?.minusDays(%date)) || (moveLine?.date <= operationDate?.plusDays(%date) && moveLine?.date >=operationDate?.minusDays(%date)))";
+
+  protected BankStatementQueryMatcher of(String query) {
+    return BankStatementQueryMatcher.of(
+        query, BigInteger.valueOf(3), new BigDecimal("0.95"), BigDecimal.ONE);
+  }
+
+  @Test
+  public void testReplaceMargins() {
+    Assert.assertEquals(
+        "moveLine?.currencyAmount.abs()>= currencyAmount * 0.95 && moveLine?.currencyAmount.abs()<= currencyAmount * 1 && ((moveLine?.dueDate <= valueDate?.plusDays(3) && moveLine?.dueDate >=valueDate?.minusDays(3)) || (moveLine?.date <= operationDate?.plusDays(3) && moveLine?.date >=operationDate?.minusDays(3)))",
+        of(AMOUNT_AND_DATE_RANGE_QUERY).getQuery());
+  }
+
+  @Test
+  public void testAmountRange() {
+    BankStatementQueryMatcher matcher = of(AMOUNT_AND_DATE_RANGE_QUERY);
+    Assert.assertTrue(matcher.hasAmountCondition());
+    Assert.assertEquals(
+        0, new BigDecimal("95").compareTo(matcher.getAmountLowBound(new BigDecimal("100"))));
+    Assert.assertEquals(
+        0, new BigDecimal("100").compareTo(matcher.getAmountHighBound(new BigDecimal("100"))));
+  }
+
+  @Test
+  public void testAmountEqual() {
+    BankStatementQueryMatcher matcher =
+        of("moveLine?.origin.equals(origin) && moveLine?.currencyAmount.abs() == currencyAmount");
+    BigDecimal currencyAmount = new BigDecimal("12.50");
+    Assert.assertEquals(currencyAmount, matcher.getAmountLowBound(currencyAmount));
+    Assert.assertEquals(currencyAmount, matcher.getAmountHighBound(currencyAmount));
+  }
+
+  @Test
+  public void testAmountInDisjunctionIsNotRecognized() {
+    BankStatementQueryMatcher matcher =
+        of("moveLine?.currencyAmount.abs() == currencyAmount || moveLine?.origin.equals(origin)");
+    Assert.assertFalse(matcher.hasAmountCondition());
+    Assert.assertTrue(matcher.isDateCandidate(null, null, null, null));
+  }
+
+  @Test
+  public void testConjunctionInDisjunctionIsNotRecognized() {
+    BankStatementQueryMatcher matcher =
+        of(
+            "moveLine?.currencyAmount.abs() == currencyAmount && moveLine?.date?.equals(operationDate) || moveLine?.origin.equals(origin)");
+    Assert.assertFalse(matcher.hasAmountCondition());
+    Assert.assertTrue(
+        matcher.isDateCandidate(
+            LocalDate.of(2024, 3, 1), null, LocalDate.of(2024, 3, 10), LocalDate.of(2024, 3, 20)));
+  }
+
+  @Test
+  public void testDateRange() {
+    BankStatementQueryMatcher matcher = of(AMOUNT_AND_DATE_RANGE_QUERY);
+    LocalDate valueDate = LocalDate.of(2024, 3, 10);
+    LocalDate operationDate = LocalDate.of(2024, 3, 20);
+
+    Assert.assertTrue(
+        matcher.isDateCandidate(null, LocalDate.of(2024, 3, 13), valueDate, operationDate));
+    Assert.assertTrue(
+        matcher.isDateCandidate(LocalDate.of(2024, 3, 17), null, valueDate, operationDate));
+    Assert.assertFalse(
+        matcher.isDateCandidate(
+            LocalDate.of(2024, 3, 13), LocalDate.of(2024, 3, 14), valueDate, operationDate));
+    Assert.assertFalse(matcher.isDateCandidate(null, null, valueDate, operationDate));
+    Assert.assertTrue(matcher.isDateCandidate(null, null, null, operationDate));
+  }
+
+  @Test
+  public void testDateEqual() {
+    BankStatementQueryMatcher matcher =
+        of(
+            "moveLine?.currencyAmount.abs() == currencyAmount && (moveLine?.date?.equals(operationDate) || moveLine?.dueDate?.equals(valueDate))");
+    LocalDate valueDate = LocalDate.of(2024, 3, 10);
+    LocalDate operationDate = LocalDate.of(2024, 3, 20);
+
+    Assert.assertTrue(matcher.isDateCandidate(operationDate, null, valueDate, operationDate));
+    Assert.assertTrue(matcher.isDateCandidate(null, valueDate, valueDate, operationDate));
+    Assert.assertFalse(matcher.isDateCandidate(valueDate, operationDate, valueDate, operationDate));
+    Assert.assertFalse(matcher.isDateCandidate(null, null, null, null));
+  }
+}
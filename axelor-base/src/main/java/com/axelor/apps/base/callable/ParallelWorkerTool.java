@@ -0,0 +1,180 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.callable;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.auth.AuthUtils;
+import com.axelor.inject.Beans;
+import com.google.inject.persist.UnitOfWork;
+import com.google.inject.servlet.RequestScoper;
+import com.google.inject.servlet.ServletScopes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.apache.shiro.subject.Subject;
+
+/**
+ * Tool class to process partitions of work on a bounded pool of worker threads. Each partition is
+ * processed in a worker having its own request scope and its own entity manager, so entities must
+ * not be shared between partitions: pass ids and find them again in the task. Workers run as the
+ * user of the calling thread.
+ */
+public class ParallelWorkerTool {
+
+  private ParallelWorkerTool() {
+    throw new IllegalStateException("Utility class");
+  }
+
+  @FunctionalInterface
+  public interface PartitionTask<T> {
+    void process(List<T> partition) throws Exception;
+  }
+
+  /**
+   * Process every partition with the given task. If there is only one worker or one partition,
+   * the partitions are processed in the current thread. The method returns once every partition
+   * has been processed.
+   *
+   * @param partitionList the partitions to process
+   * @param workerNbr the maximum number of threads
+   * @param task the task to run on each partition
+   * @throws AxelorException the first exception thrown by a task
+   */
+  public static <T> void run(List<List<T>> partitionList, int workerNbr, PartitionTask<T> task)
+      throws AxelorException {
+    run(partitionList, workerNbr, task, 0, null);
+  }
+
+  /**
+   * Process every partition with the given task, and run the wait task in the current thread at
+   * regular intervals while the partitions are processed.
+   *
+   * @param partitionList the partitions to process
+   * @param workerNbr the maximum number of threads
+   * @param task the task to run on each partition
+   * @param waitMillis the interval between two runs of the wait task
+   * @param waitTask the task to run in the current thread, can be null
+   * @throws AxelorException the first exception thrown by a task
+   */
+  public static <T> void run(
+      List<List<T>> partitionList,
+      int workerNbr,
+      PartitionTask<T> task,
+      long waitMillis,
+      Runnable waitTask)
+      throws AxelorException {
+
+    if (workerNbr <= 1 || partitionList.size() <= 1) {
+      long lastWaitTaskTime = System.currentTimeMillis();
+      for (List<T> partition : partitionList) {
+        processInCurrentThread(partition, task);
+        if (waitTask != null && System.currentTimeMillis() - lastWaitTaskTime >= waitMillis) {
+          waitTask.run();
+          lastWaitTaskTime = System.currentTimeMillis();
+        }
+      }
+      return;
+    }
+
+    Subject subject = AuthUtils.getSubject();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.min(workerNbr, partitionList.size()));
+
+    try {
+      List<Future<Boolean>> futureList = new ArrayList<>();
+      for (List<T> partition : partitionList) {
+        futureList.add(executor.submit(() -> processInWorker(partition, task, subject)));
+      }
+      for (Future<Boolean> future : futureList) {
+        waitFor(future, waitMillis, waitTask);
+      }
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof AxelorException) {
+        throw (AxelorException) cause;
+      }
+      throw new AxelorException(cause, TraceBackRepository.CATEGORY_INCONSISTENCY);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AxelorException(e, TraceBackRepository.CATEGORY_INCONSISTENCY);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  protected static void waitFor(Future<Boolean> future, long waitMillis, Runnable waitTask)
+      throws ExecutionException, InterruptedException {
+    if (waitTask == null || waitMillis <= 0) {
+      future.get();
+      return;
+    }
+    while (true) {
+      try {
+        future.get(waitMillis, TimeUnit.MILLISECONDS);
+        return;
+      } catch (TimeoutException e) {
+        waitTask.run();
+      }
+    }
+  }
+
+  protected static <T> void processInCurrentThread(List<T> partition, PartitionTask<T> task)
+      throws AxelorException {
+    try {
+      task.process(partition);
+    } catch (AxelorException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new AxelorException(e, TraceBackRepository.CATEGORY_INCONSISTENCY);
+    }
+  }
+
+  protected static <T> Boolean processInWorker(
+      List<T> partition, PartitionTask<T> task, Subject subject) throws Exception {
+    if (subject == null) {
+      return processInWorker(partition, task);
+    }
+    try {
+      return subject.execute(() -> processInWorker(partition, task));
+    } catch (org.apache.shiro.subject.ExecutionException e) {
+      Throwable cause = e.getCause();
+      throw cause instanceof Exception ? (Exception) cause : e;
+    }
+  }
+
+  protected static <T> Boolean processInWorker(List<T> partition, PartitionTask<T> task)
+      throws Exception {
+    UnitOfWork unitOfWork = Beans.get(UnitOfWork.class);
+    RequestScoper scope = ServletScopes.scopeRequest(Collections.emptyMap());
+    try (RequestScoper.CloseableScope ignored = scope.open()) {
+      unitOfWork.begin();
+      task.process(partition);
+    } finally {
+      unitOfWork.end();
+    }
+    return true;
+  }
+}
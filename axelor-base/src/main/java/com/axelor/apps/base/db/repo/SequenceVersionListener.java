@@ -0,0 +1,46 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.db.repo;
+
+import com.axelor.apps.base.db.SequenceVersion;
+import com.axelor.apps.base.service.administration.SequenceBlockAllocator;
+import com.axelor.apps.base.utils.TransactionTools;
+import com.axelor.inject.Beans;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+public class SequenceVersionListener {
+
+  /**
+   * Forget the reserved block of a sequence version once it is changed or removed by another
+   * transaction than a block reservation or a number computed without block, for example when its
+   * next number is reset.
+   */
+  @PostUpdate
+  @PostRemove
+  protected void releaseSequenceBlock(SequenceVersion sequenceVersion) {
+    SequenceBlockAllocator sequenceBlockAllocator = Beans.get(SequenceBlockAllocator.class);
+    Long sequenceVersionId = sequenceVersion.getId();
+    if (sequenceBlockAllocator.isReserving()
+        || sequenceBlockAllocator.isMovedWithoutBlock(sequenceVersionId)) {
+      return;
+    }
+    TransactionTools.runAfterCommit(() -> sequenceBlockAllocator.release(sequenceVersionId));
+  }
+}
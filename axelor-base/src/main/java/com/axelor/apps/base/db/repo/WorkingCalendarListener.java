@@ -0,0 +1,56 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.db.repo;
+
+import com.axelor.apps.base.db.DayPlanning;
+import com.axelor.apps.base.db.EventsPlanning;
+import com.axelor.apps.base.db.EventsPlanningLine;
+import com.axelor.apps.base.db.WeeklyPlanning;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendarService;
+import com.axelor.inject.Beans;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+/** Drop the working calendars compiled from a weekly planning or an events planning on change. */
+public class WorkingCalendarListener {
+
+  @PostPersist
+  @PostUpdate
+  @PostRemove
+  protected void invalidateWorkingCalendar(Object entity) {
+    WorkingCalendarService workingCalendarService = Beans.get(WorkingCalendarService.class);
+
+    if (entity instanceof WeeklyPlanning) {
+      workingCalendarService.invalidateWeeklyPlanning(((WeeklyPlanning) entity).getId());
+    } else if (entity instanceof DayPlanning) {
+      WeeklyPlanning weeklyPlanning = ((DayPlanning) entity).getWeeklyPlanning();
+      if (weeklyPlanning != null) {
+        workingCalendarService.invalidateWeeklyPlanning(weeklyPlanning.getId());
+      }
+    } else if (entity instanceof EventsPlanning) {
+      workingCalendarService.invalidateEventsPlanning(((EventsPlanning) entity).getId());
+    } else if (entity instanceof EventsPlanningLine) {
+      EventsPlanning eventsPlanning = ((EventsPlanningLine) entity).getEventsPlanning();
+      if (eventsPlanning != null) {
+        workingCalendarService.invalidateEventsPlanning(eventsPlanning.getId());
+      }
+    }
+  }
+}
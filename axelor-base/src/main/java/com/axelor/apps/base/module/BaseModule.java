@@ -191,6 +191,8 @@ import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.base.service.app.AppBaseServiceImpl;
 import com.axelor.apps.base.service.birt.template.BirtTemplateService;
 import com.axelor.apps.base.service.birt.template.BirtTemplateServiceImpl;
+import com.axelor.apps.base.service.currency.CurrencyConversionRateIndexService;
+import com.axelor.apps.base.service.currency.CurrencyConversionRateIndexServiceImpl;
 import com.axelor.apps.base.service.dayplanning.DayPlanningService;
 import com.axelor.apps.base.service.dayplanning.DayPlanningServiceImpl;
 import com.axelor.apps.base.service.exception.HandleExceptionResponse;
@@ -224,6 +226,8 @@ import com.axelor.apps.base.service.pricing.PricingGenericService;
 import com.axelor.apps.base.service.pricing.PricingGenericServiceImpl;
 import com.axelor.apps.base.service.pricing.PricingGroupService;
 import com.axelor.apps.base.service.pricing.PricingGroupServiceImpl;
+import com.axelor.apps.base.service.pricing.PricingLineIndexService;
+import com.axelor.apps.base.service.pricing.PricingLineIndexServiceImpl;
 import com.axelor.apps.base.service.pricing.PricingMetaService;
 import com.axelor.apps.base.service.pricing.PricingMetaServiceImpl;
 import com.axelor.apps.base.service.pricing.PricingObserver;
@@ -260,12 +264,16 @@ import com.axelor.apps.base.service.tax.OrderLineTaxService;
 import com.axelor.apps.base.service.tax.OrderLineTaxServiceImpl;
 import com.axelor.apps.base.service.tax.TaxEquivService;
 import com.axelor.apps.base.service.tax.TaxEquivServiceImpl;
+import com.axelor.apps.base.service.unit.UnitConversionGraphService;
+import com.axelor.apps.base.service.unit.UnitConversionGraphServiceImpl;
 import com.axelor.apps.base.service.user.UserPermissionResponseComputeService;
 import com.axelor.apps.base.service.user.UserPermissionResponseComputeServiceImpl;
 import com.axelor.apps.base.service.user.UserService;
 import com.axelor.apps.base.service.user.UserServiceImpl;
 import com.axelor.apps.base.service.weeklyplanning.WeeklyPlanningService;
 import com.axelor.apps.base.service.weeklyplanning.WeeklyPlanningServiceImp;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendarService;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendarServiceImpl;
 import com.axelor.apps.base.tracking.ExportObserver;
 import com.axelor.apps.base.tracking.GlobalAuditInterceptor;
 import com.axelor.apps.base.tracking.GlobalTrackingLogService;
@@ -448,7 +456,11 @@ public class BaseModule extends AxelorModule {
     bind(OrderLineTaxService.class).to(OrderLineTaxServiceImpl.class);
     bind(CurrencyService.class).to(CurrencyServiceImpl.class);
     bind(CurrencyScaleService.class).to(CurrencyScaleServiceImpl.class);
+    bind(CurrencyConversionRateIndexService.class)
+        .to(CurrencyConversionRateIndexServiceImpl.class);
     bind(PricingMetaService.class).to(PricingMetaServiceImpl.class);
+    bind(PricingLineIndexService.class).to(PricingLineIndexServiceImpl.class);
+    bind(WorkingCalendarService.class).to(WorkingCalendarServiceImpl.class);
     bind(LanguageService.class).to(LanguageServiceImpl.class);
     bind(LanguageRepository.class).to(LanguageBaseRepository.class);
     bind(AddressAttrsService.class).to(AddressAttrsServiceImpl.class);
@@ -470,6 +482,7 @@ public class BaseModule extends AxelorModule {
     bind(PrintingTemplatePrintService.class).to(PrintingTemplatePrintServiceImpl.class);
     bind(PrintingGeneratorFactoryProvider.class).to(PrintingGeneratorFactoryProviderImpl.class);
     bind(UnitConversionService.class).to(UnitConversionServiceImpl.class);
+    bind(UnitConversionGraphService.class).to(UnitConversionGraphServiceImpl.class);
     bind(FileService.class).to(FileServiceImpl.class);
     bind(TranslationBaseService.class).to(TranslationBaseServiceImpl.class);
     bind(UserPermissionResponseComputeService.class)
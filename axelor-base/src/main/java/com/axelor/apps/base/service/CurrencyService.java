@@ -23,7 +23,9 @@ import com.axelor.apps.base.db.Currency;
 import com.axelor.apps.base.db.CurrencyConversionLine;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface CurrencyService {
 
@@ -37,6 +39,37 @@ public interface CurrencyService {
       Currency startCurrency, Currency endCurrency, BigDecimal amount, LocalDate date)
       throws AxelorException;
 
+  /**
+   * Get the conversion rates between two currencies for several dates at once.
+   *
+   * @param startCurrency
+   * @param endCurrency
+   * @param dateList the dates, a null date is replaced by today
+   * @return the rate for each distinct date
+   * @throws AxelorException if a rate is missing for one of the dates
+   */
+  Map<LocalDate, BigDecimal> getCurrencyConversionRates(
+      Currency startCurrency, Currency endCurrency, Collection<LocalDate> dateList)
+      throws AxelorException;
+
+  /**
+   * Convert several amounts at once, each amount being converted at the date of the same index.
+   * Rates are only computed once per distinct date.
+   *
+   * @param startCurrency
+   * @param endCurrency
+   * @param amountList
+   * @param dateList
+   * @return the converted amounts, in the same order
+   * @throws AxelorException if a rate is missing for one of the dates
+   */
+  List<BigDecimal> getAmountsCurrencyConvertedAtDates(
+      Currency startCurrency,
+      Currency endCurrency,
+      List<BigDecimal> amountList,
+      List<LocalDate> dateList)
+      throws AxelorException;
+
   BigDecimal getAmountCurrencyConvertedUsingExchangeRate(
       BigDecimal amount, BigDecimal exchangeRate, Currency endCurrency);
 
@@ -25,9 +25,12 @@ import com.axelor.apps.base.db.repo.CurrencyConversionLineRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.base.service.currency.CurrencyConversionRateIndex;
+import com.axelor.apps.base.service.currency.CurrencyConversionRateIndexService;
 import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.User;
 import com.axelor.i18n.I18n;
+import com.axelor.inject.Beans;
 import com.axelor.meta.CallMethod;
 import com.axelor.utils.helpers.date.LocalDateHelper;
 import com.google.inject.Inject;
@@ -36,7 +39,11 @@ import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import org.slf4j.Logger;
@@ -49,23 +56,29 @@ public class CurrencyServiceImpl implements CurrencyService {
 
   protected AppBaseService appBaseService;
   protected CurrencyConversionLineRepository currencyConversionLineRepo;
+  protected CurrencyConversionRateIndexService currencyConversionRateIndexService;
   private LocalDate today;
 
   @Inject
   public CurrencyServiceImpl(
-      AppBaseService appBaseService, CurrencyConversionLineRepository currencyConversionLineRepo) {
+      AppBaseService appBaseService,
+      CurrencyConversionLineRepository currencyConversionLineRepo,
+      CurrencyConversionRateIndexService currencyConversionRateIndexService) {
 
     this.appBaseService = appBaseService;
     this.today =
         appBaseService.getTodayDate(
             Optional.ofNullable(AuthUtils.getUser()).map(User::getActiveCompany).orElse(null));
     this.currencyConversionLineRepo = currencyConversionLineRepo;
+    this.currencyConversionRateIndexService = currencyConversionRateIndexService;
   }
 
   public CurrencyServiceImpl(AppBaseService appBaseService, LocalDate today) {
 
     this.appBaseService = appBaseService;
     this.today = today;
+    this.currencyConversionLineRepo = Beans.get(CurrencyConversionLineRepository.class);
+    this.currencyConversionRateIndexService = Beans.get(CurrencyConversionRateIndexService.class);
   }
 
   @CallMethod
@@ -91,17 +104,16 @@ public class CurrencyServiceImpl implements CurrencyService {
       boolean isInverse = true;
       BigDecimal exchangeRate = null;
 
-      CurrencyConversionLine currencyConversionLine =
-          this.getCurrencyConversionLine(startCurrency, endCurrency, dateToConvert);
-      if (currencyConversionLine != null) {
-        exchangeRate = currencyConversionLine.getExchangeRate();
+      CurrencyConversionRateIndex.Rate rate =
+          this.getCurrencyConversionIndexRate(startCurrency, endCurrency, dateToConvert);
+      if (rate != null) {
+        exchangeRate = rate.getExchangeRate();
         isInverse = false;
 
       } else {
-        currencyConversionLine =
-            this.getCurrencyConversionLine(endCurrency, startCurrency, dateToConvert);
+        rate = this.getCurrencyConversionIndexRate(endCurrency, startCurrency, dateToConvert);
 
-        if (currencyConversionLine == null) {
+        if (rate == null) {
           throw new AxelorException(
               TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
               I18n.get(BaseExceptionMessage.CURRENCY_1),
@@ -109,7 +121,7 @@ public class CurrencyServiceImpl implements CurrencyService {
               endCurrency.getName(),
               dateToConvert);
         }
-        exchangeRate = currencyConversionLine.getExchangeRate();
+        exchangeRate = rate.getExchangeRate();
       }
 
       if (exchangeRate == null || exchangeRate.compareTo(BigDecimal.ZERO) == 0) {
@@ -135,34 +147,68 @@ public class CurrencyServiceImpl implements CurrencyService {
   protected CurrencyConversionLine getCurrencyConversionLine(
       Currency startCurrency, Currency endCurrency, LocalDate localDate) {
 
-    List<CurrencyConversionLine> currencyConversionLineList =
-        appBaseService.getCurrencyConfigurationLineList();
+    CurrencyConversionRateIndex.Rate rate =
+        this.getCurrencyConversionIndexRate(startCurrency, endCurrency, localDate);
 
-    if (currencyConversionLineList == null) {
-      return null;
-    }
+    return rate != null
+        ? currencyConversionLineRepo.find(rate.getCurrencyConversionLineId())
+        : null;
+  }
+
+  protected CurrencyConversionRateIndex.Rate getCurrencyConversionIndexRate(
+      Currency startCurrency, Currency endCurrency, LocalDate localDate) {
 
     log.debug(
         "Currency from: {}, Currency to: {}, localDate: {}", startCurrency, endCurrency, localDate);
 
-    for (CurrencyConversionLine ccl : currencyConversionLineList) {
+    return currencyConversionRateIndexService
+        .getIndex()
+        .find(startCurrency.getCodeISO(), endCurrency.getCodeISO(), localDate);
+  }
 
-      String cclStartCode = ccl.getStartCurrency().getCodeISO();
-      String cclEndCode = ccl.getEndCurrency().getCodeISO();
-      String startCode = startCurrency.getCodeISO();
-      String endCode = endCurrency.getCodeISO();
-      LocalDate fromDate = ccl.getFromDate();
-      LocalDate toDate = ccl.getToDate();
+  @Override
+  public Map<LocalDate, BigDecimal> getCurrencyConversionRates(
+      Currency startCurrency, Currency endCurrency, Collection<LocalDate> dateList)
+      throws AxelorException {
 
-      if (cclStartCode.equals(startCode) && cclEndCode.equals(endCode)) {
-        if ((fromDate.isBefore(localDate) || fromDate.equals(localDate))
-            && (toDate == null || toDate.isAfter(localDate) || toDate.isEqual(localDate))) {
-          return ccl;
-        }
+    Map<LocalDate, BigDecimal> rateMap = new HashMap<>();
+    for (LocalDate date : dateList) {
+      LocalDate dateToConvert = this.getDateToConvert(date);
+      if (!rateMap.containsKey(dateToConvert)) {
+        rateMap.put(
+            dateToConvert,
+            this.getCurrencyConversionRate(startCurrency, endCurrency, dateToConvert));
       }
     }
+    return rateMap;
+  }
 
-    return null;
+  @Override
+  public List<BigDecimal> getAmountsCurrencyConvertedAtDates(
+      Currency startCurrency,
+      Currency endCurrency,
+      List<BigDecimal> amountList,
+      List<LocalDate> dateList)
+      throws AxelorException {
+
+    if (amountList.size() != dateList.size()) {
+      throw new IllegalArgumentException("Amount and date lists must have the same size");
+    }
+
+    if (startCurrency == null || endCurrency == null || startCurrency.equals(endCurrency)) {
+      return new ArrayList<>(amountList);
+    }
+
+    Map<LocalDate, BigDecimal> rateMap =
+        this.getCurrencyConversionRates(startCurrency, endCurrency, dateList);
+
+    List<BigDecimal> convertedAmountList = new ArrayList<>(amountList.size());
+    for (int i = 0; i < amountList.size(); i++) {
+      convertedAmountList.add(
+          this.getAmountCurrencyConvertedUsingExchangeRate(
+              amountList.get(i), rateMap.get(this.getDateToConvert(dateList.get(i))), endCurrency));
+    }
+    return convertedAmountList;
   }
 
   /**
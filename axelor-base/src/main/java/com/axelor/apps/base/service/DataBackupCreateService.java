@@ -19,11 +19,11 @@
 package com.axelor.apps.base.service;
 
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.callable.ParallelWorkerTool;
 import com.axelor.apps.base.db.AnonymizerLine;
 import com.axelor.apps.base.db.DataBackup;
 import com.axelor.apps.base.db.repo.AnonymizerLineRepository;
 import com.axelor.apps.base.db.repo.DataBackupRepository;
-import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.auth.db.AuditableModel;
 import com.axelor.common.StringUtils;
@@ -48,15 +48,13 @@ import com.axelor.utils.helpers.date.LocalDateHelper;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.thoughtworks.xstream.XStream;
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
@@ -68,29 +66,39 @@ import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 import javax.naming.NamingException;
+import javax.persistence.EntityTransaction;
+import javax.persistence.TypedQuery;
 import org.apache.commons.csv.CSVPrinter;
+import org.hibernate.Session;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Export every model to a CSV file and zip them with the config needed to import them back. Models
+ * are exported in parallel, each in its own read-only transaction, and every CSV file is moved to
+ * the zip file as soon as its model is exported.
+ */
 public class DataBackupCreateService {
 
   protected static final char SEPARATOR = ',';
   protected static final char REFERENCE_FIELD_SEPARATOR = '|';
-  protected static final int BUFFER_SIZE = 1000;
+  protected static final String BYTE_ARRAY_CALLABLE =
+      "com.axelor.apps.base.service.DataBackupRestoreService:importObjectWithByteArray";
+
+  /** Interval between two moves of the exported files to the zip file. */
+  protected static final long ZIP_WAIT_MILLIS = 1000;
 
-  protected boolean notNullReferenceFlag;
-  protected boolean referenceFlag;
-  protected boolean byteArrFieldFlag = false;
-  protected List<String> fileNameList;
   protected static Set<String> exceptColumnNameList =
       ImmutableSet.of(
           "importOrigin",
@@ -103,7 +111,8 @@ public class DataBackupCreateService {
           "version",
           "attrs");
 
-  StringBuilder sb = new StringBuilder();
+  /** Log of the backup, filled by every worker. */
+  protected final StringBuffer sb = new StringBuffer();
 
   protected static Map<Object, Object> AutoImportModelMap =
       ImmutableMap.builder()
@@ -145,110 +154,73 @@ public class DataBackupCreateService {
     this.dataBackupAnonymizeService = dataBackupAnonymizeService;
   }
 
+  /**
+   * Export of one model. It is filled by the worker exporting the model, then read by the calling
+   * thread once the model is exported, so it only holds plain values and no entity.
+   */
+  protected static class ModelExport {
+    protected final Long metaModelId;
+    protected final String name;
+    protected final List<String> subClasses;
+
+    protected CSVInput csvInput;
+    protected boolean referenceFlag;
+    protected boolean notNullReferenceFlag;
+    protected File csvFile;
+    protected final List<File> binaryFileList = new ArrayList<>();
+    protected boolean exported;
+    protected String errorMessage;
+
+    protected ModelExport(MetaModel metaModel, List<String> subClasses) {
+      this.metaModelId = metaModel.getId();
+      this.name = metaModel.getName();
+      this.subClasses = subClasses;
+    }
+  }
+
   /* Generate csv Files for each individual MetaModel and single config file */
-  public DataBackup create(DataBackup dataBackup) throws IOException {
+  public DataBackup create(DataBackup dataBackup) throws IOException, AxelorException {
     File tempDir = Files.createTempDirectory(null).toFile();
-    String tempDirectoryPath = tempDir.getAbsolutePath();
-    int fetchLimit = dataBackup.getFetchLimit();
+    Long dataBackupId = dataBackup.getId();
+    boolean anonymizeData = dataBackup.getAnonymizer() != null;
+    boolean checkAllErrorFirst = dataBackup.getCheckAllErrorFirst();
     int errorsCount = 0;
     byte[] salt = null;
 
-    fileNameList = new ArrayList<>();
-    List<MetaModel> metaModelList = getMetaModels(dataBackup.getAnonymizer() != null);
-
-    LinkedList<CSVInput> simpleCsvs = new LinkedList<>();
-    LinkedList<CSVInput> refernceCsvs = new LinkedList<>();
-    LinkedList<CSVInput> notNullReferenceCsvs = new LinkedList<>();
-    Map<String, List<String>> subClassesMap = getSubClassesMap(dataBackup.getAnonymizer() != null);
-
-    if (dataBackup.getCheckAllErrorFirst()) {
-      dataBackup.setFetchLimit(1);
-
-      errorsCount = checkErrors(dataBackup, metaModelList, tempDirectoryPath, subClassesMap);
-
-      dataBackup.setFetchLimit(fetchLimit);
-      fileNameList.clear();
-    }
+    List<MetaModel> metaModelList = getMetaModels(anonymizeData);
+    Map<String, List<String>> subClassesMap = getSubClassesMap(anonymizeData);
 
-    if (dataBackup.getAnonymizer() != null) {
+    if (anonymizeData) {
       salt = anonymizeService.getSalt();
     }
 
-    if (errorsCount == 0) {
-      for (MetaModel metaModel : metaModelList) {
-
-        try {
-          List<String> subClasses = subClassesMap.get(metaModel.getFullName());
-          long totalRecord = getMetaModelDataCount(metaModel, subClasses);
-          if (!dataBackup.getIsProcessEmptyTable() && totalRecord < 1) {
-            continue;
-          }
+    if (checkAllErrorFirst) {
+      List<ModelExport> modelExportList = createModelExportList(metaModelList, subClassesMap);
+      errorsCount = checkErrors(dataBackup, modelExportList, tempDir, salt);
+    }
 
-          LOG.debug("Exporting Model : " + metaModel.getFullName());
-          notNullReferenceFlag = false;
-          referenceFlag = false;
-
-          File templateFile = new File(tempDirectoryPath, metaModel.getName() + ".csv");
-          CSVFile csvFormat =
-              CSVFile.DEFAULT.withDelimiter(SEPARATOR).withQuoteAll().withFirstRecordAsHeader();
-          CSVPrinter printer = csvFormat.write(templateFile);
-          CSVInput csvInput =
-              writeCSVData(
-                  metaModel, printer, dataBackup, totalRecord, subClasses, tempDirectoryPath, salt);
-          printer.close();
-
-          if (notNullReferenceFlag) {
-            notNullReferenceCsvs.add(csvInput);
-          } else if (referenceFlag) {
-            refernceCsvs.add(csvInput);
-            CSVInput temcsv = new CSVInput();
-            temcsv.setFileName(csvInput.getFileName());
-            temcsv.setTypeName(csvInput.getTypeName());
-
-            if (dataBackup.getIsRelativeDate()) {
-              temcsv.setBindings(new ArrayList<>());
-              getCsvInputForDateorDateTime(metaModel, temcsv);
-            }
-            if (AutoImportModelMap.containsKey(csvInput.getTypeName())) {
-              temcsv.setSearch(AutoImportModelMap.get(csvInput.getTypeName()).toString());
-            }
-            if (Class.forName(metaModel.getFullName()).getSuperclass() == App.class) {
-              temcsv.setSearch("self.code = :code");
-            }
-            if (!AutoImportModelMap.containsKey(csvInput.getTypeName())
-                && !((Class.forName(metaModel.getFullName()).getSuperclass()).equals(App.class))) {
-              temcsv.setSearch("self.importId = :importId");
-            }
-            simpleCsvs.add(temcsv);
-          } else {
-            simpleCsvs.add(csvInput);
-          }
+    DateTimeFormatter zipFormatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    File zippedFile =
+        new File(tempDir, "DataBackup_" + LocalDateTime.now().format(zipFormatter) + ".zip");
 
-          fileNameList.add(metaModel.getName() + ".csv");
-        } catch (ClassNotFoundException | IOException e) {
-          TraceBackService.trace(e, DataBackupService.class.getName());
-        } catch (Exception e) {
-          JPA.em().getTransaction().rollback();
-          if (!dataBackup.getCheckAllErrorFirst()) {
-            sb.append("\nError occured while processing model : " + metaModel.getFullName() + "\n");
-            sb.append(e.getMessage() + "\n");
-          }
-          JPA.em().getTransaction().begin();
-          dataBackup = dataBackupRepository.find(dataBackup.getId());
-          errorsCount++;
-        }
+    if (errorsCount == 0) {
+      List<ModelExport> modelExportList = createModelExportList(metaModelList, subClassesMap);
+      try (ZipOutputStream zipOutputStream =
+          new ZipOutputStream(Files.newOutputStream(zippedFile.toPath()))) {
+        errorsCount =
+            exportModels(
+                dataBackup,
+                modelExportList,
+                tempDir,
+                salt,
+                0,
+                !checkAllErrorFirst,
+                zipOutputStream);
+        addConfigToZip(getCsvConfig(metaModelList, modelExportList, dataBackup), zipOutputStream);
       }
-
-      CSVConfig csvConfig = new CSVConfig();
-      csvConfig.setInputs(simpleCsvs);
-      csvConfig.getInputs().addAll(notNullReferenceCsvs);
-      csvConfig.getInputs().addAll(refernceCsvs);
-      csvConfig.getInputs().addAll(notNullReferenceCsvs);
-      generateConfig(tempDirectoryPath, csvConfig);
-
-      fileNameList.add(DataBackupServiceImpl.CONFIG_FILE_NAME);
     }
 
+    dataBackup = dataBackupRepository.find(dataBackupId);
     try {
       if (!Strings.isNullOrEmpty(sb.toString())) {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmSS");
@@ -260,13 +232,10 @@ public class DataBackupCreateService {
         pw.write(sb.toString());
         pw.close();
 
-        if (file != null) {
-          dataBackup.setLogMetaFile(metaFiles.upload(file));
-        }
+        dataBackup.setLogMetaFile(metaFiles.upload(file));
       }
 
       if (errorsCount == 0) {
-        File zippedFile = generateZIP(tempDirectoryPath, fileNameList);
         dataBackup.setBackupMetaFile(metaFiles.upload(zippedFile));
       } else {
         dataBackup.setStatusSelect(DataBackupRepository.DATA_BACKUP_STATUS_ERROR);
@@ -278,6 +247,195 @@ public class DataBackupCreateService {
     return dataBackup;
   }
 
+  protected List<ModelExport> createModelExportList(
+      List<MetaModel> metaModelList, Map<String, List<String>> subClassesMap) {
+    List<ModelExport> modelExportList = new ArrayList<>();
+    for (MetaModel metaModel : metaModelList) {
+      modelExportList.add(new ModelExport(metaModel, subClassesMap.get(metaModel.getFullName())));
+    }
+    return modelExportList;
+  }
+
+  protected int getWorkerNbr(DataBackup dataBackup) {
+    return Math.max(dataBackup.getWorkerNbr(), 1);
+  }
+
+  /**
+   * Export every model on the workers of the data backup. Exported files are moved to the zip file
+   * by the calling thread while the other models are exported.
+   *
+   * @param maxRecordCount the maximum number of records to export by model, 0 to export them all
+   * @param logErrors whether the errors must be added to the log
+   * @param zipOutputStream the zip file to write, or null to only delete the exported files
+   * @return the number of models that could not be exported
+   */
+  protected int exportModels(
+      DataBackup dataBackup,
+      List<ModelExport> modelExportList,
+      File directory,
+      byte[] salt,
+      int maxRecordCount,
+      boolean logErrors,
+      ZipOutputStream zipOutputStream)
+      throws AxelorException {
+    Long dataBackupId = dataBackup.getId();
+    Queue<ModelExport> exportedQueue = new ConcurrentLinkedQueue<>();
+
+    try {
+      ParallelWorkerTool.run(
+          Lists.partition(modelExportList, 1),
+          getWorkerNbr(dataBackup),
+          partition -> {
+            ModelExport modelExport = partition.get(0);
+            exportModelInTransaction(modelExport, dataBackupId, directory, salt, maxRecordCount);
+            exportedQueue.add(modelExport);
+          },
+          ZIP_WAIT_MILLIS,
+          () -> addToZip(exportedQueue, zipOutputStream));
+    } finally {
+      addToZip(exportedQueue, zipOutputStream);
+    }
+
+    int errorsCount = 0;
+    for (ModelExport modelExport : modelExportList) {
+      if (modelExport.errorMessage != null) {
+        if (logErrors) {
+          sb.append(
+              "\nError occured while processing model : "
+                  + modelExport.name
+                  + "\n"
+                  + modelExport.errorMessage
+                  + "\n");
+        }
+        errorsCount++;
+      }
+    }
+    return errorsCount;
+  }
+
+  /**
+   * Export a model in a read-only transaction. When called in a thread already having a
+   * transaction, the model is exported in this transaction, which is rolled back and begun again
+   * on error.
+   */
+  protected void exportModelInTransaction(
+      ModelExport modelExport, Long dataBackupId, File directory, byte[] salt, int maxRecordCount) {
+    EntityTransaction transaction = JPA.em().getTransaction();
+    boolean isNewTransaction = !transaction.isActive();
+    if (isNewTransaction) {
+      transaction.begin();
+    }
+    Session session = JPA.em().unwrap(Session.class);
+    boolean defaultReadOnly = session.isDefaultReadOnly();
+    session.setDefaultReadOnly(true);
+
+    try {
+      exportModel(modelExport, dataBackupId, directory, salt, maxRecordCount);
+    } catch (ClassNotFoundException | IOException e) {
+      modelExport.exported = false;
+      TraceBackService.trace(e, DataBackupService.class.getName());
+    } catch (Exception e) {
+      modelExport.exported = false;
+      modelExport.errorMessage = String.valueOf(e.getMessage());
+      if (!isNewTransaction) {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+        transaction.begin();
+      }
+    } finally {
+      session.setDefaultReadOnly(defaultReadOnly);
+      if (isNewTransaction && transaction.isActive()) {
+        transaction.rollback();
+      }
+    }
+  }
+
+  /** Move the files of the exported models to the zip file, then delete them. */
+  protected void addToZip(Queue<ModelExport> exportedQueue, ZipOutputStream zipOutputStream) {
+    ModelExport modelExport;
+    while ((modelExport = exportedQueue.poll()) != null) {
+      try {
+        if (zipOutputStream != null && modelExport.exported) {
+          addFileToZip(modelExport.csvFile, zipOutputStream);
+          for (File binaryFile : modelExport.binaryFileList) {
+            addFileToZip(binaryFile, zipOutputStream);
+          }
+        }
+      } catch (IOException e) {
+        TraceBackService.trace(e, "Error From DataBackupCreateService - addToZip()");
+        modelExport.exported = false;
+        modelExport.errorMessage = String.valueOf(e.getMessage());
+      } finally {
+        if (modelExport.csvFile != null) {
+          modelExport.csvFile.delete();
+        }
+        modelExport.binaryFileList.forEach(File::delete);
+      }
+    }
+  }
+
+  protected void addFileToZip(File file, ZipOutputStream zipOutputStream) throws IOException {
+    zipOutputStream.putNextEntry(new ZipEntry(file.getName()));
+    Files.copy(file.toPath(), zipOutputStream);
+    zipOutputStream.closeEntry();
+  }
+
+  /* Build the import config of the exported models */
+  protected CSVConfig getCsvConfig(
+      List<MetaModel> metaModelList, List<ModelExport> modelExportList, DataBackup dataBackup) {
+    LinkedList<CSVInput> simpleCsvs = new LinkedList<>();
+    LinkedList<CSVInput> refernceCsvs = new LinkedList<>();
+    LinkedList<CSVInput> notNullReferenceCsvs = new LinkedList<>();
+
+    for (int i = 0; i < modelExportList.size(); i++) {
+      ModelExport modelExport = modelExportList.get(i);
+      if (!modelExport.exported) {
+        continue;
+      }
+      MetaModel metaModel = metaModelList.get(i);
+      CSVInput csvInput = modelExport.csvInput;
+
+      try {
+        if (modelExport.notNullReferenceFlag) {
+          notNullReferenceCsvs.add(csvInput);
+        } else if (modelExport.referenceFlag) {
+          refernceCsvs.add(csvInput);
+          CSVInput temcsv = new CSVInput();
+          temcsv.setFileName(csvInput.getFileName());
+          temcsv.setTypeName(csvInput.getTypeName());
+
+          if (dataBackup.getIsRelativeDate()) {
+            temcsv.setBindings(new ArrayList<>());
+            getCsvInputForDateorDateTime(metaModel, temcsv);
+          }
+          if (AutoImportModelMap.containsKey(csvInput.getTypeName())) {
+            temcsv.setSearch(AutoImportModelMap.get(csvInput.getTypeName()).toString());
+          }
+          if (Class.forName(metaModel.getFullName()).getSuperclass() == App.class) {
+            temcsv.setSearch("self.code = :code");
+          }
+          if (!AutoImportModelMap.containsKey(csvInput.getTypeName())
+              && !((Class.forName(metaModel.getFullName()).getSuperclass()).equals(App.class))) {
+            temcsv.setSearch("self.importId = :importId");
+          }
+          simpleCsvs.add(temcsv);
+        } else {
+          simpleCsvs.add(csvInput);
+        }
+      } catch (ClassNotFoundException e) {
+        TraceBackService.trace(e, DataBackupService.class.getName());
+      }
+    }
+
+    CSVConfig csvConfig = new CSVConfig();
+    csvConfig.setInputs(simpleCsvs);
+    csvConfig.getInputs().addAll(notNullReferenceCsvs);
+    csvConfig.getInputs().addAll(refernceCsvs);
+    csvConfig.getInputs().addAll(notNullReferenceCsvs);
+    return csvConfig;
+  }
+
   protected void getCsvInputForDateorDateTime(MetaModel metaModel, CSVInput csvInput) {
     try {
       Mapper metaModelMapper = Mapper.of(Class.forName(metaModel.getFullName()));
@@ -339,18 +497,18 @@ public class DataBackupCreateService {
     return subClassMap;
   }
 
-  /* Get All Data of Specific MetaModel */
-  protected List<Model> getMetaModelDataList(
-      MetaModel metaModel, int start, Integer fetchLimit, List<String> subClasses)
-      throws ClassNotFoundException {
-
-    Query<Model> query = getQuery(metaModel, subClasses);
-
-    if (query != null) {
-      return query.fetch(fetchLimit, start);
+  /* Filter of the records of a MetaModel after the last exported id, without its sub classes */
+  protected String getMetaModelDataFilter(List<String> subClasses) {
+    StringBuilder whereStr = new StringBuilder("self.id > :lastId");
+    if (subClasses != null) {
+      for (String subClassName : subClasses) {
+        whereStr
+            .append(" AND self.id NOT IN (SELECT subClass.id FROM ")
+            .append(subClassName)
+            .append(" subClass)");
+      }
     }
-
-    return null;
+    return whereStr.toString();
   }
 
   protected long getMetaModelDataCount(MetaModel metaModel, List<String> subClasses)
@@ -424,112 +582,205 @@ public class DataBackupCreateService {
     return query;
   }
 
-  protected CSVInput writeCSVData(
-      MetaModel metaModel,
-      CSVPrinter printer,
-      DataBackup dataBackup,
-      long totalRecord,
-      List<String> subClasses,
-      String dirPath,
-      byte[] salt)
-      throws AxelorException, IOException {
+  /* Write the csv file of a MetaModel */
+  protected void exportModel(
+      ModelExport modelExport, Long dataBackupId, File directory, byte[] salt, int maxRecordCount)
+      throws ClassNotFoundException, IOException, AxelorException {
+    DataBackup dataBackup = dataBackupRepository.find(dataBackupId);
+    MetaModel metaModel = metaModelRepo.find(modelExport.metaModelId);
+    long totalRecord = getMetaModelDataCount(metaModel, modelExport.subClasses);
+    if (totalRecord < 1 && (maxRecordCount > 0 || !dataBackup.getIsProcessEmptyTable())) {
+      return;
+    }
+
+    LOG.debug("Exporting Model : " + metaModel.getFullName());
+    boolean isRelativeDate = dataBackup.getIsRelativeDate();
+    List<Property> propertyList = new ArrayList<>();
+    for (Property property : Mapper.of(Class.forName(metaModel.getFullName())).getProperties()) {
+      if (isPropertyExportable(property)) {
+        propertyList.add(property);
+      }
+    }
 
     CSVInput csvInput = new CSVInput();
-    boolean headerFlag = true;
-    List<String> dataArr;
+    csvInput.setFileName(metaModel.getName() + ".csv");
+    csvInput.setTypeName(metaModel.getFullName());
+    csvInput.setBindings(new ArrayList<>());
+
     List<String> headerArr = new ArrayList<>();
-    List<Model> dataList;
+    for (Property property : propertyList) {
+      headerArr.add(getMetaModelHeader(property, csvInput, isRelativeDate));
+      if (property.isReference() || property.isCollection()) {
+        modelExport.referenceFlag = true;
+        modelExport.notNullReferenceFlag |= property.isRequired();
+      } else if ("BINARY".equals(property.getType().toString())) {
+        csvInput.setCallable(BYTE_ARRAY_CALLABLE);
+      }
+    }
+    csvInput.setSearch(getCsvInputSearch(metaModel));
 
-    try {
-      Mapper metaModelMapper = Mapper.of(Class.forName(metaModel.getFullName()));
-      Property[] pro = metaModelMapper.getProperties();
-      Integer fetchLimit = dataBackup.getFetchLimit();
-      boolean isRelativeDate = dataBackup.getIsRelativeDate();
-      boolean updateImportId = dataBackup.getUpdateImportId();
+    modelExport.csvFile = new File(directory, csvInput.getFileName());
+    CSVFile csvFormat =
+        CSVFile.DEFAULT.withDelimiter(SEPARATOR).withQuoteAll().withFirstRecordAsHeader();
+    try (CSVPrinter printer = csvFormat.write(modelExport.csvFile)) {
+      printer.printRecord(headerArr);
+      if (totalRecord > 0) {
+        writeCSVData(
+            modelExport,
+            metaModel,
+            propertyList,
+            headerArr,
+            printer,
+            dataBackup,
+            directory,
+            salt,
+            maxRecordCount);
+      }
+    }
 
-      csvInput.setFileName(metaModel.getName() + ".csv");
-      csvInput.setTypeName(metaModel.getFullName());
-      csvInput.setBindings(new ArrayList<>());
+    modelExport.csvInput = csvInput;
+    modelExport.exported = true;
+  }
 
-      if (totalRecord > 0) {
-        for (int i = 0; i < totalRecord; i = i + fetchLimit) {
-
-          dataList = getMetaModelDataList(metaModel, i, fetchLimit, subClasses);
-
-          if (dataList != null && !dataList.isEmpty()) {
-            dataBackup = dataBackupRepository.find(dataBackup.getId());
-            for (Object dataObject : dataList) {
-              dataArr = new ArrayList<>();
-
-              for (Property property : pro) {
-                if (isPropertyExportable(property)) {
-                  if (headerFlag) {
-                    String headerStr = getMetaModelHeader(property, csvInput, isRelativeDate);
-                    headerArr.add(headerStr);
-                  }
-                  dataArr.add(
-                      getMetaModelData(
-                          metaModel.getName(),
-                          metaModelMapper,
-                          property,
-                          dataObject,
-                          dirPath,
-                          isRelativeDate,
-                          updateImportId,
-                          dataBackup));
-                }
-              }
-              if (headerFlag) {
-                if (byteArrFieldFlag) {
-                  csvInput.setCallable(
-                      "com.axelor.apps.base.service.DataBackupRestoreService:importObjectWithByteArray");
-                  byteArrFieldFlag = false;
-                }
-                printer.printRecord(headerArr);
-                headerFlag = false;
-              }
+  protected String getCsvInputSearch(MetaModel metaModel) throws ClassNotFoundException {
+    if (AutoImportModelMap.containsKey(metaModel.getFullName())) {
+      return AutoImportModelMap.get(metaModel.getFullName()).toString();
+    } else if (Class.forName(metaModel.getFullName()).getSuperclass() == App.class) {
+      return "self.code = :code";
+    }
+    return "self.importId = :importId";
+  }
 
-              if ("Partner".equals(metaModel.getName()) && dataBackup.getAnonymizer() != null) {
-                dataArr =
-                    dataBackupAnonymizeService.csvComputeAnonymizedFullname(dataArr, headerArr);
-              }
+  /**
+   * Write the records of a MetaModel, read page by page after the last exported id with a query
+   * selecting only the exported columns. Collections are read with one query by page.
+   */
+  protected void writeCSVData(
+      ModelExport modelExport,
+      MetaModel metaModel,
+      List<Property> propertyList,
+      List<String> headerArr,
+      CSVPrinter printer,
+      DataBackup dataBackup,
+      File directory,
+      byte[] salt,
+      int maxRecordCount)
+      throws AxelorException, IOException {
+    boolean isRelativeDate = dataBackup.getIsRelativeDate();
+    boolean updateImportId = dataBackup.getUpdateImportId();
+    boolean anonymizeData = dataBackup.getAnonymizer() != null;
+    int fetchLimit = Math.max(dataBackup.getFetchLimit(), 1);
+    if (maxRecordCount > 0) {
+      fetchLimit = Math.min(fetchLimit, maxRecordCount);
+    }
 
-              if (dataBackup.getAnonymizer() != null) {
-                dataBackupAnonymizeService.csvAnonymizeImportId(dataArr, headerArr, salt);
-              }
+    Map<String, List<AnonymizerLine>> anonymizerLineMap = new HashMap<>();
+    if (anonymizeData) {
+      for (Property property : propertyList) {
+        anonymizerLineMap.put(
+            property.getName(),
+            dataBackupAnonymizeService.searchAnonymizerLines(
+                dataBackup, property, metaModel.getName()));
+      }
+    }
 
-              printer.printRecord(dataArr);
-            }
-          }
-          JPA.clear();
+    List<String> selectList = new ArrayList<>();
+    selectList.add("self.id");
+    selectList.add("self.importId");
+    StringBuilder joinStr = new StringBuilder();
+    int[] columnIndexes = new int[propertyList.size()];
+    for (int i = 0; i < propertyList.size(); i++) {
+      Property property = propertyList.get(i);
+      columnIndexes[i] = selectList.size();
+      if (property.isReference()) {
+        String alias = "ref" + i;
+        joinStr.append(" LEFT JOIN self.").append(property.getName()).append(" ").append(alias);
+        selectList.addAll(getRelationalFieldSelectList(property, alias));
+      } else if (!property.isCollection()) {
+        selectList.add("self." + property.getName());
+      }
+    }
+
+    TypedQuery<Object[]> query =
+        JPA.em()
+            .createQuery(
+                "SELECT "
+                    + String.join(", ", selectList)
+                    + " FROM "
+                    + metaModel.getName()
+                    + " self"
+                    + joinStr
+                    + " WHERE "
+                    + getMetaModelDataFilter(modelExport.subClasses)
+                    + " ORDER BY self.id",
+                Object[].class)
+            .setMaxResults(fetchLimit);
+
+    long lastId = 0L;
+    int recordCount = 0;
+    List<Object[]> rowList;
+    do {
+      rowList = query.setParameter("lastId", lastId).getResultList();
+      if (rowList.isEmpty()) {
+        break;
+      }
+
+      List<Long> idList = new ArrayList<>();
+      for (Object[] row : rowList) {
+        idList.add((Long) row[0]);
+      }
+      Map<String, Map<Long, String>> collectionDataMap = new HashMap<>();
+      for (Property property : propertyList) {
+        if (property.isCollection()) {
+          collectionDataMap.put(
+              property.getName(),
+              getRelationalFieldDataMap(metaModel, property, idList, updateImportId));
         }
-      } else {
-        for (Property property : pro) {
-          if (isPropertyExportable(property)) {
-            String headerStr = getMetaModelHeader(property, csvInput, isRelativeDate);
-            headerArr.add(headerStr);
+      }
+
+      for (Object[] row : rowList) {
+        Long id = (Long) row[0];
+        String importId = (String) row[1];
+        List<String> dataArr = new ArrayList<>();
+
+        for (int i = 0; i < propertyList.size(); i++) {
+          Property property = propertyList.get(i);
+          Object value;
+          if (property.isCollection()) {
+            value = collectionDataMap.get(property.getName()).getOrDefault(id, "");
+          } else if (property.isReference()) {
+            value = getRelationalFieldValue(property, row, columnIndexes[i], updateImportId);
+          } else {
+            value = row[columnIndexes[i]];
           }
+          dataArr.add(
+              getMetaModelData(
+                  modelExport,
+                  property,
+                  value,
+                  id,
+                  importId,
+                  directory,
+                  isRelativeDate,
+                  updateImportId,
+                  anonymizerLineMap.get(property.getName())));
         }
-        if (byteArrFieldFlag) {
-          csvInput.setCallable(
-              "com.axelor.apps.base.service.DataBackupRestoreService:importObjectWithByteArray");
-          byteArrFieldFlag = false;
+
+        if ("Partner".equals(metaModel.getName()) && anonymizeData) {
+          dataArr = dataBackupAnonymizeService.csvComputeAnonymizedFullname(dataArr, headerArr);
         }
-        printer.printRecord(headerArr);
-      }
 
-      if (AutoImportModelMap.containsKey(csvInput.getTypeName())) {
-        csvInput.setSearch(AutoImportModelMap.get(csvInput.getTypeName()).toString());
-      } else if (Class.forName(metaModel.getFullName()).getSuperclass() == App.class) {
-        csvInput.setSearch("self.code = :code");
-      } else {
-        csvInput.setSearch("self.importId = :importId");
+        if (anonymizeData) {
+          dataBackupAnonymizeService.csvAnonymizeImportId(dataArr, headerArr, salt);
+        }
+
+        printer.printRecord(dataArr);
       }
-    } catch (ClassNotFoundException e) {
-      throw new AxelorException(
-          e, TraceBackRepository.CATEGORY_CONFIGURATION_ERROR, e.getMessage());
-    }
-    return csvInput;
+
+      recordCount += rowList.size();
+      lastId = (Long) rowList.get(rowList.size() - 1)[0];
+    } while (rowList.size() == fetchLimit
+        && (maxRecordCount <= 0 || recordCount < maxRecordCount));
   }
 
   protected boolean isPropertyExportable(Property property) {
@@ -561,7 +812,6 @@ public class DataBackupCreateService {
       case "LONG":
         return propertyName.equalsIgnoreCase("id") ? "importId" : propertyName;
       case "BINARY":
-        byteArrFieldFlag = true;
         return "byte_" + propertyName;
       case "ONE_TO_ONE":
       case "MANY_TO_ONE":
@@ -617,46 +867,36 @@ public class DataBackupCreateService {
       csvBind.setExpression(columnName + ".split('\\\\|') as List");
     }
     csvInput.getBindings().add(csvBind);
-    referenceFlag = true;
-    if (property.isRequired()) {
-      notNullReferenceFlag = true;
-    }
     return columnName;
   }
 
   /* Get Data For csv File */
   protected String getMetaModelData(
-      String metaModelName,
-      Mapper metaModelMapper,
+      ModelExport modelExport,
       Property property,
-      Object dataObject,
-      String dirPath,
+      Object value,
+      Long id,
+      String importId,
+      File directory,
       boolean isRelativeDate,
       boolean updateImportId,
-      DataBackup dataBackup)
+      List<AnonymizerLine> anonymizerLines)
       throws AxelorException {
-    String id = metaModelMapper.get(dataObject, "id").toString();
-    Object value = metaModelMapper.get(dataObject, property.getName());
-    List<AnonymizerLine> anonymizerLines;
 
     if (value == null) {
       return "";
     }
     String propertyTypeStr = property.getType().toString();
 
-    if (dataBackup.getAnonymizer() != null) {
-      anonymizerLines =
-          dataBackupAnonymizeService.searchAnonymizerLines(dataBackup, property, metaModelName);
-      if (anonymizerLines != null && !anonymizerLines.isEmpty()) {
-        return dataBackupAnonymizeService.anonymizeMetaModelData(
-            property, metaModelName, value, anonymizerLines);
-      }
+    if (anonymizerLines != null && !anonymizerLines.isEmpty()) {
+      return dataBackupAnonymizeService.anonymizeMetaModelData(
+          property, modelExport.name, value, anonymizerLines);
     }
 
     switch (propertyTypeStr) {
       case "LONG":
         if (updateImportId) {
-          return ((Model) dataObject).getImportId();
+          return importId;
         }
         return value.toString();
       case "DATE":
@@ -677,22 +917,16 @@ public class DataBackupCreateService {
             : value.toString();
 
       case "BINARY":
-        String fileName = metaModelName + "_" + property.getName() + "_" + id + ".png";
+        File binaryFile =
+            new File(directory, modelExport.name + "_" + property.getName() + "_" + id + ".png");
 
         try {
-          org.apache.commons.io.FileUtils.writeByteArrayToFile(
-              new File(dirPath, fileName), (byte[]) value);
-          fileNameList.add(fileName);
+          org.apache.commons.io.FileUtils.writeByteArrayToFile(binaryFile, (byte[]) value);
+          modelExport.binaryFileList.add(binaryFile);
         } catch (IOException e) {
           e.printStackTrace();
         }
-        return fileName;
-      case "ONE_TO_ONE":
-      case "MANY_TO_ONE":
-        return getRelationalFieldValue(property, value, updateImportId);
-      case "ONE_TO_MANY":
-      case "MANY_TO_MANY":
-        return getRelationalFieldData(property, value, updateImportId);
+        return binaryFile.getName();
       default:
         return value.toString();
     }
@@ -763,130 +997,82 @@ public class DataBackupCreateService {
         + "]";
   }
 
-  public String getRelationalFieldData(Property property, Object value, boolean updateImportId) {
-    StringBuilder idStringBuilder = new StringBuilder();
-    Collection<?> valueList = (Collection<?>) value;
-    String referenceData;
-    for (Object val : valueList) {
-      referenceData = getRelationalFieldValue(property, val, updateImportId);
-      if (StringUtils.notBlank(referenceData)) {
-        idStringBuilder.append(referenceData).append(REFERENCE_FIELD_SEPARATOR);
-      }
+  /* Columns to select to get the value of a relational field, from the joined alias */
+  protected List<String> getRelationalFieldSelectList(Property property, String alias) {
+    List<String> selectList = new ArrayList<>();
+    selectList.add(alias + ".id");
+    selectList.add(alias + ".importId");
+    if (isMetaNameTarget(property)) {
+      selectList.add(alias + ".name");
     }
-
-    if (StringUtils.notBlank(idStringBuilder)) {
-      idStringBuilder.setLength(idStringBuilder.length() - 1);
-    }
-    return idStringBuilder.toString();
+    return selectList;
   }
 
-  protected String getRelationalFieldValue(Property property, Object val, boolean updateImportId) {
-    if (property.getTarget() != null
-        && property.getTarget().getPackage().equals(Package.getPackage("com.axelor.meta.db"))
-        && !property.getTarget().getTypeName().equals("com.axelor.meta.db.MetaFile")) {
-      try {
-        return Mapper.of(val.getClass()).get(val, "name").toString();
-      } catch (Exception e) {
-        return (updateImportId) ? ((Model) val).getImportId() : ((Model) val).getId().toString();
-      }
-    } else {
-      return (updateImportId) ? ((Model) val).getImportId() : ((Model) val).getId().toString();
+  /* Value of a relational field, from the columns selected at the given index */
+  protected String getRelationalFieldValue(
+      Property property, Object[] row, int index, boolean updateImportId) {
+    if (row[index] == null) {
+      return null;
+    }
+    if (isMetaNameTarget(property) && row[index + 2] != null) {
+      return row[index + 2].toString();
     }
+    return updateImportId ? (String) row[index + 1] : row[index].toString();
   }
 
-  protected File generateZIP(String dirPath, List<String> fileNameList) {
-
-    DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
-    String backupZipFileName = "DataBackup_" + LocalDateTime.now().format(formatter) + ".zip";
-    File zipFile = new File(dirPath, backupZipFileName);
-    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
-
-      for (String fileName : fileNameList) {
-        ZipEntry e = new ZipEntry(fileName);
-        out.putNextEntry(e);
-        File file = new File(dirPath, fileName);
-        try (BufferedInputStream bin = new BufferedInputStream(new FileInputStream(file))) {
-          byte[] data;
-          while (bin.available() > 0) {
-            if (bin.available() < BUFFER_SIZE) {
-              data = new byte[bin.available()];
-            } else {
-              data = new byte[BUFFER_SIZE];
-            }
-            bin.read(data, 0, data.length);
-            out.write(data, 0, data.length);
-          }
-          out.closeEntry();
+  protected boolean isMetaNameTarget(Property property) {
+    Class<?> target = property.getTarget();
+    return target != null
+        && target.getPackage().equals(Package.getPackage("com.axelor.meta.db"))
+        && !target.getTypeName().equals("com.axelor.meta.db.MetaFile")
+        && Mapper.of(target).getProperty("name") != null;
+  }
 
-          file.delete();
-        }
+  /* Values of a collection field for the given records, by record id */
+  protected Map<Long, String> getRelationalFieldDataMap(
+      MetaModel metaModel, Property property, List<Long> idList, boolean updateImportId) {
+    List<Object[]> rowList =
+        JPA.em()
+            .createQuery(
+                "SELECT self.id, "
+                    + String.join(", ", getRelationalFieldSelectList(property, "ref"))
+                    + " FROM "
+                    + metaModel.getName()
+                    + " self JOIN self."
+                    + property.getName()
+                    + " ref WHERE self.id IN (:idList) ORDER BY self.id, ref.id",
+                Object[].class)
+            .setParameter("idList", idList)
+            .getResultList();
+
+    Map<Long, String> dataMap = new HashMap<>();
+    for (Object[] row : rowList) {
+      String referenceData = getRelationalFieldValue(property, row, 1, updateImportId);
+      if (StringUtils.notBlank(referenceData)) {
+        dataMap.merge(
+            (Long) row[0],
+            referenceData,
+            (data, otherData) -> data + REFERENCE_FIELD_SEPARATOR + otherData);
       }
-    } catch (IOException e) {
-      TraceBackService.trace(e, "Error From DataBackupCreateService - generateZIP()");
     }
-
-    return zipFile;
+    return dataMap;
   }
 
-  /* Generate XML File from CSVConfig */
-  protected void generateConfig(String dirPath, CSVConfig csvConfig) {
-
-    File file = new File(dirPath, DataBackupServiceImpl.CONFIG_FILE_NAME);
-    try (FileWriter fileWriter = new FileWriter(file, true)) {
+  /* Write the XML config of the CSVConfig to the zip file */
+  protected void addConfigToZip(CSVConfig csvConfig, ZipOutputStream zipOutputStream)
+      throws IOException {
+    XStream xStream = new XStream();
+    xStream.processAnnotations(CSVConfig.class);
+    xStream.setMode(XStream.NO_REFERENCES);
 
-      XStream xStream = new XStream();
-      xStream.processAnnotations(CSVConfig.class);
-      xStream.setMode(XStream.NO_REFERENCES);
-      fileWriter.append(xStream.toXML(csvConfig));
-
-    } catch (IOException e) {
-      TraceBackService.trace(e, "Error From DataBackupCreateService - generateConfig()");
-    }
+    zipOutputStream.putNextEntry(new ZipEntry(DataBackupServiceImpl.CONFIG_FILE_NAME));
+    zipOutputStream.write(xStream.toXML(csvConfig).getBytes(StandardCharsets.UTF_8));
+    zipOutputStream.closeEntry();
   }
 
   protected int checkErrors(
-      DataBackup dataBackup,
-      List<MetaModel> metaModelList,
-      String tempDirectoryPath,
-      Map<String, List<String>> subClassesMap) {
-    int errorsCount = 0;
-
-    for (MetaModel metaModel : metaModelList) {
-
-      try {
-        List<String> subClasses = subClassesMap.get(metaModel.getFullName());
-        long totalRecord = getMetaModelDataCount(metaModel, subClasses);
-        if (totalRecord > 0) {
-          LOG.debug("Checking Model : " + metaModel.getFullName());
-
-          File templateFile = new File(tempDirectoryPath, metaModel.getName() + ".csv");
-          CSVFile csvFormat =
-              CSVFile.DEFAULT.withDelimiter(SEPARATOR).withQuoteAll().withFirstRecordAsHeader();
-          CSVPrinter printer = csvFormat.write(templateFile);
-
-          writeCSVData(
-              metaModel,
-              printer,
-              dataBackup,
-              1,
-              subClasses,
-              tempDirectoryPath,
-              anonymizeService.getSalt());
-          printer.close();
-        }
-      } catch (ClassNotFoundException e) {
-      } catch (IOException e) {
-        TraceBackService.trace(e, DataBackupService.class.getName());
-      } catch (Exception e) {
-        JPA.em().getTransaction().rollback();
-        sb.append("\nError occured while processing model : " + metaModel.getFullName() + "\n");
-        sb.append(e.getMessage() + "\n");
-        JPA.em().getTransaction().begin();
-        dataBackup = dataBackupRepository.find(dataBackup.getId());
-        dataBackup.setFetchLimit(1);
-        errorsCount++;
-      }
-    }
-    return errorsCount;
+      DataBackup dataBackup, List<ModelExport> modelExportList, File directory, byte[] salt)
+      throws AxelorException {
+    return exportModels(dataBackup, modelExportList, directory, salt, 1, true, null);
   }
 }
@@ -18,16 +18,23 @@
  */
 package com.axelor.apps.base.service;
 
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.callable.ParallelWorkerTool;
 import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.auth.AuditableRunner;
 import com.axelor.common.StringUtils;
 import com.axelor.data.Listener;
+import com.axelor.data.csv.CSVConfig;
 import com.axelor.data.csv.CSVImporter;
+import com.axelor.data.csv.CSVInput;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
 import com.axelor.db.mapper.Mapper;
+import com.axelor.inject.Beans;
 import com.axelor.meta.MetaFiles;
 import com.axelor.meta.db.MetaFile;
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import com.google.common.io.Files;
 import java.io.BufferedInputStream;
 import java.io.File;
@@ -38,7 +45,12 @@ import java.io.PrintWriter;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import org.apache.commons.io.FileUtils;
@@ -49,50 +61,41 @@ public class DataBackupRestoreService {
 
   /* Restore the Data using provided zip File and prepare Log File and Return it*/
   public File restore(MetaFile zipedBackupFile) {
+    return restore(zipedBackupFile, 1);
+  }
+
+  /**
+   * Restore the data using provided zip file, importing the independent csv files of a same step on
+   * the given number of workers, and prepare the log file and return it.
+   */
+  public File restore(MetaFile zipedBackupFile, int workerNbr) {
     Logger LOG = LoggerFactory.getLogger(getClass());
     File tempDir = Files.createTempDir();
     String dirPath = tempDir.getAbsolutePath();
-    StringBuilder sb = new StringBuilder();
     try {
       unZip(zipedBackupFile, dirPath);
       String configFName =
           tempDir.getAbsolutePath() + File.separator + DataBackupServiceImpl.CONFIG_FILE_NAME;
 
-      CSVImporter csvImporter = new CSVImporter(configFName, tempDir.getAbsolutePath());
-      csvImporter.addListener(
-          new Listener() {
-            String modelName;
-            StringBuilder sb1 = new StringBuilder();
-
-            @Override
-            public void handle(Model bean, Exception e) {
-              if (e.getMessage() != null && !e.getMessage().equals("null")) {
-                if (bean != null) {
-                  sb1.append(bean.getClass().getSimpleName() + " : \n" + e.getMessage() + "\n\n");
-                } else {
-                  sb1.append(e.getMessage() + "\n\n");
-                }
-              }
-            }
-
-            @Override
-            public void imported(Model model) {
-              modelName = model.getClass().getSimpleName();
-            }
-
-            @Override
-            public void imported(Integer total, Integer count) {
-              String str = "", strError = "";
-              if (!StringUtils.isBlank(sb1)) {
-                strError = "Errors : \n" + sb1.toString();
+      List<CSVInput> inputList = CSVConfig.parse(new File(configFName)).getInputs();
+      StringBuilder[] logArray = new StringBuilder[inputList.size()];
+      Thread callingThread = Thread.currentThread();
+
+      for (List<Integer> step : getRestoreStepList(inputList)) {
+        ParallelWorkerTool.run(
+            Lists.partition(step, 1),
+            workerNbr,
+            partition -> {
+              int index = partition.get(0);
+              logArray[index] = new StringBuilder();
+              if (Thread.currentThread() == callingThread) {
+                importInput(inputList.get(index), dirPath, logArray[index]);
+              } else {
+                Beans.get(AuditableRunner.class)
+                    .run(() -> importInput(inputList.get(index), dirPath, logArray[index]));
               }
-              str = "Total Records :  {" + total + "} - Success Records :  {" + count + "}  \n";
-              sb.append(modelName + " : \n");
-              sb.append(strError).append(str + "-----------------------------------------\n");
-              sb1.setLength(0);
-            }
-          });
-      csvImporter.run();
+            });
+      }
       LOG.info("Data Restore Completed");
       FileUtils.cleanDirectory(new File(tempDir.getAbsolutePath()));
       DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmSS");
@@ -100,15 +103,110 @@ public class DataBackupRestoreService {
 
       File file = new File(tempDir.getAbsolutePath(), logFileName);
       PrintWriter pw = new PrintWriter(file);
-      pw.write(sb.toString());
+      for (StringBuilder log : logArray) {
+        if (log != null) {
+          pw.write(log.toString());
+        }
+      }
       pw.close();
       return file;
-    } catch (IOException e) {
+    } catch (IOException | AxelorException e) {
       TraceBackService.trace(e);
       return null;
     }
   }
 
+  /**
+   * Split the inputs of the config into steps to import one after the other, given by input
+   * indexes. The backup config lists the inputs without relational fields first, then the inputs
+   * having a required relational field, then the inputs of the relational fields, then the inputs
+   * having a required relational field again. Consecutive inputs of the same kind do not depend on
+   * each other and share a step, while each input having a required relational field gets its own
+   * step, as it may need the records of the previous one.
+   */
+  protected List<List<Integer>> getRestoreStepList(List<CSVInput> inputList) {
+    Set<String> fileNameSet = new HashSet<>();
+    Set<String> notNullReferenceFileNameSet = new HashSet<>();
+    for (CSVInput input : inputList) {
+      if (!fileNameSet.add(input.getFileName())) {
+        notNullReferenceFileNameSet.add(input.getFileName());
+      }
+    }
+
+    List<List<Integer>> stepList = new ArrayList<>();
+    List<Integer> step = new ArrayList<>();
+    boolean isReferenceStep = false;
+    for (int i = 0; i < inputList.size(); i++) {
+      CSVInput input = inputList.get(i);
+      boolean isNotNullReference = notNullReferenceFileNameSet.contains(input.getFileName());
+      boolean isReference = isReferenceInput(input);
+      if (!step.isEmpty() && (isNotNullReference || isReference != isReferenceStep)) {
+        stepList.add(step);
+        step = new ArrayList<>();
+      }
+      step.add(i);
+      isReferenceStep = isReference;
+      if (isNotNullReference) {
+        stepList.add(step);
+        step = new ArrayList<>();
+      }
+    }
+    if (!step.isEmpty()) {
+      stepList.add(step);
+    }
+    return stepList;
+  }
+
+  protected boolean isReferenceInput(CSVInput input) {
+    return input.getBindings() != null
+        && input.getBindings().stream().anyMatch(bind -> bind.getSearch() != null);
+  }
+
+  protected boolean importInput(CSVInput input, String dirPath, StringBuilder sb)
+      throws IOException {
+    CSVConfig csvConfig = new CSVConfig();
+    csvConfig.setInputs(new ArrayList<>(Collections.singletonList(input)));
+    CSVImporter csvImporter = new CSVImporter(csvConfig, dirPath);
+    csvImporter.addListener(createListener(sb));
+    csvImporter.run();
+    return true;
+  }
+
+  protected Listener createListener(StringBuilder sb) {
+    return new Listener() {
+      String modelName;
+      StringBuilder sb1 = new StringBuilder();
+
+      @Override
+      public void handle(Model bean, Exception e) {
+        if (e.getMessage() != null && !e.getMessage().equals("null")) {
+          if (bean != null) {
+            sb1.append(bean.getClass().getSimpleName() + " : \n" + e.getMessage() + "\n\n");
+          } else {
+            sb1.append(e.getMessage() + "\n\n");
+          }
+        }
+      }
+
+      @Override
+      public void imported(Model model) {
+        modelName = model.getClass().getSimpleName();
+      }
+
+      @Override
+      public void imported(Integer total, Integer count) {
+        String str = "", strError = "";
+        if (!StringUtils.isBlank(sb1)) {
+          strError = "Errors : \n" + sb1.toString();
+        }
+        str = "Total Records :  {" + total + "} - Success Records :  {" + count + "}  \n";
+        sb.append(modelName + " : \n");
+        sb.append(strError).append(str + "-----------------------------------------\n");
+        sb1.setLength(0);
+      }
+    };
+  }
+
   protected boolean unZip(MetaFile zipMetaFile, String destinationDirectoryPath)
       throws IOException {
     File zipFile = MetaFiles.getPath(zipMetaFile).toFile();
@@ -139,7 +139,8 @@ public class DataBackupServiceImpl implements DataBackupService {
           public Boolean call() throws Exception {
             Logger LOG = LoggerFactory.getLogger(getClass());
             DataBackup obj = dataBackupRepository.find(dataBackup.getId());
-            File logFile = restoreService.restore(obj.getBackupMetaFile());
+            File logFile =
+                restoreService.restore(obj.getBackupMetaFile(), Math.max(obj.getWorkerNbr(), 1));
             save(logFile, obj);
             LOG.info("Data Restore Saved");
             return true;
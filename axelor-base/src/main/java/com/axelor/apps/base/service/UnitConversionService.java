@@ -44,7 +44,8 @@ public interface UnitConversionService {
   /**
    * Get the conversion coefficient between two units from a conversion list. If the start unit and
    * the end unit can not be found in the list, then the units are swapped. If there still isn't any
-   * result, an Exception is thrown.
+   * result, the units are converted through the shortest path of conversions between them, else an
+   * Exception is thrown.
    *
    * @param unitConversionList A list of conversions between units
    * @param startUnit The start unit
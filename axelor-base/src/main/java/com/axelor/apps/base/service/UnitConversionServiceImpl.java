@@ -29,6 +29,8 @@ import com.axelor.apps.base.db.repo.UnitConversionRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.base.service.exception.TraceBackService;
+import com.axelor.apps.base.service.unit.UnitConversionGraph;
+import com.axelor.apps.base.service.unit.UnitConversionGraphService;
 import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.User;
 import com.axelor.db.Model;
@@ -37,6 +39,7 @@ import com.axelor.utils.template.TemplateMaker;
 import com.google.inject.Inject;
 import groovy.lang.Binding;
 import groovy.lang.GroovyShell;
+import groovy.lang.Script;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -45,6 +48,7 @@ import java.util.Optional;
 import org.codehaus.groovy.control.CompilationFailedException;
 import org.codehaus.groovy.control.CompilerConfiguration;
 import org.codehaus.groovy.control.customizers.ImportCustomizer;
+import org.codehaus.groovy.runtime.InvokerHelper;
 
 public class UnitConversionServiceImpl implements UnitConversionService {
 
@@ -55,11 +59,16 @@ public class UnitConversionServiceImpl implements UnitConversionService {
 
   protected UnitConversionRepository unitConversionRepo;
 
+  protected UnitConversionGraphService unitConversionGraphService;
+
   @Inject
   public UnitConversionServiceImpl(
-      AppBaseService appBaseService, UnitConversionRepository unitConversionRepo) {
+      AppBaseService appBaseService,
+      UnitConversionRepository unitConversionRepo,
+      UnitConversionGraphService unitConversionGraphService) {
     this.appBaseService = appBaseService;
     this.unitConversionRepo = unitConversionRepo;
+    this.unitConversionGraphService = unitConversionGraphService;
   }
 
   /**
@@ -77,8 +86,9 @@ public class UnitConversionServiceImpl implements UnitConversionService {
   public BigDecimal convert(
       Unit startUnit, Unit endUnit, BigDecimal value, int scale, Product product)
       throws AxelorException {
-    List<UnitConversion> unitConversionList = fetchUnitConversionList();
-    return convert(unitConversionList, startUnit, endUnit, value, scale, product, "Product");
+    UnitConversionGraph unitConversionGraph =
+        unitConversionGraphService.getGraph(UnitConversionRepository.ENTITY_ALL);
+    return convert(unitConversionGraph, startUnit, endUnit, value, scale, product, "Product");
   }
 
   protected BigDecimal convert(
@@ -90,6 +100,25 @@ public class UnitConversionServiceImpl implements UnitConversionService {
       Model model,
       String nameInContext)
       throws AxelorException {
+    return convert(
+        UnitConversionGraph.of(unitConversionList),
+        startUnit,
+        endUnit,
+        value,
+        scale,
+        model,
+        nameInContext);
+  }
+
+  protected BigDecimal convert(
+      UnitConversionGraph unitConversionGraph,
+      Unit startUnit,
+      Unit endUnit,
+      BigDecimal value,
+      int scale,
+      Model model,
+      String nameInContext)
+      throws AxelorException {
     if ((startUnit == null && endUnit == null)) {
       throw new AxelorException(
           TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
@@ -112,7 +141,7 @@ public class UnitConversionServiceImpl implements UnitConversionService {
     else {
       try {
         BigDecimal coefficient =
-            this.getCoefficient(unitConversionList, startUnit, endUnit, model, nameInContext);
+            this.getCoefficient(unitConversionGraph, startUnit, endUnit, model, nameInContext);
 
         return value.multiply(coefficient).setScale(scale, RoundingMode.HALF_UP);
       } catch (IOException | ClassNotFoundException e) {
@@ -125,7 +154,8 @@ public class UnitConversionServiceImpl implements UnitConversionService {
   /**
    * Get the conversion coefficient between two units from a conversion list. If the start unit and
    * the end unit can not be found in the list, then the units are swapped. If there still isn't any
-   * result, an Exception is thrown.
+   * result, the units are converted through the shortest path of conversions between them, else an
+   * Exception is thrown.
    *
    * @param startUnit The start unit
    * @param endUnit The end unit
@@ -139,8 +169,9 @@ public class UnitConversionServiceImpl implements UnitConversionService {
   @Override
   public BigDecimal getCoefficient(Unit startUnit, Unit endUnit, Product product)
       throws AxelorException, CompilationFailedException, ClassNotFoundException, IOException {
-    List<UnitConversion> unitConversionList = fetchUnitConversionList();
-    return getCoefficient(unitConversionList, startUnit, endUnit, product, "Product");
+    UnitConversionGraph unitConversionGraph =
+        unitConversionGraphService.getGraph(UnitConversionRepository.ENTITY_ALL);
+    return getCoefficient(unitConversionGraph, startUnit, endUnit, product, "Product");
   }
 
   protected BigDecimal getCoefficient(
@@ -150,67 +181,40 @@ public class UnitConversionServiceImpl implements UnitConversionService {
       Model model,
       String nameInContext)
       throws AxelorException, CompilationFailedException, ClassNotFoundException, IOException {
-    /* Looking for the start unit and the end unit in the unitConversionList to get the coefficient */
-    TemplateMaker maker = null;
-    if (model != null) {
-      maker =
-          new TemplateMaker(
-              Optional.ofNullable(AuthUtils.getUser()).map(User::getActiveCompany).orElse(null)
-                      != null
-                  ? Optional.ofNullable(AuthUtils.getUser())
-                      .map(User::getActiveCompany)
-                      .map(Company::getTimezone)
-                      .orElse(null)
-                  : "",
-              AppFilter.getLocale(),
-              TEMPLATE_DELIMITER,
-              TEMPLATE_DELIMITER);
-      maker.setContext(model, nameInContext);
+    return getCoefficient(
+        UnitConversionGraph.of(unitConversionList), startUnit, endUnit, model, nameInContext);
+  }
+
+  protected BigDecimal getCoefficient(
+      UnitConversionGraph unitConversionGraph,
+      Unit startUnit,
+      Unit endUnit,
+      Model model,
+      String nameInContext)
+      throws AxelorException, CompilationFailedException, ClassNotFoundException, IOException {
+    BigDecimal coefficient =
+        getConversionCoefficient(
+            unitConversionGraph, startUnit.getId(), endUnit.getId(), model, nameInContext);
+    if (coefficient != null) {
+      return coefficient;
     }
-    String eval = null;
-    for (UnitConversion unitConversion : unitConversionList) {
-
-      if (unitConversion.getStartUnit().equals(startUnit)
-          && unitConversion.getEndUnit().equals(endUnit)) {
-        if (unitConversion.getTypeSelect() == UnitConversionRepository.TYPE_COEFF) {
-          return unitConversion.getCoef();
-        } else if (model != null) {
-          maker.setTemplate(unitConversion.getFormula());
-          eval = maker.make();
-          CompilerConfiguration conf = new CompilerConfiguration();
-          ImportCustomizer customizer = new ImportCustomizer();
-          customizer.addStaticStars("java.lang.Math");
-          conf.addCompilationCustomizers(customizer);
-          Binding binding = new Binding();
-          GroovyShell shell = new GroovyShell(binding, conf);
-          return new BigDecimal(shell.evaluate(eval).toString());
-        }
-      }
 
-      /* The endUnit become the start unit and the startUnit become the end unit */
-
-      if (unitConversion.getStartUnit().equals(endUnit)
-          && unitConversion.getEndUnit().equals(startUnit)) {
-        if (unitConversion.getTypeSelect() == UnitConversionRepository.TYPE_COEFF
-            && unitConversion.getCoef().compareTo(BigDecimal.ZERO) != 0) {
-          return BigDecimal.ONE.divide(
-              unitConversion.getCoef(), DEFAULT_COEFFICIENT_SCALE, RoundingMode.HALF_UP);
-        } else if (model != null) {
-          maker.setTemplate(unitConversion.getFormula());
-          eval = maker.make();
-          CompilerConfiguration conf = new CompilerConfiguration();
-          ImportCustomizer customizer = new ImportCustomizer();
-          customizer.addStaticStars("java.lang.Math");
-          conf.addCompilationCustomizers(customizer);
-          Binding binding = new Binding();
-          GroovyShell shell = new GroovyShell(binding, conf);
-          BigDecimal result = new BigDecimal(shell.evaluate(eval).toString());
-          if (result.compareTo(BigDecimal.ZERO) != 0) {
-            return BigDecimal.ONE.divide(result, DEFAULT_COEFFICIENT_SCALE, RoundingMode.HALF_UP);
-          }
-        }
+    /* Without conversion between the units, convert through the shortest path of conversions */
+    List<Long> path =
+        unitConversionGraph.findPath(startUnit.getId(), endUnit.getId(), model != null);
+    if (path != null) {
+      coefficient = BigDecimal.ONE;
+      for (int i = 1; i < path.size() && coefficient != null; i++) {
+        BigDecimal stepCoefficient =
+            getConversionCoefficient(
+                unitConversionGraph, path.get(i - 1), path.get(i), model, nameInContext);
+        coefficient = stepCoefficient != null ? coefficient.multiply(stepCoefficient) : null;
+      }
+      if (coefficient != null) {
+        return coefficient.setScale(DEFAULT_COEFFICIENT_SCALE, RoundingMode.HALF_UP);
       }
     }
+
     /* If there is no startUnit and endUnit in the UnitConversion list so we throw an exception */
     throw new AxelorException(
         TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
@@ -219,11 +223,74 @@ public class UnitConversionServiceImpl implements UnitConversionService {
         endUnit.getName());
   }
 
-  protected List<UnitConversion> fetchUnitConversionList() {
-    return unitConversionRepo
-        .all()
-        .filter("self.entitySelect = :entitySelect")
-        .bind("entitySelect", UnitConversionRepository.ENTITY_ALL)
-        .fetch();
+  /**
+   * Get the coefficient of the first conversion from a unit to another that can be used, in the
+   * order of the conversion list. Formulas are only used with a model.
+   *
+   * @return the coefficient, or null if there is no conversion to use
+   */
+  protected BigDecimal getConversionCoefficient(
+      UnitConversionGraph unitConversionGraph,
+      Long startUnitId,
+      Long endUnitId,
+      Model model,
+      String nameInContext)
+      throws CompilationFailedException, ClassNotFoundException, IOException {
+    for (UnitConversionGraph.Conversion conversion :
+        unitConversionGraph.getConversionList(startUnitId, endUnitId)) {
+      if (!conversion.isUsable(model != null)) {
+        continue;
+      }
+      BigDecimal value =
+          conversion.isFormula()
+              ? evaluateFormula(conversion, model, nameInContext)
+              : conversion.getCoef();
+
+      /* An inverse conversion goes from the end unit to the start unit */
+      if (!conversion.isInverse()) {
+        return value;
+      } else if (value.compareTo(BigDecimal.ZERO) != 0) {
+        return BigDecimal.ONE.divide(value, DEFAULT_COEFFICIENT_SCALE, RoundingMode.HALF_UP);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Evaluate the formula of a conversion with the model. The formula is run from its compiled
+   * script if it has one, else its template is rendered with the model then evaluated.
+   */
+  protected BigDecimal evaluateFormula(
+      UnitConversionGraph.Conversion conversion, Model model, String nameInContext)
+      throws CompilationFailedException, ClassNotFoundException, IOException {
+    Class<? extends Script> scriptClass = conversion.getScriptClass(nameInContext);
+    if (scriptClass != null) {
+      Binding binding = new Binding();
+      binding.setVariable(UnitConversionGraph.CONTEXT_VARIABLE, model);
+      return new BigDecimal(InvokerHelper.createScript(scriptClass, binding).run().toString());
+    }
+
+    TemplateMaker maker =
+        new TemplateMaker(
+            Optional.ofNullable(AuthUtils.getUser()).map(User::getActiveCompany).orElse(null)
+                    != null
+                ? Optional.ofNullable(AuthUtils.getUser())
+                    .map(User::getActiveCompany)
+                    .map(Company::getTimezone)
+                    .orElse(null)
+                : "",
+            AppFilter.getLocale(),
+            TEMPLATE_DELIMITER,
+            TEMPLATE_DELIMITER);
+    maker.setContext(model, nameInContext);
+    maker.setTemplate(conversion.getTemplate());
+    String eval = maker.make();
+    CompilerConfiguration conf = new CompilerConfiguration();
+    ImportCustomizer customizer = new ImportCustomizer();
+    customizer.addStaticStars("java.lang.Math");
+    conf.addCompilationCustomizers(customizer);
+    Binding binding = new Binding();
+    GroovyShell shell = new GroovyShell(binding, conf);
+    return new BigDecimal(shell.evaluate(eval).toString());
   }
 }
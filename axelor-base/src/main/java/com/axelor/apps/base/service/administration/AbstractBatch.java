@@ -18,6 +18,8 @@
  */
 package com.axelor.apps.base.service.administration;
 
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.callable.ParallelWorkerTool;
 import com.axelor.apps.base.db.Batch;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.repo.BatchRepository;
@@ -34,16 +36,23 @@ import com.axelor.i18n.I18n;
 import com.axelor.utils.helpers.MetaSelectHelper;
 import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.inject.persist.Transactional;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.SQLException;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.inject.Inject;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
@@ -64,19 +73,22 @@ public abstract class AbstractBatch {
 
   @Inject protected BatchRepository batchRepo;
 
-  private int done;
-  private int anomaly;
+  private final AtomicInteger done = new AtomicInteger();
+  private final AtomicInteger anomaly = new AtomicInteger();
+
+  private int unsavedCount;
+  private long lastSaveTime;
+
+  private long startPhaseDuration;
+  private long processPhaseDuration;
 
   protected AbstractBatch() {
     this.batch = new Batch();
 
     this.batch.setStartDate(ZonedDateTime.now());
 
-    this.done = 0;
-    this.anomaly = 0;
-
-    this.batch.setDone(this.done);
-    this.batch.setAnomaly(this.anomaly);
+    this.batch.setDone(this.done.get());
+    this.batch.setAnomaly(this.anomaly.get());
 
     JPA.runInTransaction(() -> batch = JPA.persist(batch));
   }
@@ -115,9 +127,15 @@ public abstract class AbstractBatch {
       try {
         threadBatchId.set(batch.getId());
         setHistoryInformation(model);
+        long phaseStartTime = System.currentTimeMillis();
         start();
+        startPhaseDuration = System.currentTimeMillis() - phaseStartTime;
+        phaseStartTime = System.currentTimeMillis();
         process();
+        processPhaseDuration = System.currentTimeMillis() - phaseStartTime;
+        phaseStartTime = System.currentTimeMillis();
         stop();
+        saveStopPhaseDuration(System.currentTimeMillis() - phaseStartTime);
         return batch;
       } catch (Exception e) {
         throw new RuntimeException(e);
@@ -196,6 +214,7 @@ public abstract class AbstractBatch {
     model.setArchived(true);
     associateModel();
     checkPoint();
+    lastSaveTime = System.currentTimeMillis();
   }
 
   /**
@@ -207,38 +226,214 @@ public abstract class AbstractBatch {
 
     batch.setEndDate(ZonedDateTime.now());
     batch.setDuration(getDuring());
+    batch.setStartPhaseDuration(startPhaseDuration);
+    batch.setProcessPhaseDuration(processPhaseDuration);
+    batch.setThroughput(computeThroughput(done.get() + anomaly.get(), processPhaseDuration));
 
     checkPoint();
 
     LOG.info("Ending batch {} ::: {}", model, batch.getEndDate());
   }
 
+  /**
+   * Only the counters in memory are updated, the batch is found again in the persistence context
+   * when the counters are saved.
+   */
   protected void incrementDone() {
-    findBatch();
     _incrementDone();
   }
 
   protected void _incrementDone() {
-    done += 1;
-    batch.setDone(done);
-    checkPoint();
+    batch.setDone(done.incrementAndGet());
+    saveCountersIfNeeded();
 
     LOG.debug("Done ::: {}", done);
   }
 
   protected void incrementAnomaly() {
-    findBatch();
     _incrementAnomaly();
   }
 
   protected void _incrementAnomaly() {
-    anomaly += 1;
-    batch.setAnomaly(anomaly);
-    checkPoint();
+    batch.setAnomaly(anomaly.incrementAndGet());
+    saveCountersIfNeeded();
 
     LOG.debug("Anomaly ::: {}", anomaly);
   }
 
+  /**
+   * Process the records given by {@link ChunkedBatch#getIdStream()} by chunks, calling {@link
+   * ChunkedBatch#processId(Long)} on each record. Chunks are processed on the number of workers
+   * configured in the app, each chunk in its own transaction. Done and anomaly counters are kept in
+   * memory and only saved on the batch at regular intervals and at the end.
+   *
+   * @param chunkedBatch the batch itself, giving and processing the records
+   * @throws AxelorException if a chunk could not be processed
+   */
+  protected void processByChunk(ChunkedBatch chunkedBatch) throws AxelorException {
+    List<Long> idList;
+    try (Stream<Long> idStream = chunkedBatch.getIdStream()) {
+      idList = idStream.collect(Collectors.toList());
+    }
+    long batchId = batch.getId();
+
+    try {
+      ParallelWorkerTool.run(
+          Lists.partition(idList, getChunkSize()),
+          getWorkerNbr(),
+          chunk -> processChunk(chunkedBatch, batchId, chunk),
+          getCounterSaveInterval(),
+          this::flushCounters);
+    } finally {
+      flushCounters();
+    }
+  }
+
+  protected int getChunkSize() {
+    return Math.max(appBaseService.getAppBase().getBatchChunkSize(), 1);
+  }
+
+  protected int getWorkerNbr() {
+    return Math.max(appBaseService.getAppBase().getBatchWorkerNbr(), 1);
+  }
+
+  /**
+   * Process a chunk in one transaction. If a record fails, the transaction is rolled back so that
+   * the partial changes of the record are not committed, and the records of the chunk are
+   * processed again each one in its own transaction.
+   */
+  protected void processChunk(ChunkedBatch chunkedBatch, long batchId, List<Long> idList) {
+    boolean workerThread = threadBatchId.get() == null;
+    if (workerThread) {
+      threadBatchId.set(batchId);
+    }
+
+    try {
+      Exception chunkException = processInTransaction(chunkedBatch, idList);
+      if (chunkException == null) {
+        done.addAndGet(idList.size());
+      } else if (idList.size() == 1) {
+        anomaly.incrementAndGet();
+        traceChunkException(chunkException, batchId, chunkedBatch.getChunkExceptionOrigin());
+      } else {
+        for (Long id : idList) {
+          processChunk(chunkedBatch, batchId, Collections.singletonList(id));
+        }
+      }
+    } finally {
+      if (workerThread) {
+        threadBatchId.remove();
+      }
+    }
+  }
+
+  /**
+   * Process records in one transaction, rolled back if one of them fails.
+   *
+   * @return the exception of the failing record, or null if the transaction is committed
+   */
+  protected Exception processInTransaction(ChunkedBatch chunkedBatch, List<Long> idList) {
+    try {
+      JPA.runInTransaction(
+          () -> {
+            chunkedBatch.prepareChunk(idList);
+            for (Long id : idList) {
+              try {
+                chunkedBatch.processId(id);
+              } catch (RuntimeException e) {
+                throw e;
+              } catch (Exception e) {
+                throw new ChunkRecordException(e);
+              }
+            }
+          });
+      return null;
+    } catch (ChunkRecordException e) {
+      return (Exception) e.getCause();
+    } catch (Exception e) {
+      return e;
+    } finally {
+      JPA.clear();
+    }
+  }
+
+  /**
+   * Trace the exception of a record in anomaly, called once for each anomaly.
+   *
+   * @param e the exception thrown when processing the record
+   * @param batchId the id of the batch
+   * @param exceptionOrigin the origin of the traceback
+   */
+  protected void traceChunkException(Exception e, long batchId, String exceptionOrigin) {
+    if (e instanceof AxelorException) {
+      TraceBackService.trace((AxelorException) e, exceptionOrigin, batchId);
+    } else {
+      TraceBackService.trace(e, exceptionOrigin, batchId);
+    }
+  }
+
+  /** Carries the checked exception of a record out of the transaction of its chunk. */
+  protected static class ChunkRecordException extends RuntimeException {
+
+    protected ChunkRecordException(Exception cause) {
+      super(cause);
+    }
+  }
+
+  /** Save the counters kept in memory on the batch. */
+  protected void flushCounters() {
+    findBatch();
+    batch.setDone(done.get());
+    batch.setAnomaly(anomaly.get());
+    checkPoint();
+    unsavedCount = 0;
+    lastSaveTime = System.currentTimeMillis();
+
+    LOG.debug("Done ::: {}, Anomaly ::: {}", done, anomaly);
+  }
+
+  /**
+   * Counters are always up to date on the batch entity, but they are only saved once the number of
+   * records or the interval configured in the app is reached, or when the batch stops.
+   */
+  protected void saveCountersIfNeeded() {
+    unsavedCount++;
+    if (unsavedCount >= getCounterSaveCount()
+        || System.currentTimeMillis() - lastSaveTime >= getCounterSaveInterval()) {
+      checkPoint();
+      unsavedCount = 0;
+      lastSaveTime = System.currentTimeMillis();
+    }
+  }
+
+  protected int getCounterSaveCount() {
+    return Math.max(appBaseService.getAppBase().getBatchCounterSaveCount(), 1);
+  }
+
+  /**
+   * @return the interval between two saves of the counters, in milliseconds
+   */
+  protected long getCounterSaveInterval() {
+    return Math.max(appBaseService.getAppBase().getBatchCounterSaveInterval(), 1) * 1000L;
+  }
+
+  /**
+   * @return the number of records processed by second, or null if the duration is unknown
+   */
+  protected BigDecimal computeThroughput(int recordNbr, long durationMillis) {
+    if (durationMillis <= 0) {
+      return null;
+    }
+    return BigDecimal.valueOf(recordNbr * 1000L)
+        .divide(BigDecimal.valueOf(durationMillis), 2, RoundingMode.HALF_UP);
+  }
+
+  @Transactional
+  protected void saveStopPhaseDuration(long stopPhaseDuration) {
+    findBatch();
+    batch.setStopPhaseDuration(stopPhaseDuration);
+  }
+
   protected void addComment(String comment) {
     findBatch();
 
@@ -296,6 +491,9 @@ public abstract class AbstractBatch {
   protected Batch findBatch() {
     if (!JPA.em().contains(batch)) {
       batch = JPA.find(Batch.class, batch.getId());
+      // Counters saved in database may be late
+      batch.setDone(done.get());
+      batch.setAnomaly(anomaly.get());
     }
 
     return batch;
@@ -0,0 +1,59 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Batch processing its records by chunks, see {@link AbstractBatch#processByChunk(ChunkedBatch)}.
+ */
+public interface ChunkedBatch {
+
+  /**
+   * @return the ids of the records to process
+   */
+  Stream<Long> getIdStream();
+
+  /**
+   * Process one record of a chunk. The record is done if no exception is thrown, otherwise it is
+   * an anomaly and the exception is traced: counters must not be incremented here. As a failing
+   * record makes its chunk processed again record by record, this method may be called several
+   * times for a same record, but its changes are only committed once.
+   *
+   * @param id the id of the record to process
+   */
+  void processId(Long id) throws Exception;
+
+  /**
+   * Called in the transaction of a chunk before its records are processed, can be overridden to
+   * load the data of the whole chunk at once. If an exception is thrown, the records of the chunk
+   * are processed again one by one.
+   *
+   * @param idList the ids of the records of the chunk
+   */
+  default void prepareChunk(List<Long> idList) {}
+
+  /**
+   * @return the origin of the tracebacks of the records in anomaly
+   */
+  default String getChunkExceptionOrigin() {
+    return null;
+  }
+}
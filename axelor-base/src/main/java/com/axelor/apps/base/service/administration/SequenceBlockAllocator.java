@@ -0,0 +1,188 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import com.axelor.apps.base.db.SequenceVersion;
+import com.axelor.apps.base.utils.TransactionTools;
+import com.axelor.db.JPA;
+import com.google.inject.Singleton;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityTransaction;
+import javax.persistence.LockModeType;
+import javax.persistence.LockTimeoutException;
+import javax.persistence.PessimisticLockException;
+
+/**
+ * Hands out sequence numbers from blocks reserved on {@link SequenceVersion#getNextNum()}. A block
+ * is reserved in its own short transaction, so the row is only locked while the block is reserved
+ * and not during the whole calling transaction. Numbers of a block that are not used (rollback of
+ * the calling transaction, server restart, release of the block) are lost: this must only be used
+ * for sequences where gaps are allowed.
+ */
+@ThreadSafe
+@Singleton
+public class SequenceBlockAllocator {
+
+  protected static final String LOCK_TIMEOUT_HINT = "javax.persistence.lock.timeout";
+
+  protected final Map<Long, SequenceBlock> blockMap = new ConcurrentHashMap<>();
+
+  /** Whether the current thread is saving the reservation of a block. */
+  protected final ThreadLocal<Boolean> reserving = ThreadLocal.withInitial(() -> false);
+
+  /** Ids of the sequence versions moved forward without a block by the current transaction. */
+  protected final ThreadLocal<Set<Long>> movedWithoutBlockIdSet =
+      ThreadLocal.withInitial(HashSet::new);
+
+  /**
+   * Get the next number of a sequence version.
+   *
+   * @param sequenceVersionId id of a saved sequence version
+   * @param increment the increment of the sequence
+   * @param blockSize the number of numbers to reserve at once
+   * @return the next number, or null if no block can be reserved outside of the calling
+   *     transaction, the number must then be computed in the calling transaction
+   */
+  public Long allocate(Long sequenceVersionId, int increment, int blockSize) {
+    while (true) {
+      SequenceBlock block = blockMap.computeIfAbsent(sequenceVersionId, id -> new SequenceBlock());
+      synchronized (block) {
+        if (block.released) {
+          continue;
+        }
+        if (block.nextNum >= block.endNum) {
+          long blockLength = (long) Math.max(increment, 1) * Math.max(blockSize, 1);
+          Long firstNum = this.reserveBlock(sequenceVersionId, blockLength);
+          if (firstNum == null) {
+            return null;
+          }
+          block.nextNum = firstNum;
+          block.endNum = firstNum + blockLength;
+        }
+        long nextNum = block.nextNum;
+        block.nextNum += Math.max(increment, 1);
+        return nextNum;
+      }
+    }
+  }
+
+  /**
+   * Forget the block of a sequence version, for example after its next number has been changed or
+   * after it has been removed. The remaining numbers of the block are lost.
+   *
+   * @param sequenceVersionId
+   */
+  public void release(Long sequenceVersionId) {
+    SequenceBlock block = blockMap.remove(sequenceVersionId);
+    if (block != null) {
+      synchronized (block) {
+        block.released = true;
+      }
+    }
+  }
+
+  /**
+   * Whether the current thread is saving the reservation of a block, to tell the updates of the
+   * allocator from the other updates of a sequence version.
+   */
+  public boolean isReserving() {
+    return reserving.get();
+  }
+
+  /**
+   * Tell that the current transaction moves the next number of the sequence version forward
+   * without a block, the row being locked. As it starts after the reserved blocks, they are kept.
+   *
+   * @param sequenceVersionId
+   */
+  public void registerMoveWithoutBlock(Long sequenceVersionId) {
+    Set<Long> idSet = movedWithoutBlockIdSet.get();
+    if (idSet.add(sequenceVersionId)) {
+      TransactionTools.runAfterCompletion(committed -> idSet.remove(sequenceVersionId));
+    }
+  }
+
+  /**
+   * Whether the current transaction moves the next number of the sequence version forward without
+   * a block, see {@link #registerMoveWithoutBlock(Long)}.
+   */
+  public boolean isMovedWithoutBlock(Long sequenceVersionId) {
+    return movedWithoutBlockIdSet.get().contains(sequenceVersionId);
+  }
+
+  /**
+   * Move the next number of the sequence version forward in a separate transaction. The row is
+   * locked without waiting: if it is locked, it may be by the calling transaction.
+   *
+   * @return the first number of the reserved block, or null if the sequence version is not
+   *     committed yet or is locked by another transaction
+   */
+  protected Long reserveBlock(Long sequenceVersionId, long blockLength) {
+    EntityManager em = JPA.em().getEntityManagerFactory().createEntityManager();
+    try {
+      EntityTransaction transaction = em.getTransaction();
+      transaction.begin();
+      try {
+        SequenceVersion sequenceVersion =
+            em.find(
+                SequenceVersion.class,
+                sequenceVersionId,
+                LockModeType.PESSIMISTIC_WRITE,
+                Collections.singletonMap(LOCK_TIMEOUT_HINT, 0));
+        if (sequenceVersion == null) {
+          transaction.rollback();
+          return null;
+        }
+        long firstNum = sequenceVersion.getNextNum();
+        sequenceVersion.setNextNum(firstNum + blockLength);
+        reserving.set(true);
+        try {
+          transaction.commit();
+        } finally {
+          reserving.remove();
+        }
+        return firstNum;
+      } catch (PessimisticLockException | LockTimeoutException e) {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+        return null;
+      } catch (RuntimeException e) {
+        if (transaction.isActive()) {
+          transaction.rollback();
+        }
+        throw e;
+      }
+    } finally {
+      em.close();
+    }
+  }
+
+  protected static class SequenceBlock {
+    protected long nextNum;
+    protected long endNum;
+    protected boolean released;
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Compiled form of the prefix and suffix of a sequence. Date patterns are parsed once, so that
+ * formatting a number only appends the already split parts. The names used by groovy prefix and
+ * suffix are also extracted once, so that only these fields of the record are read.
+ *
+ * <p>Formatting gives the same result as replacing every date pattern in the concatenation of the
+ * prefix, the value and the suffix.
+ */
+public class SequenceFormatter {
+
+  protected static final DateTimeFormatter YEAR_FORMATTER = DateTimeFormatter.ofPattern("yy");
+  protected static final DateTimeFormatter FULL_MONTH_FORMATTER = DateTimeFormatter.ofPattern("MM");
+
+  protected static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+  /** Date patterns, in the order they are replaced. */
+  protected enum DatePattern {
+    FULL_YEAR(
+        SequenceService.PATTERN_FULL_YEAR,
+        date -> Integer.toString(date.get(ChronoField.YEAR_OF_ERA))),
+    YEAR(SequenceService.PATTERN_YEAR, date -> date.format(YEAR_FORMATTER)),
+    MONTH(SequenceService.PATTERN_MONTH, date -> Integer.toString(date.getMonthValue())),
+    FULL_MONTH(SequenceService.PATTERN_FULL_MONTH, date -> date.format(FULL_MONTH_FORMATTER)),
+    DAY(SequenceService.PATTERN_DAY, date -> Integer.toString(date.getDayOfMonth())),
+    WEEK(
+        SequenceService.PATTERN_WEEK,
+        date -> Integer.toString(date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR)));
+
+    protected final String pattern;
+    protected final Function<LocalDate, String> valueFunction;
+
+    DatePattern(String pattern, Function<LocalDate, String> valueFunction) {
+      this.pattern = pattern;
+      this.valueFunction = valueFunction;
+    }
+  }
+
+  protected final Integer sequenceVersion;
+  protected final List<Object> prefixPartList;
+  protected final List<Object> suffixPartList;
+  protected final boolean prefixGroovyOk;
+  protected final boolean suffixGroovyOk;
+  protected final String prefixGroovy;
+  protected final String suffixGroovy;
+  protected final Set<String> prefixGroovyNameSet;
+  protected final Set<String> suffixGroovyNameSet;
+
+  /**
+   * A prefix ending with an incomplete date pattern could be completed by the letters of the
+   * value, in that case the patterns are replaced on the whole number.
+   */
+  protected final boolean openPatternPrefix;
+
+  public SequenceFormatter(
+      Integer sequenceVersion,
+      String prefix,
+      String suffix,
+      boolean prefixGroovyOk,
+      String prefixGroovy,
+      boolean suffixGroovyOk,
+      String suffixGroovy) {
+    this.sequenceVersion = sequenceVersion;
+    this.prefixGroovyOk = prefixGroovyOk;
+    this.suffixGroovyOk = suffixGroovyOk;
+    this.prefixGroovy = prefixGroovy;
+    this.suffixGroovy = suffixGroovy;
+
+    prefix = StringUtils.defaultString(prefix);
+    suffix = StringUtils.defaultString(suffix);
+    this.prefixPartList = prefixGroovyOk ? Collections.emptyList() : compile(prefix);
+    this.suffixPartList = suffixGroovyOk ? Collections.emptyList() : compile(suffix);
+    this.prefixGroovyNameSet = prefixGroovyOk ? extractNames(prefixGroovy) : Collections.emptySet();
+    this.suffixGroovyNameSet = suffixGroovyOk ? extractNames(suffixGroovy) : Collections.emptySet();
+
+    int lastPatternIndex = prefix.lastIndexOf('%');
+    this.openPatternPrefix =
+        !prefixGroovyOk
+            && lastPatternIndex >= 0
+            && prefixPartList.get(prefixPartList.size() - 1) instanceof String
+            && prefix.length() - lastPatternIndex < SequenceService.PATTERN_FULL_YEAR.length();
+  }
+
+  public Integer getSequenceVersion() {
+    return sequenceVersion;
+  }
+
+  public boolean isPrefixGroovyOk() {
+    return prefixGroovyOk;
+  }
+
+  public boolean isSuffixGroovyOk() {
+    return suffixGroovyOk;
+  }
+
+  public String getPrefixGroovy() {
+    return prefixGroovy;
+  }
+
+  public String getSuffixGroovy() {
+    return suffixGroovy;
+  }
+
+  /**
+   * @return the names used by the groovy prefix, only the fields with these names are needed to
+   *     evaluate it.
+   */
+  public Set<String> getPrefixGroovyNameSet() {
+    return prefixGroovyNameSet;
+  }
+
+  public Set<String> getSuffixGroovyNameSet() {
+    return suffixGroovyNameSet;
+  }
+
+  /**
+   * Format a sequence number.
+   *
+   * @param groovyPrefix the evaluated groovy prefix, ignored if the prefix is not a groovy script
+   * @param sequenceValue the formatted value of the sequence
+   * @param groovySuffix the evaluated groovy suffix, ignored if the suffix is not a groovy script
+   * @param refDate the date used for date patterns
+   */
+  public String format(
+      String groovyPrefix, String sequenceValue, String groovySuffix, LocalDate refDate) {
+    if (prefixGroovyOk || suffixGroovyOk || openPatternPrefix) {
+      StringBuilder sb = new StringBuilder();
+      if (prefixGroovyOk) {
+        sb.append(StringUtils.defaultString(groovyPrefix));
+      } else {
+        appendRaw(sb, prefixPartList);
+      }
+      sb.append(sequenceValue);
+      if (suffixGroovyOk) {
+        sb.append(StringUtils.defaultString(groovySuffix));
+      } else {
+        appendRaw(sb, suffixPartList);
+      }
+      return replaceDatePatterns(sb.toString(), refDate);
+    }
+
+    StringBuilder sb = new StringBuilder();
+    append(sb, prefixPartList, refDate);
+    sb.append(sequenceValue);
+    append(sb, suffixPartList, refDate);
+    return sb.toString();
+  }
+
+  /** Replace every date pattern of the given string, in the pattern order. */
+  public static String replaceDatePatterns(String value, LocalDate refDate) {
+    if (value.indexOf('%') < 0) {
+      return value;
+    }
+    for (DatePattern datePattern : DatePattern.values()) {
+      if (value.contains(datePattern.pattern)) {
+        value = value.replace(datePattern.pattern, datePattern.valueFunction.apply(refDate));
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Split a string into literal parts and date patterns. Replaced values only contain digits, so
+   * matching the patterns from left to right gives the same result as replacing them one after
+   * the other.
+   */
+  protected static List<Object> compile(String value) {
+    List<Object> partList = new ArrayList<>();
+    StringBuilder literal = new StringBuilder();
+    int index = 0;
+    while (index < value.length()) {
+      DatePattern datePattern = value.charAt(index) == '%' ? findDatePattern(value, index) : null;
+      if (datePattern == null) {
+        literal.append(value.charAt(index));
+        index++;
+        continue;
+      }
+      if (literal.length() > 0) {
+        partList.add(literal.toString());
+        literal.setLength(0);
+      }
+      partList.add(datePattern);
+      index += datePattern.pattern.length();
+    }
+    if (literal.length() > 0) {
+      partList.add(literal.toString());
+    }
+    return partList;
+  }
+
+  protected static DatePattern findDatePattern(String value, int index) {
+    for (DatePattern datePattern : DatePattern.values()) {
+      if (value.startsWith(datePattern.pattern, index)) {
+        return datePattern;
+      }
+    }
+    return null;
+  }
+
+  protected static Set<String> extractNames(String script) {
+    Set<String> nameSet = new LinkedHashSet<>();
+    if (StringUtils.isEmpty(script)) {
+      return nameSet;
+    }
+    Matcher matcher = IDENTIFIER_PATTERN.matcher(script);
+    while (matcher.find()) {
+      nameSet.add(matcher.group());
+    }
+    return nameSet;
+  }
+
+  protected static void append(StringBuilder sb, List<Object> partList, LocalDate refDate) {
+    for (Object part : partList) {
+      if (part instanceof DatePattern) {
+        sb.append(((DatePattern) part).valueFunction.apply(refDate));
+      } else {
+        sb.append(part);
+      }
+    }
+  }
+
+  protected static void appendRaw(StringBuilder sb, List<Object> partList) {
+    for (Object part : partList) {
+      if (part instanceof DatePattern) {
+        sb.append(((DatePattern) part).pattern);
+      } else {
+        sb.append(part);
+      }
+    }
+  }
+}
@@ -34,6 +34,7 @@ import com.axelor.db.EntityHelper;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
 import com.axelor.db.mapper.Mapper;
+import com.axelor.db.mapper.Property;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.meta.db.MetaSelectItem;
@@ -47,13 +48,14 @@ import com.google.inject.Singleton;
 import com.google.inject.persist.Transactional;
 import java.lang.invoke.MethodHandles;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoField;
-import java.time.temporal.IsoFields;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
@@ -91,17 +93,23 @@ public class SequenceService {
 
   protected final SequenceRepository sequenceRepo;
 
+  protected final SequenceBlockAllocator sequenceBlockAllocator;
+
+  protected final Map<Long, SequenceFormatter> sequenceFormatterMap = new ConcurrentHashMap<>();
+
   @Inject
   public SequenceService(
       SequenceVersionRepository sequenceVersionRepository,
       AppBaseService appBaseService,
       SequenceRepository sequenceRepo,
-      SequenceVersionGeneratorService sequenceVersionGeneratorService) {
+      SequenceVersionGeneratorService sequenceVersionGeneratorService,
+      SequenceBlockAllocator sequenceBlockAllocator) {
 
     this.sequenceVersionRepository = sequenceVersionRepository;
     this.appBaseService = appBaseService;
     this.sequenceRepo = sequenceRepo;
     this.sequenceVersionGeneratorService = sequenceVersionGeneratorService;
+    this.sequenceBlockAllocator = sequenceBlockAllocator;
   }
 
   public static boolean isYearValid(Sequence sequence) {
@@ -202,14 +210,7 @@ public class SequenceService {
     String sequenceValue = getSequenceValue(sequenceVersion);
 
     String nextSeq =
-        (seqPrefixe + sequenceValue + seqSuffixe)
-            .replace(PATTERN_FULL_YEAR, Integer.toString(refDate.get(ChronoField.YEAR_OF_ERA)))
-            .replace(PATTERN_YEAR, refDate.format(DateTimeFormatter.ofPattern("yy")))
-            .replace(PATTERN_MONTH, Integer.toString(refDate.getMonthValue()))
-            .replace(PATTERN_FULL_MONTH, refDate.format(DateTimeFormatter.ofPattern("MM")))
-            .replace(PATTERN_DAY, Integer.toString(refDate.getDayOfMonth()))
-            .replace(
-                PATTERN_WEEK, Integer.toString(refDate.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR)));
+        SequenceFormatter.replaceDatePatterns(seqPrefixe + sequenceValue + seqSuffixe, refDate);
 
     log.debug("nextSeq : : : : {}", nextSeq);
 
@@ -217,10 +218,12 @@ public class SequenceService {
   }
 
   protected String getSequenceValue(SequenceVersion sequenceVersion) throws AxelorException {
+    return getSequenceValue(sequenceVersion.getSequence(), sequenceVersion.getNextNum());
+  }
+
+  protected String getSequenceValue(Sequence sequence, Long nextNum) throws AxelorException {
 
-    Sequence sequence = sequenceVersion.getSequence();
     SequenceTypeSelect sequenceTypeSelect = sequence.getSequenceTypeSelect();
-    Long nextNum = sequenceVersion.getNextNum();
 
     String padStr;
     String nextSequence;
@@ -245,7 +248,7 @@ public class SequenceService {
 
       default:
         throw new AxelorException(
-            sequenceVersion,
+            sequence,
             TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
             I18n.get(BaseExceptionMessage.SEQUENCE_TYPE_UNHANDLED),
             sequenceTypeSelect);
@@ -540,6 +543,19 @@ public class SequenceService {
   public String getSequenceNumber(
       Sequence sequence, LocalDate refDate, Class objectClass, String fieldName, Model model)
       throws AxelorException {
+    if (isBlockAllocation(sequence)) {
+      Long sequenceVersionId = findSequenceVersionId(sequence, refDate);
+      // A new version is created with the lock below, blocks are reserved once it is committed
+      if (sequenceVersionId != null) {
+        String nextSeq =
+            getBlockAllocatedSequenceNumber(
+                sequenceVersionId, sequence, refDate, objectClass, fieldName, model);
+        if (nextSeq != null) {
+          return nextSeq;
+        }
+      }
+    }
+
     Sequence seq =
         JPA.em()
             .createQuery("SELECT self FROM Sequence self WHERE id = :id", Sequence.class)
@@ -548,6 +564,11 @@ public class SequenceService {
             .setFlushMode(FlushModeType.COMMIT)
             .getSingleResult();
     SequenceVersion sequenceVersion = getVersion(seq, refDate);
+    if (isBlockAllocation(seq) && sequenceVersion.getId() != null) {
+      // Blocks are reserved on the version row, it must be locked to read its last next number
+      JPA.em().refresh(sequenceVersion, LockModeType.PESSIMISTIC_WRITE);
+      sequenceBlockAllocator.registerMoveWithoutBlock(sequenceVersion.getId());
+    }
     String nextSeq = computeSequenceNumber(sequenceVersion, seq, refDate, model);
 
     if (appBaseService.getAppBase().getCheckExistingSequenceOnGeneration()
@@ -563,35 +584,177 @@ public class SequenceService {
     return nextSeq;
   }
 
+  /**
+   * Check whether the numbers of the sequence can be reserved by block. Legal sequences are always
+   * computed one by one to stay gap-free.
+   *
+   * @param sequence
+   * @return
+   */
+  public boolean isBlockAllocation(Sequence sequence) {
+    return sequence.getBlockAllocationOk() && !isGapFree(sequence);
+  }
+
+  /**
+   * Check whether the sequence must not have any gap. Legal sequences are defined by other modules,
+   * which override this method with their own sequence codes.
+   *
+   * @param sequence
+   * @return
+   */
+  protected boolean isGapFree(Sequence sequence) {
+    return false;
+  }
+
+  /**
+   * Find the id of the version of the sequence at the date. Only the id is read so that the version
+   * is not held by the calling transaction while blocks are reserved in another one.
+   */
+  protected Long findSequenceVersionId(Sequence sequence, LocalDate refDate) {
+    List<Long> sequenceVersionIdList =
+        JPA.em()
+            .createQuery(
+                "SELECT self.id FROM SequenceVersion self"
+                    + " WHERE self.sequence = :sequence AND self.startDate <= :date"
+                    + " AND (self.endDate IS NULL OR self.endDate >= :date)"
+                    + " ORDER BY self.startDate DESC",
+                Long.class)
+            .setParameter("sequence", sequence)
+            .setParameter("date", refDate)
+            .setMaxResults(1)
+            .getResultList();
+    return sequenceVersionIdList.isEmpty() ? null : sequenceVersionIdList.get(0);
+  }
+
+  /**
+   * Get a sequence number from a block reserved by {@link SequenceBlockAllocator}, without locking
+   * the sequence during the calling transaction.
+   *
+   * @return the sequence number, or null if it must be computed in the calling transaction
+   */
+  protected String getBlockAllocatedSequenceNumber(
+      Long sequenceVersionId,
+      Sequence sequence,
+      LocalDate refDate,
+      Class objectClass,
+      String fieldName,
+      Model model)
+      throws AxelorException {
+    Long nextNum =
+        sequenceBlockAllocator.allocate(
+            sequenceVersionId, sequence.getToBeAdded(), sequence.getBlockSize());
+    if (nextNum == null) {
+      return null;
+    }
+    String nextSeq = computeSequenceNumber(nextNum, sequence, refDate, model);
+
+    if (appBaseService.getAppBase().getCheckExistingSequenceOnGeneration()
+        && objectClass != null
+        && !Strings.isNullOrEmpty(fieldName)) {
+      this.isSequenceAlreadyExisting(objectClass, fieldName, nextSeq, sequence);
+    }
+    return nextSeq;
+  }
+
   protected String computeSequenceNumber(
       SequenceVersion sequenceVersion, Sequence sequence, LocalDate refDate, Model model)
       throws AxelorException {
-    String seqPrefixe = StringUtils.defaultString(sequence.getPrefixe(), "");
-    String seqSuffixe = StringUtils.defaultString(sequence.getSuffixe(), "");
-    if (sequence.getPrefixGroovyOk()) {
-      seqPrefixe = StringUtils.defaultString(getGroovyValue(sequence.getPrefixGroovy(), model), "");
+    return computeSequenceNumber(sequenceVersion.getNextNum(), sequence, refDate, model);
+  }
+
+  protected String computeSequenceNumber(
+      Long nextNum, Sequence sequence, LocalDate refDate, Model model) throws AxelorException {
+    SequenceFormatter sequenceFormatter = getSequenceFormatter(sequence);
+    String seqPrefixe = null;
+    String seqSuffixe = null;
+    if (sequenceFormatter.isPrefixGroovyOk()) {
+      seqPrefixe =
+          getGroovyValue(
+              sequenceFormatter.getPrefixGroovy(),
+              sequenceFormatter.getPrefixGroovyNameSet(),
+              model);
     }
-    if (sequence.getSuffixGroovyOk()) {
-      seqSuffixe = StringUtils.defaultString(getGroovyValue(sequence.getSuffixGroovy(), model), "");
+    if (sequenceFormatter.isSuffixGroovyOk()) {
+      seqSuffixe =
+          getGroovyValue(
+              sequenceFormatter.getSuffixGroovy(),
+              sequenceFormatter.getSuffixGroovyNameSet(),
+              model);
     }
 
-    String sequenceValue = getSequenceValue(sequenceVersion);
+    String sequenceValue = getSequenceValue(sequence, nextNum);
 
-    String nextSeq =
-        (seqPrefixe + sequenceValue + seqSuffixe)
-            .replace(PATTERN_FULL_YEAR, Integer.toString(refDate.get(ChronoField.YEAR_OF_ERA)))
-            .replace(PATTERN_YEAR, refDate.format(DateTimeFormatter.ofPattern("yy")))
-            .replace(PATTERN_MONTH, Integer.toString(refDate.getMonthValue()))
-            .replace(PATTERN_FULL_MONTH, refDate.format(DateTimeFormatter.ofPattern("MM")))
-            .replace(PATTERN_DAY, Integer.toString(refDate.getDayOfMonth()))
-            .replace(
-                PATTERN_WEEK, Integer.toString(refDate.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR)));
+    String nextSeq = sequenceFormatter.format(seqPrefixe, sequenceValue, seqSuffixe, refDate);
 
     log.debug("nextSeq : : : : {}", nextSeq);
 
     return nextSeq;
   }
 
+  /**
+   * Get the compiled prefix and suffix of the sequence. It is compiled again when the sequence has
+   * been modified.
+   *
+   * @param sequence
+   * @return
+   */
+  protected SequenceFormatter getSequenceFormatter(Sequence sequence) {
+    if (sequence.getId() == null) {
+      return createSequenceFormatter(sequence);
+    }
+    SequenceFormatter sequenceFormatter = sequenceFormatterMap.get(sequence.getId());
+    if (sequenceFormatter == null
+        || !Objects.equals(sequenceFormatter.getSequenceVersion(), sequence.getVersion())) {
+      sequenceFormatter = createSequenceFormatter(sequence);
+      sequenceFormatterMap.put(sequence.getId(), sequenceFormatter);
+    }
+    return sequenceFormatter;
+  }
+
+  protected SequenceFormatter createSequenceFormatter(Sequence sequence) {
+    return new SequenceFormatter(
+        sequence.getVersion(),
+        sequence.getPrefixe(),
+        sequence.getSuffixe(),
+        sequence.getPrefixGroovyOk(),
+        sequence.getPrefixGroovy(),
+        sequence.getSuffixGroovyOk(),
+        sequence.getSuffixGroovy());
+  }
+
+  /**
+   * Evaluate a groovy prefix or suffix with a context only filled with the fields used by the
+   * script. Other values are still available through the context, as they are loaded on demand.
+   */
+  protected String getGroovyValue(String prefixOrSuffix, Set<String> nameSet, Model model)
+      throws AxelorException {
+
+    if (!Strings.isNullOrEmpty(prefixOrSuffix) && Objects.nonNull(model)) {
+      try {
+        Class<? extends Model> entityClass = EntityHelper.getEntityClass(model);
+        Mapper mapper = Mapper.of(entityClass);
+        Map<String, Object> values = new HashMap<>();
+        values.put("id", model.getId());
+        for (String name : nameSet) {
+          Property property = mapper.getProperty(name);
+          if (property != null) {
+            values.put(name, property.get(model));
+          }
+        }
+        Context cxt = new Context(values, entityClass);
+        return String.valueOf(new GroovyScriptHelper(cxt).eval(prefixOrSuffix));
+
+      } catch (Exception e) {
+        throw new AxelorException(
+            e,
+            TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
+            I18n.get(BaseExceptionMessage.SEQUENCE_GROOVY_CONFIGURATION));
+      }
+    }
+
+    return prefixOrSuffix;
+  }
+
   protected String getGroovyValue(String prefixOrSuffix, Model model) throws AxelorException {
 
     if (!Strings.isNullOrEmpty(prefixOrSuffix) && Objects.nonNull(model)) {
@@ -57,6 +57,7 @@ import com.google.common.io.Files;
 import com.google.inject.Inject;
 import com.thoughtworks.xstream.XStream;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -95,6 +96,7 @@ public class DataImportServiceImpl implements DataImportService {
   private static final String SPLIT = ".split('\\\\";
   private static final String AS_LIST = "') as List";
   private static final String REPLACE_SYMBOL = "$";
+  private static final String XLSX_EXTENSION = "xlsx";
 
   private CSVInput csvInput;
 
@@ -105,6 +107,11 @@ public class DataImportServiceImpl implements DataImportService {
   private Map<String, Object> titleMap;
   private Map<String, DataAdapter> adapterMap;
 
+  /** Per tab caches of the selection lookups, a sheet usually repeats the same few values. */
+  private Map<String, Long> metaSelectIdMap;
+
+  private Map<String, String> selectionValueMap;
+
   private List<String> ifList;
 
   private String fullFieldName;
@@ -141,10 +148,17 @@ public class DataImportServiceImpl implements DataImportService {
 
     String extension = Files.getFileExtension(advancedImport.getImportFile().getFileName());
 
-    DataReader reader = dataReaderFactory.getDataReader(extension);
-    reader.initialize(advancedImport.getImportFile(), advancedImport.getFileSeparator());
-
-    List<CSVInput> inputs = this.process(reader, advancedImport);
+    List<CSVInput> inputs;
+    if (XLSX_EXTENSION.equals(extension)) {
+      try (ExcelSheetRowReader reader =
+          new ExcelSheetRowReader(MetaFiles.getPath(advancedImport.getImportFile()).toFile())) {
+        inputs = this.process(reader, advancedImport);
+      }
+    } else {
+      DataReader reader = dataReaderFactory.getDataReader(extension);
+      reader.initialize(advancedImport.getImportFile(), advancedImport.getFileSeparator());
+      inputs = this.process(reader, advancedImport);
+    }
 
     if (advancedImport.getAttachment() != null) {
       this.processAttachments(advancedImport.getAttachment());
@@ -178,23 +192,16 @@ public class DataImportServiceImpl implements DataImportService {
       csvInput = this.createCSVInput(fileTab, fileName);
       ifList = new ArrayList<String>();
 
-      File tempFile = new File(dataDir, fileName);
-      CSVFile csvFormat =
-          CSVFile.DEFAULT.withDelimiter(CSV_SEPRATOR).withQuoteAll().withFirstRecordAsHeader();
-      CSVPrinter printer = csvFormat.write(tempFile);
-
       int totalLines = reader.getTotalLines(fileTab.getName());
       if (totalLines == 0) {
         continue;
       }
 
       Mapper mapper = advancedImportService.getMapper(fileTab.getMetaModel().getFullName());
-      List<String[]> allLines = new ArrayList<String[]>();
       int startIndex = isConfig ? 1 : linesToIgnore;
 
       String[] row = reader.read(fileTab.getName(), startIndex, 0);
       String[] headers = this.createHeader(row, fileTab, isConfig, mapper);
-      allLines.add(headers);
 
       int tabConfigRowCount = 0;
       if (isTabConfig) {
@@ -208,35 +215,179 @@ public class DataImportServiceImpl implements DataImportService {
               ? tabConfigRowCount + 3
               : fileTab.getAdvancedImport().getIsHeader() ? linesToIgnore + 1 : linesToIgnore;
 
-      for (int line = startIndex; line < totalLines; line++) {
-        String[] dataRow = reader.read(fileTab.getName(), line, row.length);
-        if (dataRow == null || Arrays.stream(dataRow).allMatch(StringUtils::isBlank)) {
-          continue;
+      File tempFile = new File(dataDir, fileName);
+      CSVFile csvFormat =
+          CSVFile.DEFAULT.withDelimiter(CSV_SEPRATOR).withQuoteAll().withFirstRecordAsHeader();
+
+      // Rows are written as soon as they are read so that the whole sheet is never kept in
+      // memory, the printer buffers the output itself.
+      try (CSVPrinter printer = csvFormat.write(tempFile)) {
+        printer.printRecord((Object[]) headers);
+
+        for (int line = startIndex; line < totalLines; line++) {
+          String[] dataRow = reader.read(fileTab.getName(), line, row.length);
+          if (dataRow == null || Arrays.stream(dataRow).allMatch(StringUtils::isBlank)) {
+            continue;
+          }
+          printer.printRecord((Object[]) this.createData(dataRow, fileTab, isConfig, mapper));
         }
-        String[] data = this.createData(dataRow, fileTab, isConfig, mapper);
-        allLines.add(data);
       }
-      printer.printRecords(allLines);
-      printer.close();
 
-      inputList.add(csvInput);
-      importContext.put("ifConditions" + fileTab.getId(), ifList);
-      importContext.put("jsonContextValues" + fileTab.getId(), createJsonContext(fileTab));
-      importContext.put("actionsToApply" + fileTab.getId(), fileTab.getActions());
+      this.addCSVInput(inputList, fileTab);
+    }
+    return inputList;
+  }
+
+  /**
+   * Same as {@link #process(DataReader, AdvancedImport)} for a .xlsx file, whose sheets are parsed
+   * row by row instead of being loaded: rows are written in the data files as they are parsed.
+   */
+  private List<CSVInput> process(ExcelSheetRowReader reader, AdvancedImport advancedImport)
+      throws IOException, ClassNotFoundException {
+
+    List<String> sheetNameList = reader.getSheetNames();
+
+    boolean isConfig = advancedImport.getIsConfigInFile();
+    int linesToIgnore = advancedImport.getNbOfFirstLineIgnore();
+    boolean isTabConfig = advancedImport.getIsFileTabConfigAdded();
+    List<CSVInput> inputList = new ArrayList<CSVInput>();
+
+    validatorService.sortFileTabList(advancedImport.getFileTabList());
+
+    for (FileTab fileTab : advancedImport.getFileTabList()) {
+      if (!sheetNameList.contains(fileTab.getName())) {
+        continue;
+      }
+
+      this.initializeVariables();
+
+      String fileName = createDataFileName(fileTab);
+      csvInput = this.createCSVInput(fileTab, fileName);
+      ifList = new ArrayList<String>();
+
+      Mapper mapper = advancedImportService.getMapper(fileTab.getMetaModel().getFullName());
+      File tempFile = new File(dataDir, fileName);
 
-      XStream stream = XStreamUtils.createXStream();
-      stream.processAnnotations(CSVConfig.class);
-      LOG.debug("CSV Config created :" + "\n" + stream.toXML(csvInput));
+      boolean isHeaderWritten;
+      try (SheetRowWriter sheetRowWriter =
+          new SheetRowWriter(fileTab, mapper, isConfig, linesToIgnore, isTabConfig, tempFile)) {
+        reader.readRows(fileTab.getName(), sheetRowWriter);
+        isHeaderWritten = sheetRowWriter.isHeaderWritten();
+      }
+      if (isHeaderWritten) {
+        this.addCSVInput(inputList, fileTab);
+      }
     }
     return inputList;
   }
 
+  private void addCSVInput(List<CSVInput> inputList, FileTab fileTab) {
+    inputList.add(csvInput);
+    importContext.put("ifConditions" + fileTab.getId(), ifList);
+    importContext.put("jsonContextValues" + fileTab.getId(), createJsonContext(fileTab));
+    importContext.put("actionsToApply" + fileTab.getId(), fileTab.getActions());
+
+    XStream stream = XStreamUtils.createXStream();
+    stream.processAnnotations(CSVConfig.class);
+    LOG.debug("CSV Config created :" + "\n" + stream.toXML(csvInput));
+  }
+
+  /**
+   * Writes the rows of a sheet in the data file of its tab as they are parsed. Rows before the data
+   * are only read for the header and, in a configuration file, the tab configuration rows following
+   * the third row are skipped.
+   */
+  private class SheetRowWriter implements ExcelSheetRowReader.RowHandler, Closeable {
+
+    private final FileTab fileTab;
+    private final Mapper mapper;
+    private final boolean isConfig;
+    private final boolean isTabConfig;
+    private final int headerIndex;
+    private final File dataFile;
+
+    private boolean isTabConfigRows;
+    private int dataIndex;
+    private int headerSize;
+    private CSVPrinter printer;
+
+    private SheetRowWriter(
+        FileTab fileTab,
+        Mapper mapper,
+        boolean isConfig,
+        int linesToIgnore,
+        boolean isTabConfig,
+        File dataFile) {
+      this.fileTab = fileTab;
+      this.mapper = mapper;
+      this.isConfig = isConfig;
+      this.isTabConfig = isTabConfig;
+      this.dataFile = dataFile;
+      headerIndex = isConfig ? 1 : linesToIgnore;
+      dataIndex =
+          isConfig
+              ? 3
+              : fileTab.getAdvancedImport().getIsHeader() ? linesToIgnore + 1 : linesToIgnore;
+    }
+
+    @Override
+    public void handleRow(int rowIndex, String[] row) throws IOException, ClassNotFoundException {
+      if (rowIndex == 0 && isConfig && isTabConfig) {
+        isTabConfigRows =
+            row[0] == null
+                && row.length > 1
+                && row[1] != null
+                && row[1].toLowerCase().contains("object");
+      }
+
+      if (rowIndex == headerIndex) {
+        headerSize = row.length;
+        printer =
+            CSVFile.DEFAULT
+                .withDelimiter(CSV_SEPRATOR)
+                .withQuoteAll()
+                .withFirstRecordAsHeader()
+                .write(dataFile);
+        printer.printRecord((Object[]) createHeader(row, fileTab, isConfig, mapper));
+      }
+
+      if (isTabConfigRows && rowIndex >= dataIndex) {
+        if (rowIndex == dataIndex && row[0] != null) {
+          dataIndex++;
+          return;
+        }
+        isTabConfigRows = false;
+      }
+
+      if (printer == null
+          || rowIndex < dataIndex
+          || Arrays.stream(row).allMatch(StringUtils::isBlank)) {
+        return;
+      }
+      String[] dataRow = Arrays.copyOf(row, headerSize);
+      printer.printRecord((Object[]) createData(dataRow, fileTab, isConfig, mapper));
+    }
+
+    private boolean isHeaderWritten() {
+      return printer != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (printer != null) {
+        printer.close();
+      }
+    }
+  }
+
   protected void initializeVariables() {
     parentBindMap = new HashMap<>();
     subBindMap = new HashMap<>();
     fullFieldName = null;
     fieldMap = new HashMap<>();
     titleMap = new HashMap<>();
+    metaSelectIdMap = new HashMap<>();
+    selectionValueMap = new HashMap<>();
   }
 
   private String[] createHeader(String[] row, FileTab fileTab, boolean isConfig, Mapper mapper)
@@ -409,6 +560,11 @@ public class DataImportServiceImpl implements DataImportService {
   protected String getSelectionValue(String selection, String value, int forSelectUse) {
 
     if (forSelectUse != FileFieldRepository.SELECT_USE_VALUES) {
+      String key = selection + ":" + forSelectUse + ":" + value;
+      if (selectionValueMap.containsKey(key)) {
+        return selectionValueMap.get(key);
+      }
+
       String title = null;
       if (forSelectUse == FileFieldRepository.SELECT_USE_TRANSLATED_TITLES) {
         title = translationService.getTranslationKey(value, language);
@@ -416,27 +572,44 @@ public class DataImportServiceImpl implements DataImportService {
         title = value;
       }
 
-      MetaSelect metaSelect = metaSelectRepo.findByName(selection);
-      if (metaSelect == null) {
-        return null;
+      Long metaSelectId = this.getMetaSelectId(selection);
+      String selectionValue = null;
+      if (metaSelectId != null) {
+        String itemValue = this.findSelectionItemValue(metaSelectId, title);
+        selectionValue = itemValue != null ? itemValue : value;
       }
 
-      MetaSelectItem metaSelectItem =
-          metaSelectItemRepo
-              .all()
-              .filter("self.title = ?1 AND self.select.id = ?2", title, metaSelect.getId())
-              .fetchOne();
-
-      if (metaSelectItem != null) {
-        return metaSelectItem.getValue();
-      } else {
-        return value;
-      }
+      selectionValueMap.put(key, selectionValue);
+      return selectionValue;
     } else {
       return value;
     }
   }
 
+  protected Long getMetaSelectId(String selection) {
+    if (metaSelectIdMap.containsKey(selection)) {
+      return metaSelectIdMap.get(selection);
+    }
+
+    Long metaSelectId = this.findMetaSelectId(selection);
+    metaSelectIdMap.put(selection, metaSelectId);
+    return metaSelectId;
+  }
+
+  protected Long findMetaSelectId(String selection) {
+    MetaSelect metaSelect = metaSelectRepo.findByName(selection);
+    return metaSelect != null ? metaSelect.getId() : null;
+  }
+
+  protected String findSelectionItemValue(Long metaSelectId, String title) {
+    MetaSelectItem metaSelectItem =
+        metaSelectItemRepo
+            .all()
+            .filter("self.title = ?1 AND self.select.id = ?2", title, metaSelectId)
+            .fetchOne();
+    return metaSelectItem != null ? metaSelectItem.getValue() : null;
+  }
+
   protected CSVInput createCSVInput(FileTab fileTab, String fileName) {
     boolean update = false;
     String searchCall = fileTab.getSearchCall();
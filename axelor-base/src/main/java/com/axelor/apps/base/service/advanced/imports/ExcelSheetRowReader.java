@@ -0,0 +1,207 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.advanced.imports;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * Reads the rows of the sheets of a .xlsx file with the event model of POI: the XML of a sheet is
+ * parsed one row at a time and the workbook is never loaded in memory. Cells are formatted as
+ * displayed in the file.
+ */
+public class ExcelSheetRowReader implements AutoCloseable {
+
+  protected final OPCPackage opcPackage;
+  protected final XSSFReader xssfReader;
+  protected final ReadOnlySharedStringsTable sharedStringsTable;
+  protected final StylesTable stylesTable;
+
+  public ExcelSheetRowReader(File file) throws IOException {
+    try {
+      opcPackage = OPCPackage.open(file, PackageAccess.READ);
+    } catch (OpenXML4JException e) {
+      throw new IOException(e);
+    }
+    try {
+      xssfReader = new XSSFReader(opcPackage);
+      sharedStringsTable = new ReadOnlySharedStringsTable(opcPackage);
+      stylesTable = xssfReader.getStylesTable();
+    } catch (OpenXML4JException | SAXException | IOException e) {
+      opcPackage.revert();
+      throw e instanceof IOException ? (IOException) e : new IOException(e);
+    }
+  }
+
+  public List<String> getSheetNames() throws IOException {
+    List<String> sheetNameList = new ArrayList<>();
+    XSSFReader.SheetIterator sheetIterator = getSheetIterator();
+    while (sheetIterator.hasNext()) {
+      try (InputStream sheetInputStream = sheetIterator.next()) {
+        sheetNameList.add(sheetIterator.getSheetName());
+      }
+    }
+    return sheetNameList;
+  }
+
+  /**
+   * Read the rows of a sheet in order. Rows without any cell are skipped.
+   *
+   * @param sheetName the name of the sheet
+   * @param rowHandler given each row with its index, missing cells of the row being null
+   * @throws IOException if the file can not be read, or with the exception of the row handler
+   */
+  public void readRows(String sheetName, RowHandler rowHandler) throws IOException {
+    XSSFReader.SheetIterator sheetIterator = getSheetIterator();
+    while (sheetIterator.hasNext()) {
+      try (InputStream sheetInputStream = sheetIterator.next()) {
+        if (sheetName.equals(sheetIterator.getSheetName())) {
+          parseSheet(sheetInputStream, rowHandler);
+          return;
+        }
+      }
+    }
+  }
+
+  protected XSSFReader.SheetIterator getSheetIterator() throws IOException {
+    try {
+      return (XSSFReader.SheetIterator) xssfReader.getSheetsData();
+    } catch (OpenXML4JException e) {
+      throw new IOException(e);
+    }
+  }
+
+  protected void parseSheet(InputStream sheetInputStream, RowHandler rowHandler)
+      throws IOException {
+    try {
+      XMLReader xmlReader = createXMLReader();
+      xmlReader.setContentHandler(
+          new XSSFSheetXMLHandler(
+              stylesTable,
+              sharedStringsTable,
+              new RowCollector(rowHandler),
+              new DataFormatter(),
+              false));
+      xmlReader.parse(new InputSource(sheetInputStream));
+    } catch (RowHandlerException e) {
+      Exception cause = (Exception) e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IOException(cause);
+    } catch (SAXException | ParserConfigurationException e) {
+      throw new IOException(e);
+    }
+  }
+
+  protected XMLReader createXMLReader() throws SAXException, ParserConfigurationException {
+    SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+    saxParserFactory.setNamespaceAware(true);
+    saxParserFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    saxParserFactory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+    return saxParserFactory.newSAXParser().getXMLReader();
+  }
+
+  @Override
+  public void close() {
+    // The package is read only, reverting it closes it without saving
+    opcPackage.revert();
+  }
+
+  @FunctionalInterface
+  public interface RowHandler {
+
+    /**
+     * @param rowIndex the index of the row in the sheet, starting at 0
+     * @param row the formatted values of the cells of the row
+     */
+    void handleRow(int rowIndex, String[] row) throws Exception;
+  }
+
+  /** Gathers the cells of each row given by the sheet handler of POI. */
+  protected static class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+    protected final RowHandler rowHandler;
+    protected final List<String> cellList = new ArrayList<>();
+
+    protected RowCollector(RowHandler rowHandler) {
+      this.rowHandler = rowHandler;
+    }
+
+    @Override
+    public void startRow(int rowNum) {
+      cellList.clear();
+    }
+
+    @Override
+    public void endRow(int rowNum) {
+      if (cellList.isEmpty()) {
+        return;
+      }
+      try {
+        rowHandler.handleRow(rowNum, cellList.toArray(new String[0]));
+      } catch (Exception e) {
+        throw new RowHandlerException(e);
+      }
+    }
+
+    @Override
+    public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+      int column =
+          cellReference != null ? new CellReference(cellReference).getCol() : cellList.size();
+      while (cellList.size() < column) {
+        cellList.add(null);
+      }
+      cellList.add(formattedValue);
+    }
+
+    @Override
+    public void headerFooter(String text, boolean isHeader, String tagName) {}
+  }
+
+  /** Carries the exception of the row handler out of the parser. */
+  protected static class RowHandlerException extends RuntimeException {
+
+    protected RowHandlerException(Exception cause) {
+      super(cause);
+    }
+  }
+}
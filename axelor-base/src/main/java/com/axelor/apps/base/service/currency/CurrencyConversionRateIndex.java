@@ -0,0 +1,171 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.currency;
+
+import com.axelor.apps.base.db.CurrencyConversionLine;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of the currency conversion lines, by start and end currency ISO codes. The
+ * validity periods of each currency pair are sorted by start date so the rate at a date is found
+ * with a binary search. Periods of a same pair are expected not to overlap, as checked by {@link
+ * com.axelor.apps.base.service.CurrencyService#checkOverLappingPeriod}: if they do, the first line
+ * of the list valid at the date is used, as when scanning the list.
+ */
+public class CurrencyConversionRateIndex {
+
+  protected final Map<String, Map<String, RatePeriods>> rateMap;
+
+  protected CurrencyConversionRateIndex(Map<String, Map<String, RatePeriods>> rateMap) {
+    this.rateMap = rateMap;
+  }
+
+  public static CurrencyConversionRateIndex of(List<CurrencyConversionLine> lineList) {
+
+    Map<String, Map<String, List<CurrencyConversionLine>>> lineMap = new HashMap<>();
+
+    if (lineList != null) {
+      for (CurrencyConversionLine line : lineList) {
+        if (line.getStartCurrency() == null
+            || line.getEndCurrency() == null
+            || line.getFromDate() == null) {
+          continue;
+        }
+        lineMap
+            .computeIfAbsent(line.getStartCurrency().getCodeISO(), code -> new HashMap<>())
+            .computeIfAbsent(line.getEndCurrency().getCodeISO(), code -> new ArrayList<>())
+            .add(line);
+      }
+    }
+
+    Map<String, Map<String, RatePeriods>> rateMap = new HashMap<>();
+    lineMap.forEach(
+        (startCode, endCodeMap) -> {
+          Map<String, RatePeriods> periodsMap = new HashMap<>();
+          endCodeMap.forEach((endCode, lines) -> periodsMap.put(endCode, new RatePeriods(lines)));
+          rateMap.put(startCode, periodsMap);
+        });
+
+    return new CurrencyConversionRateIndex(rateMap);
+  }
+
+  /**
+   * Find the conversion rate between two currencies at a date.
+   *
+   * @param startCode ISO code of the start currency
+   * @param endCode ISO code of the end currency
+   * @param date the date
+   * @return the rate valid at this date, or null if there is no conversion line for this date
+   */
+  public Rate find(String startCode, String endCode, LocalDate date) {
+    Map<String, RatePeriods> periodsMap = rateMap.get(startCode);
+    if (periodsMap == null || date == null) {
+      return null;
+    }
+    RatePeriods ratePeriods = periodsMap.get(endCode);
+    return ratePeriods != null ? ratePeriods.find(date) : null;
+  }
+
+  protected static class RatePeriods {
+
+    /** Rates in the order of the conversion line list. */
+    protected final Rate[] listedRates;
+
+    protected final LocalDate[] fromDates;
+    protected final Rate[] rates;
+    protected final boolean overlapping;
+
+    protected RatePeriods(List<CurrencyConversionLine> lineList) {
+      listedRates = new Rate[lineList.size()];
+      for (int i = 0; i < lineList.size(); i++) {
+        CurrencyConversionLine line = lineList.get(i);
+        listedRates[i] =
+            new Rate(line.getId(), line.getExchangeRate(), line.getFromDate(), line.getToDate());
+      }
+
+      rates = listedRates.clone();
+      Arrays.sort(rates, Comparator.comparing(rate -> rate.fromDate));
+      fromDates = new LocalDate[rates.length];
+      boolean hasOverlap = false;
+      for (int i = 0; i < rates.length; i++) {
+        fromDates[i] = rates[i].fromDate;
+        hasOverlap |= i > 0 && rates[i - 1].contains(rates[i].fromDate);
+      }
+      overlapping = hasOverlap;
+    }
+
+    protected Rate find(LocalDate date) {
+      if (overlapping) {
+        return Arrays.stream(listedRates)
+            .filter(rate -> rate.contains(date))
+            .findFirst()
+            .orElse(null);
+      }
+
+      int index = Arrays.binarySearch(fromDates, date);
+      if (index < 0) {
+        // Last period starting before the date
+        index = -index - 2;
+      }
+      if (index < 0) {
+        return null;
+      }
+      Rate rate = rates[index];
+      return rate.contains(date) ? rate : null;
+    }
+  }
+
+  public static class Rate {
+
+    protected final Long currencyConversionLineId;
+    protected final BigDecimal exchangeRate;
+    protected final LocalDate fromDate;
+    protected final LocalDate toDate;
+
+    protected Rate(
+        Long currencyConversionLineId,
+        BigDecimal exchangeRate,
+        LocalDate fromDate,
+        LocalDate toDate) {
+      this.currencyConversionLineId = currencyConversionLineId;
+      this.exchangeRate = exchangeRate;
+      this.fromDate = fromDate;
+      this.toDate = toDate;
+    }
+
+    protected boolean contains(LocalDate date) {
+      return !fromDate.isAfter(date) && (toDate == null || !toDate.isBefore(date));
+    }
+
+    public Long getCurrencyConversionLineId() {
+      return currencyConversionLineId;
+    }
+
+    public BigDecimal getExchangeRate() {
+      return exchangeRate;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.currency;
+
+public interface CurrencyConversionRateIndexService {
+
+  /**
+   * Get the index of the currency conversion lines of the application, built on first call.
+   *
+   * @return the current index
+   */
+  CurrencyConversionRateIndex getIndex();
+
+  /**
+   * Drop the current index once the current transaction is committed, it will be built again on
+   * next call of {@link #getIndex()}. Indexes built until then are not kept.
+   */
+  void invalidate();
+}
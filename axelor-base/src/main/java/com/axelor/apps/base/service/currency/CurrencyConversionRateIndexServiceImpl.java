@@ -0,0 +1,63 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.currency;
+
+import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.base.utils.CacheGuard;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+@Singleton
+public class CurrencyConversionRateIndexServiceImpl implements CurrencyConversionRateIndexService {
+
+  protected AppBaseService appBaseService;
+
+  protected volatile CurrencyConversionRateIndex index;
+  protected final CacheGuard cacheGuard = new CacheGuard();
+
+  @Inject
+  public CurrencyConversionRateIndexServiceImpl(AppBaseService appBaseService) {
+    this.appBaseService = appBaseService;
+  }
+
+  @Override
+  public CurrencyConversionRateIndex getIndex() {
+    CurrencyConversionRateIndex currentIndex = index;
+    if (currentIndex != null) {
+      return currentIndex;
+    }
+
+    long generation = cacheGuard.getGeneration();
+    CurrencyConversionRateIndex loadedIndex =
+        CurrencyConversionRateIndex.of(appBaseService.getCurrencyConfigurationLineList());
+    cacheGuard.store(
+        generation,
+        () -> {
+          if (index == null) {
+            index = loadedIndex;
+          }
+        });
+    return loadedIndex;
+  }
+
+  @Override
+  public void invalidate() {
+    cacheGuard.onChange(() -> index = null);
+  }
+}
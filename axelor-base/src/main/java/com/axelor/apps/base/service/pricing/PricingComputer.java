@@ -22,6 +22,7 @@ import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.Pricing;
 import com.axelor.apps.base.db.PricingLine;
 import com.axelor.apps.base.db.PricingRule;
+import com.axelor.apps.base.db.repo.PricingLineRepository;
 import com.axelor.apps.base.db.repo.PricingRuleRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.exceptions.BaseExceptionMessage;
@@ -43,8 +44,10 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -60,12 +63,29 @@ public class PricingComputer extends AbstractObservablePricing {
   private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
   protected PricingService pricingService;
+  protected PricingLineIndexService pricingLineIndexService;
+  protected PricingLineRepository pricingLineRepository;
+
+  protected GroovyScriptHelper scriptHelper;
 
   protected PricingComputer(Context context, Pricing pricing, Model model) {
     this.context = Objects.requireNonNull(context);
     this.pricing = Objects.requireNonNull(pricing);
     this.model = Objects.requireNonNull(model);
     this.pricingService = Beans.get(PricingService.class);
+    this.pricingLineIndexService = Beans.get(PricingLineIndexService.class);
+    this.pricingLineRepository = Beans.get(PricingLineRepository.class);
+  }
+
+  /**
+   * Get the script helper of the context, shared by every formula evaluated by this instance so
+   * values put in the context are seen by the next formulas.
+   */
+  protected GroovyScriptHelper getScriptHelper() {
+    if (scriptHelper == null) {
+      scriptHelper = new GroovyScriptHelper(context);
+    }
+    return scriptHelper;
   }
 
   /**
@@ -198,7 +218,7 @@ public class PricingComputer extends AbstractObservablePricing {
       throws AxelorException {
     Objects.requireNonNull(pricingLine);
 
-    GroovyScriptHelper scriptHelper = new GroovyScriptHelper(context);
+    GroovyScriptHelper scriptHelper = getScriptHelper();
 
     List<PricingRule> resultPricingRuleList = new ArrayList<>();
     resultPricingRuleList.add(pricing.getResult1PricingRule());
@@ -292,7 +312,7 @@ public class PricingComputer extends AbstractObservablePricing {
     }
     Objects.requireNonNull(pricing);
 
-    GroovyScriptHelper scriptHelper = new GroovyScriptHelper(context);
+    GroovyScriptHelper scriptHelper = getScriptHelper();
 
     return searchPricingLine(
         pricing,
@@ -353,6 +373,51 @@ public class PricingComputer extends AbstractObservablePricing {
   }
 
   protected List<PricingLine> searchPricingLine(Pricing pricing, Object[] ruleValues) {
+    if (pricing.getId() == null) {
+      return searchPricingLineInList(pricing, ruleValues);
+    }
+
+    int ruleCount = ruleValues.length;
+    while (ruleCount > 0 && ruleValues[ruleCount - 1] == null) {
+      ruleCount--;
+    }
+    if (ruleCount == 0) {
+      return Collections.emptyList();
+    }
+
+    List<Integer[]> fieldTypeAndOpList = getFieldTypeAndOperator(pricing);
+    int[] fieldTypes = new int[ruleCount];
+    int[] operators = new int[ruleCount];
+    for (int i = 0; i < ruleCount; i++) {
+      fieldTypes[i] = fieldTypeAndOpList.get(i)[0];
+      operators[i] = fieldTypeAndOpList.get(i)[1];
+    }
+
+    List<Long> pricingLineIdList =
+        pricingLineIndexService
+            .getIndex(pricing)
+            .findPricingLineIds(fieldTypes, operators, Arrays.copyOf(ruleValues, ruleCount));
+    if (pricingLineIdList.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    // Load the matching lines at once, keeping the order of the index
+    Map<Long, PricingLine> pricingLineMap =
+        pricingLineRepository
+            .all()
+            .filter("self.id IN :pricingLineIdList")
+            .bind("pricingLineIdList", pricingLineIdList)
+            .fetch()
+            .stream()
+            .collect(Collectors.toMap(PricingLine::getId, Function.identity()));
+    return pricingLineIdList.stream()
+        .map(pricingLineMap::get)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /** Search the matching pricing lines by filtering the pricing line list of an unsaved pricing. */
+  protected List<PricingLine> searchPricingLineInList(Pricing pricing, Object[] ruleValues) {
     Object ruleValue1 = ruleValues[0];
     Object ruleValue2 = ruleValues[1];
     Object ruleValue3 = ruleValues[2];
@@ -0,0 +1,317 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.pricing;
+
+import com.axelor.apps.base.db.repo.PricingRuleRepository;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable index of the pricing lines of a pricing. For each of the four classification params,
+ * lines are grouped by string param and sorted by integer and decimal params, so the lines matching
+ * the classification rules are found with a hash lookup or a binary search instead of scanning the
+ * whole scale. Matched lines are returned in the order given by the successive sorts and filters of
+ * {@link PricingComputer}.
+ */
+public class PricingLineIndex {
+
+  protected static final int PARAM_COUNT = 4;
+
+  protected final Integer pricingVersion;
+  protected final long[] ids;
+  protected final String[][] strParams;
+  protected final int[][] intParams;
+  protected final BigDecimal[][] decParams;
+
+  protected final List<Map<String, int[]>> strPositionMapList = new ArrayList<>();
+  protected final int[][] intSortedPositions = new int[PARAM_COUNT][];
+  protected final int[][] decSortedPositions = new int[PARAM_COUNT][];
+
+  protected PricingLineIndex(
+      Integer pricingVersion,
+      long[] ids,
+      String[][] strParams,
+      int[][] intParams,
+      BigDecimal[][] decParams) {
+    this.pricingVersion = pricingVersion;
+    this.ids = ids;
+    this.strParams = strParams;
+    this.intParams = intParams;
+    this.decParams = decParams;
+
+    for (int param = 0; param < PARAM_COUNT; param++) {
+      int[] paramInts = intParams[param];
+      BigDecimal[] paramDecs = decParams[param];
+      intSortedPositions[param] =
+          sortPositions(Comparator.comparingInt(position -> paramInts[position]));
+      decSortedPositions[param] =
+          sortPositions(Comparator.comparing(position -> paramDecs[position]));
+      strPositionMapList.add(groupPositions(strParams[param]));
+    }
+  }
+
+  /**
+   * Build the index from rows of pricing lines, given in the order of the pricing line list.
+   *
+   * @param pricingVersion the version of the pricing the lines belong to
+   * @param rows rows of id, classification params 1 to 4, classification integer params 1 to 4
+   *     and classification decimal params 1 to 4
+   */
+  public static PricingLineIndex of(Integer pricingVersion, List<Object[]> rows) {
+    int size = rows.size();
+    long[] ids = new long[size];
+    String[][] strParams = new String[PARAM_COUNT][size];
+    int[][] intParams = new int[PARAM_COUNT][size];
+    BigDecimal[][] decParams = new BigDecimal[PARAM_COUNT][size];
+
+    for (int position = 0; position < size; position++) {
+      Object[] row = rows.get(position);
+      ids[position] = (Long) row[0];
+      for (int param = 0; param < PARAM_COUNT; param++) {
+        Integer intParam = (Integer) row[1 + PARAM_COUNT + param];
+        BigDecimal decParam = (BigDecimal) row[1 + 2 * PARAM_COUNT + param];
+        strParams[param][position] = (String) row[1 + param];
+        intParams[param][position] = intParam != null ? intParam : 0;
+        decParams[param][position] = decParam != null ? decParam : BigDecimal.ZERO;
+      }
+    }
+    return new PricingLineIndex(pricingVersion, ids, strParams, intParams, decParams);
+  }
+
+  public Integer getPricingVersion() {
+    return pricingVersion;
+  }
+
+  /**
+   * Find the pricing lines matching every given classification rule.
+   *
+   * @param fieldTypes field type of each classification rule, see {@link PricingRuleRepository}
+   * @param operators operator of each classification rule, see {@link PricingRuleRepository}
+   * @param ruleValues computed value of each classification rule
+   * @return ids of the matching pricing lines, in order of priority
+   */
+  public List<Long> findPricingLineIds(int[] fieldTypes, int[] operators, Object[] ruleValues) {
+    int ruleCount = ruleValues.length;
+    Object[] targets = new Object[ruleCount];
+    for (int param = 0; param < ruleCount; param++) {
+      targets[param] = getTarget(fieldTypes[param], ruleValues[param]);
+      if (targets[param] == null) {
+        return new ArrayList<>();
+      }
+    }
+
+    int[] candidates = null;
+    int from = 0;
+    int to = 0;
+    for (int param = 0; param < ruleCount; param++) {
+      int[] positions = getPositions(param, fieldTypes[param], targets[param]);
+      int[] range = getRange(param, fieldTypes[param], operators[param], targets[param]);
+      if (candidates == null || range[1] - range[0] < to - from) {
+        candidates = positions;
+        from = range[0];
+        to = range[1];
+      }
+    }
+
+    List<Integer> matchedPositions = new ArrayList<>();
+    for (int i = from; i < to; i++) {
+      int position = candidates[i];
+      boolean matched = true;
+      for (int param = 0; param < ruleCount && matched; param++) {
+        matched = matches(param, fieldTypes[param], operators[param], targets[param], position);
+      }
+      if (matched) {
+        matchedPositions.add(position);
+      }
+    }
+
+    matchedPositions.sort(getPriorityComparator(fieldTypes, operators, ruleCount));
+
+    List<Long> pricingLineIds = new ArrayList<>();
+    for (Integer position : matchedPositions) {
+      pricingLineIds.add(ids[position]);
+    }
+    return pricingLineIds;
+  }
+
+  protected Object getTarget(int fieldType, Object ruleValue) {
+    if (ruleValue == null) {
+      return null;
+    }
+    switch (fieldType) {
+      case PricingRuleRepository.FIELD_TYPE_INTEGER:
+        return new BigDecimal(ruleValue.toString()).intValue();
+
+      case PricingRuleRepository.FIELD_TYPE_DECIMAL:
+        return (BigDecimal) ruleValue;
+
+      default:
+        return ruleValue.toString();
+    }
+  }
+
+  protected int[] getPositions(int param, int fieldType, Object target) {
+    switch (fieldType) {
+      case PricingRuleRepository.FIELD_TYPE_INTEGER:
+        return intSortedPositions[param];
+
+      case PricingRuleRepository.FIELD_TYPE_DECIMAL:
+        return decSortedPositions[param];
+
+      default:
+        return strPositionMapList.get(param).getOrDefault(target, new int[0]);
+    }
+  }
+
+  /**
+   * Get the range, within the positions given by {@link #getPositions}, of the lines matching the
+   * rule. String params are grouped by value, so the whole group of the target matches.
+   */
+  protected int[] getRange(int param, int fieldType, int operator, Object target) {
+    if (fieldType != PricingRuleRepository.FIELD_TYPE_INTEGER
+        && fieldType != PricingRuleRepository.FIELD_TYPE_DECIMAL) {
+      return new int[] {0, getPositions(param, fieldType, target).length};
+    }
+
+    int lower = searchFirst(param, fieldType, target, false);
+    int upper = searchFirst(param, fieldType, target, true);
+    switch (operator) {
+      case PricingRuleRepository.OPERATOR_LESS_THAN:
+        return new int[] {0, lower};
+
+      case PricingRuleRepository.OPERATOR_GREATER_THAN:
+        return new int[] {upper, ids.length};
+
+      default:
+        return new int[] {lower, upper};
+    }
+  }
+
+  /**
+   * Binary search of the first sorted position whose param is greater than the target, or greater
+   * or equal when strict is false.
+   */
+  protected int searchFirst(int param, int fieldType, Object target, boolean strict) {
+    int[] positions = getPositions(param, fieldType, target);
+    int low = 0;
+    int high = positions.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compareParam(param, fieldType, positions[middle], target);
+      if (comparison < 0 || (strict && comparison == 0)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  protected int compareParam(int param, int fieldType, int position, Object target) {
+    if (fieldType == PricingRuleRepository.FIELD_TYPE_INTEGER) {
+      return Integer.compare(intParams[param][position], (Integer) target);
+    }
+    return decParams[param][position].compareTo((BigDecimal) target);
+  }
+
+  protected boolean matches(int param, int fieldType, int operator, Object target, int position) {
+    if (fieldType != PricingRuleRepository.FIELD_TYPE_INTEGER
+        && fieldType != PricingRuleRepository.FIELD_TYPE_DECIMAL) {
+      return target.equals(strParams[param][position]);
+    }
+
+    int comparison = compareParam(param, fieldType, position, target);
+    switch (operator) {
+      case PricingRuleRepository.OPERATOR_LESS_THAN:
+        return comparison < 0;
+
+      case PricingRuleRepository.OPERATOR_GREATER_THAN:
+        return comparison > 0;
+
+      default:
+        return comparison == 0;
+    }
+  }
+
+  /**
+   * Lines are sorted on the param of each classification rule with a less than or greater than
+   * operator, the last rule being the most significant, then on their position in the scale.
+   */
+  protected Comparator<Integer> getPriorityComparator(
+      int[] fieldTypes, int[] operators, int ruleCount) {
+    Comparator<Integer> comparator = null;
+    for (int param = ruleCount - 1; param >= 0; param--) {
+      Comparator<Integer> paramComparator = getParamComparator(param, fieldTypes[param]);
+      if (paramComparator == null) {
+        continue;
+      }
+      if (operators[param] == PricingRuleRepository.OPERATOR_LESS_THAN) {
+        paramComparator = paramComparator.reversed();
+      } else if (operators[param] != PricingRuleRepository.OPERATOR_GREATER_THAN) {
+        continue;
+      }
+      comparator = comparator == null ? paramComparator : comparator.thenComparing(paramComparator);
+    }
+    Comparator<Integer> positionComparator = Comparator.naturalOrder();
+    return comparator == null ? positionComparator : comparator.thenComparing(positionComparator);
+  }
+
+  protected Comparator<Integer> getParamComparator(int param, int fieldType) {
+    int[] paramInts = intParams[param];
+    BigDecimal[] paramDecs = decParams[param];
+    switch (fieldType) {
+      case PricingRuleRepository.FIELD_TYPE_INTEGER:
+        return Comparator.comparingInt(position -> paramInts[position]);
+
+      case PricingRuleRepository.FIELD_TYPE_DECIMAL:
+        return Comparator.comparing(position -> paramDecs[position]);
+
+      default:
+        return null;
+    }
+  }
+
+  protected int[] sortPositions(Comparator<Integer> comparator) {
+    return IntStream.range(0, ids.length)
+        .boxed()
+        .sorted(comparator)
+        .mapToInt(Integer::intValue)
+        .toArray();
+  }
+
+  protected static Map<String, int[]> groupPositions(String[] params) {
+    Map<String, List<Integer>> positionListMap = new HashMap<>();
+    for (int position = 0; position < params.length; position++) {
+      if (params[position] != null) {
+        positionListMap.computeIfAbsent(params[position], key -> new ArrayList<>()).add(position);
+      }
+    }
+
+    Map<String, int[]> positionMap = new HashMap<>();
+    positionListMap.forEach(
+        (key, positionList) ->
+            positionMap.put(key, positionList.stream().mapToInt(Integer::intValue).toArray()));
+    return positionMap;
+  }
+}
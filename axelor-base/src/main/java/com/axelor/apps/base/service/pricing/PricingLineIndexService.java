@@ -0,0 +1,41 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.pricing;
+
+import com.axelor.apps.base.db.Pricing;
+
+public interface PricingLineIndexService {
+
+  /**
+   * Get the index of the pricing lines of the given pricing, built on first call and rebuilt when
+   * the version of the pricing changed.
+   *
+   * @param pricing a saved pricing
+   * @return the current index of the pricing lines
+   */
+  PricingLineIndex getIndex(Pricing pricing);
+
+  /**
+   * Drop the index of the given pricing once the current transaction is committed, it will be built
+   * again on next call of {@link #getIndex(Pricing)}.
+   *
+   * @param pricingId id of the pricing
+   */
+  void invalidate(Long pricingId);
+}
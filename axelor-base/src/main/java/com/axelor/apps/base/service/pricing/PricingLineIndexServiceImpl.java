@@ -0,0 +1,73 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.pricing;
+
+import com.axelor.apps.base.db.Pricing;
+import com.axelor.apps.base.utils.CacheGuard;
+import com.axelor.db.JPA;
+import com.google.inject.Singleton;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Singleton
+public class PricingLineIndexServiceImpl implements PricingLineIndexService {
+
+  protected final Map<Long, PricingLineIndex> indexMap = new ConcurrentHashMap<>();
+  protected final CacheGuard cacheGuard = new CacheGuard();
+
+  @Override
+  public PricingLineIndex getIndex(Pricing pricing) {
+    Long pricingId = Objects.requireNonNull(pricing.getId());
+    PricingLineIndex index = indexMap.get(pricingId);
+    if (index != null && Objects.equals(index.getPricingVersion(), pricing.getVersion())) {
+      return index;
+    }
+
+    long generation = cacheGuard.getGeneration();
+    PricingLineIndex loadedIndex =
+        PricingLineIndex.of(pricing.getVersion(), fetchPricingLineRowList(pricingId));
+    cacheGuard.store(generation, () -> indexMap.put(pricingId, loadedIndex));
+    return loadedIndex;
+  }
+
+  @Override
+  public void invalidate(Long pricingId) {
+    if (pricingId != null) {
+      cacheGuard.onChange(() -> indexMap.remove(pricingId));
+    }
+  }
+
+  protected List<Object[]> fetchPricingLineRowList(Long pricingId) {
+    return JPA.em()
+        .createQuery(
+            "SELECT self.id, "
+                + "self.classificationParam1, self.classificationParam2, "
+                + "self.classificationParam3, self.classificationParam4, "
+                + "self.classificationIntParam1, self.classificationIntParam2, "
+                + "self.classificationIntParam3, self.classificationIntParam4, "
+                + "self.classificationDecParam1, self.classificationDecParam2, "
+                + "self.classificationDecParam3, self.classificationDecParam4 "
+                + "FROM PricingLine self WHERE self.pricing.id = :pricingId ORDER BY self.id",
+            Object[].class)
+        .setParameter("pricingId", pricingId)
+        .getResultList();
+  }
+}
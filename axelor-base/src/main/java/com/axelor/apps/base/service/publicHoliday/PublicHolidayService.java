@@ -23,25 +23,27 @@ import com.axelor.apps.base.db.EventsPlanningLine;
 import com.axelor.apps.base.db.WeeklyPlanning;
 import com.axelor.apps.base.db.repo.EventsPlanningLineRepository;
 import com.axelor.apps.base.service.weeklyplanning.WeeklyPlanningService;
-import com.axelor.common.ObjectUtils;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendarService;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.List;
 
 public class PublicHolidayService {
 
   protected WeeklyPlanningService weeklyPlanningService;
   protected EventsPlanningLineRepository eventsPlanningLineRepo;
+  protected WorkingCalendarService workingCalendarService;
 
   @Inject
   public PublicHolidayService(
       WeeklyPlanningService weeklyPlanningService,
-      EventsPlanningLineRepository eventsPlanningLineRepo) {
+      EventsPlanningLineRepository eventsPlanningLineRepo,
+      WorkingCalendarService workingCalendarService) {
 
     this.weeklyPlanningService = weeklyPlanningService;
     this.eventsPlanningLineRepo = eventsPlanningLineRepo;
+    this.workingCalendarService = workingCalendarService;
   }
 
   public BigDecimal computePublicHolidayDays(
@@ -49,25 +51,9 @@ public class PublicHolidayService {
       LocalDate toDate,
       WeeklyPlanning weeklyPlanning,
       EventsPlanning publicHolidayPlanning) {
-    BigDecimal publicHolidayDays = BigDecimal.ZERO;
-
-    List<EventsPlanningLine> publicHolidayDayList =
-        eventsPlanningLineRepo
-            .all()
-            .filter(
-                "self.eventsPlanning = ?1 AND self.date BETWEEN ?2 AND ?3",
-                publicHolidayPlanning,
-                fromDate,
-                toDate)
-            .fetch();
-    for (EventsPlanningLine publicHolidayDay : publicHolidayDayList) {
-      publicHolidayDays =
-          publicHolidayDays.add(
-              BigDecimal.valueOf(
-                  weeklyPlanningService.getWorkingDayValueInDays(
-                      weeklyPlanning, publicHolidayDay.getDate())));
-    }
-    return publicHolidayDays;
+    return workingCalendarService
+        .getWorkingCalendar(weeklyPlanning, publicHolidayPlanning)
+        .getPublicHolidayDays(fromDate, toDate);
   }
 
   /**
@@ -83,13 +69,9 @@ public class PublicHolidayService {
       return false;
     }
 
-    List<EventsPlanningLine> publicHolidayDayList =
-        eventsPlanningLineRepo
-            .all()
-            .filter(
-                "self.eventsPlanning = ?1 AND self.date = ?2", publicHolidayEventsPlanning, date)
-            .fetch();
-    return ObjectUtils.notEmpty(publicHolidayDayList);
+    return workingCalendarService
+        .getWorkingCalendar(null, publicHolidayEventsPlanning)
+        .isPublicHoliday(date);
   }
 
   @Transactional
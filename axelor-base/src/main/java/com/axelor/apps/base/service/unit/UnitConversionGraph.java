@@ -0,0 +1,241 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.unit;
+
+import com.axelor.apps.base.db.UnitConversion;
+import com.axelor.apps.base.db.repo.UnitConversionRepository;
+import groovy.lang.GroovyShell;
+import groovy.lang.Script;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.codehaus.groovy.control.CompilerConfiguration;
+import org.codehaus.groovy.control.customizers.ImportCustomizer;
+
+/**
+ * Immutable graph of unit conversions, by start and end unit ids. Each conversion is stored in
+ * both directions, in the order of the conversion list, so the conversions between two units are
+ * found with a hash lookup. Units without a conversion between them are linked through the
+ * shortest path of conversions, searched once per pair of units.
+ */
+public class UnitConversionGraph {
+
+  /** Name of the script variable holding the context of the formulas. */
+  public static final String CONTEXT_VARIABLE = "_context";
+
+  protected static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$([A-Za-z_][\\w.]*)\\$");
+
+  protected final Map<Long, Map<Long, List<Conversion>>> conversionMap;
+
+  protected final Map<List<Object>, List<Long>> pathMap = new ConcurrentHashMap<>();
+
+  protected UnitConversionGraph(Map<Long, Map<Long, List<Conversion>>> conversionMap) {
+    this.conversionMap = conversionMap;
+  }
+
+  public static UnitConversionGraph of(List<UnitConversion> unitConversionList) {
+    Map<Long, Map<Long, List<Conversion>>> conversionMap = new HashMap<>();
+
+    for (UnitConversion unitConversion : unitConversionList) {
+      if (unitConversion.getStartUnit() == null || unitConversion.getEndUnit() == null) {
+        continue;
+      }
+      Long startUnitId = unitConversion.getStartUnit().getId();
+      Long endUnitId = unitConversion.getEndUnit().getId();
+      addConversion(conversionMap, startUnitId, endUnitId, new Conversion(unitConversion, false));
+      addConversion(conversionMap, endUnitId, startUnitId, new Conversion(unitConversion, true));
+    }
+    return new UnitConversionGraph(conversionMap);
+  }
+
+  protected static void addConversion(
+      Map<Long, Map<Long, List<Conversion>>> conversionMap,
+      Long startUnitId,
+      Long endUnitId,
+      Conversion conversion) {
+    conversionMap
+        .computeIfAbsent(startUnitId, id -> new LinkedHashMap<>())
+        .computeIfAbsent(endUnitId, id -> new ArrayList<>())
+        .add(conversion);
+  }
+
+  /**
+   * Get the conversions from a unit to another, in the order of the conversion list.
+   *
+   * @return the conversions, inverse ones included, or an empty list
+   */
+  public List<Conversion> getConversionList(Long startUnitId, Long endUnitId) {
+    return conversionMap
+        .getOrDefault(startUnitId, Collections.emptyMap())
+        .getOrDefault(endUnitId, Collections.emptyList());
+  }
+
+  /**
+   * Find the shortest path of conversions from a unit to another.
+   *
+   * @param startUnitId the id of the start unit
+   * @param endUnitId the id of the end unit
+   * @param withFormulas whether formula conversions can be used
+   * @return the ids of the units of the path, start and end units included, or null if the units
+   *     are not linked
+   */
+  public List<Long> findPath(Long startUnitId, Long endUnitId, boolean withFormulas) {
+    if (startUnitId == null || endUnitId == null || startUnitId.equals(endUnitId)) {
+      return null;
+    }
+    List<Long> path =
+        pathMap.computeIfAbsent(
+            Arrays.asList(startUnitId, endUnitId, withFormulas),
+            key -> searchPath(startUnitId, endUnitId, withFormulas));
+    return path.isEmpty() ? null : path;
+  }
+
+  /** Breadth-first search of the shortest path, empty if the units are not linked. */
+  protected List<Long> searchPath(Long startUnitId, Long endUnitId, boolean withFormulas) {
+    Map<Long, Long> previousUnitMap = new HashMap<>();
+    Deque<Long> unitQueue = new ArrayDeque<>();
+    previousUnitMap.put(startUnitId, startUnitId);
+    unitQueue.add(startUnitId);
+
+    while (!unitQueue.isEmpty()) {
+      Long unitId = unitQueue.poll();
+      for (Map.Entry<Long, List<Conversion>> entry :
+          conversionMap.getOrDefault(unitId, Collections.emptyMap()).entrySet()) {
+        Long nextUnitId = entry.getKey();
+        if (previousUnitMap.containsKey(nextUnitId) || !isLinked(entry.getValue(), withFormulas)) {
+          continue;
+        }
+        previousUnitMap.put(nextUnitId, unitId);
+        if (nextUnitId.equals(endUnitId)) {
+          List<Long> path = new ArrayList<>();
+          for (Long id = endUnitId; !id.equals(startUnitId); id = previousUnitMap.get(id)) {
+            path.add(id);
+          }
+          path.add(startUnitId);
+          Collections.reverse(path);
+          return path;
+        }
+        unitQueue.add(nextUnitId);
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  protected boolean isLinked(List<Conversion> conversionList, boolean withFormulas) {
+    return conversionList.stream().anyMatch(conversion -> conversion.isUsable(withFormulas));
+  }
+
+  /** A unit conversion, in its own direction or in the inverse one. */
+  public static class Conversion {
+
+    protected final boolean formula;
+    protected final BigDecimal coef;
+    protected final String template;
+    protected final boolean inverse;
+
+    protected final Map<String, Optional<Class<? extends Script>>> scriptClassMap =
+        new ConcurrentHashMap<>();
+
+    protected Conversion(UnitConversion unitConversion, boolean inverse) {
+      this.formula = unitConversion.getTypeSelect() != UnitConversionRepository.TYPE_COEFF;
+      this.coef = unitConversion.getCoef();
+      this.template = unitConversion.getFormula();
+      this.inverse = inverse;
+    }
+
+    public boolean isFormula() {
+      return formula;
+    }
+
+    public BigDecimal getCoef() {
+      return coef;
+    }
+
+    public String getTemplate() {
+      return template;
+    }
+
+    public boolean isInverse() {
+      return inverse;
+    }
+
+    /**
+     * Whether the conversion can give a coefficient: formulas need a context, and an inverse
+     * coefficient must not be zero.
+     */
+    public boolean isUsable(boolean withFormulas) {
+      return formula ? withFormulas : !inverse || coef.signum() != 0;
+    }
+
+    /**
+     * Get the script of the formula, compiled on first call. Each placeholder of the template
+     * reading a property of the context, such as {@code $Product.netMass$}, is replaced by the
+     * property read on the {@link #CONTEXT_VARIABLE} variable of the script.
+     *
+     * @param nameInContext the name of the context in the template
+     * @return the compiled script class, or null if the template uses other placeholders and must
+     *     be rendered before each evaluation
+     */
+    public Class<? extends Script> getScriptClass(String nameInContext) {
+      Optional<Class<? extends Script>> scriptClass = scriptClassMap.get(nameInContext);
+      if (scriptClass == null) {
+        scriptClass = compile(nameInContext);
+        scriptClassMap.put(nameInContext, scriptClass);
+      }
+      return scriptClass.orElse(null);
+    }
+
+    protected Optional<Class<? extends Script>> compile(String nameInContext) {
+      if (template == null) {
+        return Optional.empty();
+      }
+      Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+      StringBuffer script = new StringBuffer();
+      while (matcher.find()) {
+        String property = matcher.group(1);
+        if (!property.equals(nameInContext) && !property.startsWith(nameInContext + ".")) {
+          return Optional.empty();
+        }
+        String variable = CONTEXT_VARIABLE + property.substring(nameInContext.length());
+        matcher.appendReplacement(script, Matcher.quoteReplacement("(" + variable + ")"));
+      }
+      matcher.appendTail(script);
+      if (script.indexOf("$") >= 0) {
+        return Optional.empty();
+      }
+
+      CompilerConfiguration conf = new CompilerConfiguration();
+      ImportCustomizer customizer = new ImportCustomizer();
+      customizer.addStaticStars("java.lang.Math");
+      conf.addCompilationCustomizers(customizer);
+      return Optional.of(new GroovyShell(conf).parse(script.toString()).getClass());
+    }
+  }
+}
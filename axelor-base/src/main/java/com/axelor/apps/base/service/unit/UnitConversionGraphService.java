@@ -0,0 +1,38 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.unit;
+
+public interface UnitConversionGraphService {
+
+  /**
+   * Get the graph of the unit conversions of the given entity, built on first call and kept until
+   * a unit conversion is saved.
+   *
+   * @param entitySelect the entity of the conversions, see {@link
+   *     com.axelor.apps.base.db.repo.UnitConversionRepository}
+   * @return the current graph
+   */
+  UnitConversionGraph getGraph(int entitySelect);
+
+  /**
+   * Drop the current graphs once the current transaction is committed, they will be built again on
+   * next call of {@link #getGraph(int)}.
+   */
+  void invalidate();
+}
@@ -0,0 +1,65 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.unit;
+
+import com.axelor.apps.base.db.repo.UnitConversionRepository;
+import com.axelor.apps.base.utils.CacheGuard;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Singleton
+public class UnitConversionGraphServiceImpl implements UnitConversionGraphService {
+
+  protected UnitConversionRepository unitConversionRepo;
+
+  protected final Map<Integer, UnitConversionGraph> graphMap = new ConcurrentHashMap<>();
+  protected final CacheGuard cacheGuard = new CacheGuard();
+
+  @Inject
+  public UnitConversionGraphServiceImpl(UnitConversionRepository unitConversionRepo) {
+    this.unitConversionRepo = unitConversionRepo;
+  }
+
+  @Override
+  public UnitConversionGraph getGraph(int entitySelect) {
+    UnitConversionGraph graph = graphMap.get(entitySelect);
+    if (graph != null) {
+      return graph;
+    }
+
+    long generation = cacheGuard.getGeneration();
+    UnitConversionGraph loadedGraph =
+        UnitConversionGraph.of(
+            unitConversionRepo
+                .all()
+                .filter("self.entitySelect = :entitySelect")
+                .bind("entitySelect", entitySelect)
+                .order("id")
+                .fetch());
+    cacheGuard.store(generation, () -> graphMap.putIfAbsent(entitySelect, loadedGraph));
+    return loadedGraph;
+  }
+
+  @Override
+  public void invalidate() {
+    cacheGuard.onChange(graphMap::clear);
+  }
+}
@@ -0,0 +1,365 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.weeklyplanning;
+
+import com.axelor.apps.base.db.DayPlanning;
+import com.axelor.apps.base.db.WeeklyPlanning;
+import com.axelor.apps.base.db.repo.DayPlanningRepository;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Working time calendar compiled from a weekly planning and the public holidays of an events
+ * planning. The working periods are stored per day of week and the public holidays are sorted, so
+ * the working time of a date is read in constant time, while the working time over a date range
+ * and the end of a working duration are found with binary searches instead of iterating over days.
+ *
+ * <p>Days are indexed from monday (0) to sunday (6). Working time in hours is computed per day as
+ * in {@link WeeklyPlanningService#getWorkingDayValueInHours}.
+ */
+public class WorkingCalendar {
+
+  protected static final int DAYS_PER_WEEK = 7;
+
+  /** Epoch day of monday 1970-01-05, used to find the day of week of an epoch day. */
+  protected static final long MONDAY_EPOCH_DAY = 4;
+
+  protected static final BigDecimal ZERO_HOURS =
+      BigDecimal.ZERO.setScale(WeeklyPlanningServiceImp.DEFAULT_SCALE);
+
+  protected static final List<String> DAY_NAME_LIST =
+      Arrays.asList(
+          DayPlanningRepository.MONDAY,
+          DayPlanningRepository.TUESDAY,
+          DayPlanningRepository.WEDNESDAY,
+          DayPlanningRepository.THURSDAY,
+          DayPlanningRepository.FRIDAY,
+          DayPlanningRepository.SATURDAY,
+          DayPlanningRepository.SUNDAY);
+
+  /** Working periods of each day, as from and to seconds of the day. */
+  protected final int[][] dayPeriods = new int[DAYS_PER_WEEK][];
+
+  protected final LocalTime[] dayStartTimes = new LocalTime[DAYS_PER_WEEK];
+  protected final LocalTime[] dayEndTimes = new LocalTime[DAYS_PER_WEEK];
+  protected final long[] daySeconds = new long[DAYS_PER_WEEK];
+  protected final long[] weekSecondsPrefix = new long[DAYS_PER_WEEK + 1];
+  protected final BigDecimal[] dayHours = new BigDecimal[DAYS_PER_WEEK];
+  protected final BigDecimal[] dayValues = new BigDecimal[DAYS_PER_WEEK];
+
+  protected final Set<LocalDate> publicHolidaySet;
+
+  /** Sorted epoch days of the public holidays, per day of week. */
+  protected final long[][] publicHolidayEpochDays = new long[DAYS_PER_WEEK][];
+
+  /** Sorted epoch days of all the public holidays, with the sum of their working seconds. */
+  protected final long[] sortedPublicHolidayEpochDays;
+
+  protected final long[] publicHolidaySecondsPrefix;
+
+  /**
+   * @param dayTimes for each day from monday, its morning from, morning to, afternoon from and
+   *     afternoon to times, a day or a time being null when not worked
+   * @param publicHolidays the public holiday dates
+   */
+  public WorkingCalendar(LocalTime[][] dayTimes, Collection<LocalDate> publicHolidays) {
+    for (int day = 0; day < DAYS_PER_WEEK; day++) {
+      compileDay(day, dayTimes[day] != null ? dayTimes[day] : new LocalTime[4]);
+      weekSecondsPrefix[day + 1] = weekSecondsPrefix[day] + daySeconds[day];
+    }
+
+    publicHolidaySet = new HashSet<>(publicHolidays);
+    sortedPublicHolidayEpochDays =
+        publicHolidaySet.stream().mapToLong(LocalDate::toEpochDay).sorted().toArray();
+    publicHolidaySecondsPrefix = new long[sortedPublicHolidayEpochDays.length + 1];
+    for (int i = 0; i < sortedPublicHolidayEpochDays.length; i++) {
+      publicHolidaySecondsPrefix[i + 1] =
+          publicHolidaySecondsPrefix[i] + daySeconds[getDay(sortedPublicHolidayEpochDays[i])];
+    }
+    for (int day = 0; day < DAYS_PER_WEEK; day++) {
+      int dayOfWeek = day;
+      publicHolidayEpochDays[day] =
+          Arrays.stream(sortedPublicHolidayEpochDays)
+              .filter(epochDay -> getDay(epochDay) == dayOfWeek)
+              .toArray();
+    }
+  }
+
+  /**
+   * Compile the given weekly planning, each day of week being planned as the first day planning
+   * with its name.
+   */
+  public static WorkingCalendar of(
+      WeeklyPlanning weeklyPlanning, Collection<LocalDate> publicHolidays) {
+    LocalTime[][] dayTimes = new LocalTime[DAYS_PER_WEEK][];
+    if (weeklyPlanning != null && weeklyPlanning.getWeekDays() != null) {
+      for (DayPlanning dayPlanning : weeklyPlanning.getWeekDays()) {
+        int day = DAY_NAME_LIST.indexOf(dayPlanning.getNameSelect());
+        if (day >= 0 && dayTimes[day] == null) {
+          dayTimes[day] =
+              new LocalTime[] {
+                dayPlanning.getMorningFrom(),
+                dayPlanning.getMorningTo(),
+                dayPlanning.getAfternoonFrom(),
+                dayPlanning.getAfternoonTo()
+              };
+        }
+      }
+    }
+    return new WorkingCalendar(dayTimes, publicHolidays);
+  }
+
+  protected void compileDay(int day, LocalTime[] times) {
+    int[] periods = new int[0];
+    long minutes = 0;
+    double value = 0;
+    for (int period = 0; period < 2; period++) {
+      LocalTime from = times[2 * period];
+      LocalTime to = times[2 * period + 1];
+      if (from == null || to == null) {
+        continue;
+      }
+      value += 0.5;
+      minutes += ChronoUnit.MINUTES.between(from, to);
+      if (from.isBefore(to)) {
+        periods = Arrays.copyOf(periods, periods.length + 2);
+        periods[periods.length - 2] = from.toSecondOfDay();
+        periods[periods.length - 1] = to.toSecondOfDay();
+        daySeconds[day] += to.toSecondOfDay() - from.toSecondOfDay();
+        dayStartTimes[day] = dayStartTimes[day] != null ? dayStartTimes[day] : from;
+        dayEndTimes[day] = to;
+      }
+    }
+    dayPeriods[day] = periods;
+    dayValues[day] = BigDecimal.valueOf(value);
+    dayHours[day] =
+        BigDecimal.valueOf(minutes)
+            .divide(BigDecimal.valueOf(60), ZERO_HOURS.scale(), RoundingMode.HALF_UP);
+  }
+
+  protected static int getDay(long epochDay) {
+    return (int) Math.floorMod(epochDay - MONDAY_EPOCH_DAY, (long) DAYS_PER_WEEK);
+  }
+
+  public boolean isPublicHoliday(LocalDate date) {
+    return publicHolidaySet.contains(date);
+  }
+
+  /** Whether the date has a working period and is not a public holiday. */
+  public boolean isWorkingDay(LocalDate date) {
+    return daySeconds[getDay(date.toEpochDay())] > 0 && !isPublicHoliday(date);
+  }
+
+  /** Get the start of the first working period of the date in the weekly planning, or null. */
+  public LocalTime getStartTime(LocalDate date) {
+    return dayStartTimes[getDay(date.toEpochDay())];
+  }
+
+  /** Get the end of the last working period of the date in the weekly planning, or null. */
+  public LocalTime getEndTime(LocalDate date) {
+    return dayEndTimes[getDay(date.toEpochDay())];
+  }
+
+  /** Get the working hours of the date, zero on public holidays. */
+  public BigDecimal getWorkingHours(LocalDate date) {
+    return isPublicHoliday(date) ? ZERO_HOURS : getPlannedHours(date);
+  }
+
+  /** Get the working hours of the date in the weekly planning, ignoring public holidays. */
+  public BigDecimal getPlannedHours(LocalDate date) {
+    return dayHours[getDay(date.toEpochDay())];
+  }
+
+  /** Get the working value in days (0, 0.5 or 1) of the date in the weekly planning. */
+  public BigDecimal getPlannedDays(LocalDate date) {
+    return dayValues[getDay(date.toEpochDay())];
+  }
+
+  /** Get the working hours from the first to the last date, public holidays excluded. */
+  public BigDecimal getWorkingHours(LocalDate fromDate, LocalDate toDate) {
+    return sumPerDay(dayHours, fromDate, toDate, false)
+        .subtract(sumPerDay(dayHours, fromDate, toDate, true));
+  }
+
+  /** Get the working value in days from the first to the last date in the weekly planning. */
+  public BigDecimal getPlannedDays(LocalDate fromDate, LocalDate toDate) {
+    return sumPerDay(dayValues, fromDate, toDate, false);
+  }
+
+  /** Get the working value in days of the public holidays from the first to the last date. */
+  public BigDecimal getPublicHolidayDays(LocalDate fromDate, LocalDate toDate) {
+    return sumPerDay(dayValues, fromDate, toDate, true);
+  }
+
+  /**
+   * Sum the values of the days from the first to the last date, or of the public holidays only, by
+   * counting the occurrences of each day of week.
+   */
+  protected BigDecimal sumPerDay(
+      BigDecimal[] values, LocalDate fromDate, LocalDate toDate, boolean publicHolidaysOnly) {
+    BigDecimal sum = BigDecimal.ZERO;
+    long fromEpochDay = fromDate.toEpochDay();
+    long toEpochDay = toDate.toEpochDay();
+    if (fromEpochDay > toEpochDay) {
+      return sum;
+    }
+    for (int day = 0; day < DAYS_PER_WEEK; day++) {
+      long count =
+          publicHolidaysOnly
+              ? countBetween(publicHolidayEpochDays[day], fromEpochDay, toEpochDay)
+              : countDays(day, fromEpochDay, toEpochDay);
+      sum = sum.add(values[day].multiply(BigDecimal.valueOf(count)));
+    }
+    return sum;
+  }
+
+  /** Count the given day of week from the first to the last epoch day. */
+  protected long countDays(int day, long fromEpochDay, long toEpochDay) {
+    long firstEpochDay = fromEpochDay + Math.floorMod(day - getDay(fromEpochDay), DAYS_PER_WEEK);
+    return firstEpochDay > toEpochDay ? 0 : (toEpochDay - firstEpochDay) / DAYS_PER_WEEK + 1;
+  }
+
+  protected static long countBetween(long[] sortedEpochDays, long fromEpochDay, long toEpochDay) {
+    return searchFirst(sortedEpochDays, toEpochDay + 1)
+        - searchFirst(sortedEpochDays, fromEpochDay);
+  }
+
+  /** Binary search of the first index whose epoch day is greater or equal than the given one. */
+  protected static int searchFirst(long[] sortedEpochDays, long epochDay) {
+    int low = 0;
+    int high = sortedEpochDays.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (sortedEpochDays[middle] < epochDay) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /** Get the first working day after the date, or null if no day of week is worked. */
+  public LocalDate getNextWorkingDay(LocalDate date) {
+    if (weekSecondsPrefix[DAYS_PER_WEEK] == 0) {
+      return null;
+    }
+    LocalDate nextDate = date.plusDays(1);
+    while (!isWorkingDay(nextDate)) {
+      nextDate = nextDate.plusDays(1);
+    }
+    return nextDate;
+  }
+
+  /** Get the last working day before the date, or null if no day of week is worked. */
+  public LocalDate getPreviousWorkingDay(LocalDate date) {
+    if (weekSecondsPrefix[DAYS_PER_WEEK] == 0) {
+      return null;
+    }
+    LocalDate previousDate = date.minusDays(1);
+    while (!isWorkingDay(previousDate)) {
+      previousDate = previousDate.minusDays(1);
+    }
+    return previousDate;
+  }
+
+  /**
+   * Add a working duration to a date time, skipping the time out of the working periods and the
+   * public holidays.
+   *
+   * @param dateT the start date time
+   * @param seconds the working duration in seconds, positive or zero
+   * @return the date time at which the duration is worked, or null if no day of week is worked
+   */
+  public LocalDateTime plusWorkingSeconds(LocalDateTime dateT, long seconds) {
+    if (seconds <= 0) {
+      return dateT;
+    }
+    if (weekSecondsPrefix[DAYS_PER_WEEK] == 0) {
+      return null;
+    }
+
+    long epochDay = dateT.toLocalDate().toEpochDay();
+    long target =
+        getSecondsBefore(epochDay)
+            + (isPublicHoliday(dateT.toLocalDate())
+                ? 0
+                : getDaySecondsBefore(getDay(epochDay), dateT.toLocalTime().toSecondOfDay()))
+            + seconds;
+
+    // Exponential then binary search of the first day at the end of which the target is reached
+    long low = epochDay;
+    long high = epochDay;
+    for (long step = 1; getSecondsBefore(high + 1) < target; step *= 2) {
+      low = high + 1;
+      high = epochDay + step;
+    }
+    while (low < high) {
+      long middle = low + (high - low) / 2;
+      if (getSecondsBefore(middle + 1) < target) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    long remaining = target - getSecondsBefore(low);
+    int[] periods = dayPeriods[getDay(low)];
+    int secondOfDay = 0;
+    for (int i = 0; i < periods.length; i += 2) {
+      secondOfDay = (int) Math.min(periods[i] + remaining, periods[i + 1]);
+      remaining -= secondOfDay - periods[i];
+      if (remaining <= 0) {
+        break;
+      }
+    }
+    return LocalDate.ofEpochDay(low).atTime(LocalTime.ofSecondOfDay(secondOfDay));
+  }
+
+  /**
+   * Get the working seconds before the given epoch day, counted from monday 1970-01-05 and minus
+   * the working seconds of all the previous public holidays. Only differences of this value are
+   * meaningful.
+   */
+  protected long getSecondsBefore(long epochDay) {
+    long days = epochDay - MONDAY_EPOCH_DAY;
+    return Math.floorDiv(days, (long) DAYS_PER_WEEK) * weekSecondsPrefix[DAYS_PER_WEEK]
+        + weekSecondsPrefix[getDay(epochDay)]
+        - publicHolidaySecondsPrefix[searchFirst(sortedPublicHolidayEpochDays, epochDay)];
+  }
+
+  /** Get the working seconds of the day of week before the given second of the day. */
+  protected long getDaySecondsBefore(int day, int secondOfDay) {
+    long seconds = 0;
+    int[] periods = dayPeriods[day];
+    for (int i = 0; i < periods.length; i += 2) {
+      seconds += Math.max(0, Math.min(secondOfDay, periods[i + 1]) - periods[i]);
+    }
+    return seconds;
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.weeklyplanning;
+
+import com.axelor.apps.base.db.EventsPlanning;
+import com.axelor.apps.base.db.WeeklyPlanning;
+
+public interface WorkingCalendarService {
+
+  /**
+   * Get the working calendar of the given plannings, compiled on first call and kept until one of
+   * the plannings is saved.
+   *
+   * @param weeklyPlanning the weekly planning, can be null if no day is worked
+   * @param publicHolidayPlanning the public holidays events planning, can be null
+   * @return the working calendar of the plannings
+   */
+  WorkingCalendar getWorkingCalendar(
+      WeeklyPlanning weeklyPlanning, EventsPlanning publicHolidayPlanning);
+
+  /**
+   * Drop the working calendars of the given weekly planning once the current transaction is
+   * committed.
+   *
+   * @param weeklyPlanningId id of the weekly planning
+   */
+  void invalidateWeeklyPlanning(Long weeklyPlanningId);
+
+  /**
+   * Drop the working calendars of the given events planning once the current transaction is
+   * committed.
+   *
+   * @param eventsPlanningId id of the events planning
+   */
+  void invalidateEventsPlanning(Long eventsPlanningId);
+}
@@ -0,0 +1,110 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.weeklyplanning;
+
+import com.axelor.apps.base.db.EventsPlanning;
+import com.axelor.apps.base.db.EventsPlanningLine;
+import com.axelor.apps.base.db.WeeklyPlanning;
+import com.axelor.apps.base.utils.CacheGuard;
+import com.axelor.db.JPA;
+import com.google.inject.Singleton;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Singleton
+public class WorkingCalendarServiceImpl implements WorkingCalendarService {
+
+  /** Working calendars by weekly planning id and events planning id. */
+  protected final Map<List<Long>, WorkingCalendar> calendarMap = new ConcurrentHashMap<>();
+
+  protected final CacheGuard cacheGuard = new CacheGuard();
+
+  @Override
+  public WorkingCalendar getWorkingCalendar(
+      WeeklyPlanning weeklyPlanning, EventsPlanning publicHolidayPlanning) {
+    Long weeklyPlanningId = weeklyPlanning != null ? weeklyPlanning.getId() : null;
+    Long eventsPlanningId = publicHolidayPlanning != null ? publicHolidayPlanning.getId() : null;
+
+    // Plannings not saved yet are compiled on each call
+    if ((weeklyPlanning != null && weeklyPlanningId == null)
+        || (publicHolidayPlanning != null && eventsPlanningId == null)) {
+      return compile(weeklyPlanning, publicHolidayPlanning);
+    }
+
+    List<Long> key = Arrays.asList(weeklyPlanningId, eventsPlanningId);
+    WorkingCalendar calendar = calendarMap.get(key);
+    if (calendar != null) {
+      return calendar;
+    }
+
+    long generation = cacheGuard.getGeneration();
+    WorkingCalendar compiledCalendar = compile(weeklyPlanning, publicHolidayPlanning);
+    cacheGuard.store(generation, () -> calendarMap.putIfAbsent(key, compiledCalendar));
+    return compiledCalendar;
+  }
+
+  @Override
+  public void invalidateWeeklyPlanning(Long weeklyPlanningId) {
+    if (weeklyPlanningId != null) {
+      cacheGuard.onChange(
+          () -> calendarMap.keySet().removeIf(key -> weeklyPlanningId.equals(key.get(0))));
+    }
+  }
+
+  @Override
+  public void invalidateEventsPlanning(Long eventsPlanningId) {
+    if (eventsPlanningId != null) {
+      cacheGuard.onChange(
+          () -> calendarMap.keySet().removeIf(key -> eventsPlanningId.equals(key.get(1))));
+    }
+  }
+
+  protected WorkingCalendar compile(
+      WeeklyPlanning weeklyPlanning, EventsPlanning publicHolidayPlanning) {
+    return WorkingCalendar.of(weeklyPlanning, fetchPublicHolidayList(publicHolidayPlanning));
+  }
+
+  protected List<LocalDate> fetchPublicHolidayList(EventsPlanning publicHolidayPlanning) {
+    if (publicHolidayPlanning == null) {
+      return new ArrayList<>();
+    }
+    if (publicHolidayPlanning.getId() == null) {
+      List<LocalDate> publicHolidayList = new ArrayList<>();
+      if (publicHolidayPlanning.getEventsPlanningLineList() != null) {
+        publicHolidayPlanning.getEventsPlanningLineList().stream()
+            .map(EventsPlanningLine::getDate)
+            .filter(Objects::nonNull)
+            .forEach(publicHolidayList::add);
+      }
+      return publicHolidayList;
+    }
+    return JPA.em()
+        .createQuery(
+            "SELECT self.date FROM EventsPlanningLine self "
+                + "WHERE self.eventsPlanning.id = :eventsPlanningId",
+            LocalDate.class)
+        .setParameter("eventsPlanningId", publicHolidayPlanning.getId())
+        .getResultList();
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.utils;
+
+/**
+ * Protects a cache filled from the database against the changes of concurrent transactions. A
+ * value loaded while a transaction changes the cached records is not stored, as it may contain
+ * uncommitted changes, and the cache is only dropped once the change is committed, so a rolled
+ * back change keeps the cache.
+ *
+ * <p>Usage: read {@link #getGeneration()} before loading a value, store it with {@link
+ * #store(long, Runnable)}, and call {@link #onChange(Runnable)} from the entity listeners of the
+ * cached records.
+ */
+public class CacheGuard {
+
+  protected long generation;
+  protected int pendingChangeCount;
+
+  /**
+   * @return the generation to give to {@link #store(long, Runnable)} once the value is loaded
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Store a loaded value, unless the cache has been dropped since the value started to be loaded
+   * or a change is not completed yet.
+   *
+   * @param loadGeneration the generation read before loading the value
+   * @param storeAction the action storing the value in the cache
+   * @return true if the value has been stored
+   */
+  public synchronized boolean store(long loadGeneration, Runnable storeAction) {
+    if (loadGeneration != generation || pendingChangeCount > 0) {
+      return false;
+    }
+    storeAction.run();
+    return true;
+  }
+
+  /**
+   * Notify a change of the cached records in the current transaction. Until the transaction is
+   * completed no value is stored, and the invalidation is run once it is committed.
+   *
+   * @param invalidation the action dropping the cached values impacted by the change
+   */
+  public void onChange(Runnable invalidation) {
+    synchronized (this) {
+      pendingChangeCount++;
+    }
+    TransactionTools.runAfterCompletion(
+        committed -> {
+          synchronized (this) {
+            pendingChangeCount--;
+            if (committed) {
+              generation++;
+              invalidation.run();
+            }
+          }
+        });
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.utils;
+
+import com.axelor.db.JPA;
+import java.util.function.Consumer;
+import javax.persistence.EntityManager;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import org.hibernate.Session;
+
+public class TransactionTools {
+
+  private TransactionTools() {}
+
+  /**
+   * Run an action once the current transaction is committed, for example to drop a cache built
+   * from the records changed by the transaction. The action is not run if the transaction is
+   * rolled back, and it is run right away if there is no active transaction.
+   *
+   * @param action the action to run
+   */
+  public static void runAfterCommit(Runnable action) {
+    runAfterCompletion(
+        committed -> {
+          if (committed) {
+            action.run();
+          }
+        });
+  }
+
+  /**
+   * Run an action once the current transaction is committed or rolled back. The action is run
+   * right away as committed if there is no active transaction.
+   *
+   * @param action the action to run, given whether the transaction has been committed
+   */
+  public static void runAfterCompletion(Consumer<Boolean> action) {
+    EntityManager em = JPA.em();
+    if (!em.getTransaction().isActive()) {
+      action.accept(true);
+      return;
+    }
+    em.unwrap(Session.class)
+        .getTransaction()
+        .registerSynchronization(
+            new Synchronization() {
+              @Override
+              public void beforeCompletion() {
+                // Nothing to do before the commit
+              }
+
+              @Override
+              public void afterCompletion(int status) {
+                action.accept(status == Status.STATUS_COMMITTED);
+              }
+            });
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestSequenceBlockAllocator {
+
+  /** Allocator reserving blocks on committed next numbers kept in memory. */
+  static class InMemorySequenceBlockAllocator extends SequenceBlockAllocator {
+
+    protected final Map<Long, Long> committedNextNumMap = new ConcurrentHashMap<>();
+    protected volatile boolean locked;
+
+    @Override
+    protected synchronized Long reserveBlock(Long sequenceVersionId, long blockLength) {
+      Long firstNum = committedNextNumMap.get(sequenceVersionId);
+      if (firstNum == null || locked) {
+        return null;
+      }
+      committedNextNumMap.put(sequenceVersionId, firstNum + blockLength);
+      return firstNum;
+    }
+  }
+
+  @Test
+  void testNewVersion() {
+    InMemorySequenceBlockAllocator allocator = new InMemorySequenceBlockAllocator();
+
+    // The version is not committed yet: the number is computed in the calling transaction
+    Assertions.assertNull(allocator.allocate(1L, 1, 10));
+
+    allocator.committedNextNumMap.put(1L, 5L);
+    Assertions.assertEquals(5L, allocator.allocate(1L, 1, 10));
+    Assertions.assertEquals(6L, allocator.allocate(1L, 1, 10));
+    Assertions.assertEquals(15L, allocator.committedNextNumMap.get(1L));
+  }
+
+  @Test
+  void testLockedVersion() {
+    InMemorySequenceBlockAllocator allocator = new InMemorySequenceBlockAllocator();
+    allocator.committedNextNumMap.put(1L, 1L);
+    allocator.locked = true;
+    Assertions.assertNull(allocator.allocate(1L, 2, 3));
+
+    allocator.locked = false;
+    Assertions.assertEquals(1L, allocator.allocate(1L, 2, 3));
+    Assertions.assertEquals(3L, allocator.allocate(1L, 2, 3));
+    Assertions.assertEquals(7L, allocator.committedNextNumMap.get(1L));
+  }
+
+  @Test
+  void testConcurrentReservation() throws Exception {
+    InMemorySequenceBlockAllocator allocator = new InMemorySequenceBlockAllocator();
+    allocator.committedNextNumMap.put(1L, 1L);
+    int threadNbr = 8;
+    int allocationNbr = 500;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threadNbr);
+    List<Future<List<Long>>> futureList = new ArrayList<>();
+    try {
+      for (int thread = 0; thread < threadNbr; thread++) {
+        futureList.add(
+            executor.submit(
+                () -> {
+                  List<Long> numList = new ArrayList<>();
+                  for (int i = 0; i < allocationNbr; i++) {
+                    numList.add(allocator.allocate(1L, 1, 7));
+                  }
+                  return numList;
+                }));
+      }
+      List<Long> numList = new ArrayList<>();
+      for (Future<List<Long>> future : futureList) {
+        numList.addAll(future.get());
+      }
+
+      Set<Long> expectedNumSet =
+          LongStream.rangeClosed(1, (long) threadNbr * allocationNbr)
+              .boxed()
+              .collect(Collectors.toSet());
+      Assertions.assertEquals(threadNbr * allocationNbr, numList.size());
+      Assertions.assertEquals(expectedNumSet, Set.copyOf(numList));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void testRelease() {
+    InMemorySequenceBlockAllocator allocator = new InMemorySequenceBlockAllocator();
+    allocator.committedNextNumMap.put(1L, 1L);
+    Assertions.assertEquals(1L, allocator.allocate(1L, 1, 10));
+
+    // The next number is reset: the rest of the reserved block must not be used
+    allocator.committedNextNumMap.put(1L, 100L);
+    allocator.release(1L);
+    Assertions.assertEquals(100L, allocator.allocate(1L, 1, 10));
+    Assertions.assertEquals(101L, allocator.allocate(1L, 1, 10));
+  }
+}
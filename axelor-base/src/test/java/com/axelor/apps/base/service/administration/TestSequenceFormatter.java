@@ -0,0 +1,62 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.administration;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class TestSequenceFormatter {
+
+  private static final LocalDate REF_DATE = LocalDate.of(2024, 3, 7);
+
+  @ParameterizedTest
+  @CsvSource({
+    "INV%YYYY-,0001,,INV2024-0001",
+    "INV%YY%FM,0001,-%D,INV24030001-7",
+    "%M/%WY/,12,,3/10/12",
+    "%YYY,1,,24Y1",
+    "%%YY,1,%,%241%",
+    "A%,DA,,A7A",
+    "A%Y,Y,,A24"
+  })
+  void format_same_as_replaced_patterns(
+      String prefix, String sequenceValue, String suffix, String expected) {
+    SequenceFormatter sequenceFormatter =
+        new SequenceFormatter(0, prefix, suffix, false, null, false, null);
+    String actual = sequenceFormatter.format(null, sequenceValue, null, REF_DATE);
+    Assertions.assertEquals(expected, actual);
+    Assertions.assertEquals(
+        SequenceFormatter.replaceDatePatterns(
+            (prefix == null ? "" : prefix) + sequenceValue + (suffix == null ? "" : suffix),
+            REF_DATE),
+        expected);
+  }
+
+  @Test
+  void format_with_groovy_prefix() {
+    SequenceFormatter sequenceFormatter =
+        new SequenceFormatter(0, null, "-%YY", true, "company.code + '%FM'", false, null);
+    Assertions.assertTrue(sequenceFormatter.getPrefixGroovyNameSet().contains("company"));
+    Assertions.assertEquals(
+        "ABC03001-24", sequenceFormatter.format("ABC%FM", "001", null, REF_DATE));
+  }
+}
@@ -50,7 +50,8 @@ class TestSequenceService {
             sequenceVersionRepository,
             appBaseService,
             sequenceRepo,
-            sequenceVersionGeneratorService);
+            sequenceVersionGeneratorService,
+            mock(SequenceBlockAllocator.class));
   }
 
   @Test
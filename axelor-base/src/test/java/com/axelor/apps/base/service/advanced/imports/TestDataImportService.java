@@ -0,0 +1,102 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.advanced.imports;
+
+import com.axelor.apps.base.db.repo.FileFieldRepository;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestDataImportService {
+
+  /** Selections read from memory, each lookup being recorded. */
+  static class SelectionDataImportService extends DataImportServiceImpl {
+
+    protected final List<String> metaSelectLookupList = new ArrayList<>();
+    protected final List<String> selectionItemLookupList = new ArrayList<>();
+
+    @Override
+    protected Long findMetaSelectId(String selection) {
+      metaSelectLookupList.add(selection);
+      return "unknown.select".equals(selection) ? null : 1L;
+    }
+
+    @Override
+    protected String findSelectionItemValue(Long metaSelectId, String title) {
+      selectionItemLookupList.add(title);
+      return "Draft".equals(title) ? "1" : null;
+    }
+  }
+
+  private SelectionDataImportService dataImportService;
+
+  @BeforeEach
+  void prepare() {
+    dataImportService = new SelectionDataImportService();
+    dataImportService.initializeVariables();
+  }
+
+  @Test
+  void testSelectionValuesAreCached() {
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertEquals(
+          "1",
+          dataImportService.getSelectionValue(
+              "status.select", "Draft", FileFieldRepository.SELECT_USE_TITLES));
+      Assertions.assertEquals(
+          "Other",
+          dataImportService.getSelectionValue(
+              "status.select", "Other", FileFieldRepository.SELECT_USE_TITLES));
+      Assertions.assertNull(
+          dataImportService.getSelectionValue(
+              "unknown.select", "Draft", FileFieldRepository.SELECT_USE_TITLES));
+    }
+
+    Assertions.assertEquals(
+        Arrays.asList("status.select", "unknown.select"), dataImportService.metaSelectLookupList);
+    Assertions.assertEquals(
+        Arrays.asList("Draft", "Other"), dataImportService.selectionItemLookupList);
+  }
+
+  @Test
+  void testCachesAreResetForEachTab() {
+    dataImportService.getSelectionValue(
+        "status.select", "Draft", FileFieldRepository.SELECT_USE_TITLES);
+    dataImportService.initializeVariables();
+    dataImportService.getSelectionValue(
+        "status.select", "Draft", FileFieldRepository.SELECT_USE_TITLES);
+
+    Assertions.assertEquals(
+        Arrays.asList("status.select", "status.select"), dataImportService.metaSelectLookupList);
+    Assertions.assertEquals(
+        Arrays.asList("Draft", "Draft"), dataImportService.selectionItemLookupList);
+  }
+
+  @Test
+  void testSelectionValuesAreNotLookedUp() {
+    Assertions.assertEquals(
+        "2",
+        dataImportService.getSelectionValue(
+            "status.select", "2", FileFieldRepository.SELECT_USE_VALUES));
+    Assertions.assertTrue(dataImportService.metaSelectLookupList.isEmpty());
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.advanced.imports;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TestExcelSheetRowReader {
+
+  private File file;
+
+  @BeforeEach
+  void prepare() throws Exception {
+    file = File.createTempFile("excel-sheet-row-reader", ".xlsx");
+    try (XSSFWorkbook workbook = new XSSFWorkbook();
+        OutputStream outputStream = new FileOutputStream(file)) {
+      Sheet productSheet = workbook.createSheet("Product");
+      Row headerRow = productSheet.createRow(0);
+      headerRow.createCell(0).setCellValue("code");
+      headerRow.createCell(1).setCellValue("name");
+      headerRow.createCell(2).setCellValue("price");
+      Row firstRow = productSheet.createRow(1);
+      firstRow.createCell(0).setCellValue("P1");
+      firstRow.createCell(2).setCellValue(12);
+      Row thirdRow = productSheet.createRow(3);
+      thirdRow.createCell(1).setCellValue("Third");
+      workbook.createSheet("Partner");
+      workbook.write(outputStream);
+    }
+  }
+
+  @AfterEach
+  void clean() {
+    file.delete();
+  }
+
+  @Test
+  void testSheetNames() throws Exception {
+    try (ExcelSheetRowReader reader = new ExcelSheetRowReader(file)) {
+      Assertions.assertEquals(Arrays.asList("Product", "Partner"), reader.getSheetNames());
+    }
+  }
+
+  @Test
+  void testRowsAreReadWithTheirIndex() throws Exception {
+    List<Integer> rowIndexList = new ArrayList<>();
+    List<String[]> rowList = new ArrayList<>();
+    try (ExcelSheetRowReader reader = new ExcelSheetRowReader(file)) {
+      reader.readRows(
+          "Product",
+          (rowIndex, row) -> {
+            rowIndexList.add(rowIndex);
+            rowList.add(row);
+          });
+    }
+
+    Assertions.assertEquals(Arrays.asList(0, 1, 3), rowIndexList);
+    Assertions.assertArrayEquals(new String[] {"code", "name", "price"}, rowList.get(0));
+    Assertions.assertArrayEquals(new String[] {"P1", null, "12"}, rowList.get(1));
+    Assertions.assertArrayEquals(new String[] {null, "Third"}, rowList.get(2));
+  }
+
+  @Test
+  void testHandlerExceptionIsRethrown() throws Exception {
+    try (ExcelSheetRowReader reader = new ExcelSheetRowReader(file)) {
+      Assertions.assertThrows(
+          IllegalStateException.class,
+          () ->
+              reader.readRows(
+                  "Product",
+                  (rowIndex, row) -> {
+                    throw new IllegalStateException();
+                  }));
+    }
+  }
+}
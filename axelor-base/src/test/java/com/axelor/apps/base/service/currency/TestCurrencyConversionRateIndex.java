@@ -0,0 +1,106 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.currency;
+
+import com.axelor.apps.base.db.Currency;
+import com.axelor.apps.base.db.CurrencyConversionLine;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestCurrencyConversionRateIndex {
+
+  private final Currency euro = createCurrency("EUR");
+  private final Currency dollar = createCurrency("USD");
+
+  protected Currency createCurrency(String codeISO) {
+    Currency currency = new Currency();
+    currency.setCodeISO(codeISO);
+    return currency;
+  }
+
+  protected CurrencyConversionLine createLine(
+      Long id, Currency startCurrency, Currency endCurrency, LocalDate fromDate, LocalDate toDate) {
+    CurrencyConversionLine line = new CurrencyConversionLine();
+    line.setId(id);
+    line.setStartCurrency(startCurrency);
+    line.setEndCurrency(endCurrency);
+    line.setFromDate(fromDate);
+    line.setToDate(toDate);
+    line.setExchangeRate(BigDecimal.valueOf(id));
+    return line;
+  }
+
+  protected Long findLineId(CurrencyConversionRateIndex index, LocalDate date) {
+    CurrencyConversionRateIndex.Rate rate = index.find("EUR", "USD", date);
+    return rate != null ? rate.getCurrencyConversionLineId() : null;
+  }
+
+  @Test
+  void testFindPeriod() {
+    CurrencyConversionRateIndex index =
+        CurrencyConversionRateIndex.of(
+            Arrays.asList(
+                createLine(3L, euro, dollar, LocalDate.of(2024, 7, 1), null),
+                createLine(1L, euro, dollar, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)),
+                createLine(2L, euro, dollar, LocalDate.of(2024, 4, 1), LocalDate.of(2024, 5, 31)),
+                createLine(4L, dollar, euro, LocalDate.of(2023, 1, 1), null)));
+
+    Assertions.assertNull(findLineId(index, LocalDate.of(2023, 12, 31)));
+    Assertions.assertEquals(1L, findLineId(index, LocalDate.of(2024, 1, 1)));
+    Assertions.assertEquals(1L, findLineId(index, LocalDate.of(2024, 3, 31)));
+    Assertions.assertEquals(2L, findLineId(index, LocalDate.of(2024, 4, 15)));
+    Assertions.assertNull(findLineId(index, LocalDate.of(2024, 6, 15)));
+    Assertions.assertEquals(3L, findLineId(index, LocalDate.of(2030, 1, 1)));
+    Assertions.assertEquals(
+        0,
+        BigDecimal.valueOf(4)
+            .compareTo(index.find("USD", "EUR", LocalDate.of(2024, 1, 1)).getExchangeRate()));
+    Assertions.assertNull(index.find("EUR", "GBP", LocalDate.of(2024, 1, 1)));
+    Assertions.assertNull(index.find("EUR", "USD", null));
+  }
+
+  @Test
+  void testOverlappingPeriodsKeepListOrder() {
+    CurrencyConversionLine yearLine =
+        createLine(1L, euro, dollar, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31));
+    CurrencyConversionLine openLine = createLine(2L, euro, dollar, LocalDate.of(2024, 6, 1), null);
+
+    CurrencyConversionRateIndex index =
+        CurrencyConversionRateIndex.of(Arrays.asList(yearLine, openLine));
+    Assertions.assertEquals(1L, findLineId(index, LocalDate.of(2024, 7, 1)));
+    Assertions.assertEquals(2L, findLineId(index, LocalDate.of(2025, 1, 1)));
+
+    index = CurrencyConversionRateIndex.of(Arrays.asList(openLine, yearLine));
+    Assertions.assertEquals(2L, findLineId(index, LocalDate.of(2024, 7, 1)));
+    Assertions.assertEquals(1L, findLineId(index, LocalDate.of(2024, 2, 1)));
+  }
+
+  @Test
+  void testEmptyIndex() {
+    Assertions.assertNull(
+        findLineId(CurrencyConversionRateIndex.of(null), LocalDate.of(2024, 1, 1)));
+    Assertions.assertNull(
+        findLineId(
+            CurrencyConversionRateIndex.of(Collections.emptyList()), LocalDate.of(2024, 1, 1)));
+  }
+}
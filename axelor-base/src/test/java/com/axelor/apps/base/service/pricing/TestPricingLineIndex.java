@@ -0,0 +1,127 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.pricing;
+
+import com.axelor.apps.base.db.repo.PricingRuleRepository;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestPricingLineIndex {
+
+  protected Object[] row(long id, String strParam1, int intParam2, BigDecimal decParam3) {
+    return new Object[] {
+      id, strParam1, null, null, null, 0, intParam2, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO,
+      decParam3, BigDecimal.ZERO
+    };
+  }
+
+  @Test
+  void testStringAndIntegerGreaterThan() {
+    PricingLineIndex index =
+        PricingLineIndex.of(
+            0,
+            Arrays.asList(
+                row(1L, "A", 10, BigDecimal.ZERO),
+                row(2L, "A", 5, BigDecimal.ZERO),
+                row(3L, "B", 20, BigDecimal.ZERO),
+                row(4L, "A", 1, BigDecimal.ZERO)));
+
+    List<Long> ids =
+        index.findPricingLineIds(
+            new int[] {
+              PricingRuleRepository.FIELD_TYPE_STRING, PricingRuleRepository.FIELD_TYPE_INTEGER
+            },
+            new int[] {
+              PricingRuleRepository.OPERATOR_EQUAL, PricingRuleRepository.OPERATOR_GREATER_THAN
+            },
+            new Object[] {"A", 3});
+
+    Assertions.assertEquals(Arrays.asList(2L, 1L), ids);
+  }
+
+  @Test
+  void testDecimalLessThanSortedDescending() {
+    PricingLineIndex index =
+        PricingLineIndex.of(
+            0,
+            Arrays.asList(
+                row(1L, "A", 0, new BigDecimal("1.5")),
+                row(2L, "A", 0, new BigDecimal("3")),
+                row(3L, "A", 0, new BigDecimal("4")),
+                row(4L, "A", 0, new BigDecimal("2.5"))));
+
+    List<Long> ids =
+        index.findPricingLineIds(
+            new int[] {
+              PricingRuleRepository.FIELD_TYPE_STRING,
+              PricingRuleRepository.FIELD_TYPE_INTEGER,
+              PricingRuleRepository.FIELD_TYPE_DECIMAL
+            },
+            new int[] {
+              PricingRuleRepository.OPERATOR_EQUAL,
+              PricingRuleRepository.OPERATOR_EQUAL,
+              PricingRuleRepository.OPERATOR_LESS_THAN
+            },
+            new Object[] {"A", new BigDecimal("0"), new BigDecimal("3.5")});
+
+    Assertions.assertEquals(Arrays.asList(2L, 4L, 1L), ids);
+  }
+
+  @Test
+  void testLastSortedRuleHasPriority() {
+    PricingLineIndex index =
+        PricingLineIndex.of(
+            0,
+            Arrays.asList(
+                new Object[] {1L, null, null, null, null, 2, 1, 0, 0, null, null, null, null},
+                new Object[] {2L, null, null, null, null, 1, 1, 0, 0, null, null, null, null},
+                new Object[] {3L, null, null, null, null, 3, 0, 0, 0, null, null, null, null}));
+
+    List<Long> ids =
+        index.findPricingLineIds(
+            new int[] {
+              PricingRuleRepository.FIELD_TYPE_INTEGER, PricingRuleRepository.FIELD_TYPE_INTEGER
+            },
+            new int[] {
+              PricingRuleRepository.OPERATOR_GREATER_THAN,
+              PricingRuleRepository.OPERATOR_GREATER_THAN
+            },
+            new Object[] {0, -1});
+
+    Assertions.assertEquals(Arrays.asList(3L, 2L, 1L), ids);
+  }
+
+  @Test
+  void testNoMatch() {
+    PricingLineIndex index =
+        PricingLineIndex.of(0, Collections.singletonList(row(1L, "A", 10, BigDecimal.ZERO)));
+
+    Assertions.assertTrue(
+        index
+            .findPricingLineIds(
+                new int[] {PricingRuleRepository.FIELD_TYPE_STRING},
+                new int[] {PricingRuleRepository.OPERATOR_EQUAL},
+                new Object[] {"B"})
+            .isEmpty());
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.unit;
+
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.base.db.UnitConversion;
+import com.axelor.apps.base.db.repo.UnitConversionRepository;
+import groovy.lang.Binding;
+import groovy.lang.Script;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import org.codehaus.groovy.runtime.InvokerHelper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestUnitConversionGraph {
+
+  public static class TestProduct {
+    public BigDecimal getNetMass() {
+      return new BigDecimal("2.500");
+    }
+
+    public BigDecimal getArticleVolume() {
+      return new BigDecimal("0.010");
+    }
+  }
+
+  protected Unit createUnit(Long id) {
+    Unit unit = new Unit();
+    unit.setId(id);
+    return unit;
+  }
+
+  protected UnitConversion createUnitConversion(
+      Unit startUnit, Unit endUnit, BigDecimal coef, String formula) {
+    UnitConversion unitConversion = new UnitConversion();
+    unitConversion.setStartUnit(startUnit);
+    unitConversion.setEndUnit(endUnit);
+    unitConversion.setCoef(coef);
+    unitConversion.setFormula(formula);
+    unitConversion.setTypeSelect(
+        formula == null
+            ? UnitConversionRepository.TYPE_COEFF
+            : UnitConversionRepository.TYPE_FORMULA);
+    return unitConversion;
+  }
+
+  @Test
+  void testConversionsInBothDirections() {
+    Unit kilogram = createUnit(1L);
+    Unit gram = createUnit(2L);
+    UnitConversionGraph graph =
+        UnitConversionGraph.of(
+            Arrays.asList(createUnitConversion(kilogram, gram, new BigDecimal("1000"), null)));
+
+    List<UnitConversionGraph.Conversion> conversionList = graph.getConversionList(1L, 2L);
+    Assertions.assertEquals(1, conversionList.size());
+    Assertions.assertFalse(conversionList.get(0).isInverse());
+
+    conversionList = graph.getConversionList(2L, 1L);
+    Assertions.assertEquals(1, conversionList.size());
+    Assertions.assertTrue(conversionList.get(0).isInverse());
+    Assertions.assertEquals(new BigDecimal("1000"), conversionList.get(0).getCoef());
+  }
+
+  @Test
+  void testShortestPath() {
+    Unit cubicMeter = createUnit(1L);
+    Unit kilogram = createUnit(2L);
+    Unit gram = createUnit(3L);
+    Unit ton = createUnit(4L);
+    Unit piece = createUnit(5L);
+    UnitConversionGraph graph =
+        UnitConversionGraph.of(
+            Arrays.asList(
+                createUnitConversion(cubicMeter, kilogram, BigDecimal.ZERO, "$Product.netMass$"),
+                createUnitConversion(kilogram, gram, new BigDecimal("1000"), null),
+                createUnitConversion(ton, kilogram, new BigDecimal("1000"), null),
+                createUnitConversion(piece, ton, BigDecimal.ZERO, null)));
+
+    Assertions.assertEquals(Arrays.asList(4L, 2L, 3L), graph.findPath(4L, 3L, false));
+    Assertions.assertEquals(Arrays.asList(3L, 2L, 4L), graph.findPath(3L, 4L, false));
+    Assertions.assertEquals(Arrays.asList(1L, 2L, 3L), graph.findPath(1L, 3L, true));
+    // Formulas need a context, and a zero coefficient can not be inverted
+    Assertions.assertNull(graph.findPath(1L, 3L, false));
+    Assertions.assertNull(graph.findPath(4L, 5L, false));
+    Assertions.assertNull(graph.findPath(2L, 2L, false));
+  }
+
+  @Test
+  void testCompiledFormula() {
+    Unit cubicMeter = createUnit(1L);
+    Unit kilogram = createUnit(2L);
+    UnitConversionGraph graph =
+        UnitConversionGraph.of(
+            Arrays.asList(
+                createUnitConversion(
+                    cubicMeter,
+                    kilogram,
+                    BigDecimal.ZERO,
+                    "// m3 to kg\n$Product.netMass$ / $Product.articleVolume$"),
+                createUnitConversion(kilogram, cubicMeter, BigDecimal.ZERO, "$Other.value$")));
+
+    Class<? extends Script> scriptClass =
+        graph.getConversionList(1L, 2L).get(0).getScriptClass("Product");
+    Assertions.assertNotNull(scriptClass);
+
+    Binding binding = new Binding();
+    binding.setVariable(UnitConversionGraph.CONTEXT_VARIABLE, new TestProduct());
+    Object result = InvokerHelper.createScript(scriptClass, binding).run();
+    Assertions.assertEquals(0, new BigDecimal("250").compareTo(new BigDecimal(result.toString())));
+
+    // Placeholders not reading the context are rendered before each evaluation
+    UnitConversionGraph.Conversion conversion = graph.getConversionList(2L, 1L).get(1);
+    Assertions.assertFalse(conversion.isInverse());
+    Assertions.assertNull(conversion.getScriptClass("Product"));
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.base.service.weeklyplanning;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestWorkingCalendar {
+
+  /** Monday to thursday 8:00-12:00 and 13:00-17:00, friday 8:00-12:00, week-end off. */
+  protected LocalTime[][] getDayTimes() {
+    LocalTime[] fullDay = {
+      LocalTime.of(8, 0), LocalTime.of(12, 0), LocalTime.of(13, 0), LocalTime.of(17, 0)
+    };
+    LocalTime[] morning = {LocalTime.of(8, 0), LocalTime.of(12, 0), null, null};
+    return new LocalTime[][] {fullDay, fullDay, fullDay, fullDay, morning, null, null};
+  }
+
+  @Test
+  void testWorkingTimeOfDate() {
+    // Monday 2024-05-06 to sunday 2024-05-12, with a public holiday on wednesday
+    WorkingCalendar calendar =
+        new WorkingCalendar(getDayTimes(), Collections.singletonList(LocalDate.of(2024, 5, 8)));
+
+    Assertions.assertEquals(
+        new BigDecimal("8.00"), calendar.getWorkingHours(LocalDate.of(2024, 5, 6)));
+    Assertions.assertEquals(
+        new BigDecimal("0.00"), calendar.getWorkingHours(LocalDate.of(2024, 5, 8)));
+    Assertions.assertEquals(
+        new BigDecimal("8.00"), calendar.getPlannedHours(LocalDate.of(2024, 5, 8)));
+    Assertions.assertEquals(
+        new BigDecimal("0.5"), calendar.getPlannedDays(LocalDate.of(2024, 5, 10)));
+    Assertions.assertFalse(calendar.isWorkingDay(LocalDate.of(2024, 5, 11)));
+  }
+
+  @Test
+  void testWorkingTimeOfRange() {
+    WorkingCalendar calendar =
+        new WorkingCalendar(
+            getDayTimes(), Arrays.asList(LocalDate.of(2024, 5, 8), LocalDate.of(2024, 5, 11)));
+    LocalDate fromDate = LocalDate.of(2024, 5, 6);
+    LocalDate toDate = LocalDate.of(2024, 5, 19);
+
+    Assertions.assertEquals(
+        0, new BigDecimal("64").compareTo(calendar.getWorkingHours(fromDate, toDate)));
+    Assertions.assertEquals(
+        0, new BigDecimal("9").compareTo(calendar.getPlannedDays(fromDate, toDate)));
+    Assertions.assertEquals(
+        0, BigDecimal.ONE.compareTo(calendar.getPublicHolidayDays(fromDate, toDate)));
+  }
+
+  @Test
+  void testNextAndPreviousWorkingDay() {
+    WorkingCalendar calendar =
+        new WorkingCalendar(getDayTimes(), Collections.singletonList(LocalDate.of(2024, 5, 13)));
+
+    Assertions.assertEquals(
+        LocalDate.of(2024, 5, 14), calendar.getNextWorkingDay(LocalDate.of(2024, 5, 10)));
+    Assertions.assertEquals(
+        LocalDate.of(2024, 5, 10), calendar.getPreviousWorkingDay(LocalDate.of(2024, 5, 14)));
+    Assertions.assertNull(
+        new WorkingCalendar(new LocalTime[7][], Collections.emptyList())
+            .getNextWorkingDay(LocalDate.of(2024, 5, 10)));
+  }
+
+  @Test
+  void testPlusWorkingSeconds() {
+    WorkingCalendar calendar =
+        new WorkingCalendar(getDayTimes(), Collections.singletonList(LocalDate.of(2024, 5, 13)));
+
+    // Friday 11:00 plus 3 hours: 1 hour on friday, monday is a public holiday, 2 hours on tuesday
+    Assertions.assertEquals(
+        LocalDateTime.of(2024, 5, 14, 10, 0),
+        calendar.plusWorkingSeconds(LocalDateTime.of(2024, 5, 10, 11, 0), 3 * 3600));
+    // Ends at the end of the morning period rather than at the start of the afternoon one
+    Assertions.assertEquals(
+        LocalDateTime.of(2024, 5, 14, 12, 0),
+        calendar.plusWorkingSeconds(LocalDateTime.of(2024, 5, 14, 9, 0), 3 * 3600));
+    // 100 hours from monday 2024-05-20 8:00: 2 weeks of 36 hours, then 28 hours from 2024-06-03
+    Assertions.assertEquals(
+        LocalDateTime.of(2024, 6, 6, 12, 0),
+        calendar.plusWorkingSeconds(LocalDateTime.of(2024, 5, 20, 8, 0), 100 * 3600));
+  }
+}
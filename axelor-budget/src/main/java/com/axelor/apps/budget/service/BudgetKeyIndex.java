@@ -0,0 +1,190 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.budget.service;
+
+import com.google.common.base.Strings;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable index of the keyed budgets of valid global budgets. The budgets of every key component
+ * are sorted by from date, so that the budget covering a date is found with a binary search instead
+ * of a scan of every budget key.
+ */
+public class BudgetKeyIndex {
+
+  public static final String KEY_SEPARATOR = ";";
+
+  protected static class BudgetKeyEntry {
+    protected final Long budgetId;
+    protected final String budgetKey;
+    protected final LocalDate fromDate;
+    protected final LocalDate toDate;
+    protected final Long globalBudgetId;
+
+    protected BudgetKeyEntry(
+        Long budgetId,
+        String budgetKey,
+        LocalDate fromDate,
+        LocalDate toDate,
+        Long globalBudgetId) {
+      this.budgetId = budgetId;
+      this.budgetKey = budgetKey;
+      this.fromDate = fromDate;
+      this.toDate = toDate;
+      this.globalBudgetId = globalBudgetId;
+    }
+  }
+
+  /** Budgets of every key component, sorted by from date. */
+  protected final Map<String, List<BudgetKeyEntry>> entryListMap = new HashMap<>();
+
+  /**
+   * For every key component, the latest to date of the budgets sorted before each position, so that
+   * a lookup stops as soon as no earlier budget can cover the date.
+   */
+  protected final Map<String, LocalDate[]> maxToDateArrayMap = new HashMap<>();
+
+  protected final Map<Long, BudgetKeyEntry> entryMap = new HashMap<>();
+  protected final Set<Long> validGlobalBudgetIdSet = new HashSet<>();
+
+  protected BudgetKeyIndex() {}
+
+  /**
+   * @param budgetRowList rows of budget id, budget key, from date, to date and global budget id
+   * @param validGlobalBudgetIdList ids of the valid global budgets
+   */
+  public static BudgetKeyIndex of(
+      List<Object[]> budgetRowList, List<Long> validGlobalBudgetIdList) {
+    BudgetKeyIndex index = new BudgetKeyIndex();
+    index.validGlobalBudgetIdSet.addAll(validGlobalBudgetIdList);
+
+    for (Object[] row : budgetRowList) {
+      BudgetKeyEntry entry =
+          new BudgetKeyEntry(
+              (Long) row[0],
+              (String) row[1],
+              (LocalDate) row[2],
+              (LocalDate) row[3],
+              (Long) row[4]);
+      if (!index.isIndexed(entry.budgetKey, entry.fromDate, entry.toDate, entry.globalBudgetId)) {
+        continue;
+      }
+      index.entryMap.put(entry.budgetId, entry);
+      for (String keyComponent : entry.budgetKey.split(KEY_SEPARATOR)) {
+        index.entryListMap.computeIfAbsent(keyComponent, k -> new ArrayList<>()).add(entry);
+      }
+    }
+
+    for (Map.Entry<String, List<BudgetKeyEntry>> keyEntry : index.entryListMap.entrySet()) {
+      List<BudgetKeyEntry> entryList = keyEntry.getValue();
+      entryList.sort(
+          Comparator.comparing((BudgetKeyEntry entry) -> entry.fromDate)
+              .thenComparing(entry -> entry.budgetId));
+
+      LocalDate[] maxToDateArray = new LocalDate[entryList.size()];
+      LocalDate maxToDate = null;
+      for (int i = 0; i < entryList.size(); i++) {
+        LocalDate toDate = entryList.get(i).toDate;
+        if (maxToDate == null || toDate.isAfter(maxToDate)) {
+          maxToDate = toDate;
+        }
+        maxToDateArray[i] = maxToDate;
+      }
+      index.maxToDateArrayMap.put(keyEntry.getKey(), maxToDateArray);
+    }
+
+    return index;
+  }
+
+  /**
+   * @param keyComponent a single budget key, without separator
+   * @param date the date to cover
+   * @return the id of the budget of a valid global budget using this key and covering the date,
+   *     the one starting last if several budgets overlap, or null if there is none.
+   */
+  public Long findBudgetId(String keyComponent, LocalDate date) {
+    List<BudgetKeyEntry> entryList = entryListMap.get(keyComponent);
+    if (entryList == null || date == null) {
+      return null;
+    }
+
+    int low = 0;
+    int high = entryList.size() - 1;
+    int lastStartedIndex = -1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (entryList.get(middle).fromDate.isAfter(date)) {
+        high = middle - 1;
+      } else {
+        lastStartedIndex = middle;
+        low = middle + 1;
+      }
+    }
+
+    LocalDate[] maxToDateArray = maxToDateArrayMap.get(keyComponent);
+    for (int i = lastStartedIndex; i >= 0 && !maxToDateArray[i].isBefore(date); i--) {
+      BudgetKeyEntry entry = entryList.get(i);
+      if (!entry.toDate.isBefore(date)) {
+        return entry.budgetId;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true if the index holds the budget exactly with these values, or does not hold it and
+   *     should not.
+   */
+  public boolean isUpToDate(
+      Long budgetId, String budgetKey, LocalDate fromDate, LocalDate toDate, Long globalBudgetId) {
+    BudgetKeyEntry entry = entryMap.get(budgetId);
+    if (!isIndexed(budgetKey, fromDate, toDate, globalBudgetId)) {
+      return entry == null;
+    }
+    return entry != null
+        && budgetKey.equals(entry.budgetKey)
+        && fromDate.equals(entry.fromDate)
+        && toDate.equals(entry.toDate)
+        && globalBudgetId.equals(entry.globalBudgetId);
+  }
+
+  public boolean containsBudget(Long budgetId) {
+    return entryMap.containsKey(budgetId);
+  }
+
+  public boolean isValidGlobalBudget(Long globalBudgetId) {
+    return validGlobalBudgetIdSet.contains(globalBudgetId);
+  }
+
+  protected boolean isIndexed(
+      String budgetKey, LocalDate fromDate, LocalDate toDate, Long globalBudgetId) {
+    return !Strings.isNullOrEmpty(budgetKey)
+        && fromDate != null
+        && toDate != null
+        && globalBudgetId != null
+        && validGlobalBudgetIdSet.contains(globalBudgetId);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.budget.service;
+
+import com.axelor.apps.budget.db.Budget;
+import com.axelor.apps.budget.db.GlobalBudget;
+
+/**
+ * Keeps the budget keys of valid global budgets in memory, so that imputations do not need to scan
+ * every budget key.
+ */
+public interface BudgetKeyIndexService {
+
+  /**
+   * @return the budget key index, built from the database on first use.
+   */
+  BudgetKeyIndex getIndex();
+
+  /** Forget the index if the key, the dates or the global budget of the budget changed. */
+  void onBudgetChange(Budget budget);
+
+  /** Forget the index if the budget was indexed. */
+  void onBudgetRemove(Budget budget);
+
+  /** Forget the index if the global budget has been validated or is no longer valid. */
+  void onGlobalBudgetChange(GlobalBudget globalBudget);
+
+  /** Forget the index if the global budget was valid. */
+  void onGlobalBudgetRemove(GlobalBudget globalBudget);
+
+  /**
+   * Forget the index once the current transaction is committed, so that it is built again on next
+   * use. The index is not stored while the transaction is in progress.
+   */
+  void invalidate();
+}
@@ -0,0 +1,120 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.budget.service;
+
+import com.axelor.apps.base.utils.CacheGuard;
+import com.axelor.apps.budget.db.Budget;
+import com.axelor.apps.budget.db.GlobalBudget;
+import com.axelor.apps.budget.db.repo.GlobalBudgetRepository;
+import com.axelor.db.JPA;
+import com.google.inject.Singleton;
+import java.util.List;
+
+@Singleton
+public class BudgetKeyIndexServiceImpl implements BudgetKeyIndexService {
+
+  protected volatile BudgetKeyIndex index;
+  protected final CacheGuard cacheGuard = new CacheGuard();
+
+  @Override
+  public BudgetKeyIndex getIndex() {
+    BudgetKeyIndex currentIndex = index;
+    if (currentIndex != null) {
+      return currentIndex;
+    }
+
+    long generation = cacheGuard.getGeneration();
+    BudgetKeyIndex loadedIndex =
+        BudgetKeyIndex.of(fetchBudgetRowList(), fetchValidGlobalBudgetIdList());
+    cacheGuard.store(
+        generation,
+        () -> {
+          if (index == null) {
+            index = loadedIndex;
+          }
+        });
+    return loadedIndex;
+  }
+
+  @Override
+  public void onBudgetChange(Budget budget) {
+    BudgetKeyIndex currentIndex = index;
+    GlobalBudget globalBudget = budget.getGlobalBudget();
+    if (currentIndex == null
+        || !currentIndex.isUpToDate(
+            budget.getId(),
+            budget.getBudgetKey(),
+            budget.getFromDate(),
+            budget.getToDate(),
+            globalBudget != null ? globalBudget.getId() : null)) {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void onBudgetRemove(Budget budget) {
+    BudgetKeyIndex currentIndex = index;
+    if (currentIndex == null || currentIndex.containsBudget(budget.getId())) {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void onGlobalBudgetChange(GlobalBudget globalBudget) {
+    BudgetKeyIndex currentIndex = index;
+    boolean isValid =
+        globalBudget.getStatusSelect() == GlobalBudgetRepository.GLOBAL_BUDGET_STATUS_SELECT_VALID;
+    if (currentIndex == null || currentIndex.isValidGlobalBudget(globalBudget.getId()) != isValid) {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void onGlobalBudgetRemove(GlobalBudget globalBudget) {
+    BudgetKeyIndex currentIndex = index;
+    if (currentIndex == null || currentIndex.isValidGlobalBudget(globalBudget.getId())) {
+      invalidate();
+    }
+  }
+
+  @Override
+  public void invalidate() {
+    cacheGuard.onChange(() -> index = null);
+  }
+
+  protected List<Object[]> fetchBudgetRowList() {
+    return JPA.em()
+        .createQuery(
+            "SELECT self.id, self.budgetKey, self.fromDate, self.toDate, globalBudget.id "
+                + "FROM Budget self JOIN self.globalBudget globalBudget "
+                + "WHERE self.budgetKey IS NOT NULL AND globalBudget.statusSelect = :statusSelect",
+            Object[].class)
+        .setParameter("statusSelect", GlobalBudgetRepository.GLOBAL_BUDGET_STATUS_SELECT_VALID)
+        .getResultList();
+  }
+
+  protected List<Long> fetchValidGlobalBudgetIdList() {
+    return JPA.em()
+        .createQuery(
+            "SELECT self.id FROM GlobalBudget self WHERE self.statusSelect = :statusSelect",
+            Long.class)
+        .setParameter("statusSelect", GlobalBudgetRepository.GLOBAL_BUDGET_STATUS_SELECT_VALID)
+        .getResultList();
+  }
+}
@@ -49,6 +49,7 @@ import com.axelor.apps.budget.db.repo.GlobalBudgetRepository;
 import com.axelor.apps.budget.exception.BudgetExceptionMessage;
 import com.axelor.apps.purchase.db.repo.PurchaseOrderRepository;
 import com.axelor.apps.sale.db.repo.SaleOrderRepository;
+import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
 import com.axelor.utils.helpers.date.LocalDateHelper;
 import com.google.common.base.Strings;
@@ -59,9 +60,11 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 
@@ -80,6 +83,7 @@ public class BudgetServiceImpl implements BudgetService {
   protected AnalyticDistributionLineRepository analyticDistributionLineRepo;
   protected BudgetToolsService budgetToolsService;
   protected CurrencyScaleService currencyScaleService;
+  protected BudgetKeyIndexService budgetKeyIndexService;
 
   @Inject
   public BudgetServiceImpl(
@@ -94,7 +98,8 @@ public class BudgetServiceImpl implements BudgetService {
       AccountRepository accountRepo,
       AnalyticDistributionLineRepository analyticDistributionLineRepo,
       BudgetToolsService budgetToolsService,
-      CurrencyScaleService currencyScaleService) {
+      CurrencyScaleService currencyScaleService,
+      BudgetKeyIndexService budgetKeyIndexService) {
     this.budgetLineRepository = budgetLineRepository;
     this.budgetRepository = budgetRepository;
     this.budgetLevelRepository = budgetLevelRepository;
@@ -107,6 +112,7 @@ public class BudgetServiceImpl implements BudgetService {
     this.analyticDistributionLineRepo = analyticDistributionLineRepo;
     this.budgetToolsService = budgetToolsService;
     this.currencyScaleService = currencyScaleService;
+    this.budgetKeyIndexService = budgetKeyIndexService;
   }
 
   @Override
@@ -559,55 +565,52 @@ public class BudgetServiceImpl implements BudgetService {
 
   @Override
   public boolean checkUniqueKey(Budget budget, String key) {
-    if (key != null) {
-      List<Budget> repoBudgetKeys =
-          budgetRepository
-              .all()
-              .filter(
-                  "self.budgetKey != null and self.id != ?1 AND self.globalBudget.statusSelect != ?2",
-                  budget.getId() != null ? budget.getId() : new Long(0),
-                  GlobalBudgetRepository.GLOBAL_BUDGET_STATUS_SELECT_ARCHIVED)
-              .fetch();
-
-      if (CollectionUtils.isEmpty(repoBudgetKeys)) {
-        return true;
-      }
-      List<String> keys = Arrays.asList(key.split(";"));
+    if (key == null) {
+      return false;
+    }
+    if (budget.getFromDate() == null || budget.getToDate() == null) {
+      return true;
+    }
 
-      if (!CollectionUtils.isEmpty(repoBudgetKeys) && !CollectionUtils.isEmpty(keys)) {
-        for (String keyStr : keys) {
-          for (Budget budgetKey : repoBudgetKeys) {
-            if (budgetKey.getBudgetKey().contains(keyStr) && isInSameDates(budget, budgetKey)) {
-              return false;
-            }
-          }
+    Set<String> keySet = new HashSet<>(Arrays.asList(key.split(BudgetKeyIndex.KEY_SEPARATOR)));
+    List<Object[]> budgetKeyRowList =
+        JPA.em()
+            .createQuery(
+                "SELECT self.budgetKey, self.fromDate, self.toDate FROM Budget self "
+                    + "JOIN self.globalBudget globalBudget "
+                    + "WHERE self.budgetKey IS NOT NULL AND self.id != :budgetId "
+                    + "AND self.fromDate <= :toDate AND self.toDate >= :fromDate "
+                    + "AND globalBudget.statusSelect != :archivedStatus",
+                Object[].class)
+            .setParameter("budgetId", budget.getId() != null ? budget.getId() : 0L)
+            .setParameter("fromDate", budget.getFromDate())
+            .setParameter("toDate", budget.getToDate())
+            .setParameter(
+                "archivedStatus", GlobalBudgetRepository.GLOBAL_BUDGET_STATUS_SELECT_ARCHIVED)
+            .getResultList();
+
+    for (Object[] budgetKeyRow : budgetKeyRowList) {
+      for (String keyComponent : ((String) budgetKeyRow[0]).split(BudgetKeyIndex.KEY_SEPARATOR)) {
+        if (keySet.contains(keyComponent)
+            && isInSameDates(
+                budget.getFromDate(),
+                budget.getToDate(),
+                (LocalDate) budgetKeyRow[1],
+                (LocalDate) budgetKeyRow[2])) {
+          return false;
         }
-        return true;
       }
     }
-    return false;
+    return true;
   }
 
   @Override
   public Budget findBudgetWithKey(String key, LocalDate date) {
-    List<Budget> budgetList =
-        budgetRepository
-            .all()
-            .filter(
-                "self.globalBudget.statusSelect = :statusSelect AND self.budgetKey LIKE '%"
-                    + key
-                    + "%'")
-            .bind("statusSelect", GlobalBudgetRepository.GLOBAL_BUDGET_STATUS_SELECT_VALID)
-            .fetch();
-    if (!CollectionUtils.isEmpty(budgetList) && date != null) {
-      for (Budget budget : budgetList) {
-        if ((budget.getFromDate().isBefore(date) || budget.getFromDate().isEqual(date))
-            && (budget.getToDate().isAfter(date) || budget.getToDate().isEqual(date))) {
-          return budget;
-        }
-      }
+    if (key == null || date == null) {
+      return null;
     }
-    return null;
+    Long budgetId = budgetKeyIndexService.getIndex().findBudgetId(key, date);
+    return budgetId != null ? budgetRepository.find(budgetId) : null;
   }
 
   @Override
@@ -798,16 +801,20 @@ public class BudgetServiceImpl implements BudgetService {
 
   @Override
   public boolean isInSameDates(Budget budget, Budget budgetKey) {
-    if (budget != null
-        && budget.getFromDate() != null
-        && budget.getToDate() != null
+    return budget != null
         && budgetKey != null
-        && budgetKey.getFromDate() != null
-        && budgetKey.getToDate() != null) {
-      return !((budget.getFromDate().isAfter(budgetKey.getFromDate())
-              && budget.getFromDate().isAfter(budgetKey.getToDate()))
-          || (budget.getToDate().isBefore(budgetKey.getFromDate())
-              && budget.getToDate().isBefore(budgetKey.getToDate())));
+        && isInSameDates(
+            budget.getFromDate(),
+            budget.getToDate(),
+            budgetKey.getFromDate(),
+            budgetKey.getToDate());
+  }
+
+  protected boolean isInSameDates(
+      LocalDate fromDate, LocalDate toDate, LocalDate otherFromDate, LocalDate otherToDate) {
+    if (fromDate != null && toDate != null && otherFromDate != null && otherToDate != null) {
+      return !((fromDate.isAfter(otherFromDate) && fromDate.isAfter(otherToDate))
+          || (toDate.isBefore(otherFromDate) && toDate.isBefore(otherToDate)));
     }
     return false;
   }
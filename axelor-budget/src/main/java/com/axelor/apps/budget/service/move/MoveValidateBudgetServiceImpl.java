@@ -35,6 +35,7 @@ import com.axelor.apps.account.service.moveline.MoveLineCheckService;
 import com.axelor.apps.account.service.moveline.MoveLineFinancialDiscountService;
 import com.axelor.apps.account.service.moveline.MoveLineTaxService;
 import com.axelor.apps.account.service.moveline.MoveLineToolService;
+import com.axelor.apps.account.service.period.AccountPeriodBalanceService;
 import com.axelor.apps.account.service.period.PeriodCheckService;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.PartnerRepository;
@@ -75,7 +76,8 @@ public class MoveValidateBudgetServiceImpl extends MoveValidateHRServiceImpl {
       MoveLineFinancialDiscountService moveLineFinancialDiscountService,
       ExpenseRepository expenseRepository,
       MoveBudgetService moveBudgetService,
-      TaxService taxService) {
+      TaxService taxService,
+      AccountPeriodBalanceService accountPeriodBalanceService) {
     super(
         moveLineControlService,
         moveLineToolService,
@@ -99,7 +101,8 @@ public class MoveValidateBudgetServiceImpl extends MoveValidateHRServiceImpl {
         currencyScaleService,
         moveLineFinancialDiscountService,
         expenseRepository,
-        taxService);
+        taxService,
+        accountPeriodBalanceService);
     this.moveBudgetService = moveBudgetService;
   }
 
@@ -0,0 +1,95 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.budget.service;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestBudgetKeyIndex {
+
+  protected static final LocalDate JANUARY_1 = LocalDate.of(2024, 1, 1);
+  protected static final LocalDate JUNE_30 = LocalDate.of(2024, 6, 30);
+  protected static final LocalDate JULY_1 = LocalDate.of(2024, 7, 1);
+  protected static final LocalDate DECEMBER_31 = LocalDate.of(2024, 12, 31);
+
+  protected BudgetKeyIndex buildIndex() {
+    List<Object[]> budgetRowList =
+        Arrays.asList(
+            new Object[] {1L, "C-601-AX:A1;C-602-AX:A1", JANUARY_1, JUNE_30, 10L},
+            new Object[] {2L, "C-601-AX:A1", JULY_1, DECEMBER_31, 10L},
+            new Object[] {3L, "C-601-AX:A10", JANUARY_1, DECEMBER_31, 10L},
+            new Object[] {4L, "C-603-AX:A1", JANUARY_1, DECEMBER_31, 20L});
+    return BudgetKeyIndex.of(budgetRowList, Collections.singletonList(10L));
+  }
+
+  @Test
+  void testFindBudgetIdByDate() {
+    BudgetKeyIndex index = buildIndex();
+    Assertions.assertEquals(Long.valueOf(1), index.findBudgetId("C-601-AX:A1", JANUARY_1));
+    Assertions.assertEquals(Long.valueOf(1), index.findBudgetId("C-601-AX:A1", JUNE_30));
+    Assertions.assertEquals(Long.valueOf(2), index.findBudgetId("C-601-AX:A1", JULY_1));
+    Assertions.assertEquals(
+        Long.valueOf(1), index.findBudgetId("C-602-AX:A1", LocalDate.of(2024, 3, 15)));
+    Assertions.assertNull(index.findBudgetId("C-602-AX:A1", JULY_1));
+    Assertions.assertNull(index.findBudgetId("C-601-AX:A1", LocalDate.of(2025, 1, 1)));
+  }
+
+  @Test
+  void testFindBudgetIdMatchesExactKey() {
+    BudgetKeyIndex index = buildIndex();
+    Assertions.assertEquals(Long.valueOf(3), index.findBudgetId("C-601-AX:A10", JULY_1));
+    Assertions.assertNull(index.findBudgetId("601-AX:A1", JULY_1));
+  }
+
+  @Test
+  void testFindBudgetIdIgnoresNonValidGlobalBudgets() {
+    BudgetKeyIndex index = buildIndex();
+    Assertions.assertNull(index.findBudgetId("C-603-AX:A1", JULY_1));
+    Assertions.assertFalse(index.containsBudget(4L));
+  }
+
+  @Test
+  void testFindBudgetIdWithOverlappingBudgets() {
+    List<Object[]> budgetRowList =
+        Arrays.asList(
+            new Object[] {1L, "C-601-AX:A1", JANUARY_1, DECEMBER_31, 10L},
+            new Object[] {
+              2L, "C-601-AX:A1", LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29), 10L
+            });
+    BudgetKeyIndex index = BudgetKeyIndex.of(budgetRowList, Collections.singletonList(10L));
+    Assertions.assertEquals(
+        Long.valueOf(2), index.findBudgetId("C-601-AX:A1", LocalDate.of(2024, 2, 15)));
+    Assertions.assertEquals(
+        Long.valueOf(1), index.findBudgetId("C-601-AX:A1", LocalDate.of(2024, 3, 15)));
+  }
+
+  @Test
+  void testIsUpToDate() {
+    BudgetKeyIndex index = buildIndex();
+    Assertions.assertTrue(index.isUpToDate(2L, "C-601-AX:A1", JULY_1, DECEMBER_31, 10L));
+    Assertions.assertFalse(index.isUpToDate(2L, "C-601-AX:A2", JULY_1, DECEMBER_31, 10L));
+    Assertions.assertFalse(index.isUpToDate(2L, "C-601-AX:A1", JULY_1, DECEMBER_31, 20L));
+    Assertions.assertTrue(index.isUpToDate(4L, "C-603-AX:A1", JULY_1, DECEMBER_31, 20L));
+    Assertions.assertFalse(index.isUpToDate(5L, "C-604-AX:A1", JULY_1, DECEMBER_31, 10L));
+  }
+}
@@ -38,6 +38,7 @@ import com.axelor.apps.cash.management.db.Forecast;
 import com.axelor.apps.cash.management.db.ForecastRecap;
 import com.axelor.apps.cash.management.db.ForecastRecapLine;
 import com.axelor.apps.cash.management.db.ForecastRecapLineType;
+import com.axelor.apps.cash.management.db.repo.ForecastRecapLineRepository;
 import com.axelor.apps.cash.management.db.repo.ForecastRecapLineTypeRepository;
 import com.axelor.apps.cash.management.db.repo.ForecastRecapRepository;
 import com.axelor.apps.cash.management.exception.CashManagementExceptionMessage;
@@ -67,8 +68,6 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -85,16 +84,20 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
 
   private final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
+  protected static final int FETCH_LIMIT = 100;
+
   protected AppBaseService appBaseService;
   protected CurrencyService currencyService;
   protected ForecastRecapLineTypeRepository forecastRecapLineTypeRepo;
   protected ForecastRecapRepository forecastRecapRepo;
+  protected ForecastRecapLineRepository forecastRecapLineRepo;
   protected TimetableRepository timetableRepo;
   protected InvoiceTermRepository invoiceTermRepo;
   protected JournalService journalService;
 
   protected LocalDate today;
   protected Map<Integer, List<Integer>> invoiceStatusMap;
+  protected Map<Long, BigDecimal> journalDebitBalanceMap = new HashMap<>();
 
   @Inject
   public ForecastRecapServiceImpl(
@@ -102,6 +105,7 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
       CurrencyService currencyService,
       ForecastRecapLineTypeRepository forecastRecapLineTypeRepo,
       ForecastRecapRepository forecastRecapRepo,
+      ForecastRecapLineRepository forecastRecapLineRepo,
       TimetableRepository timetableRepo,
       InvoiceTermRepository invoiceTermRepo,
       JournalService journalService) {
@@ -109,6 +113,7 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
     this.currencyService = currencyService;
     this.forecastRecapLineTypeRepo = forecastRecapLineTypeRepo;
     this.forecastRecapRepo = forecastRecapRepo;
+    this.forecastRecapLineRepo = forecastRecapLineRepo;
     this.timetableRepo = timetableRepo;
     this.invoiceTermRepo = invoiceTermRepo;
     this.journalService = journalService;
@@ -117,11 +122,16 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
   @Override
   @Transactional
   public void reset(ForecastRecap forecastRecap) {
-    forecastRecap.clearForecastRecapLineList();
+    JPA.em()
+        .createQuery("DELETE FROM ForecastRecapLine self WHERE self.forecastRecap = :forecastRecap")
+        .setParameter("forecastRecap", forecastRecap)
+        .executeUpdate();
+    JPA.refresh(forecastRecap);
     forecastRecap.setCurrentBalance(forecastRecap.getStartingBalance());
 
     today = appBaseService.getTodayDate(forecastRecap.getCompany());
     invoiceStatusMap = fetchAvailableStatusMap();
+    journalDebitBalanceMap.clear();
     forecastRecapRepo.save(forecastRecap);
   }
 
@@ -177,26 +187,23 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
           .bind("opportunityElement", ForecastRecapLineTypeRepository.ELEMENT_OPPORTUNITY);
     }
 
-    forecastRecapLineTypeQuery.order("id");
-
-    final int FETCH_LIMIT = 1;
-    int offset = 0;
+    List<Long> forecastRecapLineTypeIdList =
+        forecastRecapLineTypeQuery.order("id").select("id").fetch(0, 0).stream()
+            .map(map -> (Long) map.get("id"))
+            .collect(Collectors.toList());
 
-    List<ForecastRecapLineType> forecastRecapLineTypeList;
+    boolean manageMultiBanks =
+        appBaseService.getAppBase() != null
+            ? appBaseService.getAppBase().getManageMultiBanks()
+            : false;
 
-    while (!(forecastRecapLineTypeList = forecastRecapLineTypeQuery.fetch(FETCH_LIMIT, offset))
-        .isEmpty()) {
-      boolean manageMultiBanks =
-          appBaseService.getAppBase() != null
-              ? appBaseService.getAppBase().getManageMultiBanks()
-              : false;
-      for (ForecastRecapLineType forecastRecapLineType : forecastRecapLineTypeList) {
-        offset++;
-        populateWithTimetables(forecastRecap, forecastRecapLineType, manageMultiBanks);
-        populateWithForecastLineType(forecastRecap, forecastRecapLineType, manageMultiBanks);
-      }
-      JPA.clear();
+    for (Long forecastRecapLineTypeId : forecastRecapLineTypeIdList) {
       forecastRecap = forecastRecapRepo.find(forecastRecap.getId());
+      ForecastRecapLineType forecastRecapLineType =
+          forecastRecapLineTypeRepo.find(forecastRecapLineTypeId);
+      populateWithTimetables(forecastRecap, forecastRecapLineType, manageMultiBanks);
+      populateWithForecastLineType(forecastRecap, forecastRecapLineType, manageMultiBanks);
+      JPA.clear();
     }
 
     this.finish(forecastRecapRepo.find(forecastRecap.getId()));
@@ -238,7 +245,7 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
 
     Query<? extends Model> modelQuery =
         JPA.all(getModel(forecastRecapLineType))
-            .filter(getFilter(forecastRecapLineType))
+            .filter("(" + getFilter(forecastRecapLineType) + ") AND self.id > :lastId")
             .bind("company", forecastRecap.getCompany())
             .bind("fromDate", forecastRecap.getFromDate())
             .bind("toDate", forecastRecap.getToDate())
@@ -256,21 +263,30 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
             .bind("functionalOrigin", functionalOriginList)
             .order("id");
 
-    final int FETCH_LIMIT = 10;
-    int offset = 0;
+    Long lastId = 0L;
     List<? extends Model> modelList;
 
-    while (!(modelList = modelQuery.fetch(FETCH_LIMIT, offset)).isEmpty()) {
-      for (Model model : modelList) {
-        offset++;
-        createForecastRecapLines(forecastRecap, model, forecastRecapLineType);
-      }
+    while (!(modelList = modelQuery.bind("lastId", lastId).fetch(FETCH_LIMIT)).isEmpty()) {
+      createForecastRecapLines(forecastRecap, modelList, forecastRecapLineType);
+      lastId = modelList.get(modelList.size() - 1).getId();
       JPA.clear();
       forecastRecap = forecastRecapRepo.find(forecastRecap.getId());
       forecastRecapLineType = forecastRecapLineTypeRepo.find(forecastRecapLineType.getId());
     }
   }
 
+  /** Create the lines of a page of models in one transaction. */
+  @Transactional(rollbackOn = {Exception.class})
+  protected void createForecastRecapLines(
+      ForecastRecap forecastRecap,
+      List<? extends Model> modelList,
+      ForecastRecapLineType forecastRecapLineType)
+      throws AxelorException {
+    for (Model model : modelList) {
+      createForecastRecapLines(forecastRecap, model, forecastRecapLineType);
+    }
+  }
+
   /**
    * Handles special cases where we need to create multiple lines for one model. For most
    * forecastRecapLineType, this method will only call {@link
@@ -362,8 +378,8 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
               employee.getName(),
               null,
               employee.getBankDetails(),
-              forecastRecapLineTypeRepo.find(forecastRecapLineType.getId()),
-              forecastRecapRepo.find(forecastRecap.getId()));
+              forecastRecapLineType,
+              forecastRecap);
         }
         itDate = itDate.plusMonths(1);
       } else {
@@ -525,7 +541,7 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
         // this element is not supported by this method.
       case ForecastRecapLineTypeRepository.ELEMENT_MOVE:
         Move move = (Move) forecastModel;
-        return journalService.computeBalance(move.getJournal()).get("debit");
+        return getJournalDebitBalance(move.getJournal());
       default:
         throw new AxelorException(
             TraceBackRepository.CATEGORY_INCONSISTENCY,
@@ -536,6 +552,15 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
     }
   }
 
+  /** The balance of a journal does not change while the recap is populated. */
+  protected BigDecimal getJournalDebitBalance(Journal journal) {
+    Long journalId = journal != null ? journal.getId() : null;
+    if (!journalDebitBalanceMap.containsKey(journalId)) {
+      journalDebitBalanceMap.put(journalId, journalService.computeBalance(journal).get("debit"));
+    }
+    return journalDebitBalanceMap.get(journalId);
+  }
+
   protected BigDecimal getOrderAmount(
       ForecastRecap forecastRecap,
       ForecastRecapLineType forecastRecapLineType,
@@ -780,6 +805,7 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
     }
   }
 
+  @Transactional(rollbackOn = {Exception.class})
   protected void populateWithTimetables(
       ForecastRecap forecastRecap,
       ForecastRecapLineType forecastRecapLineType,
@@ -831,7 +857,6 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
               .fetch();
 
       for (Timetable timetable : timetableList) {
-        timetable = timetableRepo.find(timetable.getId());
         BigDecimal amountCompanyCurr =
             currencyService
                 .getAmountCurrencyConvertedAtDate(
@@ -849,8 +874,8 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
             timetable.getSaleOrder().getSaleOrderSeq(),
             timetable.getSaleOrder().getPaymentMode(),
             null,
-            forecastRecapLineTypeRepo.find(forecastRecapLineType.getId()),
-            forecastRecapRepo.find(forecastRecap.getId()));
+            forecastRecapLineType,
+            forecastRecap);
       }
 
     } else if (forecastRecapLineType.getElementSelect()
@@ -874,7 +899,6 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
               .fetch();
 
       for (Timetable timetable : timetableList) {
-        timetable = timetableRepo.find(timetable.getId());
         BigDecimal amountCompanyCurr =
             currencyService
                 .getAmountCurrencyConvertedAtDate(
@@ -892,8 +916,8 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
             timetable.getPurchaseOrder().getPurchaseOrderSeq(),
             timetable.getPurchaseOrder().getPaymentMode(),
             null,
-            forecastRecapLineTypeRepo.find(forecastRecapLineType.getId()),
-            forecastRecapRepo.find(forecastRecap.getId()));
+            forecastRecapLineType,
+            forecastRecap);
       }
     } else if (forecastRecapLineType.getElementSelect()
         == ForecastRecapLineTypeRepository.ELEMENT_MOVE) {
@@ -926,7 +950,6 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
               .fetch();
 
       for (InvoiceTerm invoiceTerm : invoiceTermList) {
-        invoiceTerm = invoiceTermRepo.find(invoiceTerm.getId());
         BigDecimal amountCompanyCurr =
             currencyService
                 .getAmountCurrencyConvertedAtDate(
@@ -945,13 +968,13 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
             invoiceTerm.getMoveLine().getMove().getReference(),
             invoiceTerm.getPaymentMode(),
             invoiceTerm.getMoveLine().getMove().getCompanyBankDetails(),
-            forecastRecapLineTypeRepo.find(forecastRecapLineType.getId()),
-            forecastRecapRepo.find(forecastRecap.getId()));
+            forecastRecapLineType,
+            forecastRecap);
       }
     }
   }
 
-  @Transactional
+  @Transactional(rollbackOn = {Exception.class})
   protected void createForecastRecapLine(
       LocalDate date,
       int type,
@@ -978,45 +1001,30 @@ public class ForecastRecapServiceImpl implements ForecastRecapService {
         Optional.ofNullable(bankDetails).map(BankDetails::getFullName).orElse(""));
 
     forecastRecapLine.setForecastRecapLineType(forecastRecapLineType);
-    forecastRecap.addForecastRecapLineListItem(forecastRecapLine);
+    // The line list of the recap is not loaded to add each line
+    forecastRecapLine.setForecastRecap(forecastRecap);
 
-    forecastRecapRepo.save(forecastRecap);
+    forecastRecapLineRepo.save(forecastRecapLine);
   }
 
   @Override
   public void computeForecastRecapLineBalance(ForecastRecap forecastRecap) {
+    TypedQuery<ForecastRecapLine> forecastRecapLineQuery =
+        JPA.em()
+            .createQuery(
+                "SELECT self FROM ForecastRecapLine self"
+                    + " LEFT JOIN self.forecastRecapLineType forecastRecapLineType"
+                    + " WHERE self.forecastRecap = :forecastRecap"
+                    + " ORDER BY self.estimatedDate, forecastRecapLineType.sequence, self.id",
+                ForecastRecapLine.class)
+            .setParameter("forecastRecap", forecastRecap);
 
-    List<ForecastRecapLine> forecastRecapLines = forecastRecap.getForecastRecapLineList();
-
-    Collections.sort(
-        forecastRecapLines,
-        new Comparator<ForecastRecapLine>() {
-          @Override
-          public int compare(
-              ForecastRecapLine forecastRecapLine1, ForecastRecapLine forecastRecapLine2) {
-            int compareEstimatedDate =
-                forecastRecapLine1
-                    .getEstimatedDate()
-                    .compareTo(forecastRecapLine2.getEstimatedDate());
-            int compareTypeSelect =
-                forecastRecapLine1
-                    .getForecastRecapLineType()
-                    .getSequence()
-                    .compareTo(forecastRecapLine2.getForecastRecapLineType().getSequence());
-            int compareId = forecastRecapLine1.getId().compareTo(forecastRecapLine2.getId());
-            if (compareEstimatedDate == 0) {
-              return compareTypeSelect == 0 ? compareId : compareTypeSelect;
-            }
-            return compareEstimatedDate;
-          }
-        });
-
-    for (ForecastRecapLine forecastRecapLine : forecastRecapLines) {
-      forecastRecap.setCurrentBalance(
-          forecastRecap.getCurrentBalance().add(forecastRecapLine.getAmount()));
-      forecastRecapLine.setBalance(forecastRecap.getCurrentBalance());
+    BigDecimal currentBalance = forecastRecap.getCurrentBalance();
+    for (ForecastRecapLine forecastRecapLine : forecastRecapLineQuery.getResultList()) {
+      currentBalance = currentBalance.add(forecastRecapLine.getAmount());
+      forecastRecapLine.setBalance(currentBalance);
     }
-    forecastRecap.setForecastRecapLineList(forecastRecapLines);
+    forecastRecap.setCurrentBalance(currentBalance);
   }
 
   @Override
@@ -0,0 +1,74 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.hr.service;
+
+import com.axelor.apps.hr.db.EmployeeBonusMgtLine;
+import com.axelor.apps.hr.db.Expense;
+import com.axelor.apps.hr.db.ExtraHoursLine;
+import com.axelor.apps.hr.db.LeaveRequest;
+import com.axelor.apps.hr.db.LunchVoucherMgtLine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validated leave requests, extra hours, expenses, lunch vouchers and bonuses of a pay period not
+ * yet linked to a payroll preparation, grouped by employee id.
+ */
+public class PayrollPeriodData {
+
+  protected final Map<Long, List<LeaveRequest>> leaveRequestMap;
+  protected final Map<Long, List<ExtraHoursLine>> extraHoursLineMap;
+  protected final Map<Long, List<Expense>> expenseMap;
+  protected final Map<Long, List<LunchVoucherMgtLine>> lunchVoucherMgtLineMap;
+  protected final Map<Long, List<EmployeeBonusMgtLine>> employeeBonusMgtLineMap;
+
+  public PayrollPeriodData(
+      Map<Long, List<LeaveRequest>> leaveRequestMap,
+      Map<Long, List<ExtraHoursLine>> extraHoursLineMap,
+      Map<Long, List<Expense>> expenseMap,
+      Map<Long, List<LunchVoucherMgtLine>> lunchVoucherMgtLineMap,
+      Map<Long, List<EmployeeBonusMgtLine>> employeeBonusMgtLineMap) {
+    this.leaveRequestMap = leaveRequestMap;
+    this.extraHoursLineMap = extraHoursLineMap;
+    this.expenseMap = expenseMap;
+    this.lunchVoucherMgtLineMap = lunchVoucherMgtLineMap;
+    this.employeeBonusMgtLineMap = employeeBonusMgtLineMap;
+  }
+
+  public List<LeaveRequest> getLeaveRequestList(Long employeeId) {
+    return leaveRequestMap.getOrDefault(employeeId, new ArrayList<>());
+  }
+
+  public List<ExtraHoursLine> getExtraHoursLineList(Long employeeId) {
+    return extraHoursLineMap.getOrDefault(employeeId, new ArrayList<>());
+  }
+
+  public List<Expense> getExpenseList(Long employeeId) {
+    return expenseMap.getOrDefault(employeeId, new ArrayList<>());
+  }
+
+  public List<LunchVoucherMgtLine> getLunchVoucherMgtLineList(Long employeeId) {
+    return lunchVoucherMgtLineMap.getOrDefault(employeeId, new ArrayList<>());
+  }
+
+  public List<EmployeeBonusMgtLine> getEmployeeBonusMgtLineList(Long employeeId) {
+    return employeeBonusMgtLineMap.getOrDefault(employeeId, new ArrayList<>());
+  }
+}
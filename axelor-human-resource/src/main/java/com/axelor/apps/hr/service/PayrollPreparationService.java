@@ -19,6 +19,7 @@
 package com.axelor.apps.hr.service;
 
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Period;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.app.AppBaseService;
 import com.axelor.apps.base.service.weeklyplanning.WeeklyPlanningService;
@@ -35,8 +36,10 @@ import com.axelor.apps.hr.db.repo.EmployeeBonusMgtLineRepository;
 import com.axelor.apps.hr.db.repo.EmployeeBonusMgtRepository;
 import com.axelor.apps.hr.db.repo.ExpenseRepository;
 import com.axelor.apps.hr.db.repo.ExtraHoursLineRepository;
+import com.axelor.apps.hr.db.repo.ExtraHoursRepository;
 import com.axelor.apps.hr.db.repo.LeaveRequestRepository;
 import com.axelor.apps.hr.db.repo.LunchVoucherMgtLineRepository;
+import com.axelor.apps.hr.db.repo.LunchVoucherMgtRepository;
 import com.axelor.apps.hr.exception.HumanResourceExceptionMessage;
 import com.axelor.apps.hr.service.config.HRConfigService;
 import com.axelor.apps.hr.service.leave.LeaveRequestComputeDurationService;
@@ -48,6 +51,9 @@ import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.apache.commons.collections.CollectionUtils;
 
 public class PayrollPreparationService {
@@ -104,22 +110,150 @@ public class PayrollPreparationService {
     return payrollLeaveList;
   }
 
+  /**
+   * Fill in a new payroll preparation with the records of its employee found in the given data,
+   * instead of querying them.
+   *
+   * @param payrollPreparation a payroll preparation not saved yet
+   * @param payrollPeriodData the data of the period, see {@link #fetchPayrollPeriodData(Period,
+   *     List)}
+   */
+  public List<PayrollLeave> fillInPayrollPreparation(
+      PayrollPreparation payrollPreparation, PayrollPeriodData payrollPeriodData)
+      throws AxelorException {
+
+    Long employeeId = payrollPreparation.getEmployee().getId();
+    List<PayrollLeave> payrollLeaveList =
+        fillInLeaves(payrollPreparation, payrollPeriodData.getLeaveRequestList(employeeId));
+
+    payrollPreparation.setDuration(
+        this.computeWorkingDaysNumber(payrollPreparation, payrollLeaveList));
+
+    payrollPreparation.setExpenseAmount(
+        this.computeExpenseAmount(
+            payrollPreparation, payrollPeriodData.getExpenseList(employeeId)));
+    payrollPreparation.setLunchVoucherNumber(
+        this.computeLunchVoucherNumber(
+            payrollPreparation, payrollPeriodData.getLunchVoucherMgtLineList(employeeId)));
+    payrollPreparation.setEmployeeBonusAmount(
+        computeEmployeeBonusAmount(
+            payrollPreparation, payrollPeriodData.getEmployeeBonusMgtLineList(employeeId)));
+    payrollPreparation.setExtraHoursNumber(
+        computeExtraHoursNumber(
+            payrollPreparation, payrollPeriodData.getExtraHoursLineList(employeeId)));
+
+    return payrollLeaveList;
+  }
+
+  /**
+   * Load the records needed to fill in new payroll preparations of the given employees for the
+   * period, with one query by kind of record instead of one by employee.
+   *
+   * @param period the pay period
+   * @param employeeIds the ids of the employees
+   * @return the records of the period grouped by employee
+   */
+  public PayrollPeriodData fetchPayrollPeriodData(Period period, List<Long> employeeIds) {
+    LocalDate fromDate = period.getFromDate();
+    LocalDate toDate = period.getToDate();
+
+    List<LeaveRequest> leaveRequestList =
+        leaveRequestRepo
+            .all()
+            .filter(
+                "self.statusSelect = :statusSelect AND self.employee.id IN (:employeeIds)"
+                    + " AND ((self.fromDateT BETWEEN :fromDate AND :toDate"
+                    + " OR self.toDateT BETWEEN :fromDate AND :toDate)"
+                    + " OR (:toDate BETWEEN self.fromDateT AND self.toDateT"
+                    + " OR :fromDate BETWEEN self.fromDateT AND self.toDateT))")
+            .bind("statusSelect", LeaveRequestRepository.STATUS_VALIDATED)
+            .bind("employeeIds", employeeIds)
+            .bind("fromDate", fromDate)
+            .bind("toDate", toDate)
+            .order("id")
+            .fetch();
+
+    List<ExtraHoursLine> extraHoursLineList =
+        Beans.get(ExtraHoursLineRepository.class)
+            .all()
+            .filter(
+                "self.employee.id IN (:employeeIds)"
+                    + " AND self.extraHours.statusSelect = :statusSelect"
+                    + " AND self.date BETWEEN :fromDate AND :toDate"
+                    + " AND self.payrollPreparation IS NULL")
+            .bind("employeeIds", employeeIds)
+            .bind("statusSelect", ExtraHoursRepository.STATUS_VALIDATED)
+            .bind("fromDate", fromDate)
+            .bind("toDate", toDate)
+            .order("id")
+            .fetch();
+
+    List<Expense> expenseList =
+        Beans.get(ExpenseRepository.class)
+            .all()
+            .filter(
+                "self.employee.id IN (:employeeIds)"
+                    + " AND self.statusSelect = :statusSelect"
+                    + " AND self.payrollPreparation IS NULL"
+                    + " AND self.companyCbSelect = :companyCbSelect"
+                    + " AND self.validationDateTime BETWEEN :fromDate AND :toDate")
+            .bind("employeeIds", employeeIds)
+            .bind("statusSelect", ExpenseRepository.STATUS_VALIDATED)
+            .bind("companyCbSelect", ExpenseRepository.COMPANY_CB_PAYMENT_NO)
+            .bind("fromDate", fromDate)
+            .bind("toDate", toDate)
+            .order("id")
+            .fetch();
+
+    List<LunchVoucherMgtLine> lunchVoucherMgtLineList =
+        Beans.get(LunchVoucherMgtLineRepository.class)
+            .all()
+            .filter(
+                "self.employee.id IN (:employeeIds)"
+                    + " AND self.lunchVoucherMgt.statusSelect = :statusSelect"
+                    + " AND self.payrollPreparation IS NULL"
+                    + " AND self.lunchVoucherMgt.payPeriod = :period")
+            .bind("employeeIds", employeeIds)
+            .bind("statusSelect", LunchVoucherMgtRepository.STATUS_VALIDATED)
+            .bind("period", period)
+            .order("id")
+            .fetch();
+
+    List<EmployeeBonusMgtLine> employeeBonusMgtLineList =
+        Beans.get(EmployeeBonusMgtLineRepository.class)
+            .all()
+            .filter(
+                "self.employee.id IN (:employeeIds)"
+                    + " AND self.employeeBonusMgt.statusSelect = :statusSelect"
+                    + " AND self.payrollPreparation IS NULL"
+                    + " AND self.employeeBonusMgt.payPeriod = :period")
+            .bind("employeeIds", employeeIds)
+            .bind("statusSelect", EmployeeBonusMgtRepository.STATUS_CALCULATED)
+            .bind("period", period)
+            .order("id")
+            .fetch();
+
+    return new PayrollPeriodData(
+        groupByEmployee(leaveRequestList, LeaveRequest::getEmployee),
+        groupByEmployee(extraHoursLineList, ExtraHoursLine::getEmployee),
+        groupByEmployee(expenseList, Expense::getEmployee),
+        groupByEmployee(lunchVoucherMgtLineList, LunchVoucherMgtLine::getEmployee),
+        groupByEmployee(employeeBonusMgtLineList, EmployeeBonusMgtLine::getEmployee));
+  }
+
+  protected <T> Map<Long, List<T>> groupByEmployee(
+      List<T> recordList, Function<T, Employee> employeeGetter) {
+    return recordList.stream()
+        .collect(Collectors.groupingBy(record -> employeeGetter.apply(record).getId()));
+  }
+
   public List<PayrollLeave> fillInLeaves(PayrollPreparation payrollPreparation)
       throws AxelorException {
 
-    List<PayrollLeave> payrollLeaveList = new ArrayList<>();
     LocalDate fromDate = payrollPreparation.getPeriod().getFromDate();
     LocalDate toDate = payrollPreparation.getPeriod().getToDate();
     Employee employee = payrollPreparation.getEmployee();
 
-    if (employee.getWeeklyPlanning() == null) {
-      throw new AxelorException(
-          payrollPreparation,
-          TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
-          I18n.get(HumanResourceExceptionMessage.EMPLOYEE_PLANNING),
-          employee.getName());
-    }
-
     List<LeaveRequest> leaveRequestList =
         leaveRequestRepo
             .all()
@@ -131,6 +265,26 @@ public class PayrollPreparationService {
                 LeaveRequestRepository.STATUS_VALIDATED)
             .fetch();
 
+    return fillInLeaves(payrollPreparation, leaveRequestList);
+  }
+
+  public List<PayrollLeave> fillInLeaves(
+      PayrollPreparation payrollPreparation, List<LeaveRequest> leaveRequestList)
+      throws AxelorException {
+
+    List<PayrollLeave> payrollLeaveList = new ArrayList<>();
+    LocalDate fromDate = payrollPreparation.getPeriod().getFromDate();
+    LocalDate toDate = payrollPreparation.getPeriod().getToDate();
+    Employee employee = payrollPreparation.getEmployee();
+
+    if (employee.getWeeklyPlanning() == null) {
+      throw new AxelorException(
+          payrollPreparation,
+          TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
+          I18n.get(HumanResourceExceptionMessage.EMPLOYEE_PLANNING),
+          employee.getName());
+    }
+
     for (LeaveRequest leaveRequest : leaveRequestList) {
 
       PayrollLeave payrollLeave = new PayrollLeave();
@@ -185,11 +339,7 @@ public class PayrollPreparationService {
   public BigDecimal computeExtraHoursNumber(PayrollPreparation payrollPreparation) {
     LocalDate fromDate = payrollPreparation.getPeriod().getFromDate();
     LocalDate toDate = payrollPreparation.getPeriod().getToDate();
-    BigDecimal extraHoursNumber = BigDecimal.ZERO;
-    if (!CollectionUtils.isEmpty(payrollPreparation.getExtraHoursLineList())) {
-      payrollPreparation.getExtraHoursLineList().clear();
-    }
-    for (ExtraHoursLine extraHoursLine :
+    List<ExtraHoursLine> extraHoursLineList =
         Beans.get(ExtraHoursLineRepository.class)
             .all()
             .filter(
@@ -198,7 +348,17 @@ public class PayrollPreparationService {
                 fromDate,
                 toDate,
                 payrollPreparation.getId())
-            .fetch()) {
+            .fetch();
+    return computeExtraHoursNumber(payrollPreparation, extraHoursLineList);
+  }
+
+  public BigDecimal computeExtraHoursNumber(
+      PayrollPreparation payrollPreparation, List<ExtraHoursLine> extraHoursLineList) {
+    BigDecimal extraHoursNumber = BigDecimal.ZERO;
+    if (!CollectionUtils.isEmpty(payrollPreparation.getExtraHoursLineList())) {
+      payrollPreparation.getExtraHoursLineList().clear();
+    }
+    for (ExtraHoursLine extraHoursLine : extraHoursLineList) {
       payrollPreparation.addExtraHoursLineListItem(extraHoursLine);
       extraHoursNumber = extraHoursNumber.add(extraHoursLine.getQty());
     }
@@ -206,10 +366,6 @@ public class PayrollPreparationService {
   }
 
   public BigDecimal computeExpenseAmount(PayrollPreparation payrollPreparation) {
-    BigDecimal expenseAmount = BigDecimal.ZERO;
-    if (!CollectionUtils.isEmpty(payrollPreparation.getExpenseList())) {
-      payrollPreparation.getExpenseList().clear();
-    }
     List<Expense> expenseList =
         Beans.get(ExpenseRepository.class)
             .all()
@@ -226,6 +382,15 @@ public class PayrollPreparationService {
                 payrollPreparation.getPeriod().getFromDate(),
                 payrollPreparation.getPeriod().getToDate())
             .fetch();
+    return computeExpenseAmount(payrollPreparation, expenseList);
+  }
+
+  public BigDecimal computeExpenseAmount(
+      PayrollPreparation payrollPreparation, List<Expense> expenseList) {
+    BigDecimal expenseAmount = BigDecimal.ZERO;
+    if (!CollectionUtils.isEmpty(payrollPreparation.getExpenseList())) {
+      payrollPreparation.getExpenseList().clear();
+    }
     for (Expense expense : expenseList) {
       expenseAmount = expenseAmount.add(expense.getInTaxTotal());
       payrollPreparation.addExpenseListItem(expense);
@@ -234,10 +399,6 @@ public class PayrollPreparationService {
   }
 
   public BigDecimal computeLunchVoucherNumber(PayrollPreparation payrollPreparation) {
-    BigDecimal lunchVoucherNumber = BigDecimal.ZERO;
-    if (!CollectionUtils.isEmpty(payrollPreparation.getLunchVoucherMgtLineList())) {
-      payrollPreparation.getLunchVoucherMgtLineList().clear();
-    }
     List<LunchVoucherMgtLine> lunchVoucherList =
         Beans.get(LunchVoucherMgtLineRepository.class)
             .all()
@@ -247,6 +408,15 @@ public class PayrollPreparationService {
                 payrollPreparation.getId(),
                 payrollPreparation.getPeriod())
             .fetch();
+    return computeLunchVoucherNumber(payrollPreparation, lunchVoucherList);
+  }
+
+  public BigDecimal computeLunchVoucherNumber(
+      PayrollPreparation payrollPreparation, List<LunchVoucherMgtLine> lunchVoucherList) {
+    BigDecimal lunchVoucherNumber = BigDecimal.ZERO;
+    if (!CollectionUtils.isEmpty(payrollPreparation.getLunchVoucherMgtLineList())) {
+      payrollPreparation.getLunchVoucherMgtLineList().clear();
+    }
     for (LunchVoucherMgtLine lunchVoucherMgtLine : lunchVoucherList) {
       lunchVoucherNumber =
           lunchVoucherNumber.add(new BigDecimal(lunchVoucherMgtLine.getLunchVoucherNumber()));
@@ -258,10 +428,6 @@ public class PayrollPreparationService {
   }
 
   public BigDecimal computeEmployeeBonusAmount(PayrollPreparation payrollPreparation) {
-    BigDecimal employeeBonusAmount = BigDecimal.ZERO;
-    if (!CollectionUtils.isEmpty(payrollPreparation.getEmployeeBonusMgtLineList())) {
-      payrollPreparation.getEmployeeBonusMgtLineList().clear();
-    }
     List<EmployeeBonusMgtLine> employeeBonusList =
         Beans.get(EmployeeBonusMgtLineRepository.class)
             .all()
@@ -276,6 +442,15 @@ public class PayrollPreparationService {
                 payrollPreparation.getPeriod(),
                 EmployeeBonusMgtRepository.STATUS_CALCULATED)
             .fetch();
+    return computeEmployeeBonusAmount(payrollPreparation, employeeBonusList);
+  }
+
+  public BigDecimal computeEmployeeBonusAmount(
+      PayrollPreparation payrollPreparation, List<EmployeeBonusMgtLine> employeeBonusList) {
+    BigDecimal employeeBonusAmount = BigDecimal.ZERO;
+    if (!CollectionUtils.isEmpty(payrollPreparation.getEmployeeBonusMgtLineList())) {
+      payrollPreparation.getEmployeeBonusMgtLineList().clear();
+    }
     for (EmployeeBonusMgtLine employeeBonusMgtLine : employeeBonusList) {
       payrollPreparation.addEmployeeBonusMgtLineListItem(employeeBonusMgtLine);
       employeeBonusAmount = employeeBonusAmount.add(employeeBonusMgtLine.getAmount());
@@ -0,0 +1,54 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.hr.service;
+
+import com.axelor.apps.bankpayment.service.SequenceBankPaymentService;
+import com.axelor.apps.base.db.Sequence;
+import com.axelor.apps.base.db.repo.SequenceRepository;
+import com.axelor.apps.base.db.repo.SequenceVersionRepository;
+import com.axelor.apps.base.service.administration.SequenceBlockAllocator;
+import com.axelor.apps.base.service.administration.SequenceVersionGeneratorService;
+import com.axelor.apps.base.service.app.AppBaseService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/** Expense sequences are legal sequences that must not have any gap. */
+@Singleton
+public class SequenceHRService extends SequenceBankPaymentService {
+
+  @Inject
+  public SequenceHRService(
+      SequenceVersionRepository sequenceVersionRepository,
+      AppBaseService appBaseService,
+      SequenceRepository sequenceRepo,
+      SequenceVersionGeneratorService sequenceVersionGeneratorService,
+      SequenceBlockAllocator sequenceBlockAllocator) {
+    super(
+        sequenceVersionRepository,
+        appBaseService,
+        sequenceRepo,
+        sequenceVersionGeneratorService,
+        sequenceBlockAllocator);
+  }
+
+  @Override
+  protected boolean isGapFree(Sequence sequence) {
+    return super.isGapFree(sequence) || SequenceRepository.EXPENSE.equals(sequence.getCodeSelect());
+  }
+}
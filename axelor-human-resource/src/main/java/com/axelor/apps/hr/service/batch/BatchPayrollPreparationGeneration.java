@@ -25,6 +25,7 @@ import com.axelor.apps.base.db.repo.CompanyRepository;
 import com.axelor.apps.base.db.repo.ExceptionOriginRepository;
 import com.axelor.apps.base.db.repo.PeriodRepository;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.service.administration.ChunkedBatch;
 import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.hr.db.Employee;
 import com.axelor.apps.hr.db.HrBatch;
@@ -34,6 +35,7 @@ import com.axelor.apps.hr.db.repo.EmploymentContractRepository;
 import com.axelor.apps.hr.db.repo.HrBatchRepository;
 import com.axelor.apps.hr.db.repo.PayrollPreparationRepository;
 import com.axelor.apps.hr.exception.HumanResourceExceptionMessage;
+import com.axelor.apps.hr.service.PayrollPeriodData;
 import com.axelor.apps.hr.service.PayrollPreparationService;
 import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
@@ -41,23 +43,41 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
-import com.google.inject.persist.Transactional;
 import java.lang.invoke.MethodHandles;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.TypedQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class BatchPayrollPreparationGeneration extends BatchStrategy {
+/**
+ * Generate the payroll preparations of the employees of the batch for its period. Employees are
+ * processed by chunks on the workers configured in the app: the records of the period of a whole
+ * chunk are loaded with a few grouped queries, then its payroll preparations are saved in one
+ * transaction.
+ */
+public class BatchPayrollPreparationGeneration extends BatchStrategy implements ChunkedBatch {
 
   protected final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  protected int duplicateAnomaly;
-  protected int configurationAnomaly;
+  protected AtomicInteger duplicateAnomaly;
+  protected AtomicInteger configurationAnomaly;
   protected int total;
   protected HrBatch hrBatch;
   protected Company company;
+  protected Long periodId;
+  protected Long companyId;
+
+  /** Records of the period of the employees of the chunk processed by the current worker. */
+  protected final ThreadLocal<PayrollPeriodData> chunkPayrollPeriodData = new ThreadLocal<>();
+
+  /** Employees of the chunk processed by the current worker already having a preparation. */
+  protected final ThreadLocal<Set<Long>> chunkDuplicateEmployeeIds = new ThreadLocal<>();
 
   protected PayrollPreparationService payrollPreparationService;
 
@@ -89,25 +109,32 @@ public class BatchPayrollPreparationGeneration extends BatchStrategy {
 
     super.start();
 
-    duplicateAnomaly = 0;
-    configurationAnomaly = 0;
+    duplicateAnomaly = new AtomicInteger();
+    configurationAnomaly = new AtomicInteger();
     total = 0;
     hrBatch = hrBatchRepository.find(batch.getHrBatch().getId());
+    periodId = hrBatch.getPeriod().getId();
+    companyId = null;
     if (hrBatch.getCompany() != null) {
       company = companyRepository.find(hrBatch.getCompany().getId());
+      companyId = company.getId();
     }
     checkPoint();
   }
 
   @Override
   protected void process() {
-
-    List<Employee> employeeList = this.getEmployees(hrBatch);
-    generatePayrollPreparations(employeeList);
+    try {
+      processByChunk(this);
+    } catch (AxelorException e) {
+      TraceBackService.trace(e, ExceptionOriginRepository.LEAVE_MANAGEMENT, batch.getId());
+    } finally {
+      chunkPayrollPeriodData.remove();
+      chunkDuplicateEmployeeIds.remove();
+    }
   }
 
   public List<Employee> getEmployees(HrBatch hrBatch) {
-
     List<String> query = Lists.newArrayList();
 
     if (!hrBatch.getEmployeeSet().isEmpty()) {
@@ -138,78 +165,113 @@ public class BatchPayrollPreparationGeneration extends BatchStrategy {
     }
   }
 
-  public void generatePayrollPreparations(List<Employee> employeeList) {
+  /**
+   * Employees neither former, new nor archived are counted in the total, and their payroll
+   * preparation is generated if their main employment contract is not closed.
+   */
+  @Override
+  public Stream<Long> getIdStream() {
+    List<Employee> employeeList =
+        getEmployees(hrBatch).stream()
+            .filter(Objects::nonNull)
+            .filter(employee -> !EmployeeHRRepository.isEmployeeFormerNewOrArchived(employee))
+            .collect(Collectors.toList());
+    total = employeeList.size();
+    return employeeList.stream()
+        .filter(
+            employee ->
+                employee.getMainEmploymentContract() != null
+                    && employee.getMainEmploymentContract().getStatus()
+                        != EmploymentContractRepository.STATUS_CLOSED)
+        .map(Employee::getId);
+  }
 
-    for (Employee employee :
-        employeeList.stream().filter(Objects::nonNull).collect(Collectors.toList())) {
-      employee = employeeRepository.find(employee.getId());
-      if (EmployeeHRRepository.isEmployeeFormerNewOrArchived(employee)) {
-        continue;
-      }
-      try {
-        hrBatch = hrBatchRepository.find(batch.getHrBatch().getId());
-        if (hrBatch.getCompany() != null) {
-          company = companyRepository.find(hrBatch.getCompany().getId());
-        }
-        if (employee.getMainEmploymentContract() != null
-            && employee.getMainEmploymentContract().getStatus()
-                != EmploymentContractRepository.STATUS_CLOSED) {
-          createPayrollPreparation(employee);
-        }
-      } catch (AxelorException e) {
-        TraceBackService.trace(e, ExceptionOriginRepository.LEAVE_MANAGEMENT, batch.getId());
-        incrementAnomaly();
-        if (e.getCategory() == TraceBackRepository.CATEGORY_NO_UNIQUE_KEY) {
-          duplicateAnomaly++;
-        } else if (e.getCategory() == TraceBackRepository.CATEGORY_CONFIGURATION_ERROR) {
-          configurationAnomaly++;
-        }
-      } finally {
-        total++;
-        JPA.clear();
-      }
+  @Override
+  public void prepareChunk(List<Long> idList) {
+    Period period = periodRepository.find(periodId);
+    chunkPayrollPeriodData.set(payrollPreparationService.fetchPayrollPeriodData(period, idList));
+    chunkDuplicateEmployeeIds.set(getDuplicateEmployeeIds(idList));
+  }
+
+  /**
+   * Get, with one query, the given employees already having a payroll preparation for the period
+   * and the company of the batch.
+   */
+  protected Set<Long> getDuplicateEmployeeIds(List<Long> employeeIds) {
+    String query =
+        "SELECT self.employee.id FROM PayrollPreparation self"
+            + " WHERE self.period.id = :periodId AND self.employee.id IN (:employeeIds)";
+    if (companyId != null) {
+      query += " AND self.company.id = :companyId";
     }
+    TypedQuery<Long> duplicateQuery =
+        JPA.em()
+            .createQuery(query, Long.class)
+            .setParameter("periodId", periodId)
+            .setParameter("employeeIds", employeeIds);
+    if (companyId != null) {
+      duplicateQuery.setParameter("companyId", companyId);
+    }
+    return new HashSet<>(duplicateQuery.getResultList());
+  }
+
+  @Override
+  public void processId(Long id) throws AxelorException {
+    createPayrollPreparation(employeeRepository.find(id), chunkPayrollPeriodData.get());
+  }
+
+  @Override
+  public String getChunkExceptionOrigin() {
+    return ExceptionOriginRepository.LEAVE_MANAGEMENT;
   }
 
-  @Transactional(rollbackOn = {Exception.class})
-  public void createPayrollPreparation(Employee employee) throws AxelorException {
-    if (employee == null || EmployeeHRRepository.isEmployeeFormerNewOrArchived(employee)) {
-      return;
+  /** Anomalies are counted by category here, a failing employee being possibly processed twice. */
+  @Override
+  protected void traceChunkException(Exception e, long batchId, String exceptionOrigin) {
+    if (e instanceof AxelorException) {
+      int category = ((AxelorException) e).getCategory();
+      if (category == TraceBackRepository.CATEGORY_NO_UNIQUE_KEY) {
+        duplicateAnomaly.incrementAndGet();
+      } else if (category == TraceBackRepository.CATEGORY_CONFIGURATION_ERROR) {
+        configurationAnomaly.incrementAndGet();
+      }
     }
-    String filter = "self.period = ?1 AND self.employee = ?2";
-    String companyFilter = filter + " AND self.company = ?3";
-
-    List<PayrollPreparation> payrollPreparationList =
-        payrollPreparationRepository
-            .all()
-            .filter(
-                (company != null) ? companyFilter : filter, hrBatch.getPeriod(), employee, company)
-            .fetch();
-    log.debug("list : " + payrollPreparationList);
-    if (!payrollPreparationList.isEmpty()) {
+    super.traceChunkException(e, batchId, exceptionOrigin);
+  }
+
+  /**
+   * Create the payroll preparation of the employee, in the transaction of its chunk.
+   *
+   * @param employee an employee of the chunk processed by the current worker
+   * @param payrollPeriodData the records of the period of the employees of the chunk
+   */
+  protected void createPayrollPreparation(Employee employee, PayrollPeriodData payrollPeriodData)
+      throws AxelorException {
+    Period period = periodRepository.find(periodId);
+    Company currentCompany = companyId != null ? companyRepository.find(companyId) : null;
+
+    if (chunkDuplicateEmployeeIds.get().contains(employee.getId())) {
       throw new AxelorException(
           employee,
           TraceBackRepository.CATEGORY_NO_UNIQUE_KEY,
           I18n.get(HumanResourceExceptionMessage.PAYROLL_PREPARATION_DUPLICATE),
           employee.getName(),
-          (company != null) ? hrBatch.getCompany().getName() : null,
-          hrBatch.getPeriod().getName());
+          currentCompany != null ? currentCompany.getName() : null,
+          period.getName());
     }
     PayrollPreparation payrollPreparation = new PayrollPreparation();
-    if (company != null) {
-      Company currentCompany = companyRepository.find(company.getId());
+    if (currentCompany != null) {
       payrollPreparation.setCompany(currentCompany);
     } else {
       payrollPreparation.setCompany(employee.getMainEmploymentContract().getPayCompany());
     }
-    Period period = periodRepository.find(hrBatch.getPeriod().getId());
     payrollPreparation.setEmployee(employee);
     payrollPreparation.setEmploymentContract(employee.getMainEmploymentContract());
     payrollPreparation.setPeriod(period);
 
-    payrollPreparationService.fillInPayrollPreparation(payrollPreparation);
+    payrollPreparationService.fillInPayrollPreparation(payrollPreparation, payrollPeriodData);
     payrollPreparationRepository.save(payrollPreparation);
-    updateEmployee(employee);
+    employee.addBatchSetItem(batchRepo.find(batch.getId()));
   }
 
   @Override
@@ -226,20 +288,20 @@ public class BatchPayrollPreparationGeneration extends BatchStrategy {
             I18n.get(HumanResourceExceptionMessage.BATCH_PAYROLL_PREPARATION_SUCCESS_RECAP) + '\n',
             batch.getDone());
 
-    if (duplicateAnomaly > 0) {
+    if (duplicateAnomaly.get() > 0) {
       comment +=
           String.format(
               I18n.get(HumanResourceExceptionMessage.BATCH_PAYROLL_PREPARATION_DUPLICATE_RECAP)
                   + '\n',
-              duplicateAnomaly);
+              duplicateAnomaly.get());
     }
 
-    if (configurationAnomaly > 0) {
+    if (configurationAnomaly.get() > 0) {
       comment +=
           String.format(
               I18n.get(HumanResourceExceptionMessage.BATCH_PAYROLL_PREPARATION_CONFIGURATION_RECAP)
                   + '\n',
-              configurationAnomaly);
+              configurationAnomaly.get());
     }
 
     addComment(comment);
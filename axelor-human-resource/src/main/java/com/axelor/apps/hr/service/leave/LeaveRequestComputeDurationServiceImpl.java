@@ -25,6 +25,8 @@ import com.axelor.apps.base.db.EventsPlanning;
 import com.axelor.apps.base.db.WeeklyPlanning;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.weeklyplanning.WeeklyPlanningService;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendar;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendarService;
 import com.axelor.apps.hr.db.Employee;
 import com.axelor.apps.hr.db.HRConfig;
 import com.axelor.apps.hr.db.LeaveRequest;
@@ -43,12 +45,16 @@ public class LeaveRequestComputeDurationServiceImpl implements LeaveRequestCompu
 
   protected WeeklyPlanningService weeklyPlanningService;
   protected PublicHolidayHrService publicHolidayHrService;
+  protected WorkingCalendarService workingCalendarService;
 
   @Inject
   public LeaveRequestComputeDurationServiceImpl(
-      WeeklyPlanningService weeklyPlanningService, PublicHolidayHrService publicHolidayHrService) {
+      WeeklyPlanningService weeklyPlanningService,
+      PublicHolidayHrService publicHolidayHrService,
+      WorkingCalendarService workingCalendarService) {
     this.weeklyPlanningService = weeklyPlanningService;
     this.publicHolidayHrService = publicHolidayHrService;
+    this.workingCalendarService = workingCalendarService;
   }
 
   /**
@@ -204,14 +210,11 @@ public class LeaveRequestComputeDurationServiceImpl implements LeaveRequestCompu
           duration.add(
               BigDecimal.valueOf(computeStartDateWithSelect(fromDate, startOn, weeklyPlanning)));
 
-      LocalDate itDate = fromDate.plusDays(1);
-      while (!itDate.isEqual(toDate) && !itDate.isAfter(toDate)) {
-        duration =
-            duration.add(
-                BigDecimal.valueOf(
-                    weeklyPlanningService.getWorkingDayValueInDays(weeklyPlanning, itDate)));
-        itDate = itDate.plusDays(1);
-      }
+      duration =
+          duration.add(
+              workingCalendarService
+                  .getWorkingCalendar(weeklyPlanning, null)
+                  .getPlannedDays(fromDate.plusDays(1), toDate.minusDays(1)));
 
       duration =
           duration.add(BigDecimal.valueOf(computeEndDateWithSelect(toDate, endOn, weeklyPlanning)));
@@ -244,11 +247,12 @@ public class LeaveRequestComputeDurationServiceImpl implements LeaveRequestCompu
     BigDecimal duration = BigDecimal.ZERO;
     WeeklyPlanning weeklyPlanning = getWeeklyPlanning(leave, employee);
     EventsPlanning holidayPlanning = getPublicHolidayEventsPlanning(leave, employee);
+    WorkingCalendar workingCalendar =
+        workingCalendarService.getWorkingCalendar(weeklyPlanning, holidayPlanning);
     LocalDate fromDate = fromDateT.toLocalDate();
     LocalDate toDate = toDateT.toLocalDate();
 
-    if (toDate.equals(fromDate)
-        && !publicHolidayHrService.checkPublicHolidayDay(fromDate, holidayPlanning)) {
+    if (toDate.equals(fromDate) && !workingCalendar.isPublicHoliday(fromDate)) {
       duration =
           duration.add(
               weeklyPlanningService.getWorkingDayValueInHours(
@@ -256,7 +260,7 @@ public class LeaveRequestComputeDurationServiceImpl implements LeaveRequestCompu
 
     } else {
       // First day of leave
-      if (!publicHolidayHrService.checkPublicHolidayDay(fromDate, holidayPlanning)) {
+      if (!workingCalendar.isPublicHoliday(fromDate)) {
         duration =
             duration.add(
                 weeklyPlanningService.getWorkingDayValueInHours(
@@ -265,7 +269,7 @@ public class LeaveRequestComputeDurationServiceImpl implements LeaveRequestCompu
       fromDate = fromDate.plusDays(1);
 
       // Last day of leave
-      if (!publicHolidayHrService.checkPublicHolidayDay(toDate, holidayPlanning)) {
+      if (!workingCalendar.isPublicHoliday(toDate)) {
         duration =
             duration.add(
                 weeklyPlanningService.getWorkingDayValueInHours(
@@ -273,14 +277,7 @@ public class LeaveRequestComputeDurationServiceImpl implements LeaveRequestCompu
       }
 
       // Daily leave duration of the other days between from and to date
-      for (LocalDate date = fromDate; date.isBefore(toDate); date = date.plusDays(1)) {
-        if (!publicHolidayHrService.checkPublicHolidayDay(date, holidayPlanning)) {
-          duration =
-              duration.add(
-                  weeklyPlanningService.getWorkingDayValueInHours(
-                      weeklyPlanning, date, null, null));
-        }
-      }
+      duration = duration.add(workingCalendar.getWorkingHours(fromDate, toDate.minusDays(1)));
     }
 
     return duration;
@@ -37,6 +37,7 @@ import com.axelor.apps.account.service.moveline.MoveLineCheckService;
 import com.axelor.apps.account.service.moveline.MoveLineFinancialDiscountService;
 import com.axelor.apps.account.service.moveline.MoveLineTaxService;
 import com.axelor.apps.account.service.moveline.MoveLineToolService;
+import com.axelor.apps.account.service.period.AccountPeriodBalanceService;
 import com.axelor.apps.account.service.period.PeriodCheckService;
 import com.axelor.apps.base.AxelorException;
 import com.axelor.apps.base.db.repo.PartnerRepository;
@@ -78,7 +79,8 @@ public class MoveValidateHRServiceImpl extends MoveValidateServiceImpl
       CurrencyScaleService currencyScaleService,
       MoveLineFinancialDiscountService moveLineFinancialDiscountService,
       ExpenseRepository expenseRepository,
-      TaxService taxService) {
+      TaxService taxService,
+      AccountPeriodBalanceService accountPeriodBalanceService) {
     super(
         moveLineControlService,
         moveLineToolService,
@@ -101,7 +103,8 @@ public class MoveValidateHRServiceImpl extends MoveValidateServiceImpl
         companyConfigService,
         currencyScaleService,
         moveLineFinancialDiscountService,
-        taxService);
+        taxService,
+        accountPeriodBalanceService);
     this.expenseRepository = expenseRepository;
   }
 
@@ -26,6 +26,7 @@ import com.axelor.apps.production.db.repo.ManufOrderRepository;
 import com.axelor.apps.production.db.repo.OperationOrderRepository;
 import com.axelor.apps.production.service.app.AppProductionService;
 import com.axelor.apps.production.service.config.ProductionConfigService;
+import com.axelor.apps.production.service.machine.MachineCapacityCalendarService;
 import com.axelor.apps.production.service.manuforder.ManufOrderCreatePurchaseOrderService;
 import com.axelor.apps.production.service.manuforder.ManufOrderPlanServiceImpl;
 import com.axelor.apps.production.service.manuforder.ManufOrderPlanStockMoveService;
@@ -59,7 +60,8 @@ public class ManufOrderPlanServiceMaintenanceImpl extends ManufOrderPlanServiceI
       AppProductionService appProductionService,
       ManufOrderCreatePurchaseOrderService manufOrderCreatePurchaseOrderService,
       ManufOrderPlanStockMoveService manufOrderPlanStockMoveService,
-      ManufOrderResidualProductService manufOrderResidualProductService) {
+      ManufOrderResidualProductService manufOrderResidualProductService,
+      MachineCapacityCalendarService machineCapacityCalendarService) {
     super(
         manufOrderRepo,
         manufOrderService,
@@ -75,7 +77,8 @@ public class ManufOrderPlanServiceMaintenanceImpl extends ManufOrderPlanServiceI
         appProductionService,
         manufOrderCreatePurchaseOrderService,
         manufOrderPlanStockMoveService,
-        manufOrderResidualProductService);
+        manufOrderResidualProductService,
+        machineCapacityCalendarService);
   }
 
   @Transactional(rollbackOn = {Exception.class})
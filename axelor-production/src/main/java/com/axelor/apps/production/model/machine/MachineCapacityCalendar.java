@@ -0,0 +1,252 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.production.model.machine;
+
+import com.axelor.apps.production.db.OperationOrder;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * In memory calendar of the time slots booked by the operation orders of a machine. Slots are
+ * sorted by start date with the running maximum of their end dates, so the conflicting slots of a
+ * planned time slot are found with binary searches instead of querying the operation orders.
+ *
+ * <p>Slots loaded from the database are keyed by operation order id, slots booked during the
+ * planning by operation order instance so that operation orders not saved yet are handled too.
+ */
+public class MachineCapacityCalendar {
+
+  protected static final Comparator<BookedSlot> SLOT_COMPARATOR =
+      Comparator.comparing((BookedSlot slot) -> slot.startDateT)
+          .thenComparingLong(slot -> slot.sequence);
+
+  protected final List<BookedSlot> slotList = new ArrayList<>();
+  protected final Map<Long, BookedSlot> slotMap = new HashMap<>();
+  protected final Map<OperationOrder, BookedSlot> operationOrderSlotMap = new IdentityHashMap<>();
+
+  /** Number of slots created, used to sort the slots starting at the same date. */
+  protected long slotNbr;
+
+  /** Running maximum of the end dates of the sorted slots, null when it must be computed again. */
+  protected LocalDateTime[] maxEndDateTs;
+
+  /**
+   * Book the time slot of an operation order, replacing its previous booking if any.
+   *
+   * @param operationOrderId id of the operation order, non-null
+   * @param startDateT planned start date of the operation order
+   * @param endDateT planned end date of the operation order
+   */
+  public void book(Long operationOrderId, LocalDateTime startDateT, LocalDateTime endDateT) {
+    Objects.requireNonNull(operationOrderId);
+    release(operationOrderId);
+    addSlot(startDateT, endDateT).ifPresent(slot -> slotMap.put(operationOrderId, slot));
+  }
+
+  /**
+   * Book the time slot of an operation order, saved or not, replacing its previous booking if any.
+   *
+   * @param operationOrder the operation order, non-null
+   * @param startDateT planned start date of the operation order
+   * @param endDateT planned end date of the operation order
+   */
+  public void book(
+      OperationOrder operationOrder, LocalDateTime startDateT, LocalDateTime endDateT) {
+    Objects.requireNonNull(operationOrder);
+    release(operationOrder);
+    addSlot(startDateT, endDateT)
+        .ifPresent(slot -> operationOrderSlotMap.put(operationOrder, slot));
+  }
+
+  /** Remove the booking of an operation order, if any. */
+  public void release(Long operationOrderId) {
+    removeSlot(slotMap.remove(operationOrderId));
+  }
+
+  /** Remove the booking of an operation order, saved or not, if any. */
+  public void release(OperationOrder operationOrder) {
+    removeSlot(operationOrderSlotMap.remove(operationOrder));
+    if (operationOrder.getId() != null) {
+      release(operationOrder.getId());
+    }
+  }
+
+  protected Optional<BookedSlot> addSlot(LocalDateTime startDateT, LocalDateTime endDateT) {
+    if (startDateT == null || endDateT == null) {
+      return Optional.empty();
+    }
+
+    BookedSlot slot = new BookedSlot(slotNbr++, startDateT, endDateT);
+    int index = Collections.binarySearch(slotList, slot, SLOT_COMPARATOR);
+    slotList.add(index < 0 ? -index - 1 : index, slot);
+    maxEndDateTs = null;
+    return Optional.of(slot);
+  }
+
+  protected void removeSlot(BookedSlot slot) {
+    if (slot != null) {
+      slotList.remove(Collections.binarySearch(slotList, slot, SLOT_COMPARATOR));
+      maxEndDateTs = null;
+    }
+  }
+
+  /**
+   * Get the latest end date of the slots conflicting with the given time slot, a slot being in
+   * conflict if it covers its start date or its end date, the time before next operation included.
+   *
+   * @param startDateT start date of the time slot
+   * @param endDateT end date of the time slot
+   * @param timeBeforeNextOperation time in seconds to keep free after each slot
+   * @return the latest end date of the conflicting slots, empty if there is none
+   */
+  public Optional<LocalDateTime> getLastConflictingEndDateT(
+      LocalDateTime startDateT, LocalDateTime endDateT, long timeBeforeNextOperation) {
+
+    // Slots starting before the end date are the only ones that can cover the end date or the
+    // start date, and the latest of them is the one ending last.
+    Optional<LocalDateTime> maxEndDateT = getMaxEndDateTOfSlotsStartingBefore(endDateT);
+    if (maxEndDateT.isPresent()
+        && maxEndDateT.get().isAfter(endDateT.minusSeconds(timeBeforeNextOperation))) {
+      return maxEndDateT;
+    }
+
+    maxEndDateT = getMaxEndDateTOfSlotsStartingBefore(startDateT);
+    if (maxEndDateT.isPresent()
+        && maxEndDateT.get().isAfter(startDateT.minusSeconds(timeBeforeNextOperation))) {
+      return maxEndDateT;
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Get the earliest start date of the slots conflicting with the given time slot, a slot being in
+   * conflict if it covers its start date or its end date, or if it is included in the time slot,
+   * the time before next operation included.
+   *
+   * @param startDateT start date of the time slot
+   * @param endDateT end date of the time slot
+   * @param timeBeforeNextOperation time in seconds to keep free after each slot
+   * @return the earliest start date of the conflicting slots, empty if there is none
+   */
+  public Optional<LocalDateTime> getFirstConflictingStartDateT(
+      LocalDateTime startDateT, LocalDateTime endDateT, long timeBeforeNextOperation) {
+
+    // A slot starting before the start date conflicts if it ends after the start date, the first
+    // of them is the first slot whose running maximum end date is after the start date.
+    LocalDateTime minEndDateT = startDateT.minusSeconds(timeBeforeNextOperation);
+    int index = searchFirstMaxEndDateTAfter(minEndDateT);
+    if (index < slotList.size() && slotList.get(index).startDateT.isBefore(startDateT)) {
+      return Optional.of(slotList.get(index).startDateT);
+    }
+
+    // Otherwise the first slot starting in the time slot conflicts.
+    index = searchFirstStartDateTNotBefore(startDateT);
+    if (index < slotList.size()) {
+      LocalDateTime slotStartDateT = slotList.get(index).startDateT;
+      if (slotStartDateT.isBefore(endDateT) || slotStartDateT.isEqual(startDateT)) {
+        return Optional.of(slotStartDateT);
+      }
+    }
+    return Optional.empty();
+  }
+
+  protected Optional<LocalDateTime> getMaxEndDateTOfSlotsStartingBefore(LocalDateTime dateT) {
+    int index = searchFirstStartDateTAfter(dateT) - 1;
+    return index < 0 ? Optional.empty() : Optional.of(getMaxEndDateTs()[index]);
+  }
+
+  protected int searchFirstStartDateTAfter(LocalDateTime dateT) {
+    int low = 0;
+    int high = slotList.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (slotList.get(middle).startDateT.isAfter(dateT)) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  protected int searchFirstStartDateTNotBefore(LocalDateTime dateT) {
+    int low = 0;
+    int high = slotList.size();
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (slotList.get(middle).startDateT.isBefore(dateT)) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  protected int searchFirstMaxEndDateTAfter(LocalDateTime dateT) {
+    LocalDateTime[] maxEndDateTArray = getMaxEndDateTs();
+    int low = 0;
+    int high = maxEndDateTArray.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (maxEndDateTArray[middle].isAfter(dateT)) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return low;
+  }
+
+  protected LocalDateTime[] getMaxEndDateTs() {
+    if (maxEndDateTs == null) {
+      maxEndDateTs = new LocalDateTime[slotList.size()];
+      LocalDateTime maxEndDateT = null;
+      for (int i = 0; i < slotList.size(); i++) {
+        LocalDateTime endDateT = slotList.get(i).endDateT;
+        if (maxEndDateT == null || endDateT.isAfter(maxEndDateT)) {
+          maxEndDateT = endDateT;
+        }
+        maxEndDateTs[i] = maxEndDateT;
+      }
+    }
+    return maxEndDateTs;
+  }
+
+  protected static class BookedSlot {
+
+    protected final long sequence;
+    protected final LocalDateTime startDateT;
+    protected final LocalDateTime endDateT;
+
+    protected BookedSlot(long sequence, LocalDateTime startDateT, LocalDateTime endDateT) {
+      this.sequence = sequence;
+      this.startDateT = startDateT;
+      this.endDateT = endDateT;
+    }
+  }
+}
@@ -109,6 +109,8 @@ import com.axelor.apps.production.service.costsheet.UnitCostCalcLineService;
 import com.axelor.apps.production.service.costsheet.UnitCostCalcLineServiceImpl;
 import com.axelor.apps.production.service.costsheet.UnitCostCalculationService;
 import com.axelor.apps.production.service.costsheet.UnitCostCalculationServiceImpl;
+import com.axelor.apps.production.service.machine.MachineCapacityCalendarService;
+import com.axelor.apps.production.service.machine.MachineCapacityCalendarServiceImpl;
 import com.axelor.apps.production.service.machine.MachineService;
 import com.axelor.apps.production.service.machine.MachineServiceImpl;
 import com.axelor.apps.production.service.manuforder.ManufOrderCheckStockMoveLineService;
@@ -245,6 +247,7 @@ public class ProductionModule extends AxelorModule {
     bind(ManufOrderWorkflowService.class).to(ManufOrderWorkflowServiceImpl.class);
     bind(StockMoveServiceSupplychainImpl.class).to(StockMoveServiceProductionImpl.class);
     bind(MachineService.class).to(MachineServiceImpl.class);
+    bind(MachineCapacityCalendarService.class).to(MachineCapacityCalendarServiceImpl.class);
     bind(OperationOrderWorkflowService.class).to(OperationOrderWorkflowServiceImpl.class);
     bind(OperationOrderPlanningService.class).to(OperationOrderPlanningServiceImpl.class);
     bind(BillOfMaterialLineService.class).to(BillOfMaterialLineServiceImpl.class);
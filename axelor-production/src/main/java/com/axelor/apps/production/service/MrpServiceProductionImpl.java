@@ -64,10 +64,12 @@ import com.axelor.apps.supplychain.service.MrpLineService;
 import com.axelor.apps.supplychain.service.MrpLineTypeService;
 import com.axelor.apps.supplychain.service.MrpSaleOrderCheckLateSaleService;
 import com.axelor.apps.supplychain.service.MrpServiceImpl;
+import com.axelor.apps.supplychain.service.app.AppSupplychainService;
 import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
 import com.axelor.message.service.MailMessageService;
 import com.axelor.utils.helpers.StringHelper;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import java.lang.invoke.MethodHandles;
@@ -76,10 +78,13 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import javax.persistence.TypedQuery;
 import org.apache.commons.collections.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -127,7 +132,8 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
       BillOfMaterialService billOfMaterialService,
       AppProductionService appProductionService,
       ProdProcessLineService prodProcessLineService,
-      BillOfMaterialMrpLineService billOfMaterialMrpLineService) {
+      BillOfMaterialMrpLineService billOfMaterialMrpLineService,
+      AppSupplychainService appSupplychainService) {
     super(
         mrpRepository,
         stockLocationRepository,
@@ -149,7 +155,8 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
         appPurchaseService,
         stockHistoryLineRepository,
         mrpSaleOrderCheckLateSaleService,
-        mrpLineTypeService);
+        mrpLineTypeService,
+        appSupplychainService);
     this.manufOrderRepository = manufOrderRepository;
     this.productCompanyService = productCompanyService;
     this.billOfMaterialService = billOfMaterialService;
@@ -558,6 +565,62 @@ public class MrpServiceProductionImpl extends MrpServiceImpl {
     return mrpLine;
   }
 
+  /**
+   * A manufacturing proposal also creates need lines for the components of the bill of material,
+   * either the default one, one of the product or the one of its mrp lines.
+   */
+  @Override
+  protected Map<Long, Set<Long>> getProposalProductIdMap(List<Long> productIdList) {
+
+    if (!appProductionService.isApp("production")) {
+      return super.getProposalProductIdMap(productIdList);
+    }
+
+    Map<Long, Set<Long>> proposalProductIdMap = new HashMap<>();
+    for (Long productId : productIdList) {
+      proposalProductIdMap.computeIfAbsent(productId, key -> new HashSet<>()).add(productId);
+    }
+
+    List<String> queryList =
+        List.of(
+            "SELECT bom.product.id, line.product.id FROM BillOfMaterial bom"
+                + " JOIN bom.billOfMaterialLineList line"
+                + " WHERE bom.product.id IN :productIdList",
+            "SELECT bom.product.id, prodProduct.product.id FROM BillOfMaterial bom"
+                + " JOIN bom.prodProcess prodProcess"
+                + " JOIN prodProcess.prodProcessLineList prodProcessLine"
+                + " JOIN prodProcessLine.toConsumeProdProductList prodProduct"
+                + " WHERE bom.product.id IN :productIdList",
+            "SELECT self.product.id, line.product.id FROM MrpLine self"
+                + " JOIN self.billOfMaterial bom"
+                + " JOIN bom.billOfMaterialLineList line"
+                + " WHERE self.mrp.id = :mrpId AND self.product.id IN :productIdList",
+            "SELECT self.product.id, prodProduct.product.id FROM MrpLine self"
+                + " JOIN self.billOfMaterial bom"
+                + " JOIN bom.prodProcess prodProcess"
+                + " JOIN prodProcess.prodProcessLineList prodProcessLine"
+                + " JOIN prodProcessLine.toConsumeProdProductList prodProduct"
+                + " WHERE self.mrp.id = :mrpId AND self.product.id IN :productIdList");
+
+    for (String query : queryList) {
+      for (List<Long> productIdSubList : Lists.partition(productIdList, MRP_LINE_BATCH_SIZE)) {
+        TypedQuery<Object[]> typedQuery =
+            JPA.em()
+                .createQuery(query, Object[].class)
+                .setParameter("productIdList", productIdSubList);
+        if (query.contains(":mrpId")) {
+          typedQuery.setParameter("mrpId", mrp.getId());
+        }
+        for (Object[] row : typedQuery.getResultList()) {
+          if (row[1] != null) {
+            proposalProductIdMap.get((Long) row[0]).add((Long) row[1]);
+          }
+        }
+      }
+    }
+    return proposalProductIdMap;
+  }
+
   protected void computeMaturityDateWithOperations(
       Mrp mrp,
       BigDecimal reorderQty,
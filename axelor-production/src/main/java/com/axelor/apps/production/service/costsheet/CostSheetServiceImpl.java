@@ -46,6 +46,7 @@ import com.axelor.apps.production.service.app.AppProductionService;
 import com.axelor.apps.stock.db.StockMove;
 import com.axelor.apps.stock.db.StockMoveLine;
 import com.axelor.apps.stock.db.repo.StockMoveRepository;
+import com.axelor.common.ObjectUtils;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.studio.db.AppProduction;
@@ -59,6 +60,7 @@ import java.time.Duration;
 import java.time.LocalDate;
 import java.time.Period;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -79,6 +81,7 @@ public class CostSheetServiceImpl implements CostSheetService {
   protected Unit cycleUnit;
   protected boolean manageResidualProductOnBom;
   protected CostSheet costSheet;
+  protected Map<List<Long>, CostSheetLine> subBomCostSheetLineMap;
 
   @Inject
   public CostSheetServiceImpl(
@@ -103,6 +106,7 @@ public class CostSheetServiceImpl implements CostSheetService {
     this.manageResidualProductOnBom = appProduction.getManageResidualProductOnBom();
 
     costSheet = new CostSheet();
+    subBomCostSheetLineMap = new HashMap<>();
   }
 
   @Override
@@ -338,7 +342,7 @@ public class CostSheetServiceImpl implements CostSheetService {
           }
 
           if (billOfMaterialLine.getBillOfMaterial() != null) {
-            this._computeCostPrice(
+            this.computeSubBomCostPrice(
                 company,
                 billOfMaterialLine.getBillOfMaterial(),
                 bomLevel,
@@ -351,6 +355,86 @@ public class CostSheetServiceImpl implements CostSheetService {
     }
   }
 
+  /**
+   * The lines of a sub bill of materials only depend on the bill of materials and on the consumed
+   * product, so a sub-assembly used by several parents is computed once per cost sheet and its
+   * lines are copied under the other parents.
+   */
+  protected void computeSubBomCostPrice(
+      Company company,
+      BillOfMaterial billOfMaterial,
+      int bomLevel,
+      CostSheetLine parentCostSheetLine,
+      int origin,
+      UnitCostCalculation unitCostCalculation)
+      throws AxelorException {
+
+    // A consumed product line having lines was merged with a previous one, so the lines of the
+    // sub bill of materials must be merged with its lines.
+    if (billOfMaterial.getId() == null
+        || ObjectUtils.notEmpty(parentCostSheetLine.getCostSheetLineList())) {
+      this._computeCostPrice(
+          company, billOfMaterial, bomLevel, parentCostSheetLine, origin, unitCostCalculation);
+      return;
+    }
+
+    List<Long> key =
+        Arrays.asList(billOfMaterial.getId(), parentCostSheetLine.getProduct().getId());
+    CostSheetLine computedCostSheetLine = subBomCostSheetLineMap.get(key);
+
+    if (computedCostSheetLine != null) {
+      this.copyCostSheetLines(
+          computedCostSheetLine,
+          parentCostSheetLine,
+          parentCostSheetLine.getBomLevel() - computedCostSheetLine.getBomLevel());
+      return;
+    }
+
+    this._computeCostPrice(
+        company, billOfMaterial, bomLevel, parentCostSheetLine, origin, unitCostCalculation);
+
+    // The lines are copied as they may still be merged with other lines of the cost sheet
+    computedCostSheetLine = new CostSheetLine();
+    computedCostSheetLine.setBomLevel(parentCostSheetLine.getBomLevel());
+    this.copyCostSheetLines(parentCostSheetLine, computedCostSheetLine, 0);
+    subBomCostSheetLineMap.put(key, computedCostSheetLine);
+  }
+
+  protected void copyCostSheetLines(
+      CostSheetLine fromCostSheetLine, CostSheetLine toCostSheetLine, int bomLevelShift)
+      throws AxelorException {
+
+    if (fromCostSheetLine.getCostSheetLineList() == null) {
+      return;
+    }
+
+    for (CostSheetLine costSheetLine : fromCostSheetLine.getCostSheetLineList()) {
+
+      int bomLevel = costSheetLine.getBomLevel() + bomLevelShift;
+      if (bomLevel > 50) {
+        throw new AxelorException(
+            TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
+            I18n.get(ProductionExceptionMessage.LOOP_IN_BILL_OF_MATERIALS));
+      }
+
+      CostSheetLine copy = new CostSheetLine(costSheetLine.getCode(), costSheetLine.getName());
+      copy.setBomLevel(bomLevel);
+      copy.setConsumptionQty(costSheetLine.getConsumptionQty());
+      copy.setCostPrice(costSheetLine.getCostPrice());
+      copy.setUnitCostPrice(costSheetLine.getUnitCostPrice());
+      copy.setRatio(costSheetLine.getRatio());
+      copy.setCostSheetGroup(costSheetLine.getCostSheetGroup());
+      copy.setProduct(costSheetLine.getProduct());
+      copy.setTypeSelect(costSheetLine.getTypeSelect());
+      copy.setTypeSelectIcon(costSheetLine.getTypeSelectIcon());
+      copy.setUnit(costSheetLine.getUnit());
+      copy.setWorkCenter(costSheetLine.getWorkCenter());
+      toCostSheetLine.addCostSheetLineListItem(copy);
+
+      this.copyCostSheetLines(costSheetLine, copy, bomLevelShift);
+    }
+  }
+
   protected void _computeProcess(
       ProdProcess prodProcess,
       BigDecimal producedQty,
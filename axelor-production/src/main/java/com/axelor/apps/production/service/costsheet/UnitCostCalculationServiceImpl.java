@@ -19,6 +19,7 @@
 package com.axelor.apps.production.service.costsheet;
 
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.callable.ParallelWorkerTool;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.Currency;
 import com.axelor.apps.base.db.Product;
@@ -247,24 +248,57 @@ public class UnitCostCalculationServiceImpl implements UnitCostCalculationServic
     unitCostCalculationRepository.save(unitCostCalculation);
   }
 
+  /**
+   * Levels are computed from the deepest one, so the components of a product are computed before
+   * it. The products of a level don't depend on each other: they are split in chunks computed by
+   * the batch workers of the app, each chunk being saved in its own transaction.
+   */
   protected void calculationProcess(UnitCostCalculation unitCostCalculation)
       throws AxelorException {
 
-    for (int level = this.getMaxLevel(); level >= 0; level--) {
+    Long unitCostCalculationId = unitCostCalculation.getId();
+    int chunkSize = Math.max(appBaseService.getAppBase().getBatchChunkSize(), 1);
+    int workerNbr = Math.max(appBaseService.getAppBase().getBatchWorkerNbr(), 1);
 
-      for (Product product : this.getProductList(level)) {
+    for (int level = this.getMaxLevel(); level >= 0; level--) {
 
-        this.calculationProductProcess(
-            unitCostCalculationRepository.find(unitCostCalculation.getId()),
-            productRepository.find(product.getId()));
+      List<Long> productIdList = this.getProductIdList(level);
+      JPA.clear();
 
-        JPA.clear();
-      }
+      ParallelWorkerTool.run(
+          Lists.partition(productIdList, chunkSize),
+          workerNbr,
+          productIdChunk -> {
+            this.calculationProductProcess(unitCostCalculationId, productIdChunk);
+            JPA.clear();
+          });
     }
   }
 
+  /**
+   * Compute the unit cost of a chunk of products in one transaction. The cost sheet service keeps
+   * the cost sheet being computed, so each chunk uses its own instance.
+   */
   @Transactional(rollbackOn = {Exception.class})
-  protected void calculationProductProcess(UnitCostCalculation unitCostCalculation, Product product)
+  protected void calculationProductProcess(Long unitCostCalculationId, List<Long> productIdList)
+      throws AxelorException {
+
+    UnitCostCalculation unitCostCalculation =
+        unitCostCalculationRepository.find(unitCostCalculationId);
+    CostSheetService chunkCostSheetService = Beans.get(CostSheetService.class);
+
+    for (Long productId : productIdList) {
+      UnitCostCalcLine unitCostCalcLine =
+          this.calculationProductProcess(
+              unitCostCalculation, productRepository.find(productId), chunkCostSheetService);
+      // The line is not added to the calculation, which is shared by the workers
+      unitCostCalcLine.setUnitCostCalculation(unitCostCalculation);
+      unitCostCalcLineRepository.save(unitCostCalcLine);
+    }
+  }
+
+  protected UnitCostCalcLine calculationProductProcess(
+      UnitCostCalculation unitCostCalculation, Product product, CostSheetService costSheetService)
       throws AxelorException {
 
     int level = this.productMap.get(product.getId()).intValue();
@@ -289,11 +323,8 @@ public class UnitCostCalculationServiceImpl implements UnitCostCalculationServic
     CostSheet costSheet =
         costSheetService.computeCostPrice(billOfMaterial, origin, unitCostCalculation);
 
-    UnitCostCalcLine unitCostCalcLine =
-        unitCostCalcLineService.createUnitCostCalcLine(
-            product, billOfMaterial.getCompany(), level, costSheet);
-    unitCostCalculation.addUnitCostCalcLineListItem(unitCostCalcLine);
-    unitCostCalculationRepository.save(unitCostCalculation);
+    return unitCostCalcLineService.createUnitCostCalcLine(
+        product, billOfMaterial.getCompany(), level, costSheet);
   }
 
   protected Set<Product> getProductList(UnitCostCalculation unitCostCalculation)
@@ -404,23 +435,23 @@ public class UnitCostCalculationServiceImpl implements UnitCostCalculationServic
   }
 
   /**
-   * Get the list of product for a level
+   * Get the ids of the products of a level
    *
    * @param level
    * @return
    */
-  protected List<Product> getProductList(int level) {
+  protected List<Long> getProductIdList(int level) {
 
-    List<Product> productList = Lists.newArrayList();
+    List<Long> productIdList = Lists.newArrayList();
 
-    for (Long productId : this.productMap.keySet()) {
+    for (Map.Entry<Long, Integer> entry : this.productMap.entrySet()) {
 
-      if (this.productMap.get(productId) == level) {
-        productList.add(productRepository.find(productId));
+      if (entry.getValue() == level) {
+        productIdList.add(entry.getKey());
       }
     }
 
-    return productList;
+    return productIdList;
   }
 
   protected void assignProductAndLevel(Set<Product> productList, Company company)
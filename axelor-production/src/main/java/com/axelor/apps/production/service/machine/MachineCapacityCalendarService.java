@@ -0,0 +1,44 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.production.service.machine;
+
+import com.axelor.apps.production.db.Machine;
+import com.axelor.apps.production.model.machine.MachineCapacityCalendar;
+import java.util.Optional;
+
+public interface MachineCapacityCalendarService {
+
+  /**
+   * Start a planning run in the current thread. The capacity calendars of the machines are loaded
+   * on first use and kept until the end of the run. Runs can be nested, the calendars are kept
+   * until the outermost run ends.
+   */
+  void startPlanning();
+
+  /** End the planning run started by {@link #startPlanning()}. */
+  void endPlanning();
+
+  /**
+   * Get the capacity calendar of the machine for the current planning run.
+   *
+   * @param machine the machine
+   * @return the capacity calendar, empty if no planning run is started
+   */
+  Optional<MachineCapacityCalendar> getCalendar(Machine machine);
+}
@@ -0,0 +1,93 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.production.service.machine;
+
+import com.axelor.apps.production.db.Machine;
+import com.axelor.apps.production.db.repo.ManufOrderRepository;
+import com.axelor.apps.production.model.machine.MachineCapacityCalendar;
+import com.axelor.db.JPA;
+import com.google.inject.Singleton;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+@Singleton
+public class MachineCapacityCalendarServiceImpl implements MachineCapacityCalendarService {
+
+  protected final ThreadLocal<PlanningRun> planningRun = new ThreadLocal<>();
+
+  @Override
+  public void startPlanning() {
+    PlanningRun run = planningRun.get();
+    if (run == null) {
+      run = new PlanningRun();
+      planningRun.set(run);
+    }
+    run.depth++;
+  }
+
+  @Override
+  public void endPlanning() {
+    PlanningRun run = planningRun.get();
+    if (run != null && --run.depth <= 0) {
+      planningRun.remove();
+    }
+  }
+
+  @Override
+  public Optional<MachineCapacityCalendar> getCalendar(Machine machine) {
+    PlanningRun run = planningRun.get();
+    if (run == null || machine == null || machine.getId() == null) {
+      return Optional.empty();
+    }
+    return Optional.of(run.calendarMap.computeIfAbsent(machine.getId(), this::loadCalendar));
+  }
+
+  protected MachineCapacityCalendar loadCalendar(Long machineId) {
+    MachineCapacityCalendar calendar = new MachineCapacityCalendar();
+    for (Object[] row : fetchBookedSlotRowList(machineId)) {
+      calendar.book((Long) row[0], (LocalDateTime) row[1], (LocalDateTime) row[2]);
+    }
+    return calendar;
+  }
+
+  protected List<Object[]> fetchBookedSlotRowList(Long machineId) {
+    return JPA.em()
+        .createQuery(
+            "SELECT self.id, self.plannedStartDateT, self.plannedEndDateT "
+                + "FROM OperationOrder self "
+                + "WHERE self.machine.id = :machineId "
+                + "AND self.plannedStartDateT IS NOT NULL AND self.plannedEndDateT IS NOT NULL "
+                + "AND self.manufOrder.statusSelect != :cancelled "
+                + "AND self.manufOrder.statusSelect != :finished "
+                + "AND self.outsourcing = false",
+            Object[].class)
+        .setParameter("machineId", machineId)
+        .setParameter("cancelled", ManufOrderRepository.STATUS_CANCELED)
+        .setParameter("finished", ManufOrderRepository.STATUS_FINISHED)
+        .getResultList();
+  }
+
+  protected static class PlanningRun {
+    protected int depth;
+    protected final Map<Long, MachineCapacityCalendar> calendarMap = new HashMap<>();
+  }
+}
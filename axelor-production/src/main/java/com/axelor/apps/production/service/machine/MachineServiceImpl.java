@@ -24,6 +24,7 @@ import com.axelor.apps.base.db.EventsPlanning;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
 import com.axelor.apps.base.service.dayplanning.DayPlanningService;
 import com.axelor.apps.base.service.weeklyplanning.WeeklyPlanningService;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendarService;
 import com.axelor.apps.production.db.Machine;
 import com.axelor.apps.production.db.OperationOrder;
 import com.axelor.apps.production.db.WorkCenter;
@@ -46,15 +47,21 @@ public class MachineServiceImpl implements MachineService {
   protected OperationOrderRepository operationOrderRepository;
   protected WeeklyPlanningService weeklyPlanningService;
   protected DayPlanningService dayPlanningService;
+  protected MachineCapacityCalendarService machineCapacityCalendarService;
+  protected WorkingCalendarService workingCalendarService;
 
   @Inject
   public MachineServiceImpl(
       OperationOrderRepository operationOrderRepository,
       WeeklyPlanningService weeklyPlanningService,
-      DayPlanningService dayPlanningService) {
+      DayPlanningService dayPlanningService,
+      MachineCapacityCalendarService machineCapacityCalendarService,
+      WorkingCalendarService workingCalendarService) {
     this.operationOrderRepository = operationOrderRepository;
     this.weeklyPlanningService = weeklyPlanningService;
     this.dayPlanningService = dayPlanningService;
+    this.machineCapacityCalendarService = machineCapacityCalendarService;
+    this.workingCalendarService = workingCalendarService;
   }
 
   @Override
@@ -65,13 +72,17 @@ public class MachineServiceImpl implements MachineService {
       OperationOrder operationOrder)
       throws AxelorException {
 
-    return getClosestAvailableTimeSlotFrom(
-        machine,
-        startDateT,
-        endDateT,
-        operationOrder,
-        DurationHelper.getSecondsDuration(Duration.between(startDateT, endDateT)),
-        false);
+    releaseTimeSlot(machine, operationOrder);
+    MachineTimeSlot machineTimeSlot =
+        getClosestAvailableTimeSlotFrom(
+            machine,
+            startDateT,
+            endDateT,
+            operationOrder,
+            DurationHelper.getSecondsDuration(Duration.between(startDateT, endDateT)),
+            false);
+    bookTimeSlot(machine, operationOrder, machineTimeSlot);
+    return machineTimeSlot;
   }
 
   @Override
@@ -139,42 +150,11 @@ public class MachineServiceImpl implements MachineService {
       }
 
       plannedStartDateT = allowedStartDateTPeriodAt.get();
-      plannedEndDateT = plannedStartDateT.plusSeconds(initialDuration);
-
-      // Must end in a existing period.
+      // The duration is spent in the working periods of the machine, out of its public holidays
       plannedEndDateT =
-          dayPlanningService.getAllowedStartDateTPeriodAt(dayPlanning, plannedEndDateT).get();
-      // Void duration is time where machine is not used (not in any period)
-      long remainingTime = 0l;
-      int counter = 0;
-      do {
-
-        long voidDuration =
-            dayPlanningService.computeVoidDurationBetween(
-                dayPlanning, plannedStartDateT, plannedEndDateT);
-
-        remainingTime =
-            initialDuration
-                - DurationHelper.getSecondsDuration(
-                    Duration.between(plannedStartDateT, plannedEndDateT)
-                        .minusSeconds(voidDuration));
-
-        // So the time 'spent' must be reported
-        plannedEndDateT = plannedEndDateT.plusSeconds(remainingTime);
-
-        // And of course it must end in a existing period.
-        plannedEndDateT =
-            dayPlanningService.getAllowedStartDateTPeriodAt(dayPlanning, plannedEndDateT).get();
-
-        counter++;
-
-      } while (remainingTime > 0 && counter < MAX_LOOP_CALL);
-
-      if (counter == MAX_LOOP_CALL) {
-        throw new AxelorException(
-            TraceBackRepository.CATEGORY_INCONSISTENCY,
-            ProductionExceptionMessage.TOO_MANY_CALL_GETTING_END_DATE);
-      }
+          workingCalendarService
+              .getWorkingCalendar(machine.getWeeklyPlanning(), planning)
+              .plusWorkingSeconds(plannedStartDateT, initialDuration);
 
     } else {
       // The machine does not have weekly planning so dates are ok for now.
@@ -202,8 +182,46 @@ public class MachineServiceImpl implements MachineService {
             .map(WorkCenter::getTimeBeforeNextOperation)
             .orElse(0l);
     // Must check if dates are occupied by other operation orders
-    // The first one of the list will be the last to finish
+    Optional<LocalDateTime> lastEndDateT =
+        machineCapacityCalendarService
+            .getCalendar(machine)
+            .map(
+                calendar ->
+                    calendar.getLastConflictingEndDateT(
+                        plannedStartDateT, plannedEndDateT, timeBeforeNextOperation))
+            .orElseGet(
+                () ->
+                    getLastConcurrentEndDateT(
+                        machine,
+                        operationOrder,
+                        timeBeforeNextOperation,
+                        plannedStartDateT,
+                        plannedEndDateT));
+
+    if (lastEndDateT.isEmpty()) {
+      return new MachineTimeSlot(plannedStartDateT, plannedEndDateT);
+    } else {
+      return getClosestAvailableTimeSlotFrom(
+          machine,
+          lastEndDateT.get().plusSeconds(timeBeforeNextOperation),
+          lastEndDateT.get().plusSeconds(timeBeforeNextOperation + initialDuration),
+          operationOrder,
+          initialDuration,
+          false);
+    }
+  }
 
+  /**
+   * Query the end date of the last operation order of the machine conflicting with the given time
+   * slot, used outside of a planning run.
+   */
+  protected Optional<LocalDateTime> getLastConcurrentEndDateT(
+      Machine machine,
+      OperationOrder operationOrder,
+      long timeBeforeNextOperation,
+      LocalDateTime plannedStartDateT,
+      LocalDateTime plannedEndDateT) {
+    // The first one of the list will be the last to finish
     List<OperationOrder> concurrentOperationOrders =
         operationOrderRepository
             .all()
@@ -225,21 +243,7 @@ public class MachineServiceImpl implements MachineService {
             .order("-plannedEndDateT")
             .fetch();
 
-    if (concurrentOperationOrders.isEmpty()) {
-      return new MachineTimeSlot(plannedStartDateT, plannedEndDateT);
-    } else {
-      OperationOrder lastOperationOrder = concurrentOperationOrders.get(0);
-
-      return getClosestAvailableTimeSlotFrom(
-          machine,
-          lastOperationOrder.getPlannedEndDateT().plusSeconds(timeBeforeNextOperation),
-          lastOperationOrder
-              .getPlannedEndDateT()
-              .plusSeconds(timeBeforeNextOperation + initialDuration),
-          operationOrder,
-          initialDuration,
-          false);
-    }
+    return concurrentOperationOrders.stream().findFirst().map(OperationOrder::getPlannedEndDateT);
   }
 
   @Override
@@ -250,13 +254,17 @@ public class MachineServiceImpl implements MachineService {
       OperationOrder operationOrder)
       throws AxelorException {
 
-    return getFurthestAvailableTimeSlotFrom(
-        machine,
-        startDateT,
-        endDateT,
-        operationOrder,
-        DurationHelper.getSecondsDuration(Duration.between(startDateT, endDateT)),
-        false);
+    releaseTimeSlot(machine, operationOrder);
+    MachineTimeSlot machineTimeSlot =
+        getFurthestAvailableTimeSlotFrom(
+            machine,
+            startDateT,
+            endDateT,
+            operationOrder,
+            DurationHelper.getSecondsDuration(Duration.between(startDateT, endDateT)),
+            false);
+    bookTimeSlot(machine, operationOrder, machineTimeSlot);
+    return machineTimeSlot;
   }
 
   @Override
@@ -386,6 +394,45 @@ public class MachineServiceImpl implements MachineService {
             .map(WorkCenter::getTimeBeforeNextOperation)
             .orElse(0l);
     // Must check if dates are occupied by other operation orders
+    Optional<LocalDateTime> firstStartDateT =
+        machineCapacityCalendarService
+            .getCalendar(machine)
+            .map(
+                calendar ->
+                    calendar.getFirstConflictingStartDateT(
+                        plannedStartDateT, plannedEndDateT, timeBeforeNextOperation))
+            .orElseGet(
+                () ->
+                    getFirstConcurrentStartDateT(
+                        machine,
+                        operationOrder,
+                        timeBeforeNextOperation,
+                        plannedStartDateT,
+                        plannedEndDateT));
+
+    if (firstStartDateT.isEmpty()) {
+      return new MachineTimeSlot(plannedStartDateT, plannedEndDateT);
+    } else {
+      return getFurthestAvailableTimeSlotFrom(
+          machine,
+          firstStartDateT.get().minusSeconds(initialDuration + timeBeforeNextOperation),
+          firstStartDateT.get().minusSeconds(timeBeforeNextOperation),
+          operationOrder,
+          initialDuration,
+          false);
+    }
+  }
+
+  /**
+   * Query the start date of the first operation order of the machine conflicting with the given
+   * time slot, used outside of a planning run.
+   */
+  protected Optional<LocalDateTime> getFirstConcurrentStartDateT(
+      Machine machine,
+      OperationOrder operationOrder,
+      long timeBeforeNextOperation,
+      LocalDateTime plannedStartDateT,
+      LocalDateTime plannedEndDateT) {
     // The first one of the list will be the first to start
     List<OperationOrder> concurrentOperationOrders =
         operationOrderRepository
@@ -409,20 +456,28 @@ public class MachineServiceImpl implements MachineService {
             .order("plannedStartDateT")
             .fetch();
 
-    if (concurrentOperationOrders.isEmpty()) {
-      return new MachineTimeSlot(plannedStartDateT, plannedEndDateT);
-    } else {
-      OperationOrder firstOperationOrder = concurrentOperationOrders.get(0);
+    return concurrentOperationOrders.stream().findFirst().map(OperationOrder::getPlannedStartDateT);
+  }
 
-      return getFurthestAvailableTimeSlotFrom(
-          machine,
-          firstOperationOrder
-              .getPlannedStartDateT()
-              .minusSeconds(initialDuration + timeBeforeNextOperation),
-          firstOperationOrder.getPlannedStartDateT().minusSeconds(timeBeforeNextOperation),
-          operationOrder,
-          initialDuration,
-          false);
+  /** Remove the previous booking of the operation order from the calendar of the planning run. */
+  protected void releaseTimeSlot(Machine machine, OperationOrder operationOrder) {
+    machineCapacityCalendarService
+        .getCalendar(machine)
+        .ifPresent(calendar -> calendar.release(operationOrder));
+  }
+
+  /** Book the time slot found for the operation order in the calendar of the planning run. */
+  protected void bookTimeSlot(
+      Machine machine, OperationOrder operationOrder, MachineTimeSlot machineTimeSlot) {
+    if (!operationOrder.getOutsourcing()) {
+      machineCapacityCalendarService
+          .getCalendar(machine)
+          .ifPresent(
+              calendar ->
+                  calendar.book(
+                      operationOrder,
+                      machineTimeSlot.getStartDateT(),
+                      machineTimeSlot.getEndDateT()));
     }
   }
 }
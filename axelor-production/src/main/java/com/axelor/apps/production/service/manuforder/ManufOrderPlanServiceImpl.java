@@ -31,6 +31,7 @@ import com.axelor.apps.production.db.repo.ProductionConfigRepository;
 import com.axelor.apps.production.exceptions.ProductionExceptionMessage;
 import com.axelor.apps.production.service.app.AppProductionService;
 import com.axelor.apps.production.service.config.ProductionConfigService;
+import com.axelor.apps.production.service.machine.MachineCapacityCalendarService;
 import com.axelor.apps.production.service.operationorder.OperationOrderPlanningService;
 import com.axelor.apps.production.service.operationorder.OperationOrderService;
 import com.axelor.apps.production.service.operationorder.OperationOrderWorkflowService;
@@ -63,6 +64,7 @@ public class ManufOrderPlanServiceImpl implements ManufOrderPlanService {
   protected ManufOrderCreatePurchaseOrderService manufOrderCreatePurchaseOrderService;
   protected ManufOrderPlanStockMoveService manufOrderPlanStockMoveService;
   protected ManufOrderResidualProductService manufOrderResidualProductService;
+  protected MachineCapacityCalendarService machineCapacityCalendarService;
 
   @Inject
   public ManufOrderPlanServiceImpl(
@@ -80,7 +82,8 @@ public class ManufOrderPlanServiceImpl implements ManufOrderPlanService {
       AppProductionService appProductionService,
       ManufOrderCreatePurchaseOrderService manufOrderCreatePurchaseOrderService,
       ManufOrderPlanStockMoveService manufOrderPlanStockMoveService,
-      ManufOrderResidualProductService manufOrderResidualProductService) {
+      ManufOrderResidualProductService manufOrderResidualProductService,
+      MachineCapacityCalendarService machineCapacityCalendarService) {
     this.manufOrderRepo = manufOrderRepo;
     this.manufOrderService = manufOrderService;
     this.sequenceService = sequenceService;
@@ -96,6 +99,7 @@ public class ManufOrderPlanServiceImpl implements ManufOrderPlanService {
     this.manufOrderCreatePurchaseOrderService = manufOrderCreatePurchaseOrderService;
     this.manufOrderPlanStockMoveService = manufOrderPlanStockMoveService;
     this.manufOrderResidualProductService = manufOrderResidualProductService;
+    this.machineCapacityCalendarService = machineCapacityCalendarService;
   }
 
   @Override
@@ -104,19 +108,25 @@ public class ManufOrderPlanServiceImpl implements ManufOrderPlanService {
 
     StringBuilder messageBuilder = new StringBuilder();
 
-    for (ManufOrder manufOrder : manufOrderList) {
-      this.plan(manufOrder);
-      if (!Strings.isNullOrEmpty(manufOrder.getMoCommentFromSaleOrder())) {
-        messageBuilder.append(manufOrder.getMoCommentFromSaleOrder());
-      }
-
-      manufOrderCreatePurchaseOrderService.createPurchaseOrders(manufOrder);
-
-      if (!Strings.isNullOrEmpty(manufOrder.getMoCommentFromSaleOrderLine())) {
-        messageBuilder
-            .append(System.lineSeparator())
-            .append(manufOrder.getMoCommentFromSaleOrderLine());
+    // The machine calendars are loaded once for all the manufacturing orders
+    machineCapacityCalendarService.startPlanning();
+    try {
+      for (ManufOrder manufOrder : manufOrderList) {
+        this.plan(manufOrder);
+        if (!Strings.isNullOrEmpty(manufOrder.getMoCommentFromSaleOrder())) {
+          messageBuilder.append(manufOrder.getMoCommentFromSaleOrder());
+        }
+
+        manufOrderCreatePurchaseOrderService.createPurchaseOrders(manufOrder);
+
+        if (!Strings.isNullOrEmpty(manufOrder.getMoCommentFromSaleOrderLine())) {
+          messageBuilder
+              .append(System.lineSeparator())
+              .append(manufOrder.getMoCommentFromSaleOrderLine());
+        }
       }
+    } finally {
+      machineCapacityCalendarService.endPlanning();
     }
     return messageBuilder.toString();
   }
@@ -32,6 +32,7 @@ import com.axelor.apps.production.db.repo.OperationOrderRepository;
 import com.axelor.apps.production.db.repo.ProductionConfigRepository;
 import com.axelor.apps.production.exceptions.ProductionExceptionMessage;
 import com.axelor.apps.production.service.config.ProductionConfigService;
+import com.axelor.apps.production.service.machine.MachineCapacityCalendarService;
 import com.axelor.apps.production.service.machine.MachineService;
 import com.axelor.apps.production.service.manuforder.ManufOrderService;
 import com.axelor.apps.production.service.manuforder.ManufOrderWorkflowService;
@@ -66,6 +67,7 @@ public class OperationOrderPlanningServiceImpl implements OperationOrderPlanning
       operationOrderPlanningInfiniteCapacityService;
   protected ManufOrderWorkflowService manufOrderWorkflowService;
   protected OperationOrderOutsourceService operationOrderOutsourceService;
+  protected MachineCapacityCalendarService machineCapacityCalendarService;
 
   @Inject
   public OperationOrderPlanningServiceImpl(
@@ -78,7 +80,8 @@ public class OperationOrderPlanningServiceImpl implements OperationOrderPlanning
       OperationOrderService operationOrderService,
       OperationOrderPlanningInfiniteCapacityService operationOrderPlanningInfiniteCapacityService,
       ManufOrderWorkflowService manufOrderWorkflowService,
-      OperationOrderOutsourceService operationOrderOutsourceService) {
+      OperationOrderOutsourceService operationOrderOutsourceService,
+      MachineCapacityCalendarService machineCapacityCalendarService) {
     this.productionConfigService = productionConfigService;
     this.operationOrderStockMoveService = operationOrderStockMoveService;
     this.machineService = machineService;
@@ -90,6 +93,7 @@ public class OperationOrderPlanningServiceImpl implements OperationOrderPlanning
         operationOrderPlanningInfiniteCapacityService;
     this.manufOrderWorkflowService = manufOrderWorkflowService;
     this.operationOrderOutsourceService = operationOrderOutsourceService;
+    this.machineCapacityCalendarService = machineCapacityCalendarService;
   }
 
   @Override
@@ -150,8 +154,13 @@ public class OperationOrderPlanningServiceImpl implements OperationOrderPlanning
             ? operationOrderService.getSortedOperationOrderList(operationOrders)
             : operationOrderService.getReversedSortedOperationOrderList(operationOrders);
 
-    for (OperationOrder operationOrder : sortedOperationOrders) {
-      operationOrderPlanningCommonService.plan(operationOrder);
+    machineCapacityCalendarService.startPlanning();
+    try {
+      for (OperationOrder operationOrder : sortedOperationOrders) {
+        operationOrderPlanningCommonService.plan(operationOrder);
+      }
+    } finally {
+      machineCapacityCalendarService.endPlanning();
     }
     manufOrderWorkflowService.setOperationOrderMaxPriority(manufOrder);
   }
@@ -19,87 +19,57 @@
 package com.axelor.apps.production.service.operationorder.planning;
 
 import com.axelor.apps.base.AxelorException;
-import com.axelor.apps.base.db.DayPlanning;
 import com.axelor.apps.base.db.WeeklyPlanning;
 import com.axelor.apps.base.service.weeklyplanning.WeeklyPlanningService;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendar;
+import com.axelor.apps.base.service.weeklyplanning.WorkingCalendarService;
 import com.axelor.apps.production.db.OperationOrder;
 import com.axelor.apps.production.service.operationorder.OperationOrderService;
 import com.google.inject.Inject;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 public class OperationOrderPlanningInfiniteCapacityServiceImpl
     implements OperationOrderPlanningInfiniteCapacityService {
   protected OperationOrderService operationOrderService;
   protected WeeklyPlanningService weeklyPlanningService;
+  protected WorkingCalendarService workingCalendarService;
 
   @Inject
   public OperationOrderPlanningInfiniteCapacityServiceImpl(
-      OperationOrderService operationOrderService, WeeklyPlanningService weeklyPlanningService) {
+      OperationOrderService operationOrderService,
+      WeeklyPlanningService weeklyPlanningService,
+      WorkingCalendarService workingCalendarService) {
     this.operationOrderService = operationOrderService;
     this.weeklyPlanningService = weeklyPlanningService;
+    this.workingCalendarService = workingCalendarService;
   }
 
   protected void searchForNextWorkingDay(
       OperationOrder operationOrder, WeeklyPlanning weeklyPlanning, LocalDateTime startDate) {
-    int daysToAddNbr = 0;
-    DayPlanning nextDayPlanning;
-    /* We will find the next DayPlanning with at least one working period. */
-    do {
+    WorkingCalendar workingCalendar =
+        workingCalendarService.getWorkingCalendar(weeklyPlanning, null);
+    /* We will find the next day with at least one working period. */
+    LocalDate nextDate = workingCalendar.getNextWorkingDay(startDate.toLocalDate());
 
-      daysToAddNbr++;
-      nextDayPlanning =
-          weeklyPlanningService.findDayPlanning(
-              weeklyPlanning, startDate.toLocalDate().plusDays(daysToAddNbr));
-    } while (nextDayPlanning.getAfternoonFrom() == null
-        && nextDayPlanning.getMorningFrom() == null);
-
-    /*
-     * We will add the nbr of days to retrieve the working day, and set the time to either the first
-     * morning period or the first afternoon period.
-     */
-    if (nextDayPlanning.getMorningFrom() != null) {
-      operationOrder.setPlannedStartDateT(
-          startDate.toLocalDate().plusDays(daysToAddNbr).atTime(nextDayPlanning.getMorningFrom()));
-    } else if (nextDayPlanning.getAfternoonFrom() != null) {
-      operationOrder.setPlannedStartDateT(
-          startDate
-              .toLocalDate()
-              .plusDays(daysToAddNbr)
-              .atTime(nextDayPlanning.getAfternoonFrom()));
+    /* We will set the time to the beginning of the first working period of this day. */
+    if (nextDate != null) {
+      operationOrder.setPlannedStartDateT(nextDate.atTime(workingCalendar.getStartTime(nextDate)));
     }
   }
 
   @Override
   public void searchForPreviousWorkingDay(
       OperationOrder operationOrder, WeeklyPlanning weeklyPlanning, LocalDateTime endDate) {
-    int daysToSubstractNbr = 0;
-    DayPlanning previousDayPlanning;
-    /* change comment . We will find the previous DayPlanning with at least one working period. */
-    do {
-
-      daysToSubstractNbr++;
-      previousDayPlanning =
-          weeklyPlanningService.findDayPlanning(
-              weeklyPlanning, endDate.toLocalDate().minusDays(daysToSubstractNbr));
-    } while (previousDayPlanning.getAfternoonFrom() == null
-        && previousDayPlanning.getMorningFrom() == null);
+    WorkingCalendar workingCalendar =
+        workingCalendarService.getWorkingCalendar(weeklyPlanning, null);
+    /* We will find the previous day with at least one working period. */
+    LocalDate previousDate = workingCalendar.getPreviousWorkingDay(endDate.toLocalDate());
 
-    /*
-     * We will subtract the nbr of days to retrieve the working day, and set the time to either the ending of the first
-     * morning period or the first afternoon period.
-     */
-    if (previousDayPlanning.getAfternoonTo() != null) {
-      operationOrder.setPlannedEndDateT(
-          endDate
-              .toLocalDate()
-              .minusDays(daysToSubstractNbr)
-              .atTime(previousDayPlanning.getAfternoonTo()));
-    } else if (previousDayPlanning.getMorningTo() != null) {
+    /* We will set the time to the ending of the last working period of this day. */
+    if (previousDate != null) {
       operationOrder.setPlannedEndDateT(
-          endDate
-              .toLocalDate()
-              .minusDays(daysToSubstractNbr)
-              .atTime(previousDayPlanning.getMorningTo()));
+          previousDate.atTime(workingCalendar.getEndTime(previousDate)));
     }
   }
 
@@ -0,0 +1,44 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.db.repo;
+
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.service.StockLocationTreeService;
+import com.axelor.inject.Beans;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+public class StockLocationListener {
+
+  @PostPersist
+  @PostRemove
+  protected void invalidateStockLocationTree(StockLocation stockLocation) {
+    Beans.get(StockLocationTreeService.class).invalidate();
+  }
+
+  /** Only a change of the parent or of the type of a stock location changes the tree. */
+  @PostUpdate
+  protected void invalidateChangedStockLocationTree(StockLocation stockLocation) {
+    StockLocationTreeService stockLocationTreeService = Beans.get(StockLocationTreeService.class);
+    if (stockLocationTreeService.isHierarchyChanged(stockLocation)) {
+      stockLocationTreeService.invalidate();
+    }
+  }
+}
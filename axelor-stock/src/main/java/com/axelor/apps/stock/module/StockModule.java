@@ -74,6 +74,8 @@ import com.axelor.apps.stock.service.StockLocationPrintService;
 import com.axelor.apps.stock.service.StockLocationPrintServiceImpl;
 import com.axelor.apps.stock.service.StockLocationService;
 import com.axelor.apps.stock.service.StockLocationServiceImpl;
+import com.axelor.apps.stock.service.StockLocationTreeService;
+import com.axelor.apps.stock.service.StockLocationTreeServiceImpl;
 import com.axelor.apps.stock.service.StockMoveCheckWapService;
 import com.axelor.apps.stock.service.StockMoveCheckWapServiceImpl;
 import com.axelor.apps.stock.service.StockMoveLineService;
@@ -116,6 +118,7 @@ public class StockModule extends AxelorModule {
     bind(StockMoveService.class).to(StockMoveServiceImpl.class);
     bind(StockMoveUpdateService.class).to(StockMoveUpdateServiceImpl.class);
     bind(StockLocationService.class).to(StockLocationServiceImpl.class);
+    bind(StockLocationTreeService.class).to(StockLocationTreeServiceImpl.class);
     bind(ProductBaseRepository.class).to(ProductStockRepository.class);
     bind(PartnerProductQualityRatingService.class).to(PartnerProductQualityRatingServiceImpl.class);
     bind(LogisticalFormService.class).to(LogisticalFormServiceImpl.class);
@@ -109,6 +109,14 @@ public interface StockLocationLineService {
   public void updateStockLocationFromProduct(StockLocationLine stockLocationLine, Product product)
       throws AxelorException;
 
+  /**
+   * Update every stock location line of the product to the unit of the product, computing the
+   * future quantities of the converted lines together.
+   *
+   * @param product a stock managed product
+   */
+  void updateStockLocationFromProduct(Product product) throws AxelorException;
+
   public StockLocationLine updateLocationFromProduct(
       StockLocationLine stockLocationLine, Product product) throws AxelorException;
 
@@ -216,6 +224,22 @@ public interface StockLocationLineService {
    */
   BigDecimal computeFutureQty(StockLocationLine stockLocationLine) throws AxelorException;
 
+  /**
+   * Compute and set the future quantity of several stock location lines, using grouped queries on
+   * planned stock move lines instead of loading them.
+   *
+   * @param stockLocationLineList stock location lines or detail stock location lines.
+   */
+  void updateFutureQty(List<StockLocationLine> stockLocationLineList) throws AxelorException;
+
+  /**
+   * Compute and set the future quantity of every stock location line and detail stock location
+   * line of a stock location.
+   *
+   * @param stockLocation
+   */
+  void updateFutureQty(StockLocation stockLocation) throws AxelorException;
+
   /**
    * Create a query to find stock location line of a product of a specific/all company and a
    * specific/all stock location
@@ -23,8 +23,10 @@ import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.Product;
 import com.axelor.apps.base.db.Unit;
 import com.axelor.apps.base.db.repo.TraceBackRepository;
+import com.axelor.apps.base.exceptions.BaseExceptionMessage;
 import com.axelor.apps.base.service.UnitConversionService;
 import com.axelor.apps.base.service.app.AppBaseService;
+import com.axelor.apps.base.service.exception.TraceBackService;
 import com.axelor.apps.stock.db.StockLocation;
 import com.axelor.apps.stock.db.StockLocationLine;
 import com.axelor.apps.stock.db.StockMove;
@@ -40,21 +42,30 @@ import com.axelor.apps.stock.db.repo.StockRulesRepository;
 import com.axelor.apps.stock.exception.StockExceptionMessage;
 import com.axelor.auth.AuthUtils;
 import com.axelor.auth.db.User;
-import com.axelor.db.Query;
+import com.axelor.db.JPA;
 import com.axelor.i18n.I18n;
 import com.axelor.inject.Beans;
 import com.axelor.utils.helpers.StringHelper;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.persist.Transactional;
 import com.google.inject.servlet.RequestScoped;
+import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -638,9 +649,58 @@ public class StockLocationLineServiceImpl implements StockLocationLineService {
     stockLocationLineRepo.save(stockLocationLine);
   }
 
+  @Override
+  @Transactional(rollbackOn = {Exception.class})
+  public void updateStockLocationFromProduct(Product product) throws AxelorException {
+    List<StockLocationLine> stockLocationLineList = getStockLocationLines(product);
+    if (stockLocationLineList == null) {
+      return;
+    }
+
+    List<StockLocationLine> updatedStockLocationLineList = new ArrayList<>();
+    for (StockLocationLine stockLocationLine : stockLocationLineList) {
+      if (updateUnitFromProduct(stockLocationLine, product)) {
+        updatedStockLocationLineList.add(stockLocationLine);
+      }
+    }
+    updateFutureQty(updatedStockLocationLineList);
+
+    for (StockLocationLine stockLocationLine : updatedStockLocationLineList) {
+      updateHistory(
+          stockLocationLine,
+          null,
+          null,
+          null,
+          StockLocationLineHistoryRepository.TYPE_SELECT_UPDATE_STOCK_LOCATION_FROM_PRODUCT);
+    }
+    for (StockLocationLine stockLocationLine : stockLocationLineList) {
+      stockLocationLineRepo.save(stockLocationLine);
+    }
+  }
+
   @Override
   public StockLocationLine updateLocationFromProduct(
       StockLocationLine stockLocationLine, Product product) throws AxelorException {
+    if (updateUnitFromProduct(stockLocationLine, product)) {
+      stockLocationLine.setFutureQty(computeFutureQty(stockLocationLine));
+      updateHistory(
+          stockLocationLine,
+          null,
+          null,
+          null,
+          StockLocationLineHistoryRepository.TYPE_SELECT_UPDATE_STOCK_LOCATION_FROM_PRODUCT);
+    }
+    return stockLocationLine;
+  }
+
+  /**
+   * Convert the current quantity and the average price of the stock location line to the unit of
+   * the product. The future quantity is left to the caller.
+   *
+   * @return true if the unit of the stock location line has been changed.
+   */
+  protected boolean updateUnitFromProduct(StockLocationLine stockLocationLine, Product product)
+      throws AxelorException {
     Unit productUnit = product.getUnit();
     Unit stockLocationUnit = stockLocationLine.getUnit();
 
@@ -660,7 +720,6 @@ public class StockLocationLineServiceImpl implements StockLocationLineService {
       stockLocationLine.setCurrentQty(currentQty);
 
       stockLocationLine.setUnit(product.getUnit());
-      stockLocationLine.setFutureQty(computeFutureQty(stockLocationLine));
 
       BigDecimal avgQty = BigDecimal.ZERO;
       if (currentQty.compareTo(BigDecimal.ZERO) != 0) {
@@ -668,117 +727,241 @@ public class StockLocationLineServiceImpl implements StockLocationLineService {
       }
       BigDecimal newAvgPrice = oldAvgPrice.multiply(avgQty).setScale(scale, RoundingMode.HALF_UP);
       stockLocationLine.setAvgPrice(newAvgPrice);
-      updateHistory(
-          stockLocationLine,
-          null,
-          null,
-          null,
-          StockLocationLineHistoryRepository.TYPE_SELECT_UPDATE_STOCK_LOCATION_FROM_PRODUCT);
+      return true;
     }
-    return stockLocationLine;
+    return false;
   }
 
-  protected static final String STOCK_MOVE_LINE_FILTER =
-      "(self.stockMove.archived IS NULL OR self.archived IS FALSE) "
+  /**
+   * Quantities of planned stock move lines, grouped by stock location, product, tracking number,
+   * unit and quantity, so that each distinct quantity only has to be converted once.
+   */
+  protected static final String PLANNED_QTY_QUERY =
+      "SELECT stockLocation.id, self.product.id, trackingNumber.id, unit.id, self.realQty, "
+          + "COUNT(self.id) "
+          + "FROM StockMoveLine self "
+          + "JOIN self.%s stockLocation "
+          + "LEFT JOIN self.trackingNumber trackingNumber "
+          + "LEFT JOIN self.unit unit "
+          + "WHERE (self.stockMove.archived IS NULL OR self.archived IS FALSE) "
           + "AND self.stockMove.statusSelect = :planned "
-          + "AND self.product.id = :productId ";
+          + "AND self.product.id IN (:productIdSet) "
+          + "AND stockLocation.id IN (:stockLocationIdSet) "
+          + "GROUP BY stockLocation.id, self.product.id, trackingNumber.id, unit.id, self.realQty";
+
+  protected static final int FUTURE_QTY_BATCH_SIZE = 500;
 
   @Override
   public BigDecimal computeFutureQty(StockLocationLine stockLocationLine) throws AxelorException {
     // future quantity is current quantity minus planned outgoing stock move lines plus planned
     // incoming stock move lines.
+    return computeFutureQtyList(Collections.singletonList(stockLocationLine)).get(0);
+  }
 
-    Product product = stockLocationLine.getProduct();
+  @Override
+  public void updateFutureQty(List<StockLocationLine> stockLocationLineList)
+      throws AxelorException {
+    for (List<StockLocationLine> stockLocationLineSubList :
+        Lists.partition(stockLocationLineList, FUTURE_QTY_BATCH_SIZE)) {
+      List<BigDecimal> futureQtyList = computeFutureQtyList(stockLocationLineSubList);
+      for (int i = 0; i < stockLocationLineSubList.size(); i++) {
+        stockLocationLineSubList.get(i).setFutureQty(futureQtyList.get(i));
+      }
+    }
+  }
 
-    BigDecimal futureQty = stockLocationLine.getCurrentQty();
+  @Override
+  @Transactional(rollbackOn = {Exception.class})
+  public void updateFutureQty(StockLocation stockLocation) throws AxelorException {
+    Long stockLocationId = stockLocation.getId();
+    for (int offset = 0; ; offset += FUTURE_QTY_BATCH_SIZE) {
+      List<StockLocationLine> stockLocationLineList =
+          fetchStockLocationLineList(stockLocationId, offset);
+      updateFutureQty(stockLocationLineList);
+      if (stockLocationLineList.size() < FUTURE_QTY_BATCH_SIZE) {
+        return;
+      }
+      JPA.flush();
+      JPA.clear();
+    }
+  }
 
-    List<StockMoveLine> incomingStockMoveLineList =
-        findIncomingPlannedStockMoveLines(stockLocationLine);
-    List<StockMoveLine> outgoingStockMoveLineList =
-        findOutgoingPlannedStockMoveLines(stockLocationLine);
+  /**
+   * Get a batch of the stock location lines and detail stock location lines of a stock location.
+   *
+   * @return at most {@link #FUTURE_QTY_BATCH_SIZE} lines, ordered by id.
+   */
+  protected List<StockLocationLine> fetchStockLocationLineList(Long stockLocationId, int offset) {
+    return stockLocationLineRepo
+        .all()
+        .filter(
+            "self.stockLocation.id = :stockLocationId "
+                + "OR self.detailsStockLocation.id = :stockLocationId")
+        .bind("stockLocationId", stockLocationId)
+        .order("id")
+        .fetch(FUTURE_QTY_BATCH_SIZE, offset);
+  }
 
-    if (stockLocationLine.getUnit() == null) {
-      throw new AxelorException(
-          TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
-          I18n.get(StockExceptionMessage.LOCATION_LINE_MISSING_UNIT),
-          stockLocationLine.getStockLocation().getName(),
-          product.getFullName());
+  /**
+   * Compute the future quantity of each stock location line, in the same order.
+   *
+   * @param stockLocationLineList at most {@link #FUTURE_QTY_BATCH_SIZE} lines.
+   */
+  protected List<BigDecimal> computeFutureQtyList(List<StockLocationLine> stockLocationLineList)
+      throws AxelorException {
+
+    Map<List<Long>, List<Object[]>> incomingQtyMap =
+        fetchPlannedQtyMap(stockLocationLineList, "toStockLocation");
+    Map<List<Long>, List<Object[]>> outgoingQtyMap =
+        fetchPlannedQtyMap(stockLocationLineList, "fromStockLocation");
+
+    Map<List<Long>, BigDecimal> coefficientMap = new HashMap<>();
+    List<BigDecimal> futureQtyList = new ArrayList<>();
+    for (StockLocationLine stockLocationLine : stockLocationLineList) {
+      if (stockLocationLine.getUnit() == null) {
+        throw new AxelorException(
+            TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
+            I18n.get(StockExceptionMessage.LOCATION_LINE_MISSING_UNIT),
+            stockLocationLine.getStockLocation().getName(),
+            stockLocationLine.getProduct().getFullName());
+      }
+
+      List<Long> key = getPlannedQtyKey(stockLocationLine);
+      BigDecimal futureQty =
+          stockLocationLine
+              .getCurrentQty()
+              .add(sumPlannedQty(incomingQtyMap.get(key), stockLocationLine, coefficientMap))
+              .subtract(sumPlannedQty(outgoingQtyMap.get(key), stockLocationLine, coefficientMap));
+      futureQtyList.add(futureQty);
     }
+    return futureQtyList;
+  }
 
-    for (StockMoveLine incomingStockMoveLine : incomingStockMoveLineList) {
-      BigDecimal qtyToAdd =
-          unitConversionService.convert(
-              incomingStockMoveLine.getUnit(),
-              stockLocationLine.getUnit(),
-              incomingStockMoveLine.getRealQty(),
-              incomingStockMoveLine.getRealQty().scale(),
-              product);
-      futureQty = futureQty.add(qtyToAdd);
+  /**
+   * A stock location line is identified by its stock location and its product, and a detail stock
+   * location line also by its tracking number, which may be null.
+   */
+  protected List<Long> getPlannedQtyKey(StockLocationLine stockLocationLine) {
+    if (stockLocationLine.getDetailsStockLocation() != null) {
+      return Arrays.asList(
+          stockLocationLine.getDetailsStockLocation().getId(),
+          stockLocationLine.getProduct().getId(),
+          Optional.ofNullable(stockLocationLine.getTrackingNumber())
+              .map(TrackingNumber::getId)
+              .orElse(null));
     }
+    return Arrays.asList(
+        stockLocationLine.getStockLocation().getId(), stockLocationLine.getProduct().getId());
+  }
 
-    for (StockMoveLine outgoingStockMoveLine : outgoingStockMoveLineList) {
-      BigDecimal qtyToSubtract =
-          unitConversionService.convert(
-              outgoingStockMoveLine.getUnit(),
-              stockLocationLine.getUnit(),
-              outgoingStockMoveLine.getRealQty(),
-              outgoingStockMoveLine.getRealQty().scale(),
-              product);
-      futureQty = futureQty.subtract(qtyToSubtract);
-    }
-
-    return futureQty;
-  }
-
-  protected List<StockMoveLine> findIncomingPlannedStockMoveLines(
-      StockLocationLine stockLocationLine) {
-    boolean isDetailsStockLocationLine = stockLocationLine.getDetailsStockLocation() != null;
-    String incomingStockMoveLineFilter =
-        STOCK_MOVE_LINE_FILTER + "AND self.toStockLocation.id = :stockLocationId";
-    if (isDetailsStockLocationLine) {
-      incomingStockMoveLineFilter =
-          incomingStockMoveLineFilter + " AND self.trackingNumber.id = :trackingNumberId";
-    }
-    Query<StockMoveLine> stockMoveLineQuery =
-        stockMoveLineRepository
-            .all()
-            .filter(incomingStockMoveLineFilter)
-            .bind("planned", StockMoveRepository.STATUS_PLANNED)
-            .bind("productId", stockLocationLine.getProduct().getId());
-    if (isDetailsStockLocationLine) {
-      stockMoveLineQuery
-          .bind("stockLocationId", stockLocationLine.getDetailsStockLocation().getId())
-          .bind("trackingNumberId", stockLocationLine.getTrackingNumber().getId());
-    } else {
-      stockMoveLineQuery.bind("stockLocationId", stockLocationLine.getStockLocation().getId());
-    }
-    return stockMoveLineQuery.fetch();
-  }
-
-  protected List<StockMoveLine> findOutgoingPlannedStockMoveLines(
-      StockLocationLine stockLocationLine) {
-    boolean isDetailsStockLocationLine = stockLocationLine.getDetailsStockLocation() != null;
-    String outgoingStockMoveLineFilter =
-        STOCK_MOVE_LINE_FILTER + "AND self.fromStockLocation.id = :stockLocationId";
-    if (isDetailsStockLocationLine) {
-      outgoingStockMoveLineFilter =
-          outgoingStockMoveLineFilter + " AND self.trackingNumber.id = :trackingNumberId";
-    }
-    Query<StockMoveLine> stockMoveLineQuery =
-        stockMoveLineRepository
-            .all()
-            .filter(outgoingStockMoveLineFilter)
-            .bind("planned", StockMoveRepository.STATUS_PLANNED)
-            .bind("productId", stockLocationLine.getProduct().getId());
-
-    if (isDetailsStockLocationLine) {
-      stockMoveLineQuery
-          .bind("stockLocationId", stockLocationLine.getDetailsStockLocation().getId())
-          .bind("trackingNumberId", stockLocationLine.getTrackingNumber().getId());
-    } else {
-      stockMoveLineQuery.bind("stockLocationId", stockLocationLine.getStockLocation().getId());
+  /**
+   * Fetch planned quantities going to or coming from the stock locations of the lines.
+   *
+   * @param stockLocationField toStockLocation or fromStockLocation
+   * @return grouped quantities by stock location line key: for each key, the rows with the unit id,
+   *     the quantity and the number of stock move lines.
+   */
+  protected Map<List<Long>, List<Object[]>> fetchPlannedQtyMap(
+      List<StockLocationLine> stockLocationLineList, String stockLocationField) {
+
+    Set<Long> stockLocationIdSet = new HashSet<>();
+    Set<Long> productIdSet = new HashSet<>();
+    for (StockLocationLine stockLocationLine : stockLocationLineList) {
+      List<Long> key = getPlannedQtyKey(stockLocationLine);
+      stockLocationIdSet.add(key.get(0));
+      productIdSet.add(key.get(1));
+    }
+
+    Map<List<Long>, List<Object[]>> plannedQtyMap = new HashMap<>();
+    for (Object[] result :
+        fetchPlannedQtyRowList(stockLocationField, stockLocationIdSet, productIdSet)) {
+      Long stockLocationId = (Long) result[0];
+      Long productId = (Long) result[1];
+      Long trackingNumberId = (Long) result[2];
+      Object[] qtyRow = new Object[] {result[3], result[4], result[5]};
+
+      plannedQtyMap
+          .computeIfAbsent(Arrays.asList(stockLocationId, productId), k -> new ArrayList<>())
+          .add(qtyRow);
+      plannedQtyMap
+          .computeIfAbsent(
+              Arrays.asList(stockLocationId, productId, trackingNumberId), k -> new ArrayList<>())
+          .add(qtyRow);
+    }
+    return plannedQtyMap;
+  }
+
+  /**
+   * @return the rows of {@link #PLANNED_QTY_QUERY}: stock location id, product id, tracking number
+   *     id, unit id, quantity and number of stock move lines.
+   */
+  protected List<Object[]> fetchPlannedQtyRowList(
+      String stockLocationField, Set<Long> stockLocationIdSet, Set<Long> productIdSet) {
+    return JPA.em()
+        .createQuery(String.format(PLANNED_QTY_QUERY, stockLocationField), Object[].class)
+        .setParameter("planned", StockMoveRepository.STATUS_PLANNED)
+        .setParameter("productIdSet", productIdSet)
+        .setParameter("stockLocationIdSet", stockLocationIdSet)
+        .getResultList();
+  }
+
+  /**
+   * Sum grouped planned quantities in the unit of the stock location line. Each quantity is
+   * converted and rounded as it would be for a single stock move line, then multiplied by the
+   * number of stock move lines having this quantity.
+   */
+  protected BigDecimal sumPlannedQty(
+      List<Object[]> qtyRowList,
+      StockLocationLine stockLocationLine,
+      Map<List<Long>, BigDecimal> coefficientMap)
+      throws AxelorException {
+
+    BigDecimal sum = BigDecimal.ZERO;
+    if (qtyRowList == null) {
+      return sum;
+    }
+    Unit stockLocationLineUnit = stockLocationLine.getUnit();
+    Product product = stockLocationLine.getProduct();
+
+    for (Object[] qtyRow : qtyRowList) {
+      Long unitId = (Long) qtyRow[0];
+      BigDecimal realQty = (BigDecimal) qtyRow[1];
+      BigDecimal count = BigDecimal.valueOf((Long) qtyRow[2]);
+
+      if (unitId == null) {
+        throw new AxelorException(
+            TraceBackRepository.CATEGORY_CONFIGURATION_ERROR,
+            I18n.get(BaseExceptionMessage.UNIT_CONVERSION_2));
+      }
+      BigDecimal qty = realQty;
+      if (!unitId.equals(stockLocationLineUnit.getId())) {
+        List<Long> coefficientKey =
+            Arrays.asList(unitId, stockLocationLineUnit.getId(), product.getId());
+        BigDecimal coefficient = coefficientMap.get(coefficientKey);
+        if (coefficient == null) {
+          coefficient = getConversionCoefficient(unitId, stockLocationLineUnit, product);
+          coefficientMap.put(coefficientKey, coefficient);
+        }
+        qty = realQty.multiply(coefficient).setScale(realQty.scale(), RoundingMode.HALF_UP);
+      }
+      sum = sum.add(qty.multiply(count));
+    }
+    return sum;
+  }
+
+  /**
+   * @return the coefficient used by {@link UnitConversionService#convert}, or one if the conversion
+   *     failed as the quantity is then kept as is.
+   */
+  protected BigDecimal getConversionCoefficient(Long startUnitId, Unit endUnit, Product product)
+      throws AxelorException {
+    try {
+      return unitConversionService.getCoefficient(
+          JPA.find(Unit.class, startUnitId), endUnit, product);
+    } catch (IOException | ClassNotFoundException e) {
+      TraceBackService.trace(e);
+      return BigDecimal.ONE;
     }
-    return stockMoveLineQuery.fetch();
   }
 
   @Override
@@ -52,6 +52,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import javax.persistence.Query;
@@ -74,9 +75,12 @@ public class StockLocationServiceImpl implements StockLocationService {
 
   protected final StockRulesRepository stockRulesRepository;
   protected final StockLocationLineRepository stockLocationLineRepository;
+  protected final StockLocationTreeService stockLocationTreeService;
 
   protected Set<Long> locationIdSet = new HashSet<>();
 
+  protected static final int ID_LIST_PARTITION_SIZE = 1000;
+
   @Inject
   public StockLocationServiceImpl(
       StockLocationRepository stockLocationRepo,
@@ -87,7 +91,8 @@ public class StockLocationServiceImpl implements StockLocationService {
       UnitRepository unitRepository,
       UnitConversionService unitConversionService,
       StockRulesRepository stockRulesRepository,
-      StockLocationLineRepository stockLocationLineRepository) {
+      StockLocationLineRepository stockLocationLineRepository,
+      StockLocationTreeService stockLocationTreeService) {
     this.stockLocationRepo = stockLocationRepo;
     this.stockLocationLineService = stockLocationLineService;
     this.productRepo = productRepo;
@@ -97,6 +102,7 @@ public class StockLocationServiceImpl implements StockLocationService {
     this.unitConversionService = unitConversionService;
     this.stockRulesRepository = stockRulesRepository;
     this.stockLocationLineRepository = stockLocationLineRepository;
+    this.stockLocationTreeService = stockLocationTreeService;
   }
 
   protected List<StockLocation> getNonVirtualStockLocations(Long companyId) {
@@ -236,10 +242,7 @@ public class StockLocationServiceImpl implements StockLocationService {
   public Set<Long> getContentStockLocationIds(StockLocation stockLocation) {
     locationIdSet = new HashSet<>();
     if (stockLocation != null) {
-      List<StockLocation> stockLocations = getAllLocationAndSubLocation(stockLocation, false);
-      for (StockLocation item : stockLocations) {
-        locationIdSet.add(item.getId());
-      }
+      locationIdSet.addAll(getAllLocationAndSubLocationId(stockLocation, false));
     } else {
       locationIdSet.add(0L);
     }
@@ -275,31 +278,30 @@ public class StockLocationServiceImpl implements StockLocationService {
     if (stockLocation == null) {
       return resultList;
     }
-    if (isVirtualInclude) {
-      for (StockLocation subLocation :
-          stockLocationRepo
-              .all()
-              .filter("self.parentStockLocation.id = :stockLocationId")
-              .bind("stockLocationId", stockLocation.getId())
-              .fetch()) {
+    if (stockLocation.getId() == null) {
+      resultList.add(stockLocation);
+      return resultList;
+    }
 
-        resultList.addAll(this.getAllLocationAndSubLocation(subLocation, isVirtualInclude));
-      }
-    } else {
+    List<Long> subLocationIdList =
+        stockLocationTreeService
+            .getTree()
+            .getSubLocationIdList(stockLocation.getId(), isVirtualInclude);
+    Map<Long, StockLocation> stockLocationMap = new HashMap<>();
+    for (List<Long> idList : Lists.partition(subLocationIdList, ID_LIST_PARTITION_SIZE)) {
       for (StockLocation subLocation :
-          stockLocationRepo
-              .all()
-              .filter(
-                  "self.parentStockLocation.id = :stockLocationId AND self.typeSelect != :virtual")
-              .bind("stockLocationId", stockLocation.getId())
-              .bind("virtual", StockLocationRepository.TYPE_VIRTUAL)
-              .fetch()) {
-
-        resultList.addAll(this.getAllLocationAndSubLocation(subLocation, isVirtualInclude));
+          stockLocationRepo.all().filter("self.id IN (:idList)").bind("idList", idList).fetch()) {
+        stockLocationMap.put(subLocation.getId(), subLocation);
       }
     }
-    resultList.add(stockLocation);
+    stockLocationMap.put(stockLocation.getId(), stockLocation);
 
+    for (Long subLocationId : subLocationIdList) {
+      StockLocation subLocation = stockLocationMap.get(subLocationId);
+      if (subLocation != null) {
+        resultList.add(subLocation);
+      }
+    }
     return resultList;
   }
 
@@ -309,17 +311,10 @@ public class StockLocationServiceImpl implements StockLocationService {
     if (stockLocationId == null) {
       return resultList;
     }
-    for (Long subLocationId :
-        JPA.em()
-            .createQuery(
-                "SELECT sl.id FROM StockLocation sl WHERE sl.parentStockLocation.id = :stockLocationId AND (:isVirtual is true OR sl.typeSelect != :isVirtual)",
-                Long.class)
-            .setParameter("stockLocationId", stockLocationId)
-            .setParameter("isVirtual", isVirtualInclude)
-            .getResultList()) {
-      resultList.addAll(this.getAllLocationAndSubLocation(subLocationId, isVirtualInclude));
-    }
-    resultList.add(stockLocationId);
+    resultList.addAll(
+        stockLocationTreeService
+            .getTree()
+            .getSubLocationIdList(stockLocationId, isVirtualInclude));
 
     return resultList;
   }
@@ -353,14 +348,13 @@ public class StockLocationServiceImpl implements StockLocationService {
   @Override
   public List<Long> getAllLocationAndSubLocationId(
       StockLocation stockLocation, boolean isVirtualInclude) {
-    List<StockLocation> stockLocationList =
-        getAllLocationAndSubLocation(stockLocation, isVirtualInclude);
-    List<Long> stockLocationListId = null;
-    if (stockLocationList != null) {
-      stockLocationListId =
-          stockLocationList.stream().map(StockLocation::getId).collect(Collectors.toList());
+    if (stockLocation == null) {
+      return new ArrayList<>();
+    }
+    if (stockLocation.getId() == null) {
+      return new ArrayList<>(Collections.singletonList(null));
     }
-    return stockLocationListId;
+    return getAllLocationAndSubLocation(stockLocation.getId(), isVirtualInclude);
   }
 
   @Override
@@ -394,8 +388,8 @@ public class StockLocationServiceImpl implements StockLocationService {
     }
     return String.format(
         "self.id in (%s)",
-        getAllLocationAndSubLocation(stockLocation, false).stream()
-            .map(location -> location.getId().toString())
+        getAllLocationAndSubLocationId(stockLocation, false).stream()
+            .map(String::valueOf)
             .collect(Collectors.joining(",")));
   }
 
@@ -406,8 +400,17 @@ public class StockLocationServiceImpl implements StockLocationService {
     if (stockLocation == null) {
       return resultSet;
     }
-    resultSet.add(stockLocation.getId());
     StockLocation parentStockLocation = stockLocation.getParentStockLocation();
+    StockLocationTree tree = stockLocationTreeService.getTree();
+    if (stockLocation.getId() != null
+        && Objects.equals(
+            tree.getParentLocationId(stockLocation.getId()),
+            parentStockLocation != null ? parentStockLocation.getId() : null)) {
+      resultSet.addAll(tree.getParentLocationIdList(stockLocation.getId()));
+      return resultSet;
+    }
+
+    resultSet.add(stockLocation.getId());
     /* Adding to the set returns false if the value already exists, in our case this could be a good
     way to prevent an infinite loop */
     while (parentStockLocation != null && resultSet.add(parentStockLocation.getId())) {
@@ -0,0 +1,155 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.stock.db.repo.StockLocationRepository;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable view of the stock location hierarchy. Sub locations and parent locations of every
+ * stock location are computed once, when the tree is built.
+ */
+public class StockLocationTree {
+
+  /** Stock location and its sub locations, sub locations first, virtual ones included. */
+  protected final Map<Long, List<Long>> subLocationIdListMap = new HashMap<>();
+
+  /** Stock location and its sub locations, sub locations first, without virtual sub locations. */
+  protected final Map<Long, List<Long>> nonVirtualSubLocationIdListMap = new HashMap<>();
+
+  /** Stock location and its parent locations, from the closest to the furthest. */
+  protected final Map<Long, List<Long>> parentLocationIdListMap = new HashMap<>();
+
+  protected final Map<Long, Long> parentLocationIdMap = new HashMap<>();
+  protected final Map<Long, List<Long>> childLocationIdListMap = new HashMap<>();
+  protected final Set<Long> virtualLocationIdSet = new HashSet<>();
+
+  /**
+   * @param stockLocationRowList rows with the id, the parent id and the type of each stock location
+   */
+  public static StockLocationTree of(List<Object[]> stockLocationRowList) {
+    StockLocationTree tree = new StockLocationTree();
+    List<Object[]> sortedRowList = new ArrayList<>(stockLocationRowList);
+    sortedRowList.sort(Comparator.comparing(row -> (Long) row[0]));
+
+    for (Object[] row : sortedRowList) {
+      Long id = (Long) row[0];
+      Long parentId = (Long) row[1];
+      Integer typeSelect = (Integer) row[2];
+      tree.childLocationIdListMap.computeIfAbsent(id, k -> new ArrayList<>());
+      if (parentId != null) {
+        tree.parentLocationIdMap.put(id, parentId);
+        tree.childLocationIdListMap.computeIfAbsent(parentId, k -> new ArrayList<>()).add(id);
+      }
+      if (typeSelect != null && typeSelect == StockLocationRepository.TYPE_VIRTUAL) {
+        tree.virtualLocationIdSet.add(id);
+      }
+    }
+
+    for (Long id : tree.childLocationIdListMap.keySet()) {
+      tree.computeSubLocationIdList(id, true, new HashSet<>());
+      tree.computeSubLocationIdList(id, false, new HashSet<>());
+      tree.parentLocationIdListMap.put(id, tree.computeParentLocationIdList(id));
+    }
+    return tree;
+  }
+
+  /**
+   * @param stockLocationId
+   * @param isVirtualInclude whether virtual sub locations, and their own sub locations, are included
+   * @return the stock location and all its sub locations, each sub location coming before its
+   *     parent
+   */
+  public List<Long> getSubLocationIdList(Long stockLocationId, boolean isVirtualInclude) {
+    List<Long> subLocationIdList =
+        (isVirtualInclude ? subLocationIdListMap : nonVirtualSubLocationIdListMap)
+            .get(stockLocationId);
+    return subLocationIdList != null ? subLocationIdList : Collections.singletonList(stockLocationId);
+  }
+
+  /**
+   * @param stockLocationId
+   * @return the stock location and all its parent locations, from the closest to the furthest
+   */
+  public List<Long> getParentLocationIdList(Long stockLocationId) {
+    List<Long> parentLocationIdList = parentLocationIdListMap.get(stockLocationId);
+    return parentLocationIdList != null
+        ? parentLocationIdList
+        : Collections.singletonList(stockLocationId);
+  }
+
+  public Long getParentLocationId(Long stockLocationId) {
+    return parentLocationIdMap.get(stockLocationId);
+  }
+
+  /**
+   * @return true if the stock location is not in the tree, or if its parent or whether it is
+   *     virtual are different in the tree
+   */
+  public boolean isHierarchyChanged(Long stockLocationId, Long parentId, Integer typeSelect) {
+    boolean isVirtual = typeSelect != null && typeSelect == StockLocationRepository.TYPE_VIRTUAL;
+    return !childLocationIdListMap.containsKey(stockLocationId)
+        || !Objects.equals(parentLocationIdMap.get(stockLocationId), parentId)
+        || virtualLocationIdSet.contains(stockLocationId) != isVirtual;
+  }
+
+  protected List<Long> computeSubLocationIdList(
+      Long id, boolean isVirtualInclude, Set<Long> visitedIdSet) {
+    Map<Long, List<Long>> resultMap =
+        isVirtualInclude ? subLocationIdListMap : nonVirtualSubLocationIdListMap;
+    List<Long> subLocationIdList = resultMap.get(id);
+    if (subLocationIdList != null) {
+      return subLocationIdList;
+    }
+    if (!visitedIdSet.add(id)) {
+      // Loop in the hierarchy
+      return Collections.emptyList();
+    }
+
+    subLocationIdList = new ArrayList<>();
+    for (Long childId : childLocationIdListMap.getOrDefault(id, Collections.emptyList())) {
+      if (isVirtualInclude || !virtualLocationIdSet.contains(childId)) {
+        subLocationIdList.addAll(computeSubLocationIdList(childId, isVirtualInclude, visitedIdSet));
+      }
+    }
+    subLocationIdList.add(id);
+    subLocationIdList = Collections.unmodifiableList(subLocationIdList);
+    resultMap.put(id, subLocationIdList);
+    return subLocationIdList;
+  }
+
+  protected List<Long> computeParentLocationIdList(Long id) {
+    Set<Long> parentLocationIdSet = new LinkedHashSet<>();
+    Long currentId = id;
+    // Adding an existing id stops the loop if there is a loop in the hierarchy
+    while (currentId != null && parentLocationIdSet.add(currentId)) {
+      currentId = parentLocationIdMap.get(currentId);
+    }
+    return Collections.unmodifiableList(new ArrayList<>(parentLocationIdSet));
+  }
+}
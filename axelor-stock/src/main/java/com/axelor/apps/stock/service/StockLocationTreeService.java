@@ -0,0 +1,42 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.stock.db.StockLocation;
+
+/** Keeps the stock location hierarchy in memory, so that sub locations do not need any query. */
+public interface StockLocationTreeService {
+
+  /**
+   * @return the stock location tree, built from the database on first use.
+   */
+  StockLocationTree getTree();
+
+  /**
+   * @return true if the parent of the stock location or its virtual type may be different in the
+   *     tree, always true if the tree is not built
+   */
+  boolean isHierarchyChanged(StockLocation stockLocation);
+
+  /**
+   * Forget the tree once the current transaction is committed, so that it is built again on next
+   * use. Trees built until then are not kept.
+   */
+  void invalidate();
+}
@@ -0,0 +1,77 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.base.utils.CacheGuard;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.db.JPA;
+import com.google.inject.Singleton;
+import java.util.List;
+
+@Singleton
+public class StockLocationTreeServiceImpl implements StockLocationTreeService {
+
+  protected volatile StockLocationTree tree;
+  protected final CacheGuard cacheGuard = new CacheGuard();
+
+  @Override
+  public StockLocationTree getTree() {
+    StockLocationTree currentTree = tree;
+    if (currentTree != null) {
+      return currentTree;
+    }
+
+    long generation = cacheGuard.getGeneration();
+    StockLocationTree loadedTree = StockLocationTree.of(fetchStockLocationRowList());
+    cacheGuard.store(
+        generation,
+        () -> {
+          if (tree == null) {
+            tree = loadedTree;
+          }
+        });
+    return loadedTree;
+  }
+
+  @Override
+  public boolean isHierarchyChanged(StockLocation stockLocation) {
+    StockLocationTree currentTree = tree;
+    return currentTree == null
+        || currentTree.isHierarchyChanged(
+            stockLocation.getId(),
+            stockLocation.getParentStockLocation() != null
+                ? stockLocation.getParentStockLocation().getId()
+                : null,
+            stockLocation.getTypeSelect());
+  }
+
+  @Override
+  public void invalidate() {
+    cacheGuard.onChange(() -> tree = null);
+  }
+
+  protected List<Object[]> fetchStockLocationRowList() {
+    return JPA.em()
+        .createQuery(
+            "SELECT self.id, parent.id, self.typeSelect FROM StockLocation self "
+                + "LEFT JOIN self.parentStockLocation parent",
+            Object[].class)
+        .getResultList();
+  }
+}
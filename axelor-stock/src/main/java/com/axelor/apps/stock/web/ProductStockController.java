@@ -21,7 +21,6 @@ package com.axelor.apps.stock.web;
 import com.axelor.apps.base.db.Product;
 import com.axelor.apps.base.db.repo.ProductRepository;
 import com.axelor.apps.base.service.exception.TraceBackService;
-import com.axelor.apps.stock.db.StockLocationLine;
 import com.axelor.apps.stock.db.StockMoveLine;
 import com.axelor.apps.stock.db.repo.StockMoveRepository;
 import com.axelor.apps.stock.service.StockLocationLineService;
@@ -88,12 +87,7 @@ public class ProductStockController {
         return;
       }
       product = Beans.get(ProductRepository.class).find(product.getId());
-      List<StockLocationLine> stockLocationLineList =
-          stockLocationLineService.getStockLocationLines(product);
-
-      for (StockLocationLine stockLocationLine : stockLocationLineList) {
-        stockLocationLineService.updateStockLocationFromProduct(stockLocationLine, product);
-      }
+      stockLocationLineService.updateStockLocationFromProduct(product);
       Beans.get(WeightedAveragePriceService.class).computeAvgPriceForProduct(product);
       response.setReload(true);
     } catch (Exception e) {
@@ -0,0 +1,280 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.db.Product;
+import com.axelor.apps.base.db.Unit;
+import com.axelor.apps.stock.db.StockLocation;
+import com.axelor.apps.stock.db.StockLocationLine;
+import com.axelor.apps.stock.db.TrackingNumber;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestStockLocationLineService {
+
+  private static final Long WAREHOUSE = 1L;
+  private static final Long SUPPLIER = 2L;
+  private static final Long CUSTOMER = 3L;
+
+  private static final Long PIECE = 10L;
+  private static final Long BOX = 11L;
+  private static final Long THIRD = 12L;
+
+  private static final Long SCREW = 20L;
+  private static final Long NAIL = 21L;
+
+  private static final Long LOT_A = 30L;
+  private static final Long LOT_B = 31L;
+
+  /**
+   * Planned stock move lines: from stock location, to stock location, product, tracking number,
+   * unit and quantity.
+   */
+  private static List<Object[]> plannedStockMoveLineList;
+
+  /** Stock location lines, as saved in database. */
+  private static List<StockLocationLine> savedStockLocationLineList = new ArrayList<>();
+
+  private static StockLocationLineService stockLocationLineService;
+
+  @BeforeAll
+  static void prepare() {
+    plannedStockMoveLineList =
+        Arrays.asList(
+            new Object[] {SUPPLIER, WAREHOUSE, SCREW, null, PIECE, new BigDecimal("100")},
+            new Object[] {SUPPLIER, WAREHOUSE, SCREW, null, PIECE, new BigDecimal("100")},
+            new Object[] {SUPPLIER, WAREHOUSE, SCREW, LOT_A, BOX, new BigDecimal("2")},
+            new Object[] {SUPPLIER, WAREHOUSE, SCREW, LOT_A, THIRD, new BigDecimal("1.5")},
+            new Object[] {SUPPLIER, WAREHOUSE, SCREW, LOT_A, THIRD, new BigDecimal("1.5")},
+            new Object[] {SUPPLIER, WAREHOUSE, SCREW, LOT_B, THIRD, new BigDecimal("1.5")},
+            new Object[] {WAREHOUSE, CUSTOMER, SCREW, null, PIECE, new BigDecimal("30")},
+            new Object[] {WAREHOUSE, CUSTOMER, SCREW, LOT_A, BOX, new BigDecimal("1")},
+            new Object[] {WAREHOUSE, CUSTOMER, SCREW, LOT_B, THIRD, new BigDecimal("0.7")},
+            new Object[] {WAREHOUSE, CUSTOMER, NAIL, null, BOX, new BigDecimal("3")},
+            new Object[] {SUPPLIER, CUSTOMER, NAIL, null, PIECE, new BigDecimal("5")});
+
+    stockLocationLineService =
+        new StockLocationLineServiceImpl(null, null, null, null, null, null) {
+          @Override
+          protected List<Object[]> fetchPlannedQtyRowList(
+              String stockLocationField, Set<Long> stockLocationIdSet, Set<Long> productIdSet) {
+            int stockLocationIndex = "fromStockLocation".equals(stockLocationField) ? 0 : 1;
+            Map<List<Object>, Long> countMap = new LinkedHashMap<>();
+            for (Object[] stockMoveLine : plannedStockMoveLineList) {
+              if (stockLocationIdSet.contains(stockMoveLine[stockLocationIndex])
+                  && productIdSet.contains(stockMoveLine[2])) {
+                countMap.merge(
+                    Arrays.asList(
+                        stockMoveLine[stockLocationIndex],
+                        stockMoveLine[2],
+                        stockMoveLine[3],
+                        stockMoveLine[4],
+                        stockMoveLine[5]),
+                    1L,
+                    Long::sum);
+              }
+            }
+            List<Object[]> rowList = new ArrayList<>();
+            countMap.forEach(
+                (key, count) ->
+                    rowList.add(
+                        new Object[] {
+                          key.get(0), key.get(1), key.get(2), key.get(3), key.get(4), count
+                        }));
+            return rowList;
+          }
+
+          @Override
+          protected List<StockLocationLine> fetchStockLocationLineList(
+              Long stockLocationId, int offset) {
+            List<StockLocationLine> stockLocationLineList = new ArrayList<>();
+            for (StockLocationLine stockLocationLine : savedStockLocationLineList) {
+              StockLocation stockLocation =
+                  stockLocationLine.getDetailsStockLocation() != null
+                      ? stockLocationLine.getDetailsStockLocation()
+                      : stockLocationLine.getStockLocation();
+              if (stockLocation.getId().equals(stockLocationId)) {
+                stockLocationLineList.add(stockLocationLine);
+              }
+            }
+            return stockLocationLineList.subList(
+                Math.min(offset, stockLocationLineList.size()), stockLocationLineList.size());
+          }
+
+          @Override
+          protected BigDecimal getConversionCoefficient(
+              Long startUnitId, Unit endUnit, Product product) {
+            return getCoefficient(startUnitId, endUnit.getId());
+          }
+        };
+  }
+
+  private static BigDecimal getCoefficient(Long startUnitId, Long endUnitId) {
+    return getPieceQty(startUnitId).divide(getPieceQty(endUnitId), 10, RoundingMode.HALF_UP);
+  }
+
+  private static BigDecimal getPieceQty(Long unitId) {
+    if (BOX.equals(unitId)) {
+      return new BigDecimal("12");
+    }
+    return THIRD.equals(unitId) ? new BigDecimal("0.333") : BigDecimal.ONE;
+  }
+
+  /** The future quantity computed one planned stock move line at a time. */
+  private static BigDecimal computeFutureQtyPerLine(StockLocationLine stockLocationLine) {
+    boolean isDetail = stockLocationLine.getDetailsStockLocation() != null;
+    Long stockLocationId =
+        isDetail
+            ? stockLocationLine.getDetailsStockLocation().getId()
+            : stockLocationLine.getStockLocation().getId();
+    Long trackingNumberId =
+        stockLocationLine.getTrackingNumber() != null
+            ? stockLocationLine.getTrackingNumber().getId()
+            : null;
+    Long unitId = stockLocationLine.getUnit().getId();
+
+    BigDecimal futureQty = stockLocationLine.getCurrentQty();
+    for (Object[] stockMoveLine : plannedStockMoveLineList) {
+      if (!stockMoveLine[2].equals(stockLocationLine.getProduct().getId())
+          || (isDetail && !Objects.equals(stockMoveLine[3], trackingNumberId))) {
+        continue;
+      }
+      BigDecimal qty = (BigDecimal) stockMoveLine[5];
+      if (!stockMoveLine[4].equals(unitId)) {
+        qty =
+            qty.multiply(getCoefficient((Long) stockMoveLine[4], unitId))
+                .setScale(qty.scale(), RoundingMode.HALF_UP);
+      }
+      if (stockMoveLine[1].equals(stockLocationId)) {
+        futureQty = futureQty.add(qty);
+      }
+      if (stockMoveLine[0].equals(stockLocationId)) {
+        futureQty = futureQty.subtract(qty);
+      }
+    }
+    return futureQty;
+  }
+
+  private static StockLocationLine createStockLocationLine(
+      Long stockLocationId, Long productId, Long unitId, String currentQty) {
+    StockLocationLine stockLocationLine = new StockLocationLine();
+    stockLocationLine.setStockLocation(createStockLocation(stockLocationId));
+    stockLocationLine.setProduct(createProduct(productId));
+    stockLocationLine.setUnit(createUnit(unitId));
+    stockLocationLine.setCurrentQty(new BigDecimal(currentQty));
+    return stockLocationLine;
+  }
+
+  private static StockLocationLine createDetailStockLocationLine(
+      Long stockLocationId, Long productId, Long trackingNumberId, Long unitId, String currentQty) {
+    StockLocationLine stockLocationLine = new StockLocationLine();
+    stockLocationLine.setDetailsStockLocation(createStockLocation(stockLocationId));
+    stockLocationLine.setProduct(createProduct(productId));
+    if (trackingNumberId != null) {
+      TrackingNumber trackingNumber = new TrackingNumber();
+      trackingNumber.setId(trackingNumberId);
+      stockLocationLine.setTrackingNumber(trackingNumber);
+    }
+    stockLocationLine.setUnit(createUnit(unitId));
+    stockLocationLine.setCurrentQty(new BigDecimal(currentQty));
+    return stockLocationLine;
+  }
+
+  private static StockLocation createStockLocation(Long id) {
+    StockLocation stockLocation = new StockLocation();
+    stockLocation.setId(id);
+    return stockLocation;
+  }
+
+  private static Product createProduct(Long id) {
+    Product product = new Product();
+    product.setId(id);
+    return product;
+  }
+
+  private static Unit createUnit(Long id) {
+    Unit unit = new Unit();
+    unit.setId(id);
+    return unit;
+  }
+
+  @Test
+  void testFutureQtyIsTheSameAsPerLine() throws AxelorException {
+    List<StockLocationLine> stockLocationLineList =
+        Arrays.asList(
+            createStockLocationLine(WAREHOUSE, SCREW, PIECE, "50"),
+            createStockLocationLine(WAREHOUSE, NAIL, PIECE, "40"),
+            createStockLocationLine(CUSTOMER, NAIL, BOX, "0"),
+            createStockLocationLine(SUPPLIER, SCREW, THIRD, "0"),
+            createDetailStockLocationLine(WAREHOUSE, SCREW, LOT_A, PIECE, "10"),
+            createDetailStockLocationLine(WAREHOUSE, SCREW, LOT_B, BOX, "1"),
+            createDetailStockLocationLine(WAREHOUSE, SCREW, null, PIECE, "5"));
+
+    stockLocationLineService.updateFutureQty(stockLocationLineList);
+
+    for (StockLocationLine stockLocationLine : stockLocationLineList) {
+      Assertions.assertEquals(
+          computeFutureQtyPerLine(stockLocationLine), stockLocationLine.getFutureQty());
+    }
+  }
+
+  @Test
+  void testFutureQtyOfStockLocation() throws AxelorException {
+    StockLocationLine stockLocationLine = createStockLocationLine(WAREHOUSE, SCREW, PIECE, "50");
+    StockLocationLine detailStockLocationLine =
+        createDetailStockLocationLine(WAREHOUSE, SCREW, LOT_A, PIECE, "10");
+    StockLocationLine otherStockLocationLine = createStockLocationLine(CUSTOMER, NAIL, BOX, "0");
+    savedStockLocationLineList =
+        Arrays.asList(stockLocationLine, detailStockLocationLine, otherStockLocationLine);
+
+    stockLocationLineService.updateFutureQty(createStockLocation(WAREHOUSE));
+
+    Assertions.assertEquals(
+        computeFutureQtyPerLine(stockLocationLine), stockLocationLine.getFutureQty());
+    Assertions.assertEquals(
+        computeFutureQtyPerLine(detailStockLocationLine), detailStockLocationLine.getFutureQty());
+    Assertions.assertEquals(BigDecimal.ZERO, otherStockLocationLine.getFutureQty());
+  }
+
+  @Test
+  void testFutureQty() throws AxelorException {
+    StockLocationLine stockLocationLine = createStockLocationLine(WAREHOUSE, SCREW, PIECE, "50");
+    Assertions.assertEquals(
+        new BigDecimal("233.3"), stockLocationLineService.computeFutureQty(stockLocationLine));
+  }
+
+  @Test
+  void testFutureQtyWithoutTrackingNumber() throws AxelorException {
+    StockLocationLine detailStockLocationLine =
+        createDetailStockLocationLine(WAREHOUSE, SCREW, null, PIECE, "5");
+    Assertions.assertEquals(
+        new BigDecimal("175"), stockLocationLineService.computeFutureQty(detailStockLocationLine));
+  }
+}
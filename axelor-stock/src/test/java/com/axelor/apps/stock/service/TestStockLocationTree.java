@@ -0,0 +1,90 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.stock.service;
+
+import com.axelor.apps.stock.db.repo.StockLocationRepository;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestStockLocationTree {
+
+  private static StockLocationTree tree;
+
+  /*
+   * 1 warehouse
+   * - 2 zone
+   *   - 4 shelf
+   * - 3 virtual zone
+   *   - 5 shelf of the virtual zone
+   * 6 alone
+   */
+  @BeforeAll
+  static void prepare() {
+    tree =
+        StockLocationTree.of(
+            Arrays.asList(
+                new Object[] {5L, 3L, StockLocationRepository.TYPE_INTERNAL},
+                new Object[] {4L, 2L, StockLocationRepository.TYPE_INTERNAL},
+                new Object[] {3L, 1L, StockLocationRepository.TYPE_VIRTUAL},
+                new Object[] {2L, 1L, StockLocationRepository.TYPE_INTERNAL},
+                new Object[] {1L, null, StockLocationRepository.TYPE_INTERNAL},
+                new Object[] {6L, null, null}));
+  }
+
+  @Test
+  void testSubLocations() {
+    Assertions.assertEquals(Arrays.asList(4L, 2L, 5L, 3L, 1L), tree.getSubLocationIdList(1L, true));
+    Assertions.assertEquals(Arrays.asList(4L, 2L, 1L), tree.getSubLocationIdList(1L, false));
+    Assertions.assertEquals(Arrays.asList(5L, 3L), tree.getSubLocationIdList(3L, false));
+    Assertions.assertEquals(Collections.singletonList(6L), tree.getSubLocationIdList(6L, false));
+    Assertions.assertEquals(Collections.singletonList(7L), tree.getSubLocationIdList(7L, true));
+  }
+
+  @Test
+  void testParentLocations() {
+    Assertions.assertEquals(Arrays.asList(5L, 3L, 1L), tree.getParentLocationIdList(5L));
+    Assertions.assertEquals(Collections.singletonList(1L), tree.getParentLocationIdList(1L));
+    Assertions.assertEquals(2L, tree.getParentLocationId(4L));
+    Assertions.assertNull(tree.getParentLocationId(1L));
+  }
+
+  @Test
+  void testLoopInHierarchy() {
+    StockLocationTree loopTree =
+        StockLocationTree.of(
+            Arrays.asList(
+                new Object[] {1L, 2L, StockLocationRepository.TYPE_INTERNAL},
+                new Object[] {2L, 1L, StockLocationRepository.TYPE_INTERNAL}));
+    Assertions.assertEquals(Arrays.asList(2L, 1L), loopTree.getParentLocationIdList(2L));
+    Assertions.assertTrue(loopTree.getSubLocationIdList(1L, true).contains(1L));
+  }
+
+  @Test
+  void testHierarchyChanged() {
+    Assertions.assertFalse(tree.isHierarchyChanged(4L, 2L, StockLocationRepository.TYPE_INTERNAL));
+    Assertions.assertFalse(tree.isHierarchyChanged(3L, 1L, StockLocationRepository.TYPE_VIRTUAL));
+    Assertions.assertFalse(tree.isHierarchyChanged(5L, 3L, StockLocationRepository.TYPE_EXTERNAL));
+    Assertions.assertTrue(tree.isHierarchyChanged(4L, 1L, StockLocationRepository.TYPE_INTERNAL));
+    Assertions.assertTrue(tree.isHierarchyChanged(2L, 1L, StockLocationRepository.TYPE_VIRTUAL));
+    Assertions.assertTrue(tree.isHierarchyChanged(7L, null, StockLocationRepository.TYPE_INTERNAL));
+  }
+}
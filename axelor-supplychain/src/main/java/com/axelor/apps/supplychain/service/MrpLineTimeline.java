@@ -0,0 +1,133 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compact in-memory view of the MRP lines of one product, used by the in-memory MRP computation.
+ * Entries must be added in the order used by the MRP (maturity date, type, sequence, id).
+ */
+public class MrpLineTimeline {
+
+  protected final List<Entry> entryList = new ArrayList<>();
+
+  public void addEntry(
+      Long mrpLineId,
+      BigDecimal qty,
+      BigDecimal storedCumulativeQty,
+      BigDecimal minQty,
+      boolean excludedFromCumulativeQty) {
+    entryList.add(
+        new Entry(
+            mrpLineId,
+            qty != null ? qty : BigDecimal.ZERO,
+            storedCumulativeQty,
+            minQty != null ? minQty : BigDecimal.ZERO,
+            excludedFromCumulativeQty));
+  }
+
+  public List<Entry> getEntryList() {
+    return Collections.unmodifiableList(entryList);
+  }
+
+  public boolean isEmpty() {
+    return entryList.isEmpty();
+  }
+
+  /**
+   * Compute the cumulative qty of every entry, the same way as {@link
+   * MrpServiceImpl#computeCumulativeQty(com.axelor.apps.base.db.Product)} does on the entities.
+   */
+  public void computeCumulativeQty() {
+    BigDecimal previousCumulativeQty = BigDecimal.ZERO;
+    for (Entry entry : entryList) {
+      if (entry.excludedFromCumulativeQty) {
+        entry.cumulativeQty = previousCumulativeQty;
+      } else {
+        entry.cumulativeQty = previousCumulativeQty.add(entry.qty);
+      }
+      previousCumulativeQty = entry.cumulativeQty;
+    }
+  }
+
+  /**
+   * @return the entries whose computed cumulative qty differs from the one stored in database.
+   */
+  public List<Entry> getModifiedEntryList() {
+    return entryList.stream().filter(Entry::isModified).collect(Collectors.toList());
+  }
+
+  public static class Entry {
+
+    protected final Long mrpLineId;
+    protected final BigDecimal qty;
+    protected final BigDecimal storedCumulativeQty;
+    protected final BigDecimal minQty;
+    protected final boolean excludedFromCumulativeQty;
+    protected BigDecimal cumulativeQty;
+
+    protected Entry(
+        Long mrpLineId,
+        BigDecimal qty,
+        BigDecimal storedCumulativeQty,
+        BigDecimal minQty,
+        boolean excludedFromCumulativeQty) {
+      this.mrpLineId = mrpLineId;
+      this.qty = qty;
+      this.storedCumulativeQty = storedCumulativeQty;
+      this.minQty = minQty;
+      this.excludedFromCumulativeQty = excludedFromCumulativeQty;
+      this.cumulativeQty = storedCumulativeQty;
+    }
+
+    public Long getMrpLineId() {
+      return mrpLineId;
+    }
+
+    public BigDecimal getQty() {
+      return qty;
+    }
+
+    public BigDecimal getMinQty() {
+      return minQty;
+    }
+
+    public BigDecimal getCumulativeQty() {
+      return cumulativeQty;
+    }
+
+    /**
+     * A line can only lead to a proposal when its cumulative qty is below its min qty, so other
+     * lines do not need to be loaded.
+     */
+    public boolean isInsufficient() {
+      return cumulativeQty != null && cumulativeQty.compareTo(minQty) < 0;
+    }
+
+    public boolean isModified() {
+      return cumulativeQty != null
+          && (storedCumulativeQty == null || cumulativeQty.compareTo(storedCumulativeQty) != 0);
+    }
+  }
+}
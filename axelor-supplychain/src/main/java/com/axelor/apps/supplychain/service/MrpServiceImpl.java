@@ -21,6 +21,7 @@ package com.axelor.apps.supplychain.service;
 import static java.time.temporal.ChronoUnit.DAYS;
 
 import com.axelor.apps.base.AxelorException;
+import com.axelor.apps.base.callable.ParallelWorkerTool;
 import com.axelor.apps.base.db.Company;
 import com.axelor.apps.base.db.Partner;
 import com.axelor.apps.base.db.Product;
@@ -64,6 +65,7 @@ import com.axelor.apps.supplychain.db.repo.MrpLineRepository;
 import com.axelor.apps.supplychain.db.repo.MrpLineTypeRepository;
 import com.axelor.apps.supplychain.db.repo.MrpRepository;
 import com.axelor.apps.supplychain.exception.SupplychainExceptionMessage;
+import com.axelor.apps.supplychain.service.app.AppSupplychainService;
 import com.axelor.auth.AuthUtils;
 import com.axelor.db.JPA;
 import com.axelor.db.Model;
@@ -71,6 +73,7 @@ import com.axelor.db.Query;
 import com.axelor.db.mapper.Mapper;
 import com.axelor.i18n.I18n;
 import com.axelor.message.service.MailMessageService;
+import com.axelor.studio.db.AppSupplychain;
 import com.axelor.utils.helpers.StringHelper;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -91,10 +94,12 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -103,6 +108,8 @@ public class MrpServiceImpl implements MrpService {
 
   private final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
   private static final Integer ITERATIONS = 100;
+  protected static final int MRP_LINE_BATCH_SIZE = 500;
+  protected static final int MRP_PRODUCT_PARTITION_SIZE = 20;
 
   protected MrpRepository mrpRepository;
   protected StockLocationRepository stockLocationRepository;
@@ -126,6 +133,7 @@ public class MrpServiceImpl implements MrpService {
   protected AppBaseService appBaseService;
   protected AppSaleService appSaleService;
   protected AppPurchaseService appPurchaseService;
+  protected AppSupplychainService appSupplychainService;
 
   protected List<StockLocation> stockLocationList;
   protected Map<Long, Integer> productMap;
@@ -156,7 +164,8 @@ public class MrpServiceImpl implements MrpService {
       AppPurchaseService appPurchaseService,
       StockHistoryLineRepository stockHistoryLineRepository,
       MrpSaleOrderCheckLateSaleService mrpSaleOrderCheckLateSaleService,
-      MrpLineTypeService mrpLineTypeService) {
+      MrpLineTypeService mrpLineTypeService,
+      AppSupplychainService appSupplychainService) {
 
     this.mrpRepository = mrpRepository;
     this.stockLocationRepository = stockLocationRepository;
@@ -179,6 +188,7 @@ public class MrpServiceImpl implements MrpService {
     this.stockHistoryLineRepository = stockHistoryLineRepository;
     this.mrpLineTypeService = mrpLineTypeService;
     this.mrpSaleOrderCheckLateSaleService = mrpSaleOrderCheckLateSaleService;
+    this.appSupplychainService = appSupplychainService;
   }
 
   @Override
@@ -304,11 +314,25 @@ public class MrpServiceImpl implements MrpService {
 
   protected void checkInsufficientCumulativeQty() throws AxelorException {
 
+    boolean inMemoryComputation = this.isInMemoryComputation();
+    int workerNbr = inMemoryComputation ? this.getWorkerNbr() : 1;
+
+    if (workerNbr > 1) {
+      // Products of a level are computed concurrently and may add their components to the maps
+      this.productMap = new ConcurrentHashMap<>(this.productMap);
+    }
+
     for (int level = 0; level <= this.getMaxLevel(); level++) {
       this.currentLevel = level;
-      this.productMapToBeAssigned = new HashMap<>();
-      for (Product product : this.getProductList(level)) {
-        this.checkInsufficientCumulativeQty(product);
+      this.productMapToBeAssigned = workerNbr > 1 ? new ConcurrentHashMap<>() : new HashMap<>();
+      if (workerNbr > 1) {
+        this.checkInsufficientCumulativeQtyInParallel(this.getProductIdList(level), workerNbr);
+      } else if (inMemoryComputation) {
+        this.checkInsufficientCumulativeQtyInMemory(this.getProductIdList(level));
+      } else {
+        for (Product product : this.getProductList(level)) {
+          this.checkInsufficientCumulativeQty(product);
+        }
       }
       if (productMapToBeAssigned != null && !this.productMapToBeAssigned.isEmpty()) {
         this.fillMrpLinesForProductMap(productMapToBeAssigned);
@@ -336,6 +360,20 @@ public class MrpServiceImpl implements MrpService {
     return productList;
   }
 
+  /**
+   * Get the list of product ids for a level, without loading the products.
+   *
+   * @param level
+   * @return
+   */
+  protected List<Long> getProductIdList(int level) {
+
+    return this.productMap.entrySet().stream()
+        .filter(entry -> entry.getValue() == level)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toList());
+  }
+
   protected int getMaxLevel() {
 
     int maxLevel = 0;
@@ -495,6 +533,271 @@ public class MrpServiceImpl implements MrpService {
     return false;
   }
 
+  protected boolean isInMemoryComputation() {
+    AppSupplychain appSupplychain = appSupplychainService.getAppSupplychain();
+    return appSupplychain != null && appSupplychain.getMrpInMemoryComputation();
+  }
+
+  /**
+   * In memory version of {@link #checkInsufficientCumulativeQty(Product)}: the lines of all the
+   * products of the level are loaded at once as {@link MrpLineTimeline}, the cumulative qty is
+   * computed in memory and only the lines with an insufficient cumulative qty are loaded as
+   * entities to create the proposals. Computed cumulative qties are then written back in bulk.
+   *
+   * @param productIdList the ids of the products of the current level
+   * @throws AxelorException
+   */
+  protected void checkInsufficientCumulativeQtyInMemory(List<Long> productIdList)
+      throws AxelorException {
+
+    Map<Long, MrpLineTimeline> timelineMap = this.getMrpLineTimelineMap(productIdList);
+
+    for (Long productId : productIdList) {
+      this.checkInsufficientCumulativeQtyInMemory(
+          productId, timelineMap.getOrDefault(productId, new MrpLineTimeline()));
+      JPA.clear();
+    }
+  }
+
+  /**
+   * Same as {@link #checkInsufficientCumulativeQtyInMemory(List)} but the products of the level are
+   * split in partitions computed by a pool of workers, each one with its own entity manager. The
+   * method returns once the whole level is computed so {@link #productMapToBeAssigned} is complete
+   * before the next level starts.
+   *
+   * <p>The proposals of a product may update the proposals of its components, which other products
+   * of the level can share. Products sharing a proposal product are kept in the same partition, so
+   * that they are computed one after the other by the same worker.
+   *
+   * @param productIdList the ids of the products of the current level
+   * @param workerNbr the number of threads
+   * @throws AxelorException
+   */
+  protected void checkInsufficientCumulativeQtyInParallel(List<Long> productIdList, int workerNbr)
+      throws AxelorException {
+
+    Map<Long, MrpLineTimeline> timelineMap = this.getMrpLineTimelineMap(productIdList);
+    List<List<Long>> partitionList = this.getProductPartitionList(productIdList);
+    JPA.clear();
+
+    ParallelWorkerTool.run(
+        partitionList,
+        workerNbr,
+        partition -> {
+          for (Long productId : partition) {
+            this.checkInsufficientCumulativeQtyInMemory(
+                productId, timelineMap.getOrDefault(productId, new MrpLineTimeline()));
+            JPA.clear();
+          }
+        });
+  }
+
+  /**
+   * Split the products of a level in partitions of about {@link #MRP_PRODUCT_PARTITION_SIZE}
+   * products, two products sharing a proposal product being always in the same partition.
+   *
+   * @param productIdList the ids of the products of the current level
+   * @return the partitions, each one with its products in the order of the given list
+   */
+  protected List<List<Long>> getProductPartitionList(List<Long> productIdList) {
+
+    // Union find of the products of the level, linked through their proposal products
+    Map<Long, Long> parentMap = new HashMap<>();
+    Map<Long, Long> proposalProductOwnerMap = new HashMap<>();
+    Map<Long, Set<Long>> proposalProductIdMap = this.getProposalProductIdMap(productIdList);
+
+    for (Long productId : productIdList) {
+      parentMap.put(productId, productId);
+      for (Long proposalProductId :
+          proposalProductIdMap.getOrDefault(productId, Collections.singleton(productId))) {
+        Long ownerId = proposalProductOwnerMap.putIfAbsent(proposalProductId, productId);
+        if (ownerId != null) {
+          parentMap.put(this.findRoot(parentMap, ownerId), this.findRoot(parentMap, productId));
+        }
+      }
+    }
+
+    Map<Long, List<Long>> groupMap = new LinkedHashMap<>();
+    for (Long productId : productIdList) {
+      groupMap
+          .computeIfAbsent(this.findRoot(parentMap, productId), root -> new ArrayList<>())
+          .add(productId);
+    }
+
+    List<List<Long>> partitionList = new ArrayList<>();
+    List<Long> partition = new ArrayList<>();
+    for (List<Long> group : groupMap.values()) {
+      partition.addAll(group);
+      if (partition.size() >= MRP_PRODUCT_PARTITION_SIZE) {
+        partitionList.add(partition);
+        partition = new ArrayList<>();
+      }
+    }
+    if (!partition.isEmpty()) {
+      partitionList.add(partition);
+    }
+    return partitionList;
+  }
+
+  protected Long findRoot(Map<Long, Long> parentMap, Long productId) {
+    Long root = productId;
+    while (!root.equals(parentMap.get(root))) {
+      root = parentMap.get(root);
+    }
+    parentMap.put(productId, root);
+    return root;
+  }
+
+  /**
+   * Get the products whose proposals may be created or updated when computing each product: the
+   * product itself only, overridden when proposals also create lines for other products.
+   *
+   * @param productIdList the ids of the products of the current level
+   * @return the proposal product ids by product id, a missing product only proposes itself
+   */
+  protected Map<Long, Set<Long>> getProposalProductIdMap(List<Long> productIdList) {
+    return new HashMap<>();
+  }
+
+  protected int getWorkerNbr() {
+    AppSupplychain appSupplychain = appSupplychainService.getAppSupplychain();
+    if (appSupplychain == null || appSupplychain.getMrpWorkerNbr() <= 0) {
+      return 1;
+    }
+    return appSupplychain.getMrpWorkerNbr();
+  }
+
+  protected void checkInsufficientCumulativeQtyInMemory(Long productId, MrpLineTimeline timeline)
+      throws AxelorException {
+
+    final int MAX_ITERATION = 1000;
+
+    for (int counter = 0; ; counter++) {
+
+      if (counter > MAX_ITERATION) {
+        throw new AxelorException(
+            TraceBackRepository.CATEGORY_INCONSISTENCY,
+            I18n.get(SupplychainExceptionMessage.MRP_TOO_MANY_ITERATIONS));
+      }
+
+      timeline.computeCumulativeQty();
+
+      boolean doASecondPass = false;
+
+      for (MrpLineTimeline.Entry entry : timeline.getEntryList()) {
+        if (!entry.isInsufficient()) {
+          continue;
+        }
+        MrpLine mrpLine = mrpLineRepository.find(entry.getMrpLineId());
+        mrpLine.setCumulativeQty(entry.getCumulativeQty());
+        doASecondPass =
+            this.checkInsufficientCumulativeQty(
+                mrpLine, productRepository.find(productId), counter == 0);
+        if (doASecondPass) {
+          break;
+        }
+      }
+
+      if (!doASecondPass) {
+        break;
+      }
+
+      // A proposal has been created or updated: reload the lines of the product
+      JPA.clear();
+      timeline =
+          this.getMrpLineTimelineMap(Collections.singletonList(productId))
+              .getOrDefault(productId, new MrpLineTimeline());
+    }
+
+    this.saveCumulativeQty(timeline.getModifiedEntryList());
+  }
+
+  /**
+   * Load the mrp lines of the given products, ordered the same way as in {@link
+   * #computeCumulativeQty(Product)}, without loading the entities.
+   *
+   * @param productIdList
+   * @return a timeline for each product having at least one mrp line
+   */
+  protected Map<Long, MrpLineTimeline> getMrpLineTimelineMap(List<Long> productIdList) {
+
+    Map<Long, MrpLineTimeline> timelineMap = new HashMap<>();
+
+    for (List<Long> productIdSubList : Lists.partition(productIdList, MRP_LINE_BATCH_SIZE)) {
+      List<Object[]> resultList =
+          JPA.em()
+              .createQuery(
+                  "SELECT self.id, self.product.id, self.qty, self.cumulativeQty, self.minQty, "
+                      + "mrpLineType.elementSelect, estimatedDeliveryMrpLine.id "
+                      + "FROM MrpLine self "
+                      + "LEFT JOIN self.mrpLineType mrpLineType "
+                      + "LEFT JOIN self.estimatedDeliveryMrpLine estimatedDeliveryMrpLine "
+                      + "WHERE self.mrp.id = :mrpId AND self.product.id IN (:productIdList) "
+                      + "ORDER BY self.product.id, self.maturityDate, mrpLineType.typeSelect, "
+                      + "mrpLineType.sequence, self.id",
+                  Object[].class)
+              .setParameter("mrpId", mrp.getId())
+              .setParameter("productIdList", productIdSubList)
+              .getResultList();
+
+      for (Object[] result : resultList) {
+        Integer elementSelect = (Integer) result[5];
+        boolean excludedFromCumulativeQty =
+            elementSelect != null
+                && elementSelect == MrpLineTypeRepository.ELEMENT_PURCHASE_PROPOSAL
+                && result[6] != null;
+        timelineMap
+            .computeIfAbsent((Long) result[1], productId -> new MrpLineTimeline())
+            .addEntry(
+                (Long) result[0],
+                (BigDecimal) result[2],
+                (BigDecimal) result[3],
+                (BigDecimal) result[4],
+                excludedFromCumulativeQty);
+      }
+    }
+
+    return timelineMap;
+  }
+
+  /**
+   * Write the computed cumulative qties with one update query per distinct qty and per batch of
+   * lines.
+   *
+   * @param entryList
+   */
+  protected void saveCumulativeQty(List<MrpLineTimeline.Entry> entryList) {
+
+    if (entryList.isEmpty()) {
+      return;
+    }
+
+    Map<BigDecimal, List<Long>> mrpLineIdMap =
+        entryList.stream()
+            .collect(
+                Collectors.groupingBy(
+                    entry -> entry.getCumulativeQty().stripTrailingZeros(),
+                    Collectors.mapping(MrpLineTimeline.Entry::getMrpLineId, Collectors.toList())));
+
+    for (Map.Entry<BigDecimal, List<Long>> mrpLineIdEntry : mrpLineIdMap.entrySet()) {
+      for (List<Long> mrpLineIdList :
+          Lists.partition(mrpLineIdEntry.getValue(), MRP_LINE_BATCH_SIZE)) {
+        this.saveCumulativeQty(mrpLineIdList, mrpLineIdEntry.getKey());
+      }
+    }
+  }
+
+  @Transactional
+  protected void saveCumulativeQty(List<Long> mrpLineIdList, BigDecimal cumulativeQty) {
+    JPA.em()
+        .createQuery(
+            "UPDATE MrpLine self SET self.cumulativeQty = :cumulativeQty "
+                + "WHERE self.id IN (:mrpLineIdList)")
+        .setParameter("cumulativeQty", cumulativeQty)
+        .setParameter("mrpLineIdList", mrpLineIdList)
+        .executeUpdate();
+  }
+
   public MrpLine getPreviousProposalMrpLine(
       Product product,
       MrpLineType mrpLineType,
@@ -1518,8 +1821,9 @@ public class MrpServiceImpl implements MrpService {
       }
       if (!this.productMap.containsKey(product.getId())) {
         int nextLevel = currentLevel + 1;
-        this.productMap.put(product.getId(), nextLevel);
-        this.productMapToBeAssigned.put(product.getId(), nextLevel);
+        if (this.productMap.putIfAbsent(product.getId(), nextLevel) == null) {
+          this.productMapToBeAssigned.put(product.getId(), nextLevel);
+        }
       }
       return mrpLineService.createMrpLine(
           mrp,
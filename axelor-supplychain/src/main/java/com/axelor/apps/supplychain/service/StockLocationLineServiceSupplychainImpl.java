@@ -134,14 +134,14 @@ public class StockLocationLineServiceSupplychainImpl extends StockLocationLineSe
   }
 
   @Override
-  public StockLocationLine updateLocationFromProduct(
-      StockLocationLine stockLocationLine, Product product) throws AxelorException {
-    stockLocationLine = super.updateLocationFromProduct(stockLocationLine, product);
+  protected boolean updateUnitFromProduct(StockLocationLine stockLocationLine, Product product)
+      throws AxelorException {
+    boolean isUnitUpdated = super.updateUnitFromProduct(stockLocationLine, product);
 
     if (appSupplychainService.isApp("supplychain")) {
       Beans.get(ReservedQtyService.class).updateRequestedReservedQty(stockLocationLine);
     }
 
-    return stockLocationLine;
+    return isUnitUpdated;
   }
 }
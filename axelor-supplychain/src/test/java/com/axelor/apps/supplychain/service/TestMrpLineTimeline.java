@@ -0,0 +1,67 @@
+/*
+ * Axelor Business Solutions
+ *
+ * Copyright (C) 2005-2024 Axelor (<http://axelor.com>).
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.axelor.apps.supplychain.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class TestMrpLineTimeline {
+
+  @Test
+  void testComputeCumulativeQty() {
+    MrpLineTimeline timeline = new MrpLineTimeline();
+    timeline.addEntry(1L, new BigDecimal("10"), BigDecimal.ZERO, BigDecimal.ZERO, false);
+    timeline.addEntry(2L, new BigDecimal("-4"), BigDecimal.ZERO, BigDecimal.ZERO, false);
+    timeline.addEntry(3L, new BigDecimal("5"), BigDecimal.ZERO, BigDecimal.ZERO, true);
+    timeline.addEntry(4L, new BigDecimal("-8"), BigDecimal.ZERO, BigDecimal.ZERO, false);
+    timeline.computeCumulativeQty();
+
+    List<MrpLineTimeline.Entry> entryList = timeline.getEntryList();
+    Assertions.assertEquals(0, new BigDecimal("10").compareTo(entryList.get(0).getCumulativeQty()));
+    Assertions.assertEquals(0, new BigDecimal("6").compareTo(entryList.get(1).getCumulativeQty()));
+    Assertions.assertEquals(0, new BigDecimal("6").compareTo(entryList.get(2).getCumulativeQty()));
+    Assertions.assertEquals(0, new BigDecimal("-2").compareTo(entryList.get(3).getCumulativeQty()));
+  }
+
+  @Test
+  void testIsInsufficient() {
+    MrpLineTimeline timeline = new MrpLineTimeline();
+    timeline.addEntry(1L, new BigDecimal("10"), BigDecimal.ZERO, new BigDecimal("5"), false);
+    timeline.addEntry(2L, new BigDecimal("-6"), BigDecimal.ZERO, new BigDecimal("5"), false);
+    timeline.computeCumulativeQty();
+
+    List<MrpLineTimeline.Entry> entryList = timeline.getEntryList();
+    Assertions.assertFalse(entryList.get(0).isInsufficient());
+    Assertions.assertTrue(entryList.get(1).isInsufficient());
+  }
+
+  @Test
+  void testGetModifiedEntryList() {
+    MrpLineTimeline timeline = new MrpLineTimeline();
+    timeline.addEntry(1L, new BigDecimal("10"), new BigDecimal("10.00"), BigDecimal.ZERO, false);
+    timeline.addEntry(2L, new BigDecimal("-4"), BigDecimal.ZERO, BigDecimal.ZERO, false);
+    timeline.computeCumulativeQty();
+
+    List<MrpLineTimeline.Entry> modifiedEntryList = timeline.getModifiedEntryList();
+    Assertions.assertEquals(1, modifiedEntryList.size());
+    Assertions.assertEquals(2L, modifiedEntryList.get(0).getMrpLineId());
+  }
+}